@@ -0,0 +1,76 @@
+package com.restaurant.recommendation.catalog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Top-10 lookups over clustered unit vectors: IVF probing a few lists against a full scan
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorIndexBenchmark {
+    private static final int DIMENSIONS = 64;
+
+    @Param({"10000", "100000"})
+    private int vectors;
+
+    @Param({"8", "32"})
+    private int probes;
+
+    private VectorIndex index;
+    private float[][] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        float[] data = new float[vectors * DIMENSIONS];
+        for (int i = 0; i < vectors; i++) {
+            // Points scattered around one of 500 fixed directions
+            Random cluster = new Random(random.nextInt(500));
+            double norm = 0;
+            for (int d = 0; d < DIMENSIONS; d++) {
+                float value = (float) (cluster.nextGaussian() + 0.5 * random.nextGaussian());
+                data[i * DIMENSIONS + d] = value;
+                norm += value * value;
+            }
+            for (int d = 0; d < DIMENSIONS; d++) {
+                data[i * DIMENSIONS + d] /= (float) Math.sqrt(norm);
+            }
+        }
+        index = new VectorIndex(data, DIMENSIONS, 0, 1L);
+
+        queries = new float[256][DIMENSIONS];
+        for (int i = 0; i < queries.length; i++) {
+            System.arraycopy(data, random.nextInt(vectors) * DIMENSIONS, queries[i], 0, DIMENSIONS);
+        }
+    }
+
+    private float[] nextQuery() {
+        return queries[next++ & (queries.length - 1)];
+    }
+
+    @Benchmark
+    public VectorIndex.Neighbors probed() {
+        return index.search(nextQuery(), 10, probes);
+    }
+
+    @Benchmark
+    public VectorIndex.Neighbors exhaustive() {
+        return index.search(nextQuery(), 10, index.getLists());
+    }
+}
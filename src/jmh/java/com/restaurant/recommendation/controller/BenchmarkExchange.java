@@ -0,0 +1,63 @@
+package com.restaurant.recommendation.controller;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+// In-memory HttpExchange so the controller can be driven without sockets
+class BenchmarkExchange extends HttpExchange {
+    private static final URI URI_RECOMMENDATIONS = URI.create("/api/recommendations");
+    private static final InetSocketAddress ADDRESS = new InetSocketAddress("127.0.0.1", 8080);
+
+    private final Headers requestHeaders = new Headers();
+    private final Headers responseHeaders = new Headers();
+    private final Map<String, Object> attributes = new HashMap<>();
+    private InputStream requestBody;
+    private final ByteArrayOutputStream responseBody = new ByteArrayOutputStream(1024);
+    private int responseCode = -1;
+
+    BenchmarkExchange(byte[] body, String sessionId) {
+        this.requestBody = new ByteArrayInputStream(body);
+        requestHeaders.add("Content-Type", "application/json");
+        requestHeaders.add("Content-Length", Integer.toString(body.length));
+        if (sessionId != null) {
+            requestHeaders.add(RecommendationController.SESSION_HEADER, sessionId);
+        }
+    }
+
+    int responseSize() {
+        return responseBody.size();
+    }
+
+    @Override public Headers getRequestHeaders() { return requestHeaders; }
+    @Override public Headers getResponseHeaders() { return responseHeaders; }
+    @Override public URI getRequestURI() { return URI_RECOMMENDATIONS; }
+    @Override public String getRequestMethod() { return "POST"; }
+    @Override public HttpContext getHttpContext() { return null; }
+    @Override public void close() { }
+    @Override public InputStream getRequestBody() { return requestBody; }
+    @Override public OutputStream getResponseBody() { return responseBody; }
+    @Override public void sendResponseHeaders(int rCode, long responseLength) { this.responseCode = rCode; }
+    @Override public InetSocketAddress getRemoteAddress() { return ADDRESS; }
+    @Override public int getResponseCode() { return responseCode; }
+    @Override public InetSocketAddress getLocalAddress() { return ADDRESS; }
+    @Override public String getProtocol() { return "HTTP/1.1"; }
+    @Override public Object getAttribute(String name) { return attributes.get(name); }
+    @Override public void setAttribute(String name, Object value) { attributes.put(name, value); }
+    @Override public HttpPrincipal getPrincipal() { return null; }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) requestBody = i;
+    }
+}
@@ -0,0 +1,64 @@
+package com.restaurant.recommendation.controller;
+
+import com.restaurant.recommendation.model.RecommendationRequest;
+import com.restaurant.recommendation.service.BenchmarkData;
+import com.restaurant.recommendation.service.IAIService;
+import com.restaurant.recommendation.service.RestaurantService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Parse -> service -> output parse -> serialize, with the AI call stubbed out
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControllerRoundTripBenchmark {
+
+    // Answers instantly with a canned markdown response
+    static class StubAIService implements IAIService {
+        @Override
+        public CompletableFuture<String> getRecommendationAsync(RecommendationRequest request) {
+            return CompletableFuture.completedFuture(BenchmarkData.MARKDOWN_RESPONSE);
+        }
+
+        @Override
+        public CompletableFuture<String> streamRecommendation(RecommendationRequest request, Consumer<String> onDelta) {
+            onDelta.accept(BenchmarkData.MARKDOWN_RESPONSE);
+            return CompletableFuture.completedFuture(BenchmarkData.MARKDOWN_RESPONSE);
+        }
+
+        @Override public void resetConversation(String sessionId) { }
+        @Override public String getCurrentLocation(String sessionId) { return null; }
+        @Override public boolean isAvailable() { return true; }
+    }
+
+    private RecommendationController controller;
+
+    @Setup
+    public void setUp() {
+        StubAIService aiService = new StubAIService();
+        controller = new RecommendationController(new RestaurantService(aiService), aiService);
+    }
+
+    @Benchmark
+    public int handleGetRecommendations() throws IOException {
+        BenchmarkExchange exchange = new BenchmarkExchange(BenchmarkData.REQUEST_BYTES, "bench-session");
+        controller.handleGetRecommendations(exchange);
+        return exchange.responseSize();
+    }
+}
@@ -0,0 +1,32 @@
+package com.restaurant.recommendation.controller;
+
+import com.restaurant.recommendation.model.RecommendationRequest;
+import com.restaurant.recommendation.service.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestParsingBenchmark {
+
+    @Benchmark
+    public RecommendationRequest parseRecommendationRequest() throws IOException {
+        return RecommendationController.parseRecommendationRequest(
+            new ByteArrayInputStream(BenchmarkData.REQUEST_BYTES), RecommendationController.DEFAULT_MAX_BODY_BYTES);
+    }
+}
@@ -0,0 +1,48 @@
+package com.restaurant.recommendation.core;
+
+import com.restaurant.recommendation.model.RecommendationResponse;
+import com.restaurant.recommendation.service.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    @Param({"3", "50", "500"})
+    public int restaurants;
+
+    private RecommendationResponse response;
+
+    @Setup
+    public void setUp() {
+        response = BenchmarkData.response(restaurants);
+    }
+
+    @Benchmark
+    public int writeRecommendationResponse() throws IOException {
+        JsonWriter json = JsonWriter.acquire();
+        try {
+            RestaurantRecommendationServer.writeRecommendationResponse(json, response);
+            return json.size();
+        } finally {
+            json.release();
+        }
+    }
+}
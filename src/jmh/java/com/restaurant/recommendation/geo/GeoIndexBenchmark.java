@@ -0,0 +1,65 @@
+package com.restaurant.recommendation.geo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Radius and nearest-neighbour lookups over venues scattered across the continental US
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoIndexBenchmark {
+    @Param({"100000", "1000000", "5000000"})
+    private int points;
+
+    private GeoIndex index;
+    private double[][] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        double[] latitudes = new double[points];
+        double[] longitudes = new double[points];
+        for (int i = 0; i < points; i++) {
+            latitudes[i] = 25 + random.nextDouble() * 24;
+            longitudes[i] = -124 + random.nextDouble() * 57;
+        }
+        index = new GeoIndex(latitudes, longitudes);
+
+        queries = new double[1024][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = new double[] {25 + random.nextDouble() * 24, -124 + random.nextDouble() * 57};
+        }
+    }
+
+    private double[] nextQuery() {
+        return queries[next++ & (queries.length - 1)];
+    }
+
+    @Benchmark
+    public int[] withinRadius5Km() {
+        double[] query = nextQuery();
+        return index.withinRadius(query[0], query[1], 5.0);
+    }
+
+    @Benchmark
+    public int[] nearest10() {
+        double[] query = nextQuery();
+        return index.nearest(query[0], query[1], 10, 100.0);
+    }
+}
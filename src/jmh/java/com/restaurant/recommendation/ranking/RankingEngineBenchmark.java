@@ -0,0 +1,82 @@
+package com.restaurant.recommendation.ranking;
+
+import com.restaurant.recommendation.geo.GeoPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Full scoring pass plus top-K selection over a million candidates, on the calling thread or split
+// across a dedicated pool
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RankingEngineBenchmark {
+    private static final String[] CUISINES = {"Italian", "Thai", "Mexican", "Japanese", "Indian", "Chinese (Sichuan)"};
+    private static final String[] PRICES = {"$", "$$", "$$$", "$$$$", null};
+
+    @Param({"1000000"})
+    private int candidates;
+
+    @Param({"10", "100"})
+    private int k;
+
+    // 0 ranks on the calling thread
+    @Param({"0", "4"})
+    private int parallelism;
+
+    private ForkJoinPool pool;
+    private RankingEngine engine;
+    private RankingColumns columns;
+    private float[] relevance;
+    private RankingQuery ratingOnly;
+    private RankingQuery full;
+
+    @Setup
+    public void setUp() {
+        pool = parallelism > 0 ? new ForkJoinPool(parallelism) : null;
+        engine = new RankingEngine(RankingWeights.DEFAULTS, pool, parallelism > 0 ? 50_000 : Integer.MAX_VALUE);
+        Random random = new Random(42);
+        columns = new RankingColumns(candidates);
+        relevance = new float[candidates];
+        for (int i = 0; i < candidates; i++) {
+            columns.set(i, 3 + random.nextDouble() * 2, PRICES[random.nextInt(PRICES.length)],
+                CUISINES[random.nextInt(CUISINES.length)]);
+            columns.latitudes()[i] = 37 + random.nextDouble();
+            columns.longitudes()[i] = -122.5 + random.nextDouble();
+            relevance[i] = random.nextFloat();
+        }
+        ratingOnly = new RankingQuery(0, null, null);
+        full = new RankingQuery(2, "chinese", new GeoPoint(37.33, -121.89));
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) pool.shutdown();
+    }
+
+    @Benchmark
+    public int[] ratingOnly() {
+        return engine.topK(columns, null, null, ratingOnly, k);
+    }
+
+    @Benchmark
+    public int[] allFeatures() {
+        return engine.topK(columns, null, ordinal -> relevance[ordinal], full, k);
+    }
+}
@@ -0,0 +1,33 @@
+package com.restaurant.recommendation.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AIOutputParserBenchmark {
+    private final AIOutputParser parser = new AIOutputParser();
+
+    @Benchmark
+    public AIOutputParser.ParseResult parsePipeFormat() {
+        return parser.parse(BenchmarkData.PIPE_RESPONSE);
+    }
+
+    @Benchmark
+    public AIOutputParser.ParseResult parseMarkdown() {
+        return parser.parse(BenchmarkData.MARKDOWN_RESPONSE);
+    }
+}
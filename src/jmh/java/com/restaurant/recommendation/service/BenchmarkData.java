@@ -0,0 +1,79 @@
+package com.restaurant.recommendation.service;
+
+import com.restaurant.recommendation.model.RecommendationRequest;
+import com.restaurant.recommendation.model.RecommendationResponse;
+import com.restaurant.recommendation.model.Restaurant;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Representative payloads shared by the benchmarks
+public final class BenchmarkData {
+
+    public static final String REQUEST_JSON = "{" +
+        "\"userPreference\":\"Looking for spicy Sichuan food for a birthday dinner in San Jose, nothing too loud\"," +
+        "\"location\":\"San Jose, CA\"," +
+        "\"cuisine\":\"Sichuan\"," +
+        "\"priceRange\":\"$$\"," +
+        "\"numberOfPeople\":4," +
+        "\"occasion\":\"Birthday\"" +
+        "}";
+
+    public static final byte[] REQUEST_BYTES = REQUEST_JSON.getBytes(StandardCharsets.UTF_8);
+
+    public static final String PIPE_RESPONSE =
+        "Here are some great options:\n" +
+        "1. Chili Garden | Sichuan | Downtown San Jose | 4.6 | $$ | Famous for mapo tofu and dry-fried green beans\n" +
+        "2. Spicy Town | Sichuan | North San Jose | 4.4 | $$ | Lively spot with hot pot and dan dan noodles\n" +
+        "3. Red Lantern | Chinese | Japantown | 4.3 | $$$ | Quieter dining room, good for groups\n" +
+        "4. Pepper House | Hunan | Willow Glen | 4.5 | $$ | Smoky wok dishes and generous portions\n" +
+        "5. Mala Bistro | Sichuan | Santana Row | 4.2 | $$$ | Modern take on classic Chengdu street food\n";
+
+    public static final String MARKDOWN_RESPONSE =
+        "Happy birthday in advance! Here are a few spots you might enjoy:\n\n" +
+        "1. **Chili Garden** (Sichuan, $$) - Famous for mapo tofu and dry-fried green beans.\n" +
+        "   - Rating: 4.6/5\n" +
+        "   - Location: Downtown San Jose\n\n" +
+        "2. **Spicy Town** (Sichuan, $$) - Lively spot with hot pot and dan dan noodles.\n" +
+        "   - Rating: 4.4/5\n" +
+        "   - Location: North San Jose\n\n" +
+        "3. **Red Lantern** (Chinese, $$$) - Quieter dining room, good for groups.\n" +
+        "   - Rating: 4.3/5\n" +
+        "   - Location: Japantown\n\n" +
+        "Let me know if you'd like reservations tips or more options!";
+
+    public static RecommendationRequest request() {
+        RecommendationRequest request = new RecommendationRequest();
+        request.setUserPreference("Looking for spicy Sichuan food for a birthday dinner in San Jose, nothing too loud");
+        request.setLocation("San Jose, CA");
+        request.setCuisine("Sichuan");
+        request.setPriceRange("$$");
+        request.setNumberOfPeople(4);
+        request.setOccasion("Birthday");
+        return request;
+    }
+
+    public static RecommendationResponse response(int restaurantCount) {
+        List<Restaurant> restaurants = new ArrayList<>(restaurantCount);
+        for (int i = 0; i < restaurantCount; i++) {
+            Restaurant r = new Restaurant();
+            r.setId((long) i + 1);
+            r.setName("Restaurant \"" + i + "\"");
+            r.setCuisine("Sichuan");
+            r.setLocation("San Jose, CA");
+            r.setRating(4.0 + (i % 10) / 10.0);
+            r.setPriceRange("$$");
+            r.setDescription("Famous for mapo tofu,\nchili oil wontons and dry-fried green beans. Café seating.");
+            restaurants.add(r);
+        }
+        RecommendationResponse response = new RecommendationResponse();
+        response.setRecommendations(restaurants);
+        response.setAiExplanation(MARKDOWN_RESPONSE);
+        response.setReasoning("AI successfully generated recommendations based on your preferences.");
+        return response;
+    }
+
+    private BenchmarkData() {
+    }
+}
@@ -0,0 +1,36 @@
+package com.restaurant.recommendation.service;
+
+import com.restaurant.recommendation.geo.LocationExtractor;
+import com.restaurant.recommendation.model.RecommendationRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// The per-turn prompt helpers, without the Azure client
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptBenchmark {
+    private final RecommendationRequest request = BenchmarkData.request();
+
+    @Benchmark
+    public String createContextualPrompt() {
+        return OpenAIService.createContextualPrompt(request, "San Jose, CA");
+    }
+
+    @Benchmark
+    public String extractLocation() {
+        return LocationExtractor.extract(request.getUserPreference());
+    }
+}
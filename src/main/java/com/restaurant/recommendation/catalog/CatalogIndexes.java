@@ -0,0 +1,368 @@
+package com.restaurant.recommendation.catalog;
+
+import com.restaurant.recommendation.geo.GeoIndex;
+import com.restaurant.recommendation.ranking.RankingColumns;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The indexes a RestaurantCatalog searches. They are either built by scanning a CatalogStore, or read
+// back from the section that ColumnarCatalogWriter appends to a .rcat file, so opening a catalog skips
+// the scan. Posting lists, geo keys and ranking columns are bulk-copied out of the mapping. The text
+// vectors stay in it.
+//
+// Index section, little-endian, starting at the first 4-byte boundary after the string heap:
+//   terms         int terms, int postings
+//   termOffsets   int[terms + 1]           term t's ordinals are postings[termOffsets[t], termOffsets[t + 1])
+//   postings      int[postings]
+//   termNames     strings                  in term order
+//   geoKeys       int located, long[located]
+//   ratings       float[rows]
+//   cuisineIds    int[rows]                index into cuisineNames, -1 when unknown
+//   priceTiers    byte[rows], padded to 4
+//   cuisineNames  strings
+//   vectors       int dimensions, int lists    both 0 when the catalog has no text vectors
+//   idf           float[dimensions]
+//   centroids     float[lists * dimensions]
+//   listOffsets   int[lists + 1]
+//   rowOrdinals   int[rows]
+//   vectorRows    float[rows * dimensions]
+// where strings is int count, int[count + 1] offsets, then the UTF-8 bytes padded to 4
+final class CatalogIndexes {
+  static final int VECTOR_DIMENSIONS = 1024;
+  private static final long VECTOR_SEED = 42L;
+
+  final InvertedIndex index;
+  final GeoIndex geoIndex;
+  final RankingColumns rankingColumns;
+  // Ordinals without coordinates
+  final int[] unlocated;
+  // Both null when the catalog has no text vectors
+  final HashingVectorizer vectorizer;
+  final VectorIndex vectorIndex;
+
+  private CatalogIndexes(InvertedIndex index, GeoIndex geoIndex, RankingColumns rankingColumns, int[] unlocated,
+                         HashingVectorizer vectorizer, VectorIndex vectorIndex) {
+    this.index = index;
+    this.geoIndex = geoIndex;
+    this.rankingColumns = rankingColumns;
+    this.unlocated = unlocated;
+    this.vectorizer = vectorizer;
+    this.vectorIndex = vectorIndex;
+  }
+
+  // Scans every record; see RestaurantCatalog for the terms
+  static CatalogIndexes build(CatalogStore store, boolean withVectors) {
+    int size = store.size();
+    InvertedIndex.Builder builder = new InvertedIndex.Builder();
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      for (String word : RestaurantCatalog.words(store.getCuisine(ordinal))) {
+        builder.add("c:" + word, ordinal);
+      }
+      String location = store.getLocation(ordinal);
+      String city = RestaurantCatalog.city(location);
+      if (city != null) {
+        builder.add("l:" + city, ordinal);
+      }
+      for (String word : RestaurantCatalog.words(location)) {
+        builder.add("lt:" + word, ordinal);
+      }
+      String price = RestaurantCatalog.normalizePrice(store.getPriceRange(ordinal));
+      if (price != null) {
+        builder.add("p:" + price, ordinal);
+      }
+    }
+
+    Coordinates coordinates = new Coordinates(store);
+    GeoIndex geoIndex = new GeoIndex(coordinates.latitudes, coordinates.longitudes);
+    RankingColumns rankingColumns = new RankingColumns(size, coordinates.latitudes, coordinates.longitudes);
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      rankingColumns.set(ordinal, store.getRating(ordinal), store.getPriceRange(ordinal), store.getCuisine(ordinal));
+    }
+    CatalogIndexes indexes = new CatalogIndexes(builder.build(), geoIndex, rankingColumns, coordinates.unlocated,
+        null, null);
+    return withVectors ? indexes.withVectors(store) : indexes;
+  }
+
+  // Embeds each record's name, cuisine and description. Documents are regenerated for each pass
+  // rather than held, so only the vectors take heap.
+  CatalogIndexes withVectors(CatalogStore store) {
+    int size = store.size();
+    List<String> documents = new AbstractList<String>() {
+      @Override
+      public String get(int ordinal) { return document(store, ordinal); }
+
+      @Override
+      public int size() { return size; }
+    };
+    HashingVectorizer fitted = HashingVectorizer.fit(documents, VECTOR_DIMENSIONS);
+    float[] vectors = new float[size * VECTOR_DIMENSIONS];
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      fitted.vectorize(document(store, ordinal), vectors, ordinal * VECTOR_DIMENSIONS);
+    }
+    return new CatalogIndexes(index, geoIndex, rankingColumns, unlocated, fitted,
+        new VectorIndex(vectors, VECTOR_DIMENSIONS, 0, VECTOR_SEED));
+  }
+
+  // Reads what write() wrote; coordinates come from the store's own columns
+  static CatalogIndexes read(ByteBuffer section, CatalogStore store) throws IOException {
+    try {
+      Input in = new Input(section);
+      int terms = in.getInt();
+      int postingCount = in.getInt();
+      int[] termOffsets = in.ints(terms + 1);
+      if (termOffsets[terms] != postingCount) throw new IOException("Catalog index postings don't add up");
+      int[][] postings = new int[terms][];
+      for (int term = 0; term < terms; term++) {
+        postings[term] = in.ints(termOffsets[term + 1] - termOffsets[term]);
+      }
+      List<String> termNames = in.strings();
+      if (termNames.size() != terms) throw new IOException("Catalog index has " + termNames.size() + " names for " + terms + " terms");
+      Map<String, int[]> lists = new HashMap<>(terms * 2);
+      for (int term = 0; term < terms; term++) {
+        lists.put(termNames.get(term), postings[term]);
+      }
+
+      int size = store.size();
+      Coordinates coordinates = new Coordinates(store);
+      GeoIndex geoIndex = new GeoIndex(in.longs(in.getInt()), coordinates.latitudes, coordinates.longitudes);
+      float[] ratings = in.floats(size);
+      int[] cuisineIds = in.ints(size);
+      byte[] priceTiers = in.bytes(size);
+      RankingColumns rankingColumns = new RankingColumns(ratings, priceTiers, coordinates.latitudes,
+          coordinates.longitudes, cuisineIds, in.strings());
+
+      int dimensions = in.getInt();
+      int vectorLists = in.getInt();
+      HashingVectorizer vectorizer = null;
+      VectorIndex vectorIndex = null;
+      if (dimensions > 0) {
+        vectorizer = HashingVectorizer.weighted(in.floats(dimensions));
+        float[] centroids = in.floats(vectorLists * dimensions);
+        int[] listOffsets = in.ints(vectorLists + 1);
+        int[] rowOrdinals = in.ints(size);
+        vectorIndex = new VectorIndex(dimensions, centroids, listOffsets, rowOrdinals, in.floatView(size * dimensions));
+      }
+      if (in.remaining() != 0) throw new IOException("Catalog index has " + in.remaining() + " trailing bytes");
+      return new CatalogIndexes(new InvertedIndex(lists), geoIndex, rankingColumns, coordinates.unlocated,
+          vectorizer, vectorIndex);
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+             | NegativeArraySizeException e) {
+      throw new IOException("Catalog index is truncated or corrupt", e);
+    }
+  }
+
+  void write(ColumnarCatalogWriter.Output out) throws IOException {
+    List<String> terms = sortedTerms();
+    int postingCount = 0;
+    for (String term : terms) postingCount += index.postings(term).length;
+    out.putInt(terms.size());
+    out.putInt(postingCount);
+    int offset = 0;
+    out.putInt(offset);
+    for (String term : terms) {
+      offset += index.postings(term).length;
+      out.putInt(offset);
+    }
+    for (String term : terms) {
+      for (int ordinal : index.postings(term)) out.putInt(ordinal);
+    }
+    writeStrings(out, terms);
+
+    long[] keys = geoIndex.getKeys();
+    out.putInt(keys.length);
+    for (long key : keys) out.putLong(key);
+    for (float rating : rankingColumns.ratings()) out.putFloat(rating);
+    for (int id : rankingColumns.cuisineIds()) out.putInt(id);
+    for (byte tier : rankingColumns.priceTiers()) out.putByte(tier);
+    out.align(4);
+    writeStrings(out, rankingColumns.cuisineNames());
+
+    if (vectorIndex == null) {
+      out.putInt(0);
+      out.putInt(0);
+      return;
+    }
+    int dimensions = vectorIndex.getDimensions();
+    out.putInt(dimensions);
+    out.putInt(vectorIndex.getLists());
+    for (float weight : vectorizer.getIdf()) out.putFloat(weight);
+    for (float value : vectorIndex.getCentroids()) out.putFloat(value);
+    for (int listOffset : vectorIndex.getListOffsets()) out.putInt(listOffset);
+    for (int ordinal : vectorIndex.getRowOrdinals()) out.putInt(ordinal);
+    FloatBuffer rows = vectorIndex.getRows();
+    for (int i = 0; i < rows.capacity(); i++) out.putFloat(rows.get(i));
+  }
+
+  // What write() produces
+  long bytes() {
+    List<String> terms = sortedTerms();
+    long bytes = 8 + 4L * (terms.size() + 1);
+    for (String term : terms) bytes += 4L * index.postings(term).length;
+    bytes += stringsBytes(terms);
+    bytes += 4 + 8L * geoIndex.size();
+    int size = rankingColumns.size();
+    bytes += 8L * size + align4(size) + stringsBytes(rankingColumns.cuisineNames());
+    bytes += 8;
+    return vectorIndex != null ? bytes + vectorBytes(size) : bytes;
+  }
+
+  // What text vectors add to the section for a catalog of the given size
+  static long vectorBytes(int size) {
+    int lists = VectorIndex.listCount(size, 0);
+    return 4L * VECTOR_DIMENSIONS + 4L * lists * VECTOR_DIMENSIONS + 4L * (lists + 1) + 4L * size
+        + 4L * size * VECTOR_DIMENSIONS;
+  }
+
+  static long align4(long position) {
+    return (position + 3) & ~3L;
+  }
+
+  private List<String> sortedTerms() {
+    List<String> terms = new ArrayList<>(index.terms());
+    Collections.sort(terms);
+    return terms;
+  }
+
+  private static void writeStrings(ColumnarCatalogWriter.Output out, List<String> strings) throws IOException {
+    List<byte[]> encoded = new ArrayList<>(strings.size());
+    for (String string : strings) encoded.add(string.getBytes(StandardCharsets.UTF_8));
+    out.putInt(encoded.size());
+    int offset = 0;
+    out.putInt(offset);
+    for (byte[] utf8 : encoded) {
+      offset += utf8.length;
+      out.putInt(offset);
+    }
+    for (byte[] utf8 : encoded) out.put(utf8);
+    out.align(4);
+  }
+
+  private static long stringsBytes(List<String> strings) {
+    long bytes = 0;
+    for (String string : strings) bytes += string.getBytes(StandardCharsets.UTF_8).length;
+    return 4 + 4L * (strings.size() + 1) + align4(bytes);
+  }
+
+  static String document(CatalogStore store, int ordinal) {
+    StringBuilder document = new StringBuilder();
+    String name = store.getName(ordinal);
+    String cuisine = store.getCuisine(ordinal);
+    String description = store.getDescription(ordinal);
+    if (name != null) document.append(name).append(". ");
+    if (cuisine != null) document.append(cuisine).append(". ");
+    if (description != null) document.append(description);
+    return document.toString();
+  }
+
+  // Coordinate columns by ordinal, NaN when missing, shared by the geo index and the ranking columns
+  private static class Coordinates {
+    final double[] latitudes;
+    final double[] longitudes;
+    final int[] unlocated;
+
+    Coordinates(CatalogStore store) {
+      int size = store.size();
+      latitudes = new double[size];
+      longitudes = new double[size];
+      int[] missing = new int[size];
+      int missingCount = 0;
+      for (int ordinal = 0; ordinal < size; ordinal++) {
+        latitudes[ordinal] = store.getLatitude(ordinal);
+        longitudes[ordinal] = store.getLongitude(ordinal);
+        if (Double.isNaN(latitudes[ordinal]) || Double.isNaN(longitudes[ordinal])) {
+          missing[missingCount++] = ordinal;
+        }
+      }
+      unlocated = Arrays.copyOf(missing, missingCount);
+    }
+  }
+
+  // Sequential little-endian reads; arrays are bulk copies, floatView() a window onto the buffer
+  private static class Input {
+    private final ByteBuffer buffer;
+
+    Input(ByteBuffer buffer) {
+      this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    int getInt() {
+      return buffer.getInt();
+    }
+
+    int remaining() {
+      return buffer.remaining();
+    }
+
+    int[] ints(int count) {
+      require(4L * count);
+      int[] values = new int[count];
+      buffer.asIntBuffer().get(values);
+      skip(4L * count);
+      return values;
+    }
+
+    long[] longs(int count) {
+      require(8L * count);
+      long[] values = new long[count];
+      buffer.asLongBuffer().get(values);
+      skip(8L * count);
+      return values;
+    }
+
+    float[] floats(int count) {
+      require(4L * count);
+      float[] values = new float[count];
+      buffer.asFloatBuffer().get(values);
+      skip(4L * count);
+      return values;
+    }
+
+    byte[] bytes(int count) {
+      require(align4(count));
+      byte[] values = new byte[count];
+      buffer.get(values);
+      skip(align4(count) - count);
+      return values;
+    }
+
+    FloatBuffer floatView(int count) {
+      require(4L * count);
+      FloatBuffer view = buffer.slice(buffer.position(), 4 * count).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+      skip(4L * count);
+      return view;
+    }
+
+    List<String> strings() {
+      int count = getInt();
+      int[] offsets = ints(count + 1);
+      byte[] heap = bytes(offsets[count]);
+      List<String> strings = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        strings.add(new String(heap, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8));
+      }
+      return strings;
+    }
+
+    // Checked before allocating, so a corrupt count can't ask for more memory than the file holds
+    private void require(long bytes) {
+      if (bytes < 0 || bytes > buffer.remaining()) throw new BufferUnderflowException();
+    }
+
+    private void skip(long bytes) {
+      require(bytes);
+      buffer.position(buffer.position() + (int) bytes);
+    }
+  }
+}
@@ -0,0 +1,186 @@
+package com.restaurant.recommendation.catalog;
+
+import com.restaurant.recommendation.core.JsonReader;
+import com.restaurant.recommendation.logging.LogManager;
+import com.restaurant.recommendation.logging.Logger;
+import com.restaurant.recommendation.model.Restaurant;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads restaurants from a CSV file with a header row, or a JSON array of objects, chosen by
+// extension. Paths are tried on the filesystem first, then as classpath resources.
+// Recognized columns/keys: id, name, cuisine, location, price_range, rating, latitude, longitude,
+// address, phone, opening_hours, description (camelCase JSON keys are accepted too).
+public class CatalogLoader {
+    private static final Logger logger = LogManager.getLogger(CatalogLoader.class);
+    private static final String[] FIELDS = {
+        "id", "name", "cuisine", "location", "price_range", "rating", "address", "phone", "opening_hours", "description",
+        "priceRange", "openingHours", "latitude", "longitude"
+    };
+    private static final int FIELD_ID = 0;
+    private static final int FIELD_NAME = 1;
+    private static final int FIELD_CUISINE = 2;
+    private static final int FIELD_LOCATION = 3;
+    private static final int FIELD_PRICE_RANGE = 4;
+    private static final int FIELD_RATING = 5;
+    private static final int FIELD_ADDRESS = 6;
+    private static final int FIELD_PHONE = 7;
+    private static final int FIELD_OPENING_HOURS = 8;
+    private static final int FIELD_DESCRIPTION = 9;
+    private static final int FIELD_PRICE_RANGE_CAMEL = 10;
+    private static final int FIELD_OPENING_HOURS_CAMEL = 11;
+    private static final int FIELD_LATITUDE = 12;
+    private static final int FIELD_LONGITUDE = 13;
+
+    private static final long MAX_JSON_BYTES = 256L * 1024 * 1024;
+
+    public static List<Restaurant> load(String path) throws IOException {
+        try (InputStream in = open(path)) {
+            if (path.toLowerCase().endsWith(".json")) {
+                return readJson(in);
+            }
+            return readCsv(in);
+        }
+    }
+
+    private static InputStream open(String path) throws IOException {
+        if (Files.isRegularFile(Paths.get(path))) {
+            return new FileInputStream(path);
+        }
+        InputStream in = CatalogLoader.class.getClassLoader().getResourceAsStream(path);
+        if (in == null) {
+            throw new IOException("Catalog not found: " + path);
+        }
+        return in;
+    }
+
+    static List<Restaurant> readCsv(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<String> header = readRecord(reader);
+        if (header == null) return new ArrayList<>();
+
+        int[] columns = new int[header.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = fieldIndex(header.get(i).trim());
+        }
+
+        List<Restaurant> restaurants = new ArrayList<>();
+        List<String> record;
+        int line = 1;
+        while ((record = readRecord(reader)) != null) {
+            line++;
+            if (record.size() == 1 && record.get(0).trim().isEmpty()) continue;
+            Restaurant restaurant = new Restaurant();
+            try {
+                for (int i = 0; i < record.size() && i < columns.length; i++) {
+                    set(restaurant, columns[i], record.get(i).trim());
+                }
+            } catch (NumberFormatException e) {
+                logger.warn("Skipping catalog record", "line", line, "error", e.getMessage());
+                continue;
+            }
+            restaurants.add(restaurant);
+        }
+        return restaurants;
+    }
+
+    // RFC 4180 record: quoted fields may contain commas, doubled quotes and newlines
+    private static List<String> readRecord(BufferedReader reader) throws IOException {
+        int c = reader.read();
+        if (c == -1) return null;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (c != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        reader.reset();
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    static List<Restaurant> readJson(InputStream in) throws IOException {
+        JsonReader reader = new JsonReader(in, MAX_JSON_BYTES);
+        List<Restaurant> restaurants = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Restaurant restaurant = new Restaurant();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                int field = reader.nextNameIndex(FIELDS);
+                if (field < 0) {
+                    reader.skipValue();
+                    continue;
+                }
+                String value = reader.nextString();
+                if (value != null) {
+                    set(restaurant, field, value.trim());
+                }
+            }
+            reader.endObject();
+            restaurants.add(restaurant);
+        }
+        reader.endArray();
+        return restaurants;
+    }
+
+    private static int fieldIndex(String name) {
+        for (int i = 0; i < FIELDS.length; i++) {
+            if (FIELDS[i].equalsIgnoreCase(name)) return i;
+        }
+        return -1;
+    }
+
+    private static void set(Restaurant restaurant, int field, String value) {
+        if (value.isEmpty()) return;
+        switch (field) {
+            case FIELD_ID: restaurant.setId(Long.parseLong(value)); break;
+            case FIELD_NAME: restaurant.setName(value); break;
+            case FIELD_CUISINE: restaurant.setCuisine(value); break;
+            case FIELD_LOCATION: restaurant.setLocation(value); break;
+            case FIELD_PRICE_RANGE:
+            case FIELD_PRICE_RANGE_CAMEL: restaurant.setPriceRange(value); break;
+            case FIELD_RATING: restaurant.setRating(Double.parseDouble(value)); break;
+            case FIELD_LATITUDE: restaurant.setLatitude(Double.parseDouble(value)); break;
+            case FIELD_LONGITUDE: restaurant.setLongitude(Double.parseDouble(value)); break;
+            case FIELD_ADDRESS: restaurant.setAddress(value); break;
+            case FIELD_PHONE: restaurant.setPhone(value); break;
+            case FIELD_OPENING_HOURS:
+            case FIELD_OPENING_HOURS_CAMEL: restaurant.setOpeningHours(value); break;
+            case FIELD_DESCRIPTION: restaurant.setDescription(value); break;
+            default:
+        }
+    }
+}
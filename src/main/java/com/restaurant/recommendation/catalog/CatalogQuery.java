@@ -0,0 +1,51 @@
+package com.restaurant.recommendation.catalog;
+
+import com.restaurant.recommendation.geo.GeoPoint;
+import com.restaurant.recommendation.model.RecommendationRequest;
+
+// Structured catalog lookup. cuisine, location and priceRange filter. Text fills in any of them it
+// names and ranks matches by semantic similarity; without any filter it searches on its own, for
+// restaurants close enough in meaning. An explicit point (with an optional radius) takes precedence
+// over the location name.
+public class CatalogQuery {
+    private final String cuisine;
+    private final String location;
+    private final String priceRange;
+    private final String text;
+    private final GeoPoint point;
+    private final Double radiusKm;
+
+    public CatalogQuery(String cuisine, String location, String priceRange, String text) {
+        this(cuisine, location, priceRange, text, null, null);
+    }
+
+    public CatalogQuery(String cuisine, String location, String priceRange, String text, GeoPoint point, Double radiusKm) {
+        this.cuisine = blankToNull(cuisine);
+        this.location = blankToNull(location);
+        this.priceRange = blankToNull(priceRange);
+        this.text = blankToNull(text);
+        this.point = point;
+        this.radiusKm = radiusKm != null && radiusKm > 0 ? radiusKm : null;
+    }
+
+    public static CatalogQuery from(RecommendationRequest request) {
+        GeoPoint point = null;
+        if (request.getLatitude() != null && request.getLongitude() != null
+                && Math.abs(request.getLatitude()) <= 90 && Math.abs(request.getLongitude()) <= 180) {
+            point = new GeoPoint(request.getLatitude(), request.getLongitude());
+        }
+        return new CatalogQuery(request.getCuisine(), request.getLocation(), request.getPriceRange(),
+            request.getUserPreference(), point, request.getRadiusKm());
+    }
+
+    public String getCuisine() { return cuisine; }
+    public String getLocation() { return location; }
+    public String getPriceRange() { return priceRange; }
+    public String getText() { return text; }
+    public GeoPoint getPoint() { return point; }
+    public Double getRadiusKm() { return radiusKm; }
+
+    private static String blankToNull(String value) {
+        return value != null && !value.trim().isEmpty() ? value.trim() : null;
+    }
+}
@@ -0,0 +1,20 @@
+package com.restaurant.recommendation.catalog;
+
+import com.restaurant.recommendation.model.Restaurant;
+
+// Restaurant records by ordinal, in descending rating order. The column getters let indexes be
+// built without materializing a Restaurant per record; missing numbers come back as NaN.
+public interface CatalogStore {
+  int size();
+  // A new or shared instance; callers must not modify it
+  Restaurant get(int ordinal);
+
+  String getName(int ordinal);
+  String getCuisine(int ordinal);
+  String getLocation(int ordinal);
+  String getPriceRange(int ordinal);
+  String getDescription(int ordinal);
+  double getRating(int ordinal);
+  double getLatitude(int ordinal);
+  double getLongitude(int ordinal);
+}
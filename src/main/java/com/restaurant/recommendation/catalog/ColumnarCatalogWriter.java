@@ -0,0 +1,207 @@
+package com.restaurant.recommendation.catalog;
+
+import com.restaurant.recommendation.model.Restaurant;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Writes a catalog in the columnar format read by MappedCatalogStore, followed by its search indexes
+// (see CatalogIndexes). The file is written next to the target and moved into place, so a running
+// server never maps a half-written catalog.
+//
+// Usage: ColumnarCatalogWriter <input .csv/.json> <output .rcat>
+public class ColumnarCatalogWriter {
+  private static final int CHUNK_BYTES = 64 * 1024;
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: ColumnarCatalogWriter <input .csv/.json> <output .rcat>");
+      System.exit(1);
+    }
+    long startMillis = System.currentTimeMillis();
+    CatalogStore store = new ListCatalogStore(CatalogLoader.load(args[0]));
+    long bytes = write(store, Paths.get(args[1]));
+    System.out.println("Wrote " + store.size() + " restaurants to " + args[1] + " (" + bytes + " bytes) in "
+        + (System.currentTimeMillis() - startMillis) + "ms");
+  }
+
+  // Returns the file size
+  public static long write(CatalogStore store, Path target) throws IOException {
+    int rows = store.size();
+    Map<String, Integer> ids = new HashMap<>();
+    List<byte[]> encoded = new ArrayList<>();
+    int[][] columns = new int[MappedCatalogStore.STRING_COLUMNS][rows];
+    long heapBytes = 0;
+    for (int ordinal = 0; ordinal < rows; ordinal++) {
+      Restaurant restaurant = store.get(ordinal);
+      String[] values = new String[MappedCatalogStore.STRING_COLUMNS];
+      values[MappedCatalogStore.COLUMN_NAME] = restaurant.getName();
+      values[MappedCatalogStore.COLUMN_CUISINE] = restaurant.getCuisine();
+      values[MappedCatalogStore.COLUMN_LOCATION] = restaurant.getLocation();
+      values[MappedCatalogStore.COLUMN_PRICE_RANGE] = restaurant.getPriceRange();
+      values[MappedCatalogStore.COLUMN_ADDRESS] = restaurant.getAddress();
+      values[MappedCatalogStore.COLUMN_PHONE] = restaurant.getPhone();
+      values[MappedCatalogStore.COLUMN_OPENING_HOURS] = restaurant.getOpeningHours();
+      values[MappedCatalogStore.COLUMN_DESCRIPTION] = restaurant.getDescription();
+
+      for (int column = 0; column < values.length; column++) {
+        String value = values[column];
+        if (value == null) {
+          columns[column][ordinal] = MappedCatalogStore.MISSING_STRING;
+          continue;
+        }
+        Integer id = ids.get(value);
+        if (id == null) {
+          id = encoded.size();
+          ids.put(value, id);
+          byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+          encoded.add(utf8);
+          heapBytes += utf8.length;
+        }
+        columns[column][ordinal] = id;
+      }
+    }
+
+    long indexPosition = CatalogIndexes.align4(MappedCatalogStore.HEADER_BYTES + 32L * rows
+        + 4L * MappedCatalogStore.STRING_COLUMNS * rows + 4L * (encoded.size() + 1) + heapBytes);
+    CatalogIndexes indexes = CatalogIndexes.build(store, false);
+    // Text vectors take 4KB a restaurant; past the mapping limit the catalog goes without them
+    if (indexPosition + indexes.bytes() + CatalogIndexes.vectorBytes(rows) <= Integer.MAX_VALUE) {
+      indexes = indexes.withVectors(store);
+    } else {
+      System.err.println("Catalog too large to store text vectors; free-text search will be disabled");
+    }
+    long fileBytes = indexPosition + indexes.bytes();
+    if (fileBytes > Integer.MAX_VALUE) {
+      throw new IOException("Catalog too large for a single mapping: " + fileBytes + " bytes");
+    }
+
+    Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      Output out = new Output(channel);
+      out.putInt(MappedCatalogStore.MAGIC);
+      out.putInt(MappedCatalogStore.VERSION);
+      out.putInt(rows);
+      out.putInt(encoded.size());
+      out.putInt(MappedCatalogStore.STRING_COLUMNS);
+      out.putInt(0);
+      out.putLong(heapBytes);
+
+      for (int ordinal = 0; ordinal < rows; ordinal++) {
+        Long id = store.get(ordinal).getId();
+        out.putLong(id != null ? id : MappedCatalogStore.MISSING_ID);
+      }
+      for (int ordinal = 0; ordinal < rows; ordinal++) out.putDouble(store.getRating(ordinal));
+      for (int ordinal = 0; ordinal < rows; ordinal++) out.putDouble(store.getLatitude(ordinal));
+      for (int ordinal = 0; ordinal < rows; ordinal++) out.putDouble(store.getLongitude(ordinal));
+      for (int[] column : columns) {
+        for (int id : column) out.putInt(id);
+      }
+
+      int offset = 0;
+      out.putInt(offset);
+      for (byte[] utf8 : encoded) {
+        offset += utf8.length;
+        out.putInt(offset);
+      }
+      for (byte[] utf8 : encoded) {
+        out.put(utf8);
+      }
+      out.align(4);
+      indexes.write(out);
+      out.flush();
+      if (out.position() != fileBytes) {
+        throw new IllegalStateException("Wrote " + out.position() + " bytes, expected " + fileBytes);
+      }
+      channel.force(true);
+    }
+    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return fileBytes;
+  }
+
+  // Little-endian writes through a reusable chunk buffer
+  static class Output {
+    private final FileChannel channel;
+    private final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private long position;
+
+    Output(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    void putByte(byte value) throws IOException {
+      ensure(1);
+      chunk.put(value);
+      position++;
+    }
+
+    void putInt(int value) throws IOException {
+      ensure(4);
+      chunk.putInt(value);
+      position += 4;
+    }
+
+    void putFloat(float value) throws IOException {
+      ensure(4);
+      chunk.putFloat(value);
+      position += 4;
+    }
+
+    void putLong(long value) throws IOException {
+      ensure(8);
+      chunk.putLong(value);
+      position += 8;
+    }
+
+    void putDouble(double value) throws IOException {
+      ensure(8);
+      chunk.putDouble(value);
+      position += 8;
+    }
+
+    void put(byte[] bytes) throws IOException {
+      int written = 0;
+      while (written < bytes.length) {
+        ensure(1);
+        int count = Math.min(chunk.remaining(), bytes.length - written);
+        chunk.put(bytes, written, count);
+        written += count;
+      }
+      position += bytes.length;
+    }
+
+    // Zero bytes up to the next multiple of alignment
+    void align(int alignment) throws IOException {
+      while (position % alignment != 0) putByte((byte) 0);
+    }
+
+    long position() {
+      return position;
+    }
+
+    void flush() throws IOException {
+      chunk.flip();
+      while (chunk.hasRemaining()) {
+        channel.write(chunk);
+      }
+      chunk.clear();
+    }
+
+    private void ensure(int bytes) throws IOException {
+      if (chunk.remaining() < bytes) flush();
+    }
+  }
+}
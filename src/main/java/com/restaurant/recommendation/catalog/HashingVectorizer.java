@@ -0,0 +1,125 @@
+package com.restaurant.recommendation.catalog;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Turns text into fixed-size, L2-normalized float vectors without a vocabulary: every feature is
+// hashed to a signed bucket. Features are words, adjacent word pairs and character trigrams of each
+// word, so "noodle" still lands near "noodles". fit() weights buckets by inverse document frequency
+// over a corpus, which keeps common words from dominating the similarity.
+public class HashingVectorizer {
+    private static final float BIGRAM_WEIGHT = 0.5f;
+    // Shared across a word's trigrams, so long words don't outweigh the word itself
+    private static final float TRIGRAM_WEIGHT = 0.5f;
+
+    private final int dimensions;
+    private final int mask;
+    // Per-bucket weights; null means unweighted
+    private final float[] idf;
+
+    public HashingVectorizer(int dimensions) {
+        this(dimensions, null);
+    }
+
+    private HashingVectorizer(int dimensions, float[] idf) {
+        if (dimensions <= 0 || Integer.bitCount(dimensions) != 1) {
+            throw new IllegalArgumentException("Dimensions must be a power of two: " + dimensions);
+        }
+        this.dimensions = dimensions;
+        this.mask = dimensions - 1;
+        this.idf = idf;
+    }
+
+    // A fitted vectorizer from its saved weights (see getIdf)
+    static HashingVectorizer weighted(float[] idf) {
+        return new HashingVectorizer(idf.length, idf);
+    }
+
+    public static HashingVectorizer fit(List<String> documents, int dimensions) {
+        HashingVectorizer unweighted = new HashingVectorizer(dimensions);
+        int[] documentFrequency = new int[dimensions];
+        float[] vector = new float[dimensions];
+        for (String document : documents) {
+            Arrays.fill(vector, 0f);
+            unweighted.accumulate(document, vector, 0);
+            for (int i = 0; i < dimensions; i++) {
+                if (vector[i] != 0f) documentFrequency[i]++;
+            }
+        }
+
+        float[] idf = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            idf[i] = (float) (Math.log((1.0 + documents.size()) / (1.0 + documentFrequency[i])) + 1.0);
+        }
+        return new HashingVectorizer(dimensions, idf);
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    float[] getIdf() {
+        return idf;
+    }
+
+    public float[] vectorize(String text) {
+        float[] vector = new float[dimensions];
+        vectorize(text, vector, 0);
+        return vector;
+    }
+
+    // Writes the vector into out[offset, offset + dimensions); all zeros if the text has no words
+    public void vectorize(String text, float[] out, int offset) {
+        Arrays.fill(out, offset, offset + dimensions, 0f);
+        accumulate(text, out, offset);
+
+        double norm = 0;
+        for (int i = 0; i < dimensions; i++) {
+            float value = out[offset + i];
+            if (idf != null) {
+                value *= idf[i];
+                out[offset + i] = value;
+            }
+            norm += value * value;
+        }
+        if (norm == 0) return;
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < dimensions; i++) {
+            out[offset + i] *= scale;
+        }
+    }
+
+    private void accumulate(String text, float[] out, int offset) {
+        List<String> words = RestaurantCatalog.words(text);
+        String previous = null;
+        for (String word : words) {
+            add("w:" + word, 1f, out, offset);
+            if (previous != null) {
+                add("b:" + previous + ' ' + word, BIGRAM_WEIGHT, out, offset);
+            }
+            previous = word;
+
+            String padded = '^' + word + '$';
+            int trigrams = padded.length() - 2;
+            for (int i = 0; i < trigrams; i++) {
+                add("g:" + padded.substring(i, i + 3), TRIGRAM_WEIGHT / trigrams, out, offset);
+            }
+        }
+    }
+
+    private void add(String feature, float weight, float[] out, int offset) {
+        int hash = mix(feature.hashCode());
+        // Low bits pick the bucket, the top bit the sign, so collisions tend to cancel rather than pile up
+        out[offset + (hash & mask)] += hash < 0 ? -weight : weight;
+    }
+
+    // Murmur3 finalizer; String.hashCode alone clusters in the low bits
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
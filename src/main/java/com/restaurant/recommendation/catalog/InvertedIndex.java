@@ -0,0 +1,128 @@
+package com.restaurant.recommendation.catalog;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Term -> sorted array of document ordinals. The catalog numbers documents by descending rating,
+// so every posting list is already in rating order and intersections come out ranked.
+public class InvertedIndex {
+    private static final int[] EMPTY = new int[0];
+
+    private final Map<String, int[]> postings;
+
+    InvertedIndex(Map<String, int[]> postings) {
+        this.postings = postings;
+    }
+
+    public int[] postings(String term) {
+        int[] list = postings.get(term);
+        return list != null ? list : EMPTY;
+    }
+
+    public int termCount() {
+        return postings.size();
+    }
+
+    Set<String> terms() {
+        return postings.keySet();
+    }
+
+    // Documents must be added in increasing ordinal order
+    public static class Builder {
+        private final Map<String, Postings> lists = new HashMap<>();
+
+        private static class Postings {
+            int[] ordinals = new int[4];
+            int size;
+        }
+
+        public void add(String term, int ordinal) {
+            Postings list = lists.computeIfAbsent(term, key -> new Postings());
+            if (list.size > 0 && list.ordinals[list.size - 1] == ordinal) return;
+            if (list.size == list.ordinals.length) {
+                list.ordinals = Arrays.copyOf(list.ordinals, list.size * 2);
+            }
+            list.ordinals[list.size++] = ordinal;
+        }
+
+        public InvertedIndex build() {
+            Map<String, int[]> postings = new HashMap<>(lists.size() * 2);
+            for (Map.Entry<String, Postings> entry : lists.entrySet()) {
+                Postings list = entry.getValue();
+                postings.put(entry.getKey(), Arrays.copyOf(list.ordinals, list.size));
+            }
+            return new InvertedIndex(postings);
+        }
+    }
+
+    public static int[] intersect(int[] a, int[] b) {
+        if (a.length > b.length) {
+            int[] swap = a;
+            a = b;
+            b = swap;
+        }
+        int[] out = new int[a.length];
+        int count = 0;
+        // Gallop through the longer list, which is much cheaper when the sizes are lopsided
+        int from = 0;
+        for (int value : a) {
+            int found = gallop(b, from, value);
+            if (found < b.length && b[found] == value) {
+                out[count++] = value;
+                from = found + 1;
+            } else {
+                from = found;
+            }
+            if (from >= b.length) break;
+        }
+        return count == out.length ? out : Arrays.copyOf(out, count);
+    }
+
+    public static int[] union(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                out[count++] = a[i++];
+            } else if (a[i] > b[j]) {
+                out[count++] = b[j++];
+            } else {
+                out[count++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) out[count++] = a[i++];
+        while (j < b.length) out[count++] = b[j++];
+        return count == out.length ? out : Arrays.copyOf(out, count);
+    }
+
+    public static boolean contains(int[] list, int ordinal) {
+        return Arrays.binarySearch(list, ordinal) >= 0;
+    }
+
+    // First index >= from whose value is >= target
+    private static int gallop(int[] list, int from, int target) {
+        int step = 1;
+        int hi = from;
+        while (hi < list.length && list[hi] < target) {
+            from = hi + 1;
+            hi += step;
+            step <<= 1;
+        }
+        int lo = from;
+        hi = Math.min(hi, list.length);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (list[mid] < target) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,57 @@
+package com.restaurant.recommendation.catalog;
+
+import com.restaurant.recommendation.model.Restaurant;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Heap-resident store over already loaded Restaurant objects (CSV/JSON catalogs)
+public class ListCatalogStore implements CatalogStore {
+  private final Restaurant[] restaurants;
+
+  public ListCatalogStore(List<Restaurant> source) {
+    List<Restaurant> sorted = new ArrayList<>(source);
+    sorted.sort(Comparator.comparingDouble((Restaurant restaurant) ->
+        restaurant.getRating() != null ? restaurant.getRating() : 0.0).reversed());
+    this.restaurants = sorted.toArray(new Restaurant[0]);
+  }
+
+  @Override
+  public int size() {
+    return restaurants.length;
+  }
+
+  @Override
+  public Restaurant get(int ordinal) {
+    return restaurants[ordinal];
+  }
+
+  @Override
+  public String getName(int ordinal) { return restaurants[ordinal].getName(); }
+
+  @Override
+  public String getCuisine(int ordinal) { return restaurants[ordinal].getCuisine(); }
+
+  @Override
+  public String getLocation(int ordinal) { return restaurants[ordinal].getLocation(); }
+
+  @Override
+  public String getPriceRange(int ordinal) { return restaurants[ordinal].getPriceRange(); }
+
+  @Override
+  public String getDescription(int ordinal) { return restaurants[ordinal].getDescription(); }
+
+  @Override
+  public double getRating(int ordinal) { return orNaN(restaurants[ordinal].getRating()); }
+
+  @Override
+  public double getLatitude(int ordinal) { return orNaN(restaurants[ordinal].getLatitude()); }
+
+  @Override
+  public double getLongitude(int ordinal) { return orNaN(restaurants[ordinal].getLongitude()); }
+
+  private static double orNaN(Double value) {
+    return value != null ? value : Double.NaN;
+  }
+}
@@ -0,0 +1,190 @@
+package com.restaurant.recommendation.catalog;
+
+import com.restaurant.recommendation.model.Restaurant;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Read-only view of a columnar catalog file (see ColumnarCatalogWriter), memory-mapped so records stay
+// off the heap and processes opening the same file share it through the page cache. Every getter
+// reads straight from the mapping; get() builds a Restaurant only for the record asked for.
+//
+// Layout, little-endian, rows in descending rating order:
+//   header      int magic, int version, int rows, int strings, int stringColumns, int reserved, long heapBytes
+//   ids         long[rows]                    Long.MIN_VALUE when missing
+//   ratings     double[rows]                  NaN when missing
+//   latitudes   double[rows]
+//   longitudes  double[rows]
+//   columns     int[stringColumns][rows]      string ids, -1 when missing
+//   offsets     int[strings + 1]              string i is heap[offsets[i], offsets[i + 1])
+//   heap        byte[heapBytes]               UTF-8, each distinct string stored once
+//   indexes     from version 2, see CatalogIndexes
+public class MappedCatalogStore implements CatalogStore {
+  static final int MAGIC = 0x54414352; // "RCAT"
+  static final int VERSION = 2;
+  static final int HEADER_BYTES = 32;
+  static final long MISSING_ID = Long.MIN_VALUE;
+  static final int MISSING_STRING = -1;
+
+  static final int COLUMN_NAME = 0;
+  static final int COLUMN_CUISINE = 1;
+  static final int COLUMN_LOCATION = 2;
+  static final int COLUMN_PRICE_RANGE = 3;
+  static final int COLUMN_ADDRESS = 4;
+  static final int COLUMN_PHONE = 5;
+  static final int COLUMN_OPENING_HOURS = 6;
+  static final int COLUMN_DESCRIPTION = 7;
+  static final int STRING_COLUMNS = 8;
+
+  private final MappedByteBuffer buffer;
+  private final int rows;
+  private final int strings;
+  private final int idsPosition;
+  private final int ratingsPosition;
+  private final int latitudesPosition;
+  private final int longitudesPosition;
+  private final int columnsPosition;
+  private final int offsetsPosition;
+  private final int heapPosition;
+  // -1 for version 1 files, which have no indexes
+  private final int indexPosition;
+
+  private MappedCatalogStore(MappedByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a columnar catalog file");
+    }
+    int version = buffer.getInt(4);
+    if (version < 1 || version > VERSION) {
+      throw new IOException("Unsupported catalog version " + version);
+    }
+    this.rows = buffer.getInt(8);
+    this.strings = buffer.getInt(12);
+    if (buffer.getInt(16) != STRING_COLUMNS) {
+      throw new IOException("Unexpected string column count " + buffer.getInt(16));
+    }
+    long heapBytes = buffer.getLong(24);
+
+    long position = HEADER_BYTES;
+    this.idsPosition = (int) position;
+    position += 8L * rows;
+    this.ratingsPosition = (int) position;
+    position += 8L * rows;
+    this.latitudesPosition = (int) position;
+    position += 8L * rows;
+    this.longitudesPosition = (int) position;
+    position += 8L * rows;
+    this.columnsPosition = (int) position;
+    position += 4L * STRING_COLUMNS * rows;
+    this.offsetsPosition = (int) position;
+    position += 4L * (strings + 1);
+    this.heapPosition = (int) position;
+    long end = position + heapBytes;
+    boolean complete = version >= 2 ? CatalogIndexes.align4(end) <= buffer.capacity() : end == buffer.capacity();
+    if (rows < 0 || strings < 0 || heapBytes < 0 || !complete) {
+      throw new IOException("Catalog file is truncated or corrupt");
+    }
+    this.indexPosition = version >= 2 ? (int) CatalogIndexes.align4(end) : -1;
+  }
+
+  public static MappedCatalogStore open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      // A single mapping is limited to 2GB
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Catalog file too large to map: " + size + " bytes");
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      // The mapping stays valid after the channel is closed
+      return new MappedCatalogStore(buffer);
+    }
+  }
+
+  @Override
+  public int size() {
+    return rows;
+  }
+
+  @Override
+  public Restaurant get(int ordinal) {
+    Restaurant restaurant = new Restaurant();
+    long id = buffer.getLong(idsPosition + 8 * checked(ordinal));
+    if (id != MISSING_ID) restaurant.setId(id);
+    restaurant.setName(string(ordinal, COLUMN_NAME));
+    restaurant.setCuisine(string(ordinal, COLUMN_CUISINE));
+    restaurant.setLocation(string(ordinal, COLUMN_LOCATION));
+    restaurant.setPriceRange(string(ordinal, COLUMN_PRICE_RANGE));
+    restaurant.setRating(boxed(getRating(ordinal)));
+    restaurant.setLatitude(boxed(getLatitude(ordinal)));
+    restaurant.setLongitude(boxed(getLongitude(ordinal)));
+    restaurant.setAddress(string(ordinal, COLUMN_ADDRESS));
+    restaurant.setPhone(string(ordinal, COLUMN_PHONE));
+    restaurant.setOpeningHours(string(ordinal, COLUMN_OPENING_HOURS));
+    restaurant.setDescription(string(ordinal, COLUMN_DESCRIPTION));
+    return restaurant;
+  }
+
+  @Override
+  public String getName(int ordinal) { return string(ordinal, COLUMN_NAME); }
+
+  @Override
+  public String getCuisine(int ordinal) { return string(ordinal, COLUMN_CUISINE); }
+
+  @Override
+  public String getLocation(int ordinal) { return string(ordinal, COLUMN_LOCATION); }
+
+  @Override
+  public String getPriceRange(int ordinal) { return string(ordinal, COLUMN_PRICE_RANGE); }
+
+  @Override
+  public String getDescription(int ordinal) { return string(ordinal, COLUMN_DESCRIPTION); }
+
+  @Override
+  public double getRating(int ordinal) { return buffer.getDouble(ratingsPosition + 8 * checked(ordinal)); }
+
+  @Override
+  public double getLatitude(int ordinal) { return buffer.getDouble(latitudesPosition + 8 * checked(ordinal)); }
+
+  @Override
+  public double getLongitude(int ordinal) { return buffer.getDouble(longitudesPosition + 8 * checked(ordinal)); }
+
+  public int getStringCount() {
+    return strings;
+  }
+
+  // The indexes saved with the catalog, or null if the file predates them
+  CatalogIndexes readIndexes() throws IOException {
+    if (indexPosition < 0) return null;
+    ByteBuffer section = buffer.slice(indexPosition, buffer.capacity() - indexPosition);
+    return CatalogIndexes.read(section, this);
+  }
+
+  private String string(int ordinal, int column) {
+    int id = buffer.getInt(columnsPosition + 4 * (column * rows + checked(ordinal)));
+    if (id == MISSING_STRING) return null;
+
+    int start = buffer.getInt(offsetsPosition + 4 * id);
+    int end = buffer.getInt(offsetsPosition + 4 * (id + 1));
+    byte[] bytes = new byte[end - start];
+    // Absolute bulk get leaves the shared buffer's position alone, so reads are thread-safe
+    buffer.get(heapPosition + start, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  // The buffer only bounds-checks the whole file, so an ordinal past the end would read the next column
+  private int checked(int ordinal) {
+    if (ordinal < 0 || ordinal >= rows) throw new IndexOutOfBoundsException("Ordinal " + ordinal);
+    return ordinal;
+  }
+
+  private static Double boxed(double value) {
+    return Double.isNaN(value) ? null : value;
+  }
+}
@@ -0,0 +1,324 @@
+package com.restaurant.recommendation.catalog;
+
+import com.restaurant.recommendation.geo.Gazetteer;
+import com.restaurant.recommendation.geo.GeoIndex;
+import com.restaurant.recommendation.geo.GeoPoint;
+import com.restaurant.recommendation.logging.LogManager;
+import com.restaurant.recommendation.logging.Logger;
+import com.restaurant.recommendation.metrics.Metrics;
+import com.restaurant.recommendation.model.Restaurant;
+import com.restaurant.recommendation.ranking.RankingColumns;
+import com.restaurant.recommendation.ranking.RankingEngine;
+import com.restaurant.recommendation.ranking.RankingQuery;
+import com.restaurant.recommendation.ranking.RankingWeights;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Read-only restaurant catalog with an inverted index over cuisine, city and price range.
+// Restaurants are numbered by descending rating, so candidates come out of the index already ranked
+// and a query only touches the postings it needs. Locations that the gazetteer can place are matched
+// by distance through a GeoIndex instead of by name. Free text is matched semantically: each
+// restaurant's name, cuisine and description is embedded with a HashingVectorizer and held in an
+// IVF VectorIndex. Records come from a CatalogStore: heap objects for CSV/JSON catalogs, or a
+// memory-mapped columnar file (.rcat) whose records are only materialized for results and whose
+// indexes are saved with it (see CatalogIndexes). Matches are ordered by a RankingEngine over rating,
+// price fit, distance, cuisine and text similarity.
+//
+// Terms: c:<cuisine word>, l:<city>, lt:<city or state word>, p:<$..$$$$>
+public class RestaurantCatalog {
+    private static final Logger logger = LogManager.getLogger(RestaurantCatalog.class);
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+        "a", "an", "and", "are", "at", "be", "by", "can", "for", "from", "good", "great", "i", "in", "is", "it",
+        "like", "looking", "me", "my", "near", "of", "on", "or", "place", "places", "please", "recommend",
+        "restaurant", "restaurants", "some", "something", "the", "to", "want", "we", "with", "would", "you"));
+    // Search radius around an explicit point when the query gives none
+    private static final double DEFAULT_RADIUS_KM = 5.0;
+    private static final int MAX_WIDENINGS = 3;
+    private static final int VECTOR_PROBES = 4;
+    // Text-only queries return nothing less similar than this. Against the demo catalog, small talk and
+    // unrelated requests top out around 0.13; the best match for a named dish or cuisine scores 0.2-0.3
+    private static final float MIN_SIMILARITY = 0.2f;
+    // Text-only queries rank this many times more neighbours than they return
+    private static final int RERANK_FACTOR = 4;
+    // 64M floats (256MB), about 65k restaurants
+    private static final long MAX_VECTOR_FLOATS = 64L * 1024 * 1024;
+
+    private final CatalogStore store;
+    private final InvertedIndex index;
+    // Lowercased city names, for spotting a city mentioned in free text
+    private final List<String> cities;
+    private final GeoIndex geoIndex;
+    // Ordinals without coordinates, which only a location name can match
+    private final int[] unlocated;
+    private final Gazetteer gazetteer;
+    private final HashingVectorizer vectorizer;
+    private final VectorIndex vectorIndex;
+    private final RankingColumns rankingColumns;
+    private final RankingEngine ranker;
+
+    public RestaurantCatalog(List<Restaurant> source) {
+        this(new ListCatalogStore(source), Gazetteer.getDefault(), new RankingEngine(RankingWeights.DEFAULTS));
+    }
+
+    public RestaurantCatalog(CatalogStore store, Gazetteer gazetteer, RankingEngine ranker) {
+        this(store, buildIndexes(store), gazetteer, ranker);
+    }
+
+    RestaurantCatalog(CatalogStore store, CatalogIndexes indexes, Gazetteer gazetteer, RankingEngine ranker) {
+        this.store = store;
+        this.ranker = ranker;
+        this.gazetteer = gazetteer;
+        this.index = indexes.index;
+        this.geoIndex = indexes.geoIndex;
+        this.rankingColumns = indexes.rankingColumns;
+        this.unlocated = indexes.unlocated;
+        this.vectorizer = indexes.vectorizer;
+        this.vectorIndex = indexes.vectorIndex;
+        this.cities = new ArrayList<>();
+        for (String term : index.terms()) {
+            if (term.startsWith("l:")) cities.add(term.substring(2));
+        }
+        if (vectorIndex == null && store.size() > 0) {
+            logger.warn("Catalog has no text vectors, free-text search is disabled", "restaurants", store.size());
+        }
+    }
+
+    // Dense vectors built here live on the heap, so very large catalogs go without text similarity unless
+    // they are written out as .rcat, which keeps the vectors in the file
+    private static CatalogIndexes buildIndexes(CatalogStore store) {
+        boolean withVectors = (long) store.size() * CatalogIndexes.VECTOR_DIMENSIONS <= MAX_VECTOR_FLOATS;
+        return CatalogIndexes.build(store, withVectors);
+    }
+
+    // .rcat files (see ColumnarCatalogWriter) are mapped from the filesystem along with their saved indexes;
+    // anything else goes through CatalogLoader and is indexed here
+    public static RestaurantCatalog load(String path, RankingEngine ranker) throws IOException {
+        long startMillis = System.currentTimeMillis();
+        CatalogStore store;
+        CatalogIndexes indexes = null;
+        if (path.toLowerCase().endsWith(".rcat")) {
+            MappedCatalogStore mapped = MappedCatalogStore.open(Paths.get(path));
+            indexes = mapped.readIndexes();
+            store = mapped;
+        } else {
+            store = new ListCatalogStore(CatalogLoader.load(path));
+        }
+        boolean saved = indexes != null;
+        if (!saved) indexes = buildIndexes(store);
+        RestaurantCatalog catalog = new RestaurantCatalog(store, indexes, Gazetteer.getDefault(), ranker);
+        logger.info("Loaded restaurant catalog", "path", path, "restaurants", catalog.size(),
+            "millis", System.currentTimeMillis() - startMillis);
+        logger.info(saved ? "Read saved catalog indexes" : "Built catalog indexes", "terms", catalog.index.termCount(),
+            "withCoordinates", catalog.geoIndex.size(),
+            "vectorLists", catalog.vectorIndex != null ? catalog.vectorIndex.getLists() : 0);
+        return catalog;
+    }
+
+    public void registerMetrics() {
+        Metrics.REGISTRY.registerGauge("recommendation_catalog_restaurants", "Restaurants in the catalog", this::size);
+        Metrics.REGISTRY.registerGauge("recommendation_catalog_text_search_enabled",
+            "1 when the catalog has text vectors for free-text search, 0 when it went without", () -> vectorIndex != null ? 1 : 0);
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    public Restaurant get(int ordinal) {
+        return store.get(ordinal);
+    }
+
+    // Up to k restaurants closest to the point, nearest first, no further than maxKm
+    public List<Restaurant> nearest(GeoPoint point, int k, double maxKm) {
+        int[] ordinals = geoIndex.nearest(point.getLatitude(), point.getLongitude(), k, maxKm);
+        return toRestaurants(ordinals, ordinals.length);
+    }
+
+    // Returns up to limit matches, best first. Filters missing from the query are inferred from its text
+    // when it names a known cuisine or city. Without any filter, the restaurants most similar to the text
+    // are the candidates, if any are close enough.
+    public List<Restaurant> search(CatalogQuery query, int limit) {
+        if (limit <= 0) return Collections.emptyList();
+        int[] candidates = candidates(query);
+        float[] queryVector = query.getText() != null && vectorizer != null ? vectorizer.vectorize(query.getText()) : null;
+        if (candidates == null) {
+            if (queryVector == null) return Collections.emptyList();
+            VectorIndex.Neighbors neighbors = vectorIndex.search(queryVector, limit * RERANK_FACTOR, VECTOR_PROBES);
+            int count = 0;
+            while (count < neighbors.size() && neighbors.getScores()[count] >= MIN_SIMILARITY) count++;
+            candidates = Arrays.copyOf(neighbors.getOrdinals(), count);
+        }
+        if (candidates.length == 0) return Collections.emptyList();
+
+        // Similarity is computed inside the ranking pass, so large candidate sets share it across workers
+        RankingEngine.Relevance relevance = queryVector != null
+            ? ordinal -> Math.max(0f, vectorIndex.similarity(queryVector, ordinal))
+            : null;
+        int[] top = ranker.topK(rankingColumns, candidates, relevance, rankingQuery(query), limit);
+        return toRestaurants(top, top.length);
+    }
+
+    private RankingQuery rankingQuery(CatalogQuery query) {
+        String text = query.getText() != null ? query.getText().toLowerCase() : "";
+        GeoPoint origin = query.getPoint();
+        if (origin == null) {
+            Gazetteer.Place place = gazetteer.resolve(query.getLocation() != null ? query.getLocation() : text);
+            if (place != null) origin = place.getPoint();
+        }
+        String price = query.getPriceRange() != null ? query.getPriceRange() : inferPrice(text);
+        return new RankingQuery(RankingQuery.priceTier(price), query.getCuisine(), origin);
+    }
+
+    // Ordinals matching every filter, in rating order; null when there is no filter at all
+    int[] candidates(CatalogQuery query) {
+        String text = query.getText() != null ? query.getText().toLowerCase() : "";
+        int[] result = null;
+
+        // Cuisine: any of its words, e.g. "Chinese (Sichuan)" matches either
+        List<String> cuisineWords = query.getCuisine() != null ? words(query.getCuisine()) : inferCuisine(text);
+        if (!cuisineWords.isEmpty()) {
+            int[] matches = new int[0];
+            for (String word : cuisineWords) {
+                matches = InvertedIndex.union(matches, index.postings("c:" + word));
+            }
+            result = matches;
+        }
+
+        String price = normalizePrice(query.getPriceRange() != null ? query.getPriceRange() : inferPrice(text));
+        if (price != null) {
+            result = and(result, index.postings("p:" + price));
+        }
+
+        // Location last, so a place-based search can widen until the other filters find something
+        int[] nearby = nearby(query, text, result);
+        if (nearby != null) {
+            result = nearby;
+        } else {
+            String location = query.getLocation() != null ? query.getLocation() : inferCity(text);
+            if (location != null) {
+                result = and(result, locationPostings(location));
+            }
+        }
+        return result;
+    }
+
+    // Filtered ordinals around the query's point or gazetteer place, plus those without coordinates
+    // whose city matches by name; null when there's nothing to place the query with. A place's own
+    // radius doubles (up to MAX_WIDENINGS times) while nothing matches; an explicit radius is kept.
+    private int[] nearby(CatalogQuery query, String text, int[] filtered) {
+        if (geoIndex.size() == 0) return null;
+
+        GeoPoint point = query.getPoint();
+        double radiusKm = query.getRadiusKm() != null ? query.getRadiusKm() : DEFAULT_RADIUS_KM;
+        int widenings = 0;
+        int[] unlocatedInCity = new int[0];
+        if (point == null) {
+            Gazetteer.Place place = gazetteer.resolve(query.getLocation() != null ? query.getLocation() : text);
+            if (place == null) return null;
+            point = place.getPoint();
+            if (query.getRadiusKm() == null) {
+                radiusKm = place.getRadiusKm();
+                widenings = MAX_WIDENINGS;
+            }
+            if (unlocated.length > 0) {
+                unlocatedInCity = InvertedIndex.intersect(unlocated, locationPostings(place.getCity()));
+            }
+        }
+
+        while (true) {
+            int[] matches = geoIndex.withinRadius(point.getLatitude(), point.getLongitude(), radiusKm);
+            matches = and(filtered, InvertedIndex.union(matches, unlocatedInCity));
+            if (matches.length > 0 || widenings-- <= 0) return matches;
+            radiusKm *= 2;
+        }
+    }
+
+    // Exact city first; otherwise every city/state word the index knows must match
+    private int[] locationPostings(String location) {
+        String city = city(location);
+        int[] exact = city != null ? index.postings("l:" + city) : new int[0];
+        if (exact.length > 0) return exact;
+
+        int[] matches = null;
+        for (String word : words(location)) {
+            int[] list = index.postings("lt:" + word);
+            if (list.length > 0) matches = and(matches, list);
+        }
+        return matches != null ? matches : new int[0];
+    }
+
+    private List<String> inferCuisine(String text) {
+        List<String> found = new ArrayList<>();
+        for (String word : words(text)) {
+            if (index.postings("c:" + word).length > 0) found.add(word);
+        }
+        return found;
+    }
+
+    private String inferCity(String text) {
+        for (String city : cities) {
+            if (text.contains(city)) return city;
+        }
+        return null;
+    }
+
+    private static String inferPrice(String text) {
+        if (text.contains("cheap") || text.contains("budget") || text.contains("inexpensive")) return "$";
+        if (text.contains("fine dining") || text.contains("upscale") || text.contains("fancy")) return "$$$";
+        return null;
+    }
+
+    private List<Restaurant> toRestaurants(int[] ordinals, int limit) {
+        int count = Math.min(limit, ordinals.length);
+        List<Restaurant> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(store.get(ordinals[i]));
+        }
+        return results;
+    }
+
+    private static int[] and(int[] current, int[] list) {
+        return current == null ? list : InvertedIndex.intersect(current, list);
+    }
+
+    // "$$", "medium", "moderate" -> "$$"; null if unrecognized
+    static String normalizePrice(String price) {
+        int tier = RankingQuery.priceTier(price);
+        return tier > 0 ? "$$$$".substring(0, tier) : null;
+    }
+
+    // "San Jose, CA" -> "san jose"
+    static String city(String location) {
+        if (location == null) return null;
+        int comma = location.indexOf(',');
+        String city = (comma >= 0 ? location.substring(0, comma) : location).trim().toLowerCase();
+        return city.isEmpty() ? null : city;
+    }
+
+    // Lowercased alphanumeric words of at least two characters, minus stop words
+    static List<String> words(String text) {
+        if (text == null || text.isEmpty()) return Collections.emptyList();
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (i - start >= 2) {
+                    String word = text.substring(start, i).toLowerCase();
+                    if (!STOP_WORDS.contains(word)) words.add(word);
+                }
+                start = -1;
+            }
+        }
+        return words;
+    }
+}
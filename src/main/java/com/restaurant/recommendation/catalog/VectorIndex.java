@@ -0,0 +1,314 @@
+package com.restaurant.recommendation.catalog;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+// Inverted-file (IVF) approximate nearest-neighbour index over unit-length float vectors, scored by
+// dot product (cosine similarity). Spherical k-means splits the vectors into lists around centroids;
+// a query scans only the lists of its closest few centroids. Vectors are copied into one flat buffer
+// grouped by list, so a probe is a sequential scan. An index read back from a catalog file keeps that
+// buffer in the file's mapping.
+public class VectorIndex {
+    private static final int KMEANS_ITERATIONS = 10;
+    // Centroids are trained on at most this many vectors per list
+    private static final int TRAINING_SAMPLES_PER_LIST = 64;
+
+    public static class Neighbors {
+        private final int[] ordinals;
+        private final float[] scores;
+
+        Neighbors(int[] ordinals, float[] scores) {
+            this.ordinals = ordinals;
+            this.scores = scores;
+        }
+
+        // Best first
+        public int[] getOrdinals() { return ordinals; }
+        public float[] getScores() { return scores; }
+
+        public int size() {
+            return ordinals.length;
+        }
+    }
+
+    private final int dimensions;
+    private final int size;
+    private final float[] centroids;
+    private final int lists;
+    // listOffsets[l]..listOffsets[l + 1] are the rows of list l
+    private final int[] listOffsets;
+    // Row -> ordinal and ordinal -> row
+    private final int[] rowOrdinals;
+    private final int[] ordinalRows;
+    private final FloatBuffer rows;
+
+    // vectors holds vector i at [i * dimensions, (i + 1) * dimensions); lists <= 0 picks about sqrt(n)
+    public VectorIndex(float[] vectors, int dimensions, int lists, long seed) {
+        if (vectors.length % dimensions != 0) throw new IllegalArgumentException("Vector data is not a multiple of " + dimensions);
+        this.dimensions = dimensions;
+        this.size = vectors.length / dimensions;
+        // An empty index has no lists at all, so there is nothing to train
+        this.lists = listCount(size, lists);
+        this.centroids = train(vectors, new Random(seed));
+
+        int[] assignment = new int[size];
+        int[] counts = new int[this.lists];
+        for (int i = 0; i < size; i++) {
+            assignment[i] = closestCentroid(vectors, i * dimensions);
+            counts[assignment[i]]++;
+        }
+        this.listOffsets = new int[this.lists + 1];
+        for (int l = 0; l < this.lists; l++) {
+            listOffsets[l + 1] = listOffsets[l] + counts[l];
+        }
+
+        int[] next = Arrays.copyOf(listOffsets, this.lists);
+        this.rowOrdinals = new int[size];
+        this.ordinalRows = new int[size];
+        float[] grouped = new float[vectors.length];
+        for (int i = 0; i < size; i++) {
+            int row = next[assignment[i]]++;
+            rowOrdinals[row] = i;
+            ordinalRows[i] = row;
+            System.arraycopy(vectors, i * dimensions, grouped, row * dimensions, dimensions);
+        }
+        this.rows = FloatBuffer.wrap(grouped);
+    }
+
+    // A trained index from its saved parts (see the package-private getters); rows may be a mapped buffer
+    VectorIndex(int dimensions, float[] centroids, int[] listOffsets, int[] rowOrdinals, FloatBuffer rows) {
+        this.dimensions = dimensions;
+        this.size = rowOrdinals.length;
+        this.lists = listOffsets.length - 1;
+        if (centroids.length != lists * dimensions || listOffsets[lists] != size || rows.capacity() != size * dimensions) {
+            throw new IllegalArgumentException("Inconsistent vector index");
+        }
+        this.centroids = centroids;
+        this.listOffsets = listOffsets;
+        this.rowOrdinals = rowOrdinals;
+        this.ordinalRows = new int[size];
+        for (int row = 0; row < size; row++) {
+            ordinalRows[rowOrdinals[row]] = row;
+        }
+        this.rows = rows;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getLists() {
+        return lists;
+    }
+
+    int getDimensions() { return dimensions; }
+    float[] getCentroids() { return centroids; }
+    int[] getListOffsets() { return listOffsets; }
+    int[] getRowOrdinals() { return rowOrdinals; }
+    FloatBuffer getRows() { return rows; }
+
+    // The list count the training constructor settles on
+    static int listCount(int size, int lists) {
+        int listCount = lists > 0 ? lists : (int) Math.round(Math.sqrt(size));
+        return size == 0 ? 0 : Math.max(1, Math.min(listCount, size));
+    }
+
+    // Top k by similarity from the probes closest lists; probes >= getLists() is an exact search
+    public Neighbors search(float[] query, int k, int probes) {
+        if (k <= 0 || size == 0) return new Neighbors(new int[0], new float[0]);
+
+        int[] probed = closestLists(query, Math.max(1, Math.min(probes, lists)));
+        TopK top = new TopK(Math.min(k, size));
+        for (int list : probed) {
+            for (int row = listOffsets[list]; row < listOffsets[list + 1]; row++) {
+                top.offer(rowOrdinals[row], dot(query, 0, rows, row * dimensions, dimensions));
+            }
+        }
+        return top.drain();
+    }
+
+    public float similarity(float[] query, int ordinal) {
+        return dot(query, 0, rows, ordinalRows[ordinal] * dimensions, dimensions);
+    }
+
+    private float[] train(float[] vectors, Random random) {
+        float[] trained = new float[lists * dimensions];
+        int samples = Math.min(size, lists * TRAINING_SAMPLES_PER_LIST);
+        int[] sample = sample(size, samples, random);
+        for (int l = 0; l < lists; l++) {
+            System.arraycopy(vectors, sample[l] * dimensions, trained, l * dimensions, dimensions);
+        }
+        if (lists == 1) return trained;
+
+        float[] sums = new float[lists * dimensions];
+        int[] counts = new int[lists];
+        for (int iteration = 0; iteration < KMEANS_ITERATIONS; iteration++) {
+            Arrays.fill(sums, 0f);
+            Arrays.fill(counts, 0);
+            for (int s : sample) {
+                int best = 0;
+                float bestScore = Float.NEGATIVE_INFINITY;
+                for (int l = 0; l < lists; l++) {
+                    float score = dot(vectors, s * dimensions, trained, l * dimensions, dimensions);
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = l;
+                    }
+                }
+                counts[best]++;
+                for (int d = 0; d < dimensions; d++) {
+                    sums[best * dimensions + d] += vectors[s * dimensions + d];
+                }
+            }
+            for (int l = 0; l < lists; l++) {
+                // An empty list keeps its old centroid
+                if (counts[l] == 0) continue;
+                normalize(sums, l * dimensions, dimensions);
+                System.arraycopy(sums, l * dimensions, trained, l * dimensions, dimensions);
+            }
+        }
+        return trained;
+    }
+
+    private int closestCentroid(float[] vectors, int offset) {
+        int best = 0;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        for (int l = 0; l < lists; l++) {
+            float score = dot(vectors, offset, centroids, l * dimensions, dimensions);
+            if (score > bestScore) {
+                bestScore = score;
+                best = l;
+            }
+        }
+        return best;
+    }
+
+    private int[] closestLists(float[] query, int probes) {
+        if (probes >= lists) {
+            int[] all = new int[lists];
+            for (int l = 0; l < lists; l++) all[l] = l;
+            return all;
+        }
+        TopK top = new TopK(probes);
+        for (int l = 0; l < lists; l++) {
+            top.offer(l, dot(query, 0, centroids, l * dimensions, dimensions));
+        }
+        return top.drain().ordinals;
+    }
+
+    // Partial Fisher-Yates: count distinct indexes below n
+    private static int[] sample(int n, int count, Random random) {
+        int[] indexes = new int[n];
+        for (int i = 0; i < n; i++) indexes[i] = i;
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(n - i);
+            int swap = indexes[i];
+            indexes[i] = indexes[j];
+            indexes[j] = swap;
+        }
+        return Arrays.copyOf(indexes, count);
+    }
+
+    private static void normalize(float[] values, int offset, int length) {
+        double norm = 0;
+        for (int i = 0; i < length; i++) {
+            norm += values[offset + i] * values[offset + i];
+        }
+        if (norm == 0) return;
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < length; i++) {
+            values[offset + i] *= scale;
+        }
+    }
+
+    // Four independent accumulators let the JIT keep the multiply-adds in flight
+    static float dot(float[] a, int aOffset, FloatBuffer b, int bOffset, int length) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            s0 += a[aOffset + i] * b.get(bOffset + i);
+            s1 += a[aOffset + i + 1] * b.get(bOffset + i + 1);
+            s2 += a[aOffset + i + 2] * b.get(bOffset + i + 2);
+            s3 += a[aOffset + i + 3] * b.get(bOffset + i + 3);
+        }
+        for (; i < length; i++) {
+            s0 += a[aOffset + i] * b.get(bOffset + i);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    // Bounded min-heap keeping the k highest scores
+    private static class TopK {
+        private final int[] ordinals;
+        private final float[] scores;
+        private int size;
+
+        TopK(int k) {
+            ordinals = new int[k];
+            scores = new float[k];
+        }
+
+        void offer(int ordinal, float score) {
+            if (size < ordinals.length) {
+                int index = size++;
+                // Sift up
+                while (index > 0) {
+                    int parent = (index - 1) >>> 1;
+                    if (scores[parent] <= score) break;
+                    ordinals[index] = ordinals[parent];
+                    scores[index] = scores[parent];
+                    index = parent;
+                }
+                ordinals[index] = ordinal;
+                scores[index] = score;
+            } else if (score > scores[0]) {
+                siftDown(ordinal, score, size);
+            }
+        }
+
+        Neighbors drain() {
+            int count = size;
+            int[] resultOrdinals = new int[count];
+            float[] resultScores = new float[count];
+            // Popping the minimum each time fills the result from the back
+            while (size > 0) {
+                resultOrdinals[size - 1] = ordinals[0];
+                resultScores[size - 1] = scores[0];
+                size--;
+                if (size > 0) siftDown(ordinals[size], scores[size], size);
+            }
+            return new Neighbors(resultOrdinals, resultScores);
+        }
+
+        private void siftDown(int ordinal, float score, int heapSize) {
+            int index = 0;
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= heapSize) break;
+                if (child + 1 < heapSize && scores[child + 1] < scores[child]) child++;
+                if (scores[child] >= score) break;
+                ordinals[index] = ordinals[child];
+                scores[index] = scores[child];
+                index = child;
+            }
+            ordinals[index] = ordinal;
+            scores[index] = score;
+        }
+    }
+}
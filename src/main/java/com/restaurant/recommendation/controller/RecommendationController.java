@@ -4,63 +4,198 @@ import com.restaurant.recommendation.model.RecommendationRequest;
 import com.restaurant.recommendation.model.RecommendationResponse;
 import com.restaurant.recommendation.service.IRecommendationService;
 import com.restaurant.recommendation.service.IAIService;
+import com.restaurant.recommendation.core.JsonReader;
 import com.restaurant.recommendation.core.RestaurantRecommendationServer;
+import com.restaurant.recommendation.logging.LogManager;
+import com.restaurant.recommendation.logging.Logger;
+import com.restaurant.recommendation.metrics.Metrics;
+import com.restaurant.recommendation.metrics.MetricsRegistry;
 import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Scanner;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
 
 public class RecommendationController {
+    private static final Logger logger = LogManager.getLogger(RecommendationController.class);
+
+    public static final String SESSION_HEADER = "X-Session-Id";
+    public static final String SESSION_COOKIE = "sessionId";
+
+    public static final long DEFAULT_MAX_BODY_BYTES = 64 * 1024;
+
+    private static final String[] REQUEST_FIELDS =
+        {"userPreference", "location", "cuisine", "priceRange", "numberOfPeople", "occasion", "latitude", "longitude",
+            "radiusKm"};
+    private static final int FIELD_USER_PREFERENCE = 0;
+    private static final int FIELD_LOCATION = 1;
+    private static final int FIELD_CUISINE = 2;
+    private static final int FIELD_PRICE_RANGE = 3;
+    private static final int FIELD_NUMBER_OF_PEOPLE = 4;
+    private static final int FIELD_OCCASION = 5;
+    private static final int FIELD_LATITUDE = 6;
+    private static final int FIELD_LONGITUDE = 7;
+    private static final int FIELD_RADIUS_KM = 8;
+
     private final IRecommendationService restaurantService;
     private final IAIService aiService;
+    private final long maxBodyBytes;
 
     public RecommendationController(IRecommendationService restaurantService, IAIService aiService) {
+        this(restaurantService, aiService, DEFAULT_MAX_BODY_BYTES);
+    }
+
+    public RecommendationController(IRecommendationService restaurantService, IAIService aiService, long maxBodyBytes) {
         this.restaurantService = restaurantService;
         this.aiService = aiService;
-        System.out.println("RecommendationController initialized");
+        this.maxBodyBytes = maxBodyBytes;
+        logger.info("RecommendationController initialized");
     }
 
     public void handleGetRecommendations(HttpExchange exchange) throws IOException {
+        long startNanos = System.nanoTime();
+        Metrics.RECOMMENDATION_REQUESTS.increment();
+        RecommendationRequest request;
         try {
-            // Read request body
-            InputStream requestBody = exchange.getRequestBody();
-            Scanner scanner = new Scanner(requestBody).useDelimiter("\\A");
-            String requestBodyString = scanner.hasNext() ? scanner.next() : "";
-
-            // Debug: Print received JSON
-            System.out.println("=== Received Request Body ===");
-            System.out.println(requestBodyString);
-            System.out.println("============================");
-
-            // Parse JSON request manually
-            RecommendationRequest request = parseRecommendationRequest(requestBodyString);
-
-            // Debug: Print parsed request
-            System.out.println("=== Parsed Request ===");
-            System.out.println("UserPreference: " + request.getUserPreference());
-            System.out.println("Location: " + request.getLocation());
-            System.out.println("Cuisine: " + request.getCuisine());
-            System.out.println("PriceRange: " + request.getPriceRange());
-            System.out.println("=====================");
-
-            // Process request
-            RecommendationResponse response = restaurantService.getRecommendations(request);
-
-            // Send response
-            RestaurantRecommendationServer.sendJsonResponse(exchange, 200, response);
+            request = readRequest(exchange);
         } catch (Exception e) {
-            System.err.println("Error in handleGetRecommendations: " + e.getMessage());
-            e.printStackTrace();
-            RestaurantRecommendationServer.sendResponse(exchange, 500, "Error processing request: " + e.getMessage());
+            logger.warn("Rejected recommendation request", "error", e.getMessage());
+            sendRequestError(exchange, e);
+            return;
+        }
+
+        // Process request without holding this thread; the exchange is completed from the callback
+        restaurantService.getRecommendationsAsync(request).whenComplete((response, error) -> {
+            try {
+                if (error != null) {
+                    logger.error("Error in handleGetRecommendations", error);
+                    Metrics.REQUEST_ERRORS.increment();
+                    RestaurantRecommendationServer.sendResponse(exchange, 500, "Error processing request: " + error.getMessage());
+                } else {
+                    RestaurantRecommendationServer.sendJsonResponse(exchange, 200, response);
+                }
+                Metrics.RECOMMENDATION_LATENCY.recordSince(startNanos);
+            } catch (IOException e) {
+                logger.warn("Error sending recommendation response", "error", e.getMessage());
+                exchange.close();
+            }
+        });
+    }
+
+    // Streams the AI text as Server-Sent Events over a chunked response:
+    // one "data:" line per line of the delta, then a "done" or "error" event
+    public void handleStreamRecommendations(HttpExchange exchange) throws IOException {
+        long startNanos = System.nanoTime();
+        Metrics.STREAM_REQUESTS.increment();
+        RecommendationRequest request;
+        try {
+            request = readRequest(exchange);
+        } catch (Exception e) {
+            logger.warn("Rejected stream request", "error", e.getMessage());
+            sendRequestError(exchange, e);
+            return;
+        }
+
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream os = exchange.getResponseBody();
+
+        restaurantService.streamRecommendations(request, delta -> writeEvent(os, null, delta))
+            .whenComplete((response, error) -> {
+                if (error != null) {
+                    Throwable cause = error.getCause() != null ? error.getCause() : error;
+                    writeEvent(os, "error", "AI error: " + cause.getMessage());
+                } else {
+                    writeEvent(os, "done", "");
+                }
+                exchange.close();
+                Metrics.STREAM_LATENCY.recordSince(startNanos);
+            });
+    }
+
+    // A failed write means the client went away; the upstream stream still completes the turn
+    private static void writeEvent(OutputStream os, String event, String data) {
+        StringBuilder frame = new StringBuilder(data.length() + 16);
+        if (event != null) {
+            frame.append("event: ").append(event).append('\n');
+        }
+        int start = 0;
+        while (true) {
+            int newline = data.indexOf('\n', start);
+            int end = newline == -1 ? data.length() : newline;
+            frame.append("data: ").append(data, start, end).append('\n');
+            if (newline == -1) break;
+            start = newline + 1;
+        }
+        frame.append('\n');
+        try {
+            os.write(frame.toString().getBytes(StandardCharsets.UTF_8));
+            os.flush();
+        } catch (IOException e) {
+            logger.debug("Stream client disconnected", "error", e.getMessage());
         }
     }
 
+    private RecommendationRequest readRequest(HttpExchange exchange) throws IOException {
+        // Reject oversized bodies up front when the client declares a length
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength != null) {
+            try {
+                if (Long.parseLong(contentLength.trim()) > maxBodyBytes) {
+                    throw new JsonReader.PayloadTooLargeException(maxBodyBytes);
+                }
+            } catch (NumberFormatException ignored) {
+                // Fall through; the reader still enforces the limit while streaming
+            }
+        }
+
+        long startNanos = System.nanoTime();
+        RecommendationRequest request;
+        try (InputStream requestBody = exchange.getRequestBody()) {
+            request = parseRecommendationRequest(requestBody, maxBodyBytes);
+        }
+        String sessionId = resolveSessionId(exchange);
+        if (sessionId == null) {
+            // Rather than sharing one session, a client that sends none starts its own and keeps it by cookie
+            sessionId = UUID.randomUUID().toString();
+            exchange.getResponseHeaders().add("Set-Cookie", SESSION_COOKIE + "=" + sessionId + "; Path=/; HttpOnly; SameSite=Lax");
+        }
+        request.setSessionId(sessionId);
+        Metrics.REQUEST_PARSE.recordSince(startNanos);
+        return request;
+    }
+
+    // 413 for oversized bodies, 400 for malformed JSON, 500 otherwise
+    private static void sendRequestError(HttpExchange exchange, Exception e) throws IOException {
+        Metrics.REQUEST_ERRORS.increment();
+        int status = 500;
+        if (e instanceof JsonReader.PayloadTooLargeException) {
+            status = 413;
+        } else if (e instanceof JsonReader.MalformedJsonException) {
+            status = 400;
+        }
+        RestaurantRecommendationServer.sendResponse(exchange, status, "Error processing request: " + e.getMessage());
+    }
+
+    // 503 while the AI circuit breaker is open so load balancers can see the degradation
     public void handleHealth(HttpExchange exchange) throws IOException {
+        if (!restaurantService.isServiceHealthy()) {
+            String response = "Restaurant Recommendation Service is degraded: AI service unavailable, serving fallback results.";
+            RestaurantRecommendationServer.sendResponse(exchange, 503, response);
+            return;
+        }
         String response = "Restaurant Recommendation Service is running!";
         RestaurantRecommendationServer.sendResponse(exchange, 200, response);
     }
 
+    public void handleMetrics(HttpExchange exchange) throws IOException {
+        RestaurantRecommendationServer.sendResponse(exchange, 200, MetricsRegistry.CONTENT_TYPE, Metrics.REGISTRY.scrape());
+    }
+
     public void handleTestOpenAI(HttpExchange exchange) throws IOException {
         try {
             // Create a simple test request
@@ -83,126 +218,114 @@ public class RecommendationController {
 
     public void handleReset(HttpExchange exchange) throws IOException {
         try {
-            // Reset conversation history in OpenAI service
-            aiService.resetConversation();
+            // Reset conversation history for this session only; without one there is nothing to reset
+            String sessionId = resolveSessionId(exchange);
+            if (sessionId != null) {
+                aiService.resetConversation(sessionId);
+            }
 
             String response = "Conversation history has been reset, location information cleared.";
             RestaurantRecommendationServer.sendResponse(exchange, 200, response);
 
-            System.out.println("Conversation reset successful");
+            logger.debug("Conversation reset");
         } catch (Exception e) {
-            System.err.println("Error resetting conversation: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error resetting conversation", e);
             RestaurantRecommendationServer.sendResponse(exchange, 500,
                 "Reset failed: " + e.getMessage());
         }
     }
 
-    private RecommendationRequest parseRecommendationRequest(String jsonString) {
-        RecommendationRequest request = new RecommendationRequest();
-
-        if (jsonString == null || jsonString.trim().isEmpty()) {
-            System.err.println("Warning: Empty JSON received");
-            return request;
+    // Session id comes from the X-Session-Id header, falling back to the sessionId cookie; null if neither is set
+    private String resolveSessionId(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+        if (header != null && !header.trim().isEmpty()) {
+            return header.trim();
         }
 
-        try {
-            jsonString = jsonString.trim();
-            if (jsonString.startsWith("{")) {
-                jsonString = jsonString.substring(1);
-            }
-            if (jsonString.endsWith("}")) {
-                jsonString = jsonString.substring(0, jsonString.length() - 1);
-            }
-
-            String[] pairs = splitJsonPairs(jsonString);
-
-            for (String pair : pairs) {
-                pair = pair.trim();
-                if (pair.isEmpty()) continue;
-
-                int colonIndex = pair.indexOf(":");
-                if (colonIndex == -1) continue;
-
-                String key = pair.substring(0, colonIndex).trim();
-                String value = pair.substring(colonIndex + 1).trim();
-
-                key = removeQuotes(key);
-
-                switch (key) {
-                    case "userPreference":
-                        request.setUserPreference(removeQuotes(value));
-                        break;
-                    case "location":
-                        request.setLocation(removeQuotes(value));
-                        break;
-                    case "cuisine":
-                        request.setCuisine(removeQuotes(value));
-                        break;
-                    case "priceRange":
-                        request.setPriceRange(removeQuotes(value));
-                        break;
-                    case "numberOfPeople":
-                        try {
-                            request.setNumberOfPeople(Integer.parseInt(value));
-                        } catch (NumberFormatException e) {
-                            System.err.println("Error parsing numberOfPeople: " + value);
-                        }
-                        break;
-                    case "occasion":
-                        request.setOccasion(removeQuotes(value));
-                        break;
+        java.util.List<String> cookies = exchange.getRequestHeaders().get("Cookie");
+        if (cookies != null) {
+            for (String cookieHeader : cookies) {
+                for (String cookie : cookieHeader.split(";")) {
+                    int eq = cookie.indexOf('=');
+                    if (eq > 0 && cookie.substring(0, eq).trim().equals(SESSION_COOKIE)) {
+                        String value = cookie.substring(eq + 1).trim();
+                        if (!value.isEmpty()) return value;
+                    }
                 }
             }
-        } catch (Exception e) {
-            System.err.println("Error parsing JSON: " + e.getMessage());
-            e.printStackTrace();
         }
-
-        return request;
+        return null;
     }
 
-    private String[] splitJsonPairs(String jsonString) {
-        java.util.List<String> pairs = new java.util.ArrayList<>();
-        StringBuilder currentPair = new StringBuilder();
-        boolean inQuotes = false;
-        char quoteChar = '"';
-
-        for (int i = 0; i < jsonString.length(); i++) {
-            char c = jsonString.charAt(i);
-
-            if ((c == '"' || c == '\'') && (i == 0 || jsonString.charAt(i-1) != '\\')) {
-                if (!inQuotes) {
-                    inQuotes = true;
-                    quoteChar = c;
-                } else if (c == quoteChar) {
-                    inQuotes = false;
-                }
-            }
+    // Single pass over the request body; unknown fields are skipped
+    static RecommendationRequest parseRecommendationRequest(InputStream body, long maxBodyBytes) throws IOException {
+        RecommendationRequest request = new RecommendationRequest();
+        JsonReader reader = new JsonReader(body, maxBodyBytes);
 
-            if (c == ',' && !inQuotes) {
-                pairs.add(currentPair.toString());
-                currentPair = new StringBuilder();
-            } else {
-                currentPair.append(c);
-            }
+        if (reader.peek() == JsonReader.Token.END_DOCUMENT) {
+            logger.warn("Empty JSON received");
+            return request;
         }
 
-        if (currentPair.length() > 0) {
-            pairs.add(currentPair.toString());
+        reader.beginObject();
+        while (reader.hasNext()) {
+            int field = reader.nextNameIndex(REQUEST_FIELDS);
+            switch (field) {
+                case FIELD_USER_PREFERENCE:
+                    request.setUserPreference(reader.nextString());
+                    break;
+                case FIELD_LOCATION:
+                    request.setLocation(reader.nextString());
+                    break;
+                case FIELD_CUISINE:
+                    request.setCuisine(reader.nextString());
+                    break;
+                case FIELD_PRICE_RANGE:
+                    request.setPriceRange(reader.nextString());
+                    break;
+                case FIELD_NUMBER_OF_PEOPLE:
+                    if (reader.peek() == JsonReader.Token.NULL) {
+                        reader.nextNull();
+                        break;
+                    }
+                    try {
+                        request.setNumberOfPeople(reader.nextInt());
+                    } catch (NumberFormatException e) {
+                        logger.warn("Error parsing numberOfPeople", "error", e.getMessage());
+                    }
+                    break;
+                case FIELD_OCCASION:
+                    request.setOccasion(reader.nextString());
+                    break;
+                case FIELD_LATITUDE:
+                    request.setLatitude(nextOptionalDouble(reader, "latitude"));
+                    break;
+                case FIELD_LONGITUDE:
+                    request.setLongitude(nextOptionalDouble(reader, "longitude"));
+                    break;
+                case FIELD_RADIUS_KM:
+                    request.setRadiusKm(nextOptionalDouble(reader, "radiusKm"));
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
         }
+        reader.endObject();
 
-        return pairs.toArray(new String[0]);
+        return request;
     }
 
-    private String removeQuotes(String str) {
-        if (str == null) return "";
-
-        str = str.trim();
-        if ((str.startsWith("\"") && str.endsWith("\"")) ||
-            (str.startsWith("'") && str.endsWith("'"))) {
-            return str.substring(1, str.length() - 1);
+    private static Double nextOptionalDouble(JsonReader reader, String field) throws IOException {
+        if (reader.peek() == JsonReader.Token.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        try {
+            return reader.nextDouble();
+        } catch (NumberFormatException e) {
+            logger.warn("Error parsing field", "field", field, "error", e.getMessage());
+            return null;
         }
-        return str;
     }
 }
@@ -0,0 +1,74 @@
+package com.restaurant.recommendation.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+public class AppConfig {
+    private final Properties props;
+
+    public AppConfig(Properties props) {
+        this.props = props;
+    }
+
+    public static AppConfig load() {
+        Properties props = new Properties();
+        try (InputStream input = AppConfig.class.getClassLoader().getResourceAsStream("application.properties")) {
+            if (input != null) {
+                props.load(input);
+            } else {
+                System.err.println("application.properties file not found, using defaults");
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading configuration file: " + e.getMessage());
+        }
+        return new AppConfig(props);
+    }
+
+    // System properties (-Dkey=value) take precedence over application.properties
+    public String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = props.getProperty(key);
+        }
+        return value != null && !value.trim().isEmpty() ? value.trim() : defaultValue;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid integer for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null) return defaultValue;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid long for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = getString(key, null);
+        if (value == null) return defaultValue;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+}
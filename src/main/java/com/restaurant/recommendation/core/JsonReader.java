@@ -0,0 +1,455 @@
+package com.restaurant.recommendation.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+// Pull-style JSON tokenizer that decodes UTF-8 straight from an InputStream.
+// Names can be matched against a fixed table without creating Strings, and the
+// total number of bytes read is capped so oversized bodies are rejected early.
+// Closing the top-level value also reads to the end of input, so trailing data is an error.
+public class JsonReader {
+
+    public enum Token { BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT }
+
+    public static class MalformedJsonException extends IOException {
+        public MalformedJsonException(String message) {
+            super(message);
+        }
+    }
+
+    public static class PayloadTooLargeException extends IOException {
+        public PayloadTooLargeException(long limit) {
+            super("Request body exceeds " + limit + " bytes");
+        }
+    }
+
+    // Peeked token kinds
+    private static final int PEEKED_NONE = 0;
+    private static final int PEEKED_BEGIN_OBJECT = 1;
+    private static final int PEEKED_END_OBJECT = 2;
+    private static final int PEEKED_BEGIN_ARRAY = 3;
+    private static final int PEEKED_END_ARRAY = 4;
+    private static final int PEEKED_NAME = 5;
+    private static final int PEEKED_STRING = 6;
+    private static final int PEEKED_NUMBER = 7;
+    private static final int PEEKED_TRUE = 8;
+    private static final int PEEKED_FALSE = 9;
+    private static final int PEEKED_NULL = 10;
+    private static final int PEEKED_EOF = 11;
+
+    // Nesting scopes
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int DANGLING_NAME = 3;
+    private static final int NONEMPTY_OBJECT = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private static final int MAX_DEPTH = 64;
+
+    private final InputStream in;
+    private final long maxBytes;
+    private final byte[] buffer;
+    private int pos;
+    private int limit;
+    private long bytesRead;
+
+    // Scratch space for the current string or number token
+    private char[] chars = new char[64];
+    private int charCount;
+
+    private final int[] stack = new int[MAX_DEPTH];
+    private int depth;
+    private int peeked = PEEKED_NONE;
+
+    public JsonReader(InputStream in, long maxBytes) {
+        this(in, maxBytes, 4096);
+    }
+
+    public JsonReader(InputStream in, long maxBytes, int bufferSize) {
+        this.in = in;
+        this.maxBytes = maxBytes;
+        this.buffer = new byte[bufferSize];
+        stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    public Token peek() throws IOException {
+        int p = peeked != PEEKED_NONE ? peeked : doPeek();
+        switch (p) {
+            case PEEKED_BEGIN_OBJECT: return Token.BEGIN_OBJECT;
+            case PEEKED_END_OBJECT: return Token.END_OBJECT;
+            case PEEKED_BEGIN_ARRAY: return Token.BEGIN_ARRAY;
+            case PEEKED_END_ARRAY: return Token.END_ARRAY;
+            case PEEKED_NAME: return Token.NAME;
+            case PEEKED_STRING: return Token.STRING;
+            case PEEKED_NUMBER: return Token.NUMBER;
+            case PEEKED_TRUE:
+            case PEEKED_FALSE: return Token.BOOLEAN;
+            case PEEKED_NULL: return Token.NULL;
+            default: return Token.END_DOCUMENT;
+        }
+    }
+
+    public void beginObject() throws IOException {
+        expect(PEEKED_BEGIN_OBJECT, "object");
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        expect(PEEKED_END_OBJECT, "end of object");
+        depth--;
+        endValue();
+    }
+
+    public void beginArray() throws IOException {
+        expect(PEEKED_BEGIN_ARRAY, "array");
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        expect(PEEKED_END_ARRAY, "end of array");
+        depth--;
+        endValue();
+    }
+
+    // True while the current object or array has more elements
+    public boolean hasNext() throws IOException {
+        int p = peeked != PEEKED_NONE ? peeked : doPeek();
+        return p != PEEKED_END_OBJECT && p != PEEKED_END_ARRAY && p != PEEKED_EOF;
+    }
+
+    public String nextName() throws IOException {
+        expect(PEEKED_NAME, "name");
+        readString();
+        return new String(chars, 0, charCount);
+    }
+
+    // Reads the next name and returns its index in names, or -1 if it is not listed
+    public int nextNameIndex(String[] names) throws IOException {
+        expect(PEEKED_NAME, "name");
+        readString();
+        for (int i = 0; i < names.length; i++) {
+            if (scratchEquals(names[i])) return i;
+        }
+        return -1;
+    }
+
+    // Returns strings as-is, numbers and booleans as their literal text, and null for null
+    public String nextString() throws IOException {
+        int p = peeked != PEEKED_NONE ? peeked : doPeek();
+        peeked = PEEKED_NONE;
+        switch (p) {
+            case PEEKED_STRING:
+                readString();
+                return new String(chars, 0, charCount);
+            case PEEKED_NUMBER:
+                readNumber();
+                return new String(chars, 0, charCount);
+            case PEEKED_TRUE: return "true";
+            case PEEKED_FALSE: return "false";
+            case PEEKED_NULL: return null;
+            default:
+                peeked = p;
+                throw syntaxError("Expected a string");
+        }
+    }
+
+    // Accepts a number or a numeric string. The token is consumed even if it does not parse.
+    public int nextInt() throws IOException {
+        int p = peeked != PEEKED_NONE ? peeked : doPeek();
+        if (p == PEEKED_STRING) {
+            peeked = PEEKED_NONE;
+            readString();
+        } else if (p == PEEKED_NUMBER) {
+            peeked = PEEKED_NONE;
+            readNumber();
+        } else {
+            throw syntaxError("Expected a number");
+        }
+        return parseScratchInt();
+    }
+
+    public double nextDouble() throws IOException {
+        String value = nextString();
+        if (value == null) throw syntaxError("Expected a number");
+        return Double.parseDouble(value);
+    }
+
+    public boolean nextBoolean() throws IOException {
+        int p = peeked != PEEKED_NONE ? peeked : doPeek();
+        if (p != PEEKED_TRUE && p != PEEKED_FALSE) throw syntaxError("Expected a boolean");
+        peeked = PEEKED_NONE;
+        return p == PEEKED_TRUE;
+    }
+
+    public void nextNull() throws IOException {
+        expect(PEEKED_NULL, "null");
+    }
+
+    public void skipValue() throws IOException {
+        int nesting = 0;
+        do {
+            int p = peeked != PEEKED_NONE ? peeked : doPeek();
+            peeked = PEEKED_NONE;
+            switch (p) {
+                case PEEKED_BEGIN_OBJECT:
+                    push(EMPTY_OBJECT);
+                    nesting++;
+                    break;
+                case PEEKED_BEGIN_ARRAY:
+                    push(EMPTY_ARRAY);
+                    nesting++;
+                    break;
+                case PEEKED_END_OBJECT:
+                case PEEKED_END_ARRAY:
+                    depth--;
+                    nesting--;
+                    break;
+                case PEEKED_NAME:
+                case PEEKED_STRING:
+                    readString();
+                    break;
+                case PEEKED_NUMBER:
+                    readNumber();
+                    break;
+                case PEEKED_EOF:
+                    throw syntaxError("Unexpected end of input");
+                default:
+                    break;
+            }
+        } while (nesting > 0);
+        endValue();
+    }
+
+    // After the top-level value only whitespace may follow
+    private void endValue() throws IOException {
+        if (depth > 1) return;
+        if (skipWhitespace() != -1) throw syntaxError("Unexpected data after document");
+        peeked = PEEKED_EOF;
+    }
+
+    private void expect(int kind, String description) throws IOException {
+        int p = peeked != PEEKED_NONE ? peeked : doPeek();
+        if (p != kind) throw syntaxError("Expected " + description);
+        peeked = PEEKED_NONE;
+    }
+
+    private void push(int scope) throws IOException {
+        if (depth == MAX_DEPTH) throw syntaxError("Nesting too deep");
+        stack[depth++] = scope;
+    }
+
+    private int doPeek() throws IOException {
+        int scope = stack[depth - 1];
+        int c;
+        if (scope == EMPTY_ARRAY) {
+            stack[depth - 1] = NONEMPTY_ARRAY;
+        } else if (scope == NONEMPTY_ARRAY) {
+            c = nextNonWhitespace();
+            if (c == ']') return peeked = PEEKED_END_ARRAY;
+            if (c != ',') throw syntaxError("Expected ',' or ']'");
+        } else if (scope == EMPTY_OBJECT || scope == NONEMPTY_OBJECT) {
+            stack[depth - 1] = DANGLING_NAME;
+            if (scope == NONEMPTY_OBJECT) {
+                c = nextNonWhitespace();
+                if (c == '}') return peeked = PEEKED_END_OBJECT;
+                if (c != ',') throw syntaxError("Expected ',' or '}'");
+            }
+            c = nextNonWhitespace();
+            if (c == '"') return peeked = PEEKED_NAME;
+            if (c == '}' && scope == EMPTY_OBJECT) return peeked = PEEKED_END_OBJECT;
+            throw syntaxError("Expected a name");
+        } else if (scope == DANGLING_NAME) {
+            stack[depth - 1] = NONEMPTY_OBJECT;
+            c = nextNonWhitespace();
+            if (c != ':') throw syntaxError("Expected ':'");
+        } else if (scope == EMPTY_DOCUMENT) {
+            stack[depth - 1] = NONEMPTY_DOCUMENT;
+            c = skipWhitespace();
+            if (c == -1) return peeked = PEEKED_EOF;
+            pos--;
+        } else if (scope == NONEMPTY_DOCUMENT) {
+            c = skipWhitespace();
+            if (c == -1) return peeked = PEEKED_EOF;
+            throw syntaxError("Unexpected data after document");
+        }
+
+        c = nextNonWhitespace();
+        switch (c) {
+            case '{': return peeked = PEEKED_BEGIN_OBJECT;
+            case '[': return peeked = PEEKED_BEGIN_ARRAY;
+            case ']':
+                if (scope == EMPTY_ARRAY) return peeked = PEEKED_END_ARRAY;
+                throw syntaxError("Unexpected ']'");
+            case '"': return peeked = PEEKED_STRING;
+            case 't':
+                expectLiteral("rue");
+                return peeked = PEEKED_TRUE;
+            case 'f':
+                expectLiteral("alse");
+                return peeked = PEEKED_FALSE;
+            case 'n':
+                expectLiteral("ull");
+                return peeked = PEEKED_NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    pos--;
+                    return peeked = PEEKED_NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private void expectLiteral(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (readByte() != rest.charAt(i)) throw syntaxError("Invalid literal");
+        }
+    }
+
+    // Decodes the rest of a quoted string (opening quote already consumed) into the scratch buffer
+    private void readString() throws IOException {
+        charCount = 0;
+        while (true) {
+            int b = readByte();
+            if (b == -1) throw syntaxError("Unterminated string");
+            if (b == '"') return;
+            if (b == '\\') {
+                appendChar(readEscape());
+            } else if (b < 0x80) {
+                if (b < 0x20) throw syntaxError("Control character in string");
+                appendChar((char) b);
+            } else if ((b & 0xE0) == 0xC0) {
+                appendChar((char) (((b & 0x1F) << 6) | continuation()));
+            } else if ((b & 0xF0) == 0xE0) {
+                int hi = continuation();
+                appendChar((char) (((b & 0x0F) << 12) | (hi << 6) | continuation()));
+            } else if ((b & 0xF8) == 0xF0) {
+                int b2 = continuation();
+                int b3 = continuation();
+                int codePoint = ((b & 0x07) << 18) | (b2 << 12) | (b3 << 6) | continuation();
+                appendChar(Character.highSurrogate(codePoint));
+                appendChar(Character.lowSurrogate(codePoint));
+            } else {
+                throw syntaxError("Invalid UTF-8 byte");
+            }
+        }
+    }
+
+    private int continuation() throws IOException {
+        int b = readByte();
+        if (b == -1 || (b & 0xC0) != 0x80) throw syntaxError("Invalid UTF-8 sequence");
+        return b & 0x3F;
+    }
+
+    private char readEscape() throws IOException {
+        int c = readByte();
+        switch (c) {
+            case '"': return '"';
+            case '\\': return '\\';
+            case '/': return '/';
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int h = readByte();
+                    int digit = Character.digit(h, 16);
+                    if (h == -1 || digit == -1) throw syntaxError("Invalid unicode escape");
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            default:
+                throw syntaxError("Invalid escape sequence");
+        }
+    }
+
+    private void readNumber() throws IOException {
+        charCount = 0;
+        while (true) {
+            int c = readByte();
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                appendChar((char) c);
+            } else {
+                if (c != -1) pos--;
+                return;
+            }
+        }
+    }
+
+    private int parseScratchInt() {
+        int start = 0;
+        int end = charCount;
+        while (start < end && chars[start] == ' ') start++;
+        while (end > start && chars[end - 1] == ' ') end--;
+        boolean negative = start < end && chars[start] == '-';
+        if (negative) start++;
+        if (start == end || end - start > 10) {
+            throw new NumberFormatException("Not an int: " + new String(chars, 0, charCount));
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Not an int: " + new String(chars, 0, charCount));
+            }
+            value = value * 10 + (c - '0');
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Int out of range: " + new String(chars, 0, charCount));
+        }
+        return (int) value;
+    }
+
+    private boolean scratchEquals(String name) {
+        if (name.length() != charCount) return false;
+        for (int i = 0; i < charCount; i++) {
+            if (chars[i] != name.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private void appendChar(char c) {
+        if (charCount == chars.length) {
+            chars = Arrays.copyOf(chars, chars.length * 2);
+        }
+        chars[charCount++] = c;
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c = skipWhitespace();
+        if (c == -1) throw syntaxError("Unexpected end of input");
+        return c;
+    }
+
+    private int skipWhitespace() throws IOException {
+        while (true) {
+            int c = readByte();
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') return c;
+        }
+    }
+
+    private int readByte() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        return buffer[pos++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) return false;
+        bytesRead += n;
+        if (bytesRead > maxBytes) throw new PayloadTooLargeException(maxBytes);
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    private MalformedJsonException syntaxError(String message) {
+        return new MalformedJsonException(message + " at byte " + (bytesRead - limit + pos));
+    }
+}
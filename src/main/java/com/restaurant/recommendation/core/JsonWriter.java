@@ -0,0 +1,279 @@
+package com.restaurant.recommendation.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+// Writes JSON as UTF-8 straight into a byte buffer, escaping strings as it goes.
+// Without an output stream the buffer grows and can be sent with an exact Content-Length;
+// with one (chunked mode) the buffer is flushed to the stream whenever it fills.
+// Writers are pooled so steady-state responses reuse the same buffers.
+public class JsonWriter {
+    private static final int DEFAULT_CAPACITY = 8 * 1024;
+    private static final int MAX_POOLED_CAPACITY = 256 * 1024;
+    private static final int POOL_SIZE = 64;
+    private static final ArrayBlockingQueue<JsonWriter> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final byte[] NULL_BYTES = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE_BYTES = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE_BYTES = {'f', 'a', 'l', 's', 'e'};
+
+    private static final int MAX_DEPTH = 64;
+
+    private byte[] buffer;
+    private int count;
+    private OutputStream out;
+
+    // hasElements[d] is true once the container at depth d has a member, so the next one needs a comma
+    private final boolean[] hasElements = new boolean[MAX_DEPTH];
+    private int depth;
+    private boolean afterName;
+
+    public JsonWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public JsonWriter(int capacity) {
+        this.buffer = new byte[capacity];
+    }
+
+    public static JsonWriter acquire() {
+        JsonWriter writer = POOL.poll();
+        return writer != null ? writer : new JsonWriter();
+    }
+
+    // Returns the writer to the pool; oversized buffers are dropped rather than retained
+    public void release() {
+        reset();
+        if (buffer.length <= MAX_POOLED_CAPACITY) {
+            POOL.offer(this);
+        }
+    }
+
+    public void reset() {
+        count = 0;
+        depth = 0;
+        afterName = false;
+        out = null;
+    }
+
+    // Switches to chunked mode: buffered bytes are written to out whenever the buffer fills
+    public JsonWriter streamTo(OutputStream out) {
+        this.out = out;
+        return this;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public void writeTo(OutputStream os) throws IOException {
+        os.write(buffer, 0, count);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    public void flush() throws IOException {
+        if (out != null && count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    public JsonWriter name(String name) throws IOException {
+        beforeValue();
+        writeQuoted(name);
+        writeByte(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) return nullValue();
+        beforeValue();
+        writeQuoted(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return this;
+        }
+        if (value < 0) {
+            writeByte('-');
+            value = -value;
+        }
+        // Digits are produced right to left into the tail of the buffer
+        ensureCapacity(20);
+        int end = count + digitCount(value);
+        int p = end;
+        do {
+            buffer[--p] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        count = end;
+        return this;
+    }
+
+    public JsonWriter value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) return nullValue();
+        beforeValue();
+        writeAscii(Double.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(Number value) throws IOException {
+        if (value == null) return nullValue();
+        if (value instanceof Double || value instanceof Float) return value(value.doubleValue());
+        return value(value.longValue());
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        writeBytes(value ? TRUE_BYTES : FALSE_BYTES);
+        return this;
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        writeBytes(NULL_BYTES);
+        return this;
+    }
+
+    private JsonWriter open(char bracket) throws IOException {
+        if (depth == MAX_DEPTH) throw new IllegalStateException("JSON nesting too deep");
+        beforeValue();
+        writeByte(bracket);
+        hasElements[depth++] = false;
+        return this;
+    }
+
+    private JsonWriter close(char bracket) throws IOException {
+        if (depth == 0) throw new IllegalStateException("Unbalanced JSON " + bracket);
+        depth--;
+        writeByte(bracket);
+        return this;
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (hasElements[depth - 1]) writeByte(',');
+            hasElements[depth - 1] = true;
+        }
+    }
+
+    private void writeQuoted(String s) throws IOException {
+        // Worst case is 6 bytes per char (\\u00XX); reserve in pieces so huge strings stay chunkable
+        writeByte('"');
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            if (buffer.length - count < 6) ensureCapacity(6);
+            char c = s.charAt(i);
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                buffer[count++] = (byte) c;
+            } else if (c < 0x80) {
+                writeEscaped(c);
+            } else if (c < 0x800) {
+                buffer[count++] = (byte) (0xC0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate: emit U+FFFD rather than invalid UTF-8
+                buffer[count++] = (byte) 0xEF;
+                buffer[count++] = (byte) 0xBF;
+                buffer[count++] = (byte) 0xBD;
+            } else {
+                buffer[count++] = (byte) (0xE0 | (c >> 12));
+                buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        writeByte('"');
+    }
+
+    private void writeEscaped(char c) {
+        buffer[count++] = '\\';
+        switch (c) {
+            case '"': buffer[count++] = '"'; break;
+            case '\\': buffer[count++] = '\\'; break;
+            case '\n': buffer[count++] = 'n'; break;
+            case '\r': buffer[count++] = 'r'; break;
+            case '\t': buffer[count++] = 't'; break;
+            case '\b': buffer[count++] = 'b'; break;
+            case '\f': buffer[count++] = 'f'; break;
+            default:
+                buffer[count++] = 'u';
+                buffer[count++] = '0';
+                buffer[count++] = '0';
+                buffer[count++] = HEX[(c >> 4) & 0xF];
+                buffer[count++] = HEX[c & 0xF];
+        }
+    }
+
+    private void writeAscii(String s) throws IOException {
+        ensureCapacity(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            buffer[count++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    private void writeByte(char c) throws IOException {
+        ensureCapacity(1);
+        buffer[count++] = (byte) c;
+    }
+
+    private void ensureCapacity(int needed) throws IOException {
+        if (buffer.length - count >= needed) return;
+        if (out != null) {
+            flush();
+            if (buffer.length >= needed) return;
+        }
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + needed));
+    }
+
+    private static int digitCount(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
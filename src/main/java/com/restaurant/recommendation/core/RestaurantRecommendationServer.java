@@ -1,6 +1,12 @@
 package com.restaurant.recommendation.core;
 
+import com.restaurant.recommendation.catalog.RestaurantCatalog;
+import com.restaurant.recommendation.ranking.RankingEngine;
+import com.restaurant.recommendation.ranking.RankingWeights;
 import com.restaurant.recommendation.controller.RecommendationController;
+import com.restaurant.recommendation.logging.LogManager;
+import com.restaurant.recommendation.logging.Logger;
+import com.restaurant.recommendation.metrics.Metrics;
 import com.restaurant.recommendation.service.*;
 import com.restaurant.recommendation.model.RecommendationResponse;
 import com.restaurant.recommendation.model.Restaurant;
@@ -11,39 +17,220 @@ import com.sun.net.httpserver.HttpExchange;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.List;
 
 public class RestaurantRecommendationServer {
     private static final int PORT = 8080;
+    // Recommendation lists longer than this are sent chunked rather than fully buffered
+    private static final int CHUNKED_THRESHOLD = 100;
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
 
-    private static final IAIService aiService = new OpenAIService();
-    private static final IRecommendationService restaurantService = new RestaurantService(aiService);
-    private static final RecommendationController recommendationController =
-        new RecommendationController(restaurantService, aiService);
+    private static final AppConfig config = AppConfig.load();
+    private static final Logger logger = LogManager.getLogger(RestaurantRecommendationServer.class);
+
+    // Initialized on first use from main(), so the static response helpers below can be
+    // used (e.g. from benchmarks) without building the Azure client
+    private static class Components {
+        static final ConversationStore conversationStore = createConversationStore();
+        static final IAIService aiService = createAIService();
+        static final RankingEngine ranker = new RankingEngine(new RankingWeights(
+            config.getDouble("ranking.weight.rating", 1.0),
+            config.getDouble("ranking.weight.price", 0.5),
+            config.getDouble("ranking.weight.distance", 0.75),
+            config.getDouble("ranking.weight.cuisine", 1.0),
+            config.getDouble("ranking.weight.relevance", 1.0),
+            config.getDouble("ranking.distance.scale.km", 3.0)),
+            createRankingPool(),
+            config.getInt("ranking.parallel.threshold", 50_000));
+        static final IRecommendationService restaurantService = new RestaurantService(aiService,
+            createBreaker(),
+            config.getLong("ai.call.timeout.ms", 30_000),
+            loadCatalog(),
+            config.getInt("catalog.max.results", 5),
+            ranker);
+        static final RecommendationController recommendationController =
+            new RecommendationController(restaurantService, aiService,
+                config.getLong("server.max.body.bytes", RecommendationController.DEFAULT_MAX_BODY_BYTES));
+
+        // Components register their metrics here, once, so instances built elsewhere (tests, benchmarks)
+        // never replace the server's series in the global registry
+        private static ConversationStore createConversationStore() {
+            ConversationStore store = new ConversationStore(
+                TimeUnit.MINUTES.toMillis(config.getLong("conversation.session.ttl.minutes", 30)),
+                config.getInt("conversation.max.sessions", 10_000),
+                config.getLong("conversation.max.chars", 50_000_000L),
+                createConversationLog());
+            store.registerMetrics();
+            return store;
+        }
+
+        private static CircuitBreaker createBreaker() {
+            CircuitBreaker breaker = new CircuitBreaker("ai",
+                config.getInt("breaker.window.size", 50),
+                config.getInt("breaker.min.calls", 20),
+                config.getDouble("breaker.failure.rate", 0.5),
+                config.getLong("breaker.slow.call.ms", 10_000),
+                config.getDouble("breaker.slow.rate", 0.8),
+                config.getLong("breaker.open.ms", 30_000),
+                config.getInt("breaker.half.open.calls", 3));
+            breaker.registerMetrics();
+            return breaker;
+        }
+
+        // Conversations live in memory only unless conversation.persist.dir names a directory to keep them
+        // in across restarts, e.g. -Dconversation.persist.dir=data/conversations (data/ is git-ignored). Each
+        // session then gets a log there, fsynced every conversation.persist.flush.ms, compacted into a snapshot
+        // past conversation.persist.compact.bytes, and deleted after conversation.persist.retention.hours idle.
+        private static ConversationLog createConversationLog() {
+            String dir = config.getString("conversation.persist.dir", "");
+            if (dir.isEmpty()) return null;
+            try {
+                ConversationLog log = new ConversationLog(Paths.get(dir),
+                    config.getLong("conversation.persist.flush.ms", 20),
+                    config.getLong("conversation.persist.compact.bytes", 64 * 1024),
+                    TimeUnit.HOURS.toMillis(config.getLong("conversation.persist.retention.hours", 168)));
+                log.registerMetrics();
+                // Write out whatever is queued before the JVM exits
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> log.close(5000), "conversation-log-shutdown"));
+                return log;
+            } catch (IOException e) {
+                logger.warn("Conversation persistence unavailable", "dir", dir, "error", e.getMessage());
+                return null;
+            }
+        }
+
+        // catalog.path may be a file or a classpath resource (.csv or .json), or a mapped .rcat file. Blank by
+        // default, which leaves recommendations to the model; -Dcatalog.path=restaurants.csv loads the bundled
+        // demo catalog
+        private static RestaurantCatalog loadCatalog() {
+            String path = config.getString("catalog.path", "");
+            if (path.isEmpty()) return null;
+            try {
+                RestaurantCatalog catalog = RestaurantCatalog.load(path, ranker);
+                catalog.registerMetrics();
+                return catalog;
+            } catch (IOException e) {
+                logger.warn("Restaurant catalog unavailable", "error", e.getMessage());
+                return null;
+            }
+        }
+
+        // Dedicated to ranking large candidate sets, so it never borrows the common pool or the HTTP
+        // threads; ranking.parallelism=1 keeps ranking on the request thread
+        private static ForkJoinPool createRankingPool() {
+            int parallelism = config.getInt("ranking.parallelism", Runtime.getRuntime().availableProcessors());
+            if (parallelism <= 1) return null;
+            AtomicInteger workerCount = new AtomicInteger();
+            return new ForkJoinPool(parallelism, pool -> {
+                ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                worker.setName("ranking-worker-" + workerCount.incrementAndGet());
+                worker.setDaemon(true);
+                return worker;
+            }, null, false);
+        }
+
+        // ai.provider=fake swaps Azure for an in-process simulator with configurable latency and errors
+        private static IAIService createAIService() {
+            IAIService service;
+            if ("fake".equalsIgnoreCase(config.getString("ai.provider", "azure"))) {
+                service = new FakeAIService(conversationStore,
+                    LatencyDistribution.parse(config.getString("fake.ai.latency", "lognormal:800,3000")),
+                    config.getLong("fake.ai.token.delay.ms", 20),
+                    config.getDouble("fake.ai.error.rate", 0.0));
+            } else {
+                OpenAIService openAI = new OpenAIService(conversationStore);
+                openAI.registerMetrics();
+                service = openAI;
+            }
+            if (config.getBoolean("ai.cache.enabled", true)) {
+                CachingAIService cache = new CachingAIService(service,
+                    config.getInt("ai.cache.max.entries", 1000),
+                    TimeUnit.SECONDS.toMillis(config.getLong("ai.cache.ttl.seconds", 300)));
+                cache.registerMetrics();
+                service = cache;
+            }
+            return service;
+        }
+    }
 
     public static void main(String[] args) throws IOException {
+        RecommendationController controller = Components.recommendationController;
         HttpServer server = HttpServer.create(new InetSocketAddress(PORT), 0);
 
         // Set up routes
-        server.createContext("/api/recommendations", new RecommendationsHandler());
-        server.createContext("/api/recommendations/health", new HealthHandler());
-        server.createContext("/api/recommendations/test-openai", new TestOpenAIHandler());
-        server.createContext("/api/recommendations/reset", new ResetHandler());
+        server.createContext("/api/recommendations", new RecommendationsHandler(controller));
+        server.createContext("/api/recommendations/stream", new StreamHandler(controller));
+        server.createContext("/api/recommendations/health", new HealthHandler(controller));
+        server.createContext("/api/recommendations/test-openai", new TestOpenAIHandler(controller));
+        server.createContext("/api/recommendations/reset", new ResetHandler(controller));
+        server.createContext("/api/recommendations/metrics", new MetricsHandler(controller));
 
         // Set thread pool
-        server.setExecutor(Executors.newFixedThreadPool(10));
+        server.setExecutor(createExecutor());
 
-        System.out.println("Restaurant Recommendation Server starting on port " + PORT);
+        logger.info("Restaurant Recommendation Server starting", "port", PORT);
         server.start();
-        System.out.println("Server is running. Press Ctrl+C to stop.");
+        logger.info("Server is running. Press Ctrl+C to stop.");
+    }
+
+    // server.executor=virtual runs each exchange on its own virtual thread;
+    // server.executor=platform uses a bounded pool that pushes back on the accept loop when full
+    private static ExecutorService createExecutor() {
+        String mode = config.getString("server.executor", "platform");
+        if ("virtual".equalsIgnoreCase(mode)) {
+            logger.info("Using virtual-thread-per-request executor");
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+
+        int threads = config.getInt("server.threads", 10);
+        int queueSize = config.getInt("server.queue.size", 1000);
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = r -> new Thread(r, "http-worker-" + threadCount.incrementAndGet());
+
+        logger.info("Using platform thread pool", "threads", threads, "queue", queueSize);
+        return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueSize), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
     }
 
     static class RecommendationsHandler implements HttpHandler {
+        private final RecommendationController controller;
+
+        RecommendationsHandler(RecommendationController controller) {
+            this.controller = controller;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if ("POST".equals(exchange.getRequestMethod())) {
+                controller.handleGetRecommendations(exchange);
+            } else {
+                sendResponse(exchange, 405, "Method not allowed");
+            }
+        }
+    }
+
+    static class StreamHandler implements HttpHandler {
+        private final RecommendationController controller;
+
+        StreamHandler(RecommendationController controller) {
+            this.controller = controller;
+        }
+
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             if ("POST".equals(exchange.getRequestMethod())) {
-                recommendationController.handleGetRecommendations(exchange);
+                controller.handleStreamRecommendations(exchange);
             } else {
                 sendResponse(exchange, 405, "Method not allowed");
             }
@@ -51,10 +238,16 @@ public class RestaurantRecommendationServer {
     }
 
     static class HealthHandler implements HttpHandler {
+        private final RecommendationController controller;
+
+        HealthHandler(RecommendationController controller) {
+            this.controller = controller;
+        }
+
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             if ("GET".equals(exchange.getRequestMethod())) {
-                recommendationController.handleHealth(exchange);
+                controller.handleHealth(exchange);
             } else {
                 sendResponse(exchange, 405, "Method not allowed");
             }
@@ -62,10 +255,16 @@ public class RestaurantRecommendationServer {
     }
 
     static class TestOpenAIHandler implements HttpHandler {
+        private final RecommendationController controller;
+
+        TestOpenAIHandler(RecommendationController controller) {
+            this.controller = controller;
+        }
+
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             if ("GET".equals(exchange.getRequestMethod())) {
-                recommendationController.handleTestOpenAI(exchange);
+                controller.handleTestOpenAI(exchange);
             } else {
                 sendResponse(exchange, 405, "Method not allowed");
             }
@@ -73,10 +272,33 @@ public class RestaurantRecommendationServer {
     }
 
     static class ResetHandler implements HttpHandler {
+        private final RecommendationController controller;
+
+        ResetHandler(RecommendationController controller) {
+            this.controller = controller;
+        }
+
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             if ("POST".equals(exchange.getRequestMethod())) {
-                recommendationController.handleReset(exchange);
+                controller.handleReset(exchange);
+            } else {
+                sendResponse(exchange, 405, "Method not allowed");
+            }
+        }
+    }
+
+    static class MetricsHandler implements HttpHandler {
+        private final RecommendationController controller;
+
+        MetricsHandler(RecommendationController controller) {
+            this.controller = controller;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if ("GET".equals(exchange.getRequestMethod())) {
+                controller.handleMetrics(exchange);
             } else {
                 sendResponse(exchange, 405, "Method not allowed");
             }
@@ -84,60 +306,103 @@ public class RestaurantRecommendationServer {
     }
 
     public static void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
-        exchange.getResponseHeaders().add("Content-Type", "application/json");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
+        sendResponse(exchange, statusCode, JSON_CONTENT_TYPE, response);
+    }
 
-        exchange.sendResponseHeaders(statusCode, response.getBytes().length);
+    public static void sendResponse(HttpExchange exchange, int statusCode, String contentType, String response) throws IOException {
+        addCommonHeaders(exchange, contentType);
+
+        byte[] body = response.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(statusCode, body.length);
         try (OutputStream os = exchange.getResponseBody()) {
-            os.write(response.getBytes());
+            os.write(body);
         }
     }
 
+    // Small responses are serialized into a pooled buffer and sent with an exact Content-Length;
+    // long recommendation lists are streamed with chunked transfer encoding instead
+    // Serialization time includes the socket writes when streaming, since the two interleave
     public static void sendJsonResponse(HttpExchange exchange, int statusCode, Object response) throws IOException {
-        String jsonResponse = convertToJson(response);
-        sendResponse(exchange, statusCode, jsonResponse);
+        addCommonHeaders(exchange, JSON_CONTENT_TYPE);
+
+        JsonWriter json = JsonWriter.acquire();
+        try {
+            if (isLargeResponse(response)) {
+                exchange.sendResponseHeaders(statusCode, 0);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    long startNanos = System.nanoTime();
+                    json.streamTo(os);
+                    writeJson(json, response);
+                    json.flush();
+                    Metrics.SERIALIZATION.recordSince(startNanos);
+                }
+            } else {
+                long startNanos = System.nanoTime();
+                writeJson(json, response);
+                Metrics.SERIALIZATION.recordSince(startNanos);
+                exchange.sendResponseHeaders(statusCode, json.size());
+                try (OutputStream os = exchange.getResponseBody()) {
+                    json.writeTo(os);
+                }
+            }
+        } finally {
+            json.release();
+        }
     }
 
-    private static String convertToJson(Object obj) {
+    private static void addCommonHeaders(HttpExchange exchange, String contentType) {
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, X-Session-Id");
+    }
+
+    private static boolean isLargeResponse(Object obj) {
         if (obj instanceof RecommendationResponse) {
-            return convertRecommendationResponseToJson((RecommendationResponse) obj);
+            List<Restaurant> restaurants = ((RecommendationResponse) obj).getRecommendations();
+            return restaurants != null && restaurants.size() > CHUNKED_THRESHOLD;
         }
-        return "{}";
+        return false;
     }
 
-    private static String convertRecommendationResponseToJson(RecommendationResponse response) {
-        StringBuilder json = new StringBuilder();
-        json.append("{");
-        json.append("\"recommendations\":[");
+    private static void writeJson(JsonWriter json, Object obj) throws IOException {
+        if (obj instanceof RecommendationResponse) {
+            writeRecommendationResponse(json, (RecommendationResponse) obj);
+        } else {
+            json.beginObject().endObject();
+        }
+    }
+
+    static void writeRecommendationResponse(JsonWriter json, RecommendationResponse response) throws IOException {
+        json.beginObject();
+        json.name("recommendations").beginArray();
 
         List<Restaurant> restaurants = response.getRecommendations();
         if (restaurants != null) {
-            for (int i = 0; i < restaurants.size(); i++) {
-                if (i > 0) json.append(",");
-                json.append(convertRestaurantToJson(restaurants.get(i)));
+            for (Restaurant restaurant : restaurants) {
+                writeRestaurant(json, restaurant);
             }
         }
 
-        json.append("],");
-        json.append("\"aiExplanation\":\"").append(response.getAiExplanation() != null ? response.getAiExplanation() : "").append("\",");
-        json.append("\"reasoning\":\"").append(response.getReasoning() != null ? response.getReasoning() : "").append("\"");
-        json.append("}");
-        return json.toString();
-    }
-
-    private static String convertRestaurantToJson(Restaurant restaurant) {
-        StringBuilder json = new StringBuilder();
-        json.append("{");
-        json.append("\"id\":").append(restaurant.getId()).append(",");
-        json.append("\"name\":\"").append(restaurant.getName() != null ? restaurant.getName() : "").append("\",");
-        json.append("\"cuisine\":\"").append(restaurant.getCuisine() != null ? restaurant.getCuisine() : "").append("\",");
-        json.append("\"location\":\"").append(restaurant.getLocation() != null ? restaurant.getLocation() : "").append("\",");
-        json.append("\"rating\":").append(restaurant.getRating() != null ? restaurant.getRating() : 0).append(",");
-        json.append("\"description\":\"").append(restaurant.getDescription() != null ? restaurant.getDescription() : "").append("\",");
-        json.append("\"priceRange\":\"").append(restaurant.getPriceRange() != null ? restaurant.getPriceRange() : "").append("\"");
-        json.append("}");
-        return json.toString();
+        json.endArray();
+        json.name("aiExplanation").value(response.getAiExplanation() != null ? response.getAiExplanation() : "");
+        json.name("reasoning").value(response.getReasoning() != null ? response.getReasoning() : "");
+        json.endObject();
+    }
+
+    private static void writeRestaurant(JsonWriter json, Restaurant restaurant) throws IOException {
+        json.beginObject();
+        json.name("id").value(restaurant.getId());
+        json.name("name").value(restaurant.getName() != null ? restaurant.getName() : "");
+        json.name("cuisine").value(restaurant.getCuisine() != null ? restaurant.getCuisine() : "");
+        json.name("location").value(restaurant.getLocation() != null ? restaurant.getLocation() : "");
+        json.name("rating").value(restaurant.getRating() != null ? restaurant.getRating() : 0.0);
+        if (restaurant.getLatitude() != null && restaurant.getLongitude() != null) {
+            json.name("latitude").value(restaurant.getLatitude());
+            json.name("longitude").value(restaurant.getLongitude());
+        }
+        json.name("description").value(restaurant.getDescription() != null ? restaurant.getDescription() : "");
+        json.name("priceRange").value(restaurant.getPriceRange() != null ? restaurant.getPriceRange() : "");
+        json.endObject();
     }
 }
@@ -0,0 +1,233 @@
+package com.restaurant.recommendation.geo;
+
+import com.restaurant.recommendation.logging.LogManager;
+import com.restaurant.recommendation.logging.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Offline place-name lookup for cities and neighborhoods, loaded from a CSV resource with columns
+// name,region,parent,latitude,longitude,radius_km,aliases (aliases separated by '|', no quoting).
+// resolve() finds the best-supported place named anywhere in a piece of free text.
+public class Gazetteer {
+    private static final Logger logger = LogManager.getLogger(Gazetteer.class);
+    private static final String DEFAULT_RESOURCE = "gazetteer.csv";
+    // Longest place name, in words, that resolve() looks for
+    private static final int MAX_NAME_WORDS = 4;
+
+    public static class Place {
+        private final String name;
+        private final String region;
+        private final String parent;
+        private final GeoPoint point;
+        private final double radiusKm;
+
+        Place(String name, String region, String parent, GeoPoint point, double radiusKm) {
+            this.name = name;
+            this.region = region;
+            this.parent = parent;
+            this.point = point;
+            this.radiusKm = radiusKm;
+        }
+
+        public String getName() { return name; }
+        public String getRegion() { return region; }
+        // Enclosing city for neighborhoods, null for cities
+        public String getParent() { return parent; }
+        public GeoPoint getPoint() { return point; }
+        // Rough extent of the place; a sensible default search radius
+        public double getRadiusKm() { return radiusKm; }
+
+        public boolean isNeighborhood() {
+            return parent != null;
+        }
+
+        public String getCity() {
+            return parent != null ? parent : name;
+        }
+
+        public String getDisplayName() {
+            return parent != null ? name + ", " + parent + ", " + region : name + ", " + region;
+        }
+    }
+
+    private static class Holder {
+        static final Gazetteer DEFAULT = loadDefault();
+    }
+
+    // Normalized name or alias -> places with that name
+    private final Map<String, List<Place>> byName = new HashMap<>();
+    private final List<Place> places = new ArrayList<>();
+
+    public Gazetteer(List<Place> places) {
+        for (Place place : places) {
+            add(normalize(place.name), place);
+            this.places.add(place);
+        }
+    }
+
+    public static Gazetteer getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    private static Gazetteer loadDefault() {
+        try {
+            return load(DEFAULT_RESOURCE);
+        } catch (IOException e) {
+            logger.warn("Gazetteer unavailable", "error", e.getMessage());
+            return new Gazetteer(Collections.emptyList());
+        }
+    }
+
+    public static Gazetteer load(String resource) throws IOException {
+        InputStream in = Gazetteer.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) throw new IOException("Gazetteer not found: " + resource);
+
+        List<Place> places = new ArrayList<>();
+        Map<Place, String[]> aliases = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) continue;
+                String[] columns = line.split(",", -1);
+                if (columns.length < 6) {
+                    logger.warn("Skipping gazetteer line: expected 6+ columns", "line", lineNumber);
+                    continue;
+                }
+                try {
+                    Place place = new Place(columns[0].trim(), columns[1].trim(),
+                        columns[2].trim().isEmpty() ? null : columns[2].trim(),
+                        new GeoPoint(Double.parseDouble(columns[3]), Double.parseDouble(columns[4])),
+                        Double.parseDouble(columns[5]));
+                    places.add(place);
+                    if (columns.length > 6 && !columns[6].trim().isEmpty()) {
+                        aliases.put(place, columns[6].split("\\|"));
+                    }
+                } catch (NumberFormatException e) {
+                    logger.warn("Skipping gazetteer line", "line", lineNumber, "error", e.getMessage());
+                }
+            }
+        }
+
+        Gazetteer gazetteer = new Gazetteer(places);
+        for (Map.Entry<Place, String[]> entry : aliases.entrySet()) {
+            for (String alias : entry.getValue()) {
+                gazetteer.add(normalize(alias), entry.getKey());
+            }
+        }
+        return gazetteer;
+    }
+
+    public int size() {
+        return places.size();
+    }
+
+    // Best place mentioned in the text, or null if none (or only ambiguous ones) are found.
+    // A neighborhood beats its city when both are mentioned; a state code breaks ties between
+    // same-named places. A neighborhood needs its city alongside unless its name is several words
+    // and unique, so everyday words like "mission" or "downtown" alone don't resolve.
+    public Place resolve(String text) {
+        if (text == null || byName.isEmpty()) return null;
+        String[] words = normalize(text).split(" ");
+
+        List<Place> mentioned = new ArrayList<>();
+        List<String> mentionedNames = new ArrayList<>();
+        for (int i = 0; i < words.length; ) {
+            int matchedWords = 0;
+            for (int n = Math.min(MAX_NAME_WORDS, words.length - i); n > 0; n--) {
+                String phrase = join(words, i, n);
+                List<Place> matches = byName.get(phrase);
+                if (matches != null) {
+                    for (Place place : matches) {
+                        mentioned.add(place);
+                        mentionedNames.add(phrase);
+                    }
+                    matchedWords = n;
+                    break;
+                }
+            }
+            i += Math.max(1, matchedWords);
+        }
+        if (mentioned.isEmpty()) return null;
+
+        Place best = null;
+        int bestScore = Integer.MIN_VALUE;
+        int bestLength = 0;
+        for (int i = 0; i < mentioned.size(); i++) {
+            Place place = mentioned.get(i);
+            int score = 1;
+            if (place.isNeighborhood()) {
+                if (mentionsCity(mentioned, place.parent)) {
+                    score += 2;
+                } else if (byName.get(mentionedNames.get(i)).size() > 1 || mentionedNames.get(i).indexOf(' ') < 0) {
+                    score -= 2;
+                }
+            }
+            if (containsWord(words, place.region.toLowerCase())) {
+                score++;
+            }
+            int length = mentionedNames.get(i).length();
+            if (score > bestScore || (score == bestScore && length > bestLength)) {
+                best = place;
+                bestScore = score;
+                bestLength = length;
+            }
+        }
+        return bestScore > 0 ? best : null;
+    }
+
+    private void add(String key, Place place) {
+        if (key.isEmpty()) return;
+        byName.computeIfAbsent(key, k -> new ArrayList<>(1)).add(place);
+    }
+
+    private static boolean mentionsCity(List<Place> mentioned, String city) {
+        for (Place place : mentioned) {
+            if (!place.isNeighborhood() && place.name.equalsIgnoreCase(city)) return true;
+        }
+        return false;
+    }
+
+    private static boolean containsWord(String[] words, String word) {
+        for (String candidate : words) {
+            if (candidate.equals(word)) return true;
+        }
+        return false;
+    }
+
+    private static String join(String[] words, int from, int count) {
+        if (count == 1) return words[from];
+        StringBuilder phrase = new StringBuilder(words[from]);
+        for (int i = from + 1; i < from + count; i++) {
+            phrase.append(' ').append(words[i]);
+        }
+        return phrase.toString();
+    }
+
+    // Lowercase words separated by single spaces; punctuation such as "St." or "San Jose, CA" drops out
+    static String normalize(String text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && normalized.length() > 0) normalized.append(' ');
+                pendingSpace = false;
+                normalized.append(Character.toLowerCase(c));
+            } else if (c != '\'') {
+                pendingSpace = true;
+            }
+        }
+        return normalized.toString();
+    }
+}
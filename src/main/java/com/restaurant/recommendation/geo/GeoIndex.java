@@ -0,0 +1,258 @@
+package com.restaurant.recommendation.geo;
+
+import java.util.Arrays;
+
+// Geohash-style grid index over points identified by ordinal. Each point gets a Z-order code
+// (19 bits of longitude interleaved with 19 bits of latitude, cells under 80m); codes packed with their
+// ordinal are sorted into one long[], so every grid cell at every coarser level is a contiguous
+// range found by binary search. A radius query picks the finest level whose cells are at least
+// the radius across and scans the 3x3 block of cells around the center.
+public class GeoIndex {
+    private static final int BITS = 19;
+    private static final int ORDINAL_BITS = 25;
+    private static final long ORDINAL_MASK = (1L << ORDINAL_BITS) - 1;
+    public static final int MAX_POINTS = 1 << ORDINAL_BITS;
+
+    private static final double KM_PER_DEGREE = Math.PI * GeoPoint.EARTH_RADIUS_KM / 180.0;
+    private static final double MAX_DISTANCE_KM = Math.PI * GeoPoint.EARTH_RADIUS_KM;
+
+    // Sorted (code << ORDINAL_BITS | ordinal); coordinates are stored in the same order
+    private final long[] keys;
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    // Points with NaN coordinates are left out
+    public GeoIndex(double[] latitudes, double[] longitudes) {
+        this(sortedKeys(latitudes, longitudes), latitudes, longitudes);
+    }
+
+    // Skips the sort: keys come from getKeys() of an index over the same coordinates, indexed by ordinal
+    public GeoIndex(long[] keys, double[] latitudes, double[] longitudes) {
+        if (latitudes.length != longitudes.length) throw new IllegalArgumentException("Coordinate arrays differ in length");
+        this.keys = keys;
+        this.latitudes = new double[keys.length];
+        this.longitudes = new double[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            int ordinal = (int) (keys[i] & ORDINAL_MASK);
+            this.latitudes[i] = latitudes[ordinal];
+            this.longitudes[i] = longitudes[ordinal];
+        }
+    }
+
+    private static long[] sortedKeys(double[] latitudes, double[] longitudes) {
+        if (latitudes.length != longitudes.length) throw new IllegalArgumentException("Coordinate arrays differ in length");
+        if (latitudes.length > MAX_POINTS) throw new IllegalArgumentException("Too many points: " + latitudes.length);
+
+        long[] packed = new long[latitudes.length];
+        int count = 0;
+        for (int ordinal = 0; ordinal < latitudes.length; ordinal++) {
+            double lat = latitudes[ordinal];
+            double lon = longitudes[ordinal];
+            if (Double.isNaN(lat) || Double.isNaN(lon)) continue;
+            packed[count++] = (encode(lat, lon) << ORDINAL_BITS) | ordinal;
+        }
+        long[] keys = Arrays.copyOf(packed, count);
+        Arrays.parallelSort(keys);
+        return keys;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    // Shared, not copied; for saving the index alongside its points
+    public long[] getKeys() {
+        return keys;
+    }
+
+    // Ordinals within radiusKm of the point, in ascending ordinal order
+    public int[] withinRadius(double latitude, double longitude, double radiusKm) {
+        Hits hits = new Hits();
+        collect(latitude, longitude, radiusKm, hits);
+        int[] ordinals = Arrays.copyOf(hits.ordinals, hits.size);
+        Arrays.sort(ordinals);
+        return ordinals;
+    }
+
+    // The k nearest ordinals, closest first, no further than maxKm
+    public int[] nearest(double latitude, double longitude, int k, double maxKm) {
+        if (k <= 0 || keys.length == 0) return new int[0];
+        double limit = Math.min(maxKm, MAX_DISTANCE_KM);
+        double radius = Math.min(limit, 1.0);
+        Hits hits = new Hits();
+        while (true) {
+            hits.size = 0;
+            collect(latitude, longitude, radius, hits);
+            // Everything within radius has been seen, so once there are k hits the closest k are exact
+            if (hits.size >= k || radius >= limit) break;
+            // Grow by the area still needed, at least doubling
+            double scale = hits.size == 0 ? 4.0 : Math.max(2.0, Math.sqrt((double) k / hits.size) * 1.2);
+            radius = Math.min(limit, radius * scale);
+        }
+        return hits.closest(k);
+    }
+
+    private void collect(double latitude, double longitude, double radiusKm, Hits hits) {
+        int level = levelFor(latitude, radiusKm);
+        if (level == 0) {
+            scan(0, keys.length, latitude, longitude, radiusKm, hits);
+            return;
+        }
+
+        int cells = 1 << level;
+        int centerLat = cell(latitude, 90.0, 180.0, level);
+        int centerLon = cell(longitude, 180.0, 360.0, level);
+        long[] visited = new long[9];
+        int visitedCount = 0;
+        for (int dLat = -1; dLat <= 1; dLat++) {
+            int latCell = centerLat + dLat;
+            if (latCell < 0 || latCell >= cells) continue;
+            for (int dLon = -1; dLon <= 1; dLon++) {
+                int lonCell = Math.floorMod(centerLon + dLon, cells);
+                long prefix = interleave(latCell, lonCell);
+                // Longitude wraps, so tiny grids can reach the same cell twice
+                boolean seen = false;
+                for (int i = 0; i < visitedCount; i++) {
+                    if (visited[i] == prefix) seen = true;
+                }
+                if (seen) continue;
+                visited[visitedCount++] = prefix;
+
+                int shift = 2 * (BITS - level) + ORDINAL_BITS;
+                int from = lowerBound(prefix << shift);
+                // The last cell's upper bound would shift into the sign bit
+                int to = prefix + 1 == 1L << (2 * level) ? keys.length : lowerBound((prefix + 1) << shift);
+                scan(from, to, latitude, longitude, radiusKm, hits);
+            }
+        }
+    }
+
+    private void scan(int from, int to, double latitude, double longitude, double radiusKm, Hits hits) {
+        double maxDeltaLat = radiusKm / KM_PER_DEGREE;
+        for (int i = from; i < to; i++) {
+            // Cheap latitude band check before the trigonometry
+            if (Math.abs(latitudes[i] - latitude) > maxDeltaLat) continue;
+            double distance = GeoPoint.distanceKm(latitude, longitude, latitudes[i], longitudes[i]);
+            if (distance <= radiusKm) {
+                hits.add((int) (keys[i] & ORDINAL_MASK), distance);
+            }
+        }
+    }
+
+    // Finest level whose cells are at least radiusKm tall and wide everywhere the circle reaches
+    private static int levelFor(double latitude, double radiusKm) {
+        double maxLat = Math.min(90.0, Math.abs(latitude) + radiusKm / KM_PER_DEGREE);
+        double cos = Math.cos(Math.toRadians(maxLat));
+        for (int level = BITS; level > 0; level--) {
+            double cellHeightKm = 180.0 / (1 << level) * KM_PER_DEGREE;
+            double cellWidthKm = 360.0 / (1 << level) * KM_PER_DEGREE * cos;
+            if (cellHeightKm >= radiusKm && cellWidthKm >= radiusKm) return level;
+        }
+        return 0;
+    }
+
+    private int lowerBound(long key) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    static long encode(double latitude, double longitude) {
+        return interleave(cell(latitude, 90.0, 180.0, BITS), cell(longitude, 180.0, 360.0, BITS));
+    }
+
+    private static int cell(double value, double offset, double span, int level) {
+        int cells = 1 << level;
+        int cell = (int) Math.floor((value + offset) / span * cells);
+        return Math.max(0, Math.min(cells - 1, cell));
+    }
+
+    // Longitude takes the higher bit of each pair, as in geohash
+    private static long interleave(int latCell, int lonCell) {
+        return (spread(lonCell) << 1) | spread(latCell);
+    }
+
+    private static long spread(int value) {
+        long x = value & 0xFFFFFFFFL;
+        x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x << 2)) & 0x3333333333333333L;
+        x = (x | (x << 1)) & 0x5555555555555555L;
+        return x;
+    }
+
+    private static class Hits {
+        int[] ordinals = new int[64];
+        double[] distances = new double[64];
+        int size;
+
+        void add(int ordinal, double distance) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                distances = Arrays.copyOf(distances, size * 2);
+            }
+            ordinals[size] = ordinal;
+            distances[size] = distance;
+            size++;
+        }
+
+        // Bounded max-heap on distance keeps the k closest, then drains it back to front
+        int[] closest(int k) {
+            int count = Math.min(k, size);
+            int[] heap = new int[count];
+            int heapSize = 0;
+            for (int i = 0; i < size; i++) {
+                if (heapSize < count) {
+                    heap[heapSize] = i;
+                    siftUp(heap, heapSize++);
+                } else if (distances[i] < distances[heap[0]]) {
+                    heap[0] = i;
+                    siftDown(heap, heapSize);
+                }
+            }
+            int[] result = new int[count];
+            while (heapSize > 0) {
+                result[--heapSize] = ordinals[heap[0]];
+                heap[0] = heap[heapSize];
+                siftDown(heap, heapSize);
+            }
+            return result;
+        }
+
+        private void siftUp(int[] heap, int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (distances[heap[parent]] >= distances[heap[index]]) break;
+                int swap = heap[parent];
+                heap[parent] = heap[index];
+                heap[index] = swap;
+                index = parent;
+            }
+        }
+
+        private void siftDown(int[] heap, int size) {
+            int index = 0;
+            while (true) {
+                int largest = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < size && distances[heap[left]] > distances[heap[largest]]) largest = left;
+                if (right < size && distances[heap[right]] > distances[heap[largest]]) largest = right;
+                if (largest == index) return;
+                int swap = heap[largest];
+                heap[largest] = heap[index];
+                heap[index] = swap;
+                index = largest;
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.restaurant.recommendation.geo;
+
+public class GeoPoint {
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private final double latitude;
+    private final double longitude;
+
+    public GeoPoint(double latitude, double longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public double getLatitude() { return latitude; }
+    public double getLongitude() { return longitude; }
+
+    public double distanceKm(GeoPoint other) {
+        return distanceKm(latitude, longitude, other.latitude, other.longitude);
+    }
+
+    // Haversine great-circle distance
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double sinLat = Math.sin(dLat / 2);
+        double sinLon = Math.sin(dLon / 2);
+        double a = sinLat * sinLat + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.5f,%.5f", latitude, longitude);
+    }
+}
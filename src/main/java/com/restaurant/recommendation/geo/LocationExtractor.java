@@ -0,0 +1,45 @@
+package com.restaurant.recommendation.geo;
+
+// Finds the location mentioned in a chat message, for any AI backend and the catalog alike
+public final class LocationExtractor {
+
+    private LocationExtractor() {
+    }
+
+    // Returns the location mentioned in a food-related message, or null: a place the gazetteer knows,
+    // else whatever follows " in " or " at "
+    public static String extract(String userInput) {
+        if (userInput == null) return null;
+
+        String lowerInput = userInput.toLowerCase();
+
+        boolean isFoodRelated = lowerInput.contains("food") || lowerInput.contains("restaurant") ||
+            lowerInput.contains("eat") || lowerInput.contains("dining") ||
+            lowerInput.contains("spicy") || lowerInput.contains("cuisine");
+
+        if (!isFoodRelated) return null;
+
+        Gazetteer.Place place = Gazetteer.getDefault().resolve(userInput);
+        if (place != null) {
+            return place.getDisplayName();
+        } else if (lowerInput.contains(" in ") || lowerInput.contains(" at ")) {
+            int inIndex = lowerInput.indexOf(" in ");
+            int atIndex = lowerInput.indexOf(" at ");
+            int index = -1;
+
+            if (inIndex > 0 && (atIndex == -1 || inIndex < atIndex)) {
+                index = inIndex + 4;
+            } else if (atIndex > 0) {
+                index = atIndex + 4;
+            }
+
+            if (index > 0) {
+                String extractedLocation = userInput.substring(index).trim();
+                if (extractedLocation.length() > 2 && !extractedLocation.contains("?")) {
+                    return extractedLocation;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,272 @@
+package com.restaurant.recommendation.logging;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Hands log events from any thread to a single writer thread through a fixed ring of reusable slots.
+//  - Producers claim a sequence with a CAS, fill the slot and publish it by writing its sequence;
+//    nothing is locked and nothing is allocated per event.
+//  - The writer formats events as logfmt lines, in batches, and writes them to the sinks; it parks
+//    when the ring is empty and producers wake it only if it's actually parked.
+//  - When the ring is full, events are dropped and counted rather than blocking the caller; ERROR
+//    events wait briefly for room first. The drop count is reported once the writer catches up.
+//
+// Key/value values are formatted on the writer thread, so callers should pass values that won't change.
+public class AsyncLogWriter {
+  public static final int MAX_PAIRS = 3;
+
+  private static final int BATCH_EVENTS = 256;
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final long ERROR_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+  // One ring slot; published holds the sequence the slot was last filled for
+  private static final class Event {
+    volatile long published = -1;
+    long timestampMillis;
+    LogLevel level;
+    String logger;
+    String thread;
+    long threadId;
+    String message;
+    Throwable error;
+    int pairs;
+    final Object[] keyValues = new Object[2 * MAX_PAIRS];
+
+    void clear() {
+      message = null;
+      error = null;
+      for (int i = 0; i < 2 * pairs; i++) {
+        keyValues[i] = null;
+      }
+    }
+  }
+
+  private final Event[] ring;
+  private final int mask;
+  private final List<LogSink> sinks;
+
+  private final AtomicLong claimed = new AtomicLong();
+  // Next sequence the writer will read; written only by the writer
+  private volatile long consumed;
+  private final AtomicLong dropped = new AtomicLong();
+  private long droppedReported;
+
+  private final Thread writer;
+  private volatile boolean writerParked;
+  private volatile boolean running = true;
+
+  // capacity is rounded up to a power of two
+  public AsyncLogWriter(int capacity, List<LogSink> sinks) {
+    int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    this.ring = new Event[size];
+    for (int i = 0; i < size; i++) {
+      ring[i] = new Event();
+    }
+    this.mask = size - 1;
+    this.sinks = sinks;
+    this.writer = new Thread(this::drainLoop, "log-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  public void append(LogLevel level, String logger, String message, Throwable error, int pairs,
+                     String k1, Object v1, String k2, Object v2, String k3, Object v3) {
+    long sequence = claim(level == LogLevel.ERROR);
+    if (sequence < 0) {
+      dropped.incrementAndGet();
+      return;
+    }
+    Event event = ring[(int) sequence & mask];
+    event.timestampMillis = System.currentTimeMillis();
+    event.level = level;
+    event.logger = logger;
+    Thread current = Thread.currentThread();
+    event.thread = current.getName();
+    event.threadId = current.threadId();
+    event.message = message;
+    event.error = error;
+    event.pairs = pairs;
+    Object[] keyValues = event.keyValues;
+    keyValues[0] = k1;
+    keyValues[1] = v1;
+    keyValues[2] = k2;
+    keyValues[3] = v2;
+    keyValues[4] = k3;
+    keyValues[5] = v3;
+    event.published = sequence;
+
+    if (writerParked) {
+      LockSupport.unpark(writer);
+    }
+  }
+
+  // Drains what's queued, then stops the writer and closes the sinks
+  public void shutdown(long timeoutMillis) {
+    running = false;
+    LockSupport.unpark(writer);
+    try {
+      writer.join(timeoutMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // Returns the claimed sequence, or -1 when the ring stays full
+  private long claim(boolean wait) {
+    long deadline = wait ? System.nanoTime() + ERROR_WAIT_NANOS : 0;
+    while (true) {
+      long sequence = claimed.get();
+      if (sequence - consumed >= ring.length) {
+        if (!wait || !running || System.nanoTime() > deadline) return -1;
+        LockSupport.unpark(writer);
+        LockSupport.parkNanos(10_000);
+        continue;
+      }
+      if (claimed.compareAndSet(sequence, sequence + 1)) return sequence;
+    }
+  }
+
+  private void drainLoop() {
+    StringBuilder batch = new StringBuilder(16 * 1024);
+    long cursor = 0;
+    while (true) {
+      int events = 0;
+      while (events < BATCH_EVENTS) {
+        Event event = ring[(int) cursor & mask];
+        if (event.published != cursor) break;
+        format(event, batch);
+        event.clear();
+        cursor++;
+        consumed = cursor;
+        events++;
+      }
+
+      long droppedNow = dropped.get();
+      if (events == 0 && droppedNow != droppedReported) {
+        formatDropped(droppedNow - droppedReported, batch);
+        droppedReported = droppedNow;
+      }
+
+      if (batch.length() > 0) {
+        write(batch);
+        batch.setLength(0);
+        if (events == BATCH_EVENTS) continue;
+      }
+      flush();
+
+      // Stop once everything queued is written and the last drops are reported
+      if (!running && claimed.get() == cursor && dropped.get() == droppedReported) break;
+      // Recheck after announcing the park, so a producer that missed the flag has already published
+      writerParked = true;
+      if (ring[(int) cursor & mask].published != cursor && running) {
+        LockSupport.parkNanos(IDLE_PARK_NANOS);
+      }
+      writerParked = false;
+    }
+    for (LogSink sink : sinks) {
+      try {
+        sink.close();
+      } catch (IOException e) {
+        System.err.println("Error closing log sink: " + e.getMessage());
+      }
+    }
+  }
+
+  // A failing sink can't log its own failure, so it reports straight to stderr
+  private void write(CharSequence lines) {
+    for (LogSink sink : sinks) {
+      try {
+        sink.write(lines);
+      } catch (IOException e) {
+        System.err.println("Error writing log: " + e.getMessage());
+      }
+    }
+  }
+
+  private void flush() {
+    for (LogSink sink : sinks) {
+      try {
+        sink.flush();
+      } catch (IOException e) {
+        System.err.println("Error flushing log: " + e.getMessage());
+      }
+    }
+  }
+
+  // time=2026-01-01T12:00:00.000Z level=INFO logger=RestaurantService thread=http-worker-1 msg="..." key=value
+  private static void format(Event event, StringBuilder out) {
+    out.append("time=");
+    DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(event.timestampMillis), out);
+    out.append(" level=").append(event.level.name());
+    out.append(" logger=");
+    appendValue(out, event.logger);
+    // Virtual threads are usually unnamed, so they're told apart by id
+    out.append(" thread=");
+    if (event.thread.isEmpty()) {
+      out.append('#').append(event.threadId);
+    } else {
+      appendValue(out, event.thread);
+    }
+    out.append(" msg=");
+    appendValue(out, event.message);
+    for (int i = 0; i < event.pairs; i++) {
+      out.append(' ').append(event.keyValues[2 * i]).append('=');
+      appendValue(out, event.keyValues[2 * i + 1]);
+    }
+    if (event.error != null) {
+      out.append(" error=");
+      appendValue(out, event.error.toString());
+      out.append('\n');
+      StringWriter trace = new StringWriter();
+      event.error.printStackTrace(new PrintWriter(trace));
+      out.append(trace);
+    } else {
+      out.append('\n');
+    }
+  }
+
+  private static void formatDropped(long count, StringBuilder out) {
+    out.append("time=");
+    DateTimeFormatter.ISO_INSTANT.formatTo(Instant.now(), out);
+    out.append(" level=WARN logger=AsyncLogWriter thread=log-writer msg=\"Log buffer full, events dropped\" dropped=")
+        .append(count).append('\n');
+  }
+
+  // Values with spaces, quotes, '=' or control characters are quoted and escaped
+  private static void appendValue(StringBuilder out, Object value) {
+    String text = String.valueOf(value);
+    boolean quote = text.isEmpty();
+    for (int i = 0; i < text.length() && !quote; i++) {
+      char c = text.charAt(i);
+      quote = c <= ' ' || c == '"' || c == '=' || c == '\\';
+    }
+    if (!quote) {
+      out.append(text);
+      return;
+    }
+    out.append('"');
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case '"': out.append("\\\""); break;
+        case '\\': out.append("\\\\"); break;
+        case '\n': out.append("\\n"); break;
+        case '\r': out.append("\\r"); break;
+        case '\t': out.append("\\t"); break;
+        default: out.append(c);
+      }
+    }
+    out.append('"');
+  }
+}
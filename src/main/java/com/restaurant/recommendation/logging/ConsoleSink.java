@@ -0,0 +1,27 @@
+package com.restaurant.recommendation.logging;
+
+import java.io.PrintStream;
+
+// Writes to stdout from the writer thread alone, so request threads never contend on it
+public class ConsoleSink implements LogSink {
+  private final PrintStream out;
+
+  public ConsoleSink(PrintStream out) {
+    this.out = out;
+  }
+
+  @Override
+  public void write(CharSequence lines) {
+    out.append(lines);
+  }
+
+  @Override
+  public void flush() {
+    out.flush();
+  }
+
+  @Override
+  public void close() {
+    out.flush();
+  }
+}
@@ -0,0 +1,15 @@
+package com.restaurant.recommendation.logging;
+
+public enum LogLevel {
+  DEBUG, INFO, WARN, ERROR;
+
+  // Unknown names fall back to the given level
+  public static LogLevel parse(String name, LogLevel fallback) {
+    if (name == null) return fallback;
+    try {
+      return valueOf(name.trim().toUpperCase());
+    } catch (IllegalArgumentException e) {
+      return fallback;
+    }
+  }
+}
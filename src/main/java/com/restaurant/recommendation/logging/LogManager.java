@@ -0,0 +1,62 @@
+package com.restaurant.recommendation.logging;
+
+import com.restaurant.recommendation.core.AppConfig;
+import com.restaurant.recommendation.metrics.Metrics;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Configured from application.properties on first use:
+//   log.level                 DEBUG, INFO, WARN or ERROR (default INFO)
+//   log.level.<logger>       overrides the level for one logger, e.g. log.level.OpenAIService=DEBUG
+//   log.console               write to stdout (default true)
+//   log.file                  also write to this file, rotated by size; blank disables it
+//   log.file.max.bytes / log.file.max.files   rotation size and number of rotated files kept
+//   log.buffer.size           ring slots between request threads and the writer
+public final class LogManager {
+  private static final AppConfig config = AppConfig.load();
+  private static final LogLevel DEFAULT_LEVEL = LogLevel.parse(config.getString("log.level", "INFO"), LogLevel.INFO);
+  private static final AsyncLogWriter writer = createWriter();
+  private static final ConcurrentHashMap<String, Logger> loggers = new ConcurrentHashMap<>();
+
+  static {
+    Metrics.REGISTRY.registerCounter("recommendation_log_events_dropped_total",
+        "Log events dropped because the log buffer was full", writer::getDropped);
+    // Drain what's buffered so the last lines before exit aren't lost
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> writer.shutdown(2000), "log-shutdown"));
+  }
+
+  private LogManager() {
+  }
+
+  public static Logger getLogger(String name) {
+    return loggers.computeIfAbsent(name, key -> new Logger(key,
+        LogLevel.parse(config.getString("log.level." + key, null), DEFAULT_LEVEL), writer));
+  }
+
+  public static Logger getLogger(Class<?> type) {
+    return getLogger(type.getSimpleName());
+  }
+
+  private static AsyncLogWriter createWriter() {
+    List<LogSink> sinks = new ArrayList<>();
+    if (config.getBoolean("log.console", true)) {
+      sinks.add(new ConsoleSink(System.out));
+    }
+    String file = config.getString("log.file", "");
+    if (!file.isEmpty()) {
+      try {
+        sinks.add(new RollingFileSink(Paths.get(file),
+            config.getLong("log.file.max.bytes", 10L * 1024 * 1024),
+            config.getInt("log.file.max.files", 5)));
+      } catch (IOException e) {
+        System.err.println("Log file " + file + " unavailable, logging to console only: " + e.getMessage());
+        if (sinks.isEmpty()) sinks.add(new ConsoleSink(System.out));
+      }
+    }
+    return new AsyncLogWriter(config.getInt("log.buffer.size", 8192), sinks);
+  }
+}
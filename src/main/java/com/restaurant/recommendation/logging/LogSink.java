@@ -0,0 +1,13 @@
+package com.restaurant.recommendation.logging;
+
+import java.io.IOException;
+
+// Destination for formatted log lines; only ever called from the log writer thread
+public interface LogSink {
+
+  void write(CharSequence lines) throws IOException;
+
+  void flush() throws IOException;
+
+  void close() throws IOException;
+}
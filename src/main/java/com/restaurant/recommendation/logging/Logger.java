@@ -0,0 +1,90 @@
+package com.restaurant.recommendation.logging;
+
+// Level-gated front end to the async writer. The level check comes before anything else, and
+// events carry up to three key/value pairs through fixed-arity overloads, so a disabled call
+// builds no string and allocates no array. Pass the parts of a message as pairs rather than
+// concatenating them into it.
+public class Logger {
+  private final String name;
+  private final LogLevel level;
+  private final AsyncLogWriter writer;
+
+  Logger(String name, LogLevel level, AsyncLogWriter writer) {
+    this.name = name;
+    this.level = level;
+    this.writer = writer;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public boolean isEnabled(LogLevel candidate) {
+    return candidate.ordinal() >= level.ordinal();
+  }
+
+  public boolean isDebugEnabled() {
+    return isEnabled(LogLevel.DEBUG);
+  }
+
+  public void debug(String message) {
+    if (isEnabled(LogLevel.DEBUG)) log(LogLevel.DEBUG, message, null, 0, null, null, null, null, null, null);
+  }
+
+  public void debug(String message, String k1, Object v1) {
+    if (isEnabled(LogLevel.DEBUG)) log(LogLevel.DEBUG, message, null, 1, k1, v1, null, null, null, null);
+  }
+
+  public void debug(String message, String k1, Object v1, String k2, Object v2) {
+    if (isEnabled(LogLevel.DEBUG)) log(LogLevel.DEBUG, message, null, 2, k1, v1, k2, v2, null, null);
+  }
+
+  public void debug(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3) {
+    if (isEnabled(LogLevel.DEBUG)) log(LogLevel.DEBUG, message, null, 3, k1, v1, k2, v2, k3, v3);
+  }
+
+  public void info(String message) {
+    if (isEnabled(LogLevel.INFO)) log(LogLevel.INFO, message, null, 0, null, null, null, null, null, null);
+  }
+
+  public void info(String message, String k1, Object v1) {
+    if (isEnabled(LogLevel.INFO)) log(LogLevel.INFO, message, null, 1, k1, v1, null, null, null, null);
+  }
+
+  public void info(String message, String k1, Object v1, String k2, Object v2) {
+    if (isEnabled(LogLevel.INFO)) log(LogLevel.INFO, message, null, 2, k1, v1, k2, v2, null, null);
+  }
+
+  public void info(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3) {
+    if (isEnabled(LogLevel.INFO)) log(LogLevel.INFO, message, null, 3, k1, v1, k2, v2, k3, v3);
+  }
+
+  public void warn(String message) {
+    if (isEnabled(LogLevel.WARN)) log(LogLevel.WARN, message, null, 0, null, null, null, null, null, null);
+  }
+
+  public void warn(String message, String k1, Object v1) {
+    if (isEnabled(LogLevel.WARN)) log(LogLevel.WARN, message, null, 1, k1, v1, null, null, null, null);
+  }
+
+  public void warn(String message, String k1, Object v1, String k2, Object v2) {
+    if (isEnabled(LogLevel.WARN)) log(LogLevel.WARN, message, null, 2, k1, v1, k2, v2, null, null);
+  }
+
+  public void error(String message, Throwable error) {
+    if (isEnabled(LogLevel.ERROR)) log(LogLevel.ERROR, message, error, 0, null, null, null, null, null, null);
+  }
+
+  public void error(String message, Throwable error, String k1, Object v1) {
+    if (isEnabled(LogLevel.ERROR)) log(LogLevel.ERROR, message, error, 1, k1, v1, null, null, null, null);
+  }
+
+  public void error(String message, Throwable error, String k1, Object v1, String k2, Object v2) {
+    if (isEnabled(LogLevel.ERROR)) log(LogLevel.ERROR, message, error, 2, k1, v1, k2, v2, null, null);
+  }
+
+  private void log(LogLevel eventLevel, String message, Throwable error, int pairs,
+                   String k1, Object v1, String k2, Object v2, String k3, Object v3) {
+    writer.append(eventLevel, name, message, error, pairs, k1, v1, k2, v2, k3, v3);
+  }
+}
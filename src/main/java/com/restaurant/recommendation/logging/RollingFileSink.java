@@ -0,0 +1,75 @@
+package com.restaurant.recommendation.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Appends to a file and rotates it once it would grow past maxBytes: server.log becomes server.log.1,
+// server.log.1 becomes server.log.2 and so on, keeping at most maxFiles rotated files.
+public class RollingFileSink implements LogSink {
+  private static final int BUFFER_BYTES = 64 * 1024;
+
+  private final Path path;
+  private final long maxBytes;
+  private final int maxFiles;
+  private OutputStream out;
+  private long size;
+
+  public RollingFileSink(Path path, long maxBytes, int maxFiles) throws IOException {
+    this.path = path;
+    this.maxBytes = maxBytes;
+    this.maxFiles = Math.max(1, maxFiles);
+    Path parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    open();
+  }
+
+  @Override
+  public void write(CharSequence lines) throws IOException {
+    byte[] bytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+    if (size > 0 && size + bytes.length > maxBytes) {
+      rotate();
+    }
+    out.write(bytes);
+    size += bytes.length;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+
+  private void open() throws IOException {
+    out = new BufferedOutputStream(Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+        BUFFER_BYTES);
+    size = Files.size(path);
+  }
+
+  private void rotate() throws IOException {
+    out.close();
+    for (int i = maxFiles - 1; i >= 1; i--) {
+      Path older = rotated(i);
+      if (Files.exists(older)) {
+        Files.move(older, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    Files.move(path, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+    open();
+  }
+
+  private Path rotated(int index) {
+    return path.resolveSibling(path.getFileName() + "." + index);
+  }
+}
@@ -0,0 +1,30 @@
+package com.restaurant.recommendation.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Monotonic count; increments from many threads land in separate cells instead of contending on one word
+public class Counter extends Metric {
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+
+    @Override
+    String type() {
+        return "counter";
+    }
+
+    @Override
+    void writeSamples(StringBuilder out, String name, String labels) {
+        MetricsRegistry.appendSample(out, name, labels, get());
+    }
+}
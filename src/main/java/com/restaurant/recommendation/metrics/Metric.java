@@ -0,0 +1,11 @@
+package com.restaurant.recommendation.metrics;
+
+// One time series (or, for histograms, one set of bucket series) within a metric family
+abstract class Metric {
+
+  // Prometheus TYPE of the family
+  abstract String type();
+
+  // labels is the rendered label list without braces, e.g. stage="parse", or empty
+  abstract void writeSamples(StringBuilder out, String name, String labels);
+}
@@ -0,0 +1,48 @@
+package com.restaurant.recommendation.metrics;
+
+// The process-wide registry scraped by /api/recommendations/metrics, and the request-path
+// instruments. Services with counts of their own (cache, dispatcher, breaker, sessions) register
+// them on the registry when constructed.
+public final class Metrics {
+    public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    public static final Counter RECOMMENDATION_REQUESTS = REGISTRY.counter("recommendation_requests_total",
+        "Requests received", "endpoint", "recommendations");
+    public static final Counter STREAM_REQUESTS = REGISTRY.counter("recommendation_requests_total",
+        "Requests received", "endpoint", "stream");
+    public static final Counter REQUEST_ERRORS = REGISTRY.counter("recommendation_request_errors_total",
+        "Requests answered with an error status");
+
+    // Stages of a request, so time spent in our own code can be told apart from time waiting on the AI
+    public static final LatencyHistogram REQUEST_PARSE = REGISTRY.histogram("recommendation_stage_seconds",
+        "Time spent in each stage of a recommendation request", "stage", "request_parse");
+    public static final LatencyHistogram AI_CALL = REGISTRY.histogram("recommendation_stage_seconds",
+        "Time spent in each stage of a recommendation request", "stage", "ai_call");
+    public static final LatencyHistogram OUTPUT_PARSE = REGISTRY.histogram("recommendation_stage_seconds",
+        "Time spent in each stage of a recommendation request", "stage", "output_parse");
+    public static final LatencyHistogram SERIALIZATION = REGISTRY.histogram("recommendation_stage_seconds",
+        "Time spent in each stage of a recommendation request", "stage", "serialization");
+
+    public static final LatencyHistogram RECOMMENDATION_LATENCY = REGISTRY.histogram("recommendation_request_seconds",
+        "Time from reading a request to sending the last byte of its response", "endpoint", "recommendations");
+    public static final LatencyHistogram STREAM_LATENCY = REGISTRY.histogram("recommendation_request_seconds",
+        "Time from reading a request to sending the last byte of its response", "endpoint", "stream");
+
+    // Upstream attempts are timed individually, excluding time queued in the dispatcher
+    public static final LatencyHistogram UPSTREAM_ATTEMPT = REGISTRY.histogram("recommendation_upstream_seconds",
+        "Azure OpenAI call latency per attempt");
+    public static final LatencyHistogram UPSTREAM_QUEUE = REGISTRY.histogram("recommendation_upstream_queue_seconds",
+        "Time waiting for an upstream concurrency slot");
+
+    public static final Counter AI_CALL_FAILURES = REGISTRY.counter("recommendation_ai_call_failures_total",
+        "AI calls that failed or timed out");
+    public static final Counter FALLBACK_BREAKER_OPEN = REGISTRY.counter("recommendation_fallbacks_total",
+        "Responses served without a fresh AI answer", "reason", "breaker_open");
+    public static final Counter FALLBACK_AI_ERROR = REGISTRY.counter("recommendation_fallbacks_total",
+        "Responses served without a fresh AI answer", "reason", "ai_error");
+    public static final Counter FALLBACK_UNPARSEABLE = REGISTRY.counter("recommendation_fallbacks_total",
+        "Responses served without a fresh AI answer", "reason", "unparseable");
+
+    private Metrics() {
+    }
+}
@@ -0,0 +1,174 @@
+package com.restaurant.recommendation.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+// Named metric families, rendered in the Prometheus text exposition format (version 0.0.4).
+// Families come out in registration order; each may hold several series told apart by labels,
+// given as alternating name/value pairs.
+//
+// Registration is synchronized, but it happens once per instrument; recording goes straight to the
+// instrument without touching the registry.
+public class MetricsRegistry {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static class Family {
+        final String name;
+        final String help;
+        final String type;
+        // Keyed by rendered labels
+        final Map<String, Metric> series = new LinkedHashMap<>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    // Guarded by this
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    // Returns the existing counter for these labels if there is one
+    public Counter counter(String name, String help, String... labels) {
+        return getOrCreate(name, help, labels, Counter.class, new Counter());
+    }
+
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        return getOrCreate(name, help, labels, LatencyHistogram.class, new LatencyHistogram());
+    }
+
+    // Exposes a count kept elsewhere as a counter, replacing any earlier registration for these labels
+    public void registerCounter(String name, String help, LongSupplier value, String... labels) {
+        register(name, help, labels, new Metric() {
+            @Override
+            String type() {
+                return "counter";
+            }
+
+            @Override
+            void writeSamples(StringBuilder out, String name, String labels) {
+                appendSample(out, name, labels, value.getAsLong());
+            }
+        });
+    }
+
+    // Exposes a current value, read at scrape time; replaces any earlier registration for these labels
+    public void registerGauge(String name, String help, DoubleSupplier value, String... labels) {
+        register(name, help, labels, new Metric() {
+            @Override
+            String type() {
+                return "gauge";
+            }
+
+            @Override
+            void writeSamples(StringBuilder out, String name, String labels) {
+                appendSample(out, name, labels, value.getAsDouble());
+            }
+        });
+    }
+
+    public String scrape() {
+        List<Family> snapshot;
+        List<List<Map.Entry<String, Metric>>> series = new ArrayList<>();
+        synchronized (this) {
+            snapshot = new ArrayList<>(families.values());
+            for (Family family : snapshot) {
+                series.add(new ArrayList<>(family.series.entrySet()));
+            }
+        }
+
+        StringBuilder out = new StringBuilder(4096);
+        for (int i = 0; i < snapshot.size(); i++) {
+            Family family = snapshot.get(i);
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Metric> entry : series.get(i)) {
+                entry.getValue().writeSamples(out, family.name, entry.getKey());
+            }
+        }
+        return out.toString();
+    }
+
+    private synchronized <T extends Metric> T getOrCreate(String name, String help, String[] labels, Class<T> kind, T created) {
+        Family family = family(name, help, created.type());
+        String key = renderLabels(labels);
+        Metric existing = family.series.get(key);
+        if (existing != null) {
+            if (!kind.isInstance(existing)) {
+                throw new IllegalArgumentException("Metric " + name + "{" + key + "} is already registered as another kind");
+            }
+            return kind.cast(existing);
+        }
+        family.series.put(key, created);
+        return created;
+    }
+
+    private synchronized void register(String name, String help, String[] labels, Metric metric) {
+        family(name, help, metric.type()).series.put(renderLabels(labels), metric);
+    }
+
+    private Family family(String name, String help, String type) {
+        Family family = families.get(name);
+        if (family == null) {
+            family = new Family(name, help, type);
+            families.put(name, family);
+        } else if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    private static String renderLabels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        StringBuilder rendered = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) rendered.append(',');
+            rendered.append(labels[i]).append("=\"");
+            String value = labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '\\' || c == '"') {
+                    rendered.append('\\').append(c);
+                } else if (c == '\n') {
+                    rendered.append("\\n");
+                } else {
+                    rendered.append(c);
+                }
+            }
+            rendered.append('"');
+        }
+        return rendered.toString();
+    }
+
+    static void appendSample(StringBuilder out, String name, String labels, long value) {
+        appendName(out, name, labels);
+        out.append(value).append('\n');
+    }
+
+    static void appendSample(StringBuilder out, String name, String labels, double value) {
+        appendName(out, name, labels);
+        if (Double.isNaN(value)) {
+            out.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            out.append(value > 0 ? "+Inf" : "-Inf");
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static void appendName(StringBuilder out, String name, String labels) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ');
+    }
+}
@@ -7,6 +7,13 @@ public class RecommendationRequest {
     private String priceRange;
     private Integer numberOfPeople;
     private String occasion;
+    private String sessionId;
+    private Double latitude;
+    private Double longitude;
+    private Double radiusKm;
+    // Set by the server for catalog-grounded turns, never read from the request body. Sent to the AI
+    // alongside the user's message but not kept in the conversation history.
+    private String catalogContext;
 
     // Getters
     public String getUserPreference() { return userPreference; }
@@ -15,6 +22,11 @@ public class RecommendationRequest {
     public String getPriceRange() { return priceRange; }
     public Integer getNumberOfPeople() { return numberOfPeople; }
     public String getOccasion() { return occasion; }
+    public String getSessionId() { return sessionId; }
+    public Double getLatitude() { return latitude; }
+    public Double getLongitude() { return longitude; }
+    public Double getRadiusKm() { return radiusKm; }
+    public String getCatalogContext() { return catalogContext; }
 
     // Setters
     public void setUserPreference(String userPreference) { this.userPreference = userPreference; }
@@ -23,4 +35,9 @@ public class RecommendationRequest {
     public void setPriceRange(String priceRange) { this.priceRange = priceRange; }
     public void setNumberOfPeople(Integer numberOfPeople) { this.numberOfPeople = numberOfPeople; }
     public void setOccasion(String occasion) { this.occasion = occasion; }
+    public void setSessionId(String sessionId) { this.sessionId = sessionId; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+    public void setRadiusKm(Double radiusKm) { this.radiusKm = radiusKm; }
+    public void setCatalogContext(String catalogContext) { this.catalogContext = catalogContext; }
 }
@@ -6,6 +6,8 @@ public class Restaurant {
     private String cuisine;
     private String location;
     private Double rating;
+    private Double latitude;
+    private Double longitude;
     private String description;
     private String priceRange;
     private String address;
@@ -18,6 +20,8 @@ public class Restaurant {
     public String getCuisine() { return cuisine; }
     public String getLocation() { return location; }
     public Double getRating() { return rating; }
+    public Double getLatitude() { return latitude; }
+    public Double getLongitude() { return longitude; }
     public String getDescription() { return description; }
     public String getPriceRange() { return priceRange; }
     public String getAddress() { return address; }
@@ -30,6 +34,8 @@ public class Restaurant {
     public void setCuisine(String cuisine) { this.cuisine = cuisine; }
     public void setLocation(String location) { this.location = location; }
     public void setRating(Double rating) { this.rating = rating; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
     public void setDescription(String description) { this.description = description; }
     public void setPriceRange(String priceRange) { this.priceRange = priceRange; }
     public void setAddress(String address) { this.address = address; }
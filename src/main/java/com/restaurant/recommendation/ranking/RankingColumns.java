@@ -0,0 +1,127 @@
+package com.restaurant.recommendation.ranking;
+
+import com.restaurant.recommendation.model.Restaurant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Ranking features of a candidate set as parallel primitive arrays indexed by ordinal. Cuisines are
+// dictionary-encoded, so a cuisine match is one array lookup per candidate.
+public class RankingColumns {
+    private final float[] ratings;
+    // 1-4, 0 when unknown
+    private final byte[] priceTiers;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    // Index into cuisineNames, -1 when unknown
+    private final int[] cuisineIds;
+    private final Map<String, Integer> cuisineDictionary = new HashMap<>();
+    private final List<String> cuisineNames = new ArrayList<>();
+
+    // Coordinates start out NaN (unknown); the arrays may be shared with other indexes
+    public RankingColumns(int size) {
+        this(size, new double[size], new double[size]);
+        Arrays.fill(latitudes, Double.NaN);
+        Arrays.fill(longitudes, Double.NaN);
+    }
+
+    // Uses the given coordinate arrays as they are, NaN marking a missing point
+    public RankingColumns(int size, double[] latitudes, double[] longitudes) {
+        if (latitudes.length != size || longitudes.length != size) {
+            throw new IllegalArgumentException("Coordinate arrays must have " + size + " entries");
+        }
+        this.ratings = new float[size];
+        this.priceTiers = new byte[size];
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.cuisineIds = new int[size];
+        Arrays.fill(cuisineIds, -1);
+    }
+
+    // Columns saved from another instance (see the getters); cuisineIds index into cuisineNames
+    public RankingColumns(float[] ratings, byte[] priceTiers, double[] latitudes, double[] longitudes,
+                          int[] cuisineIds, List<String> cuisineNames) {
+        int size = ratings.length;
+        if (priceTiers.length != size || latitudes.length != size || longitudes.length != size || cuisineIds.length != size) {
+            throw new IllegalArgumentException("Columns must have " + size + " entries");
+        }
+        this.ratings = ratings;
+        this.priceTiers = priceTiers;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.cuisineIds = cuisineIds;
+        for (String name : cuisineNames) {
+            cuisineDictionary.put(name, this.cuisineNames.size());
+            this.cuisineNames.add(name);
+        }
+    }
+
+    // A missing rating takes the mean of the known ones so it neither lifts nor sinks the restaurant
+    public static RankingColumns of(List<Restaurant> restaurants) {
+        double ratingSum = 0;
+        int rated = 0;
+        for (Restaurant restaurant : restaurants) {
+            if (restaurant.getRating() != null) {
+                ratingSum += restaurant.getRating();
+                rated++;
+            }
+        }
+        double neutralRating = rated > 0 ? ratingSum / rated : Double.NaN;
+
+        RankingColumns columns = new RankingColumns(restaurants.size());
+        for (int ordinal = 0; ordinal < restaurants.size(); ordinal++) {
+            Restaurant restaurant = restaurants.get(ordinal);
+            columns.set(ordinal, restaurant.getRating() != null ? restaurant.getRating() : neutralRating,
+                restaurant.getPriceRange(), restaurant.getCuisine());
+            if (restaurant.getLatitude() != null && restaurant.getLongitude() != null) {
+                columns.latitudes[ordinal] = restaurant.getLatitude();
+                columns.longitudes[ordinal] = restaurant.getLongitude();
+            }
+        }
+        return columns;
+    }
+
+    // rating may be NaN; a missing rating scores as zero
+    public void set(int ordinal, double rating, String priceRange, String cuisine) {
+        ratings[ordinal] = Double.isNaN(rating) ? 0f : (float) rating;
+        priceTiers[ordinal] = (byte) RankingQuery.priceTier(priceRange);
+        cuisineIds[ordinal] = cuisineId(cuisine);
+    }
+
+    public int size() {
+        return ratings.length;
+    }
+
+    // Shared, not copied
+    public float[] ratings() { return ratings; }
+    public byte[] priceTiers() { return priceTiers; }
+    double[] latitudes() { return latitudes; }
+    double[] longitudes() { return longitudes; }
+    public int[] cuisineIds() { return cuisineIds; }
+    public List<String> cuisineNames() { return cuisineNames; }
+
+    // Flags the cuisine ids matching a wanted cuisine either way round, e.g. "chinese" and "Chinese (Sichuan)"
+    boolean[] cuisineMask(String wanted) {
+        boolean[] mask = new boolean[cuisineNames.size()];
+        for (int id = 0; id < mask.length; id++) {
+            String name = cuisineNames.get(id);
+            mask[id] = name.contains(wanted) || wanted.contains(name);
+        }
+        return mask;
+    }
+
+    private int cuisineId(String cuisine) {
+        if (cuisine == null || cuisine.trim().isEmpty()) return -1;
+        String key = cuisine.trim().toLowerCase();
+        Integer id = cuisineDictionary.get(key);
+        if (id == null) {
+            id = cuisineNames.size();
+            cuisineDictionary.put(key, id);
+            cuisineNames.add(key);
+        }
+        return id;
+    }
+}
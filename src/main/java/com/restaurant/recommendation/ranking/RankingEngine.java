@@ -0,0 +1,261 @@
+package com.restaurant.recommendation.ranking;
+
+import com.restaurant.recommendation.geo.GeoPoint;
+import com.restaurant.recommendation.model.Restaurant;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Scores candidates with a weighted sum of rating, price fit, distance, cuisine match and an optional
+// caller-supplied relevance, and keeps the best k in a bounded min-heap. The loop reads primitive
+// columns only and allocates nothing per candidate.
+//
+// With a pool, large candidate sets are split into ranges scored in parallel, each into its own heap,
+// and the heaps are merged. The pool is dedicated to ranking so a burst of big queries can't starve
+// other work; when it's already fully busy the caller scores sequentially instead of queueing.
+public class RankingEngine {
+    private static final float MAX_RATING = 5f;
+    private static final float PRICE_TIERS = 3f;
+    private static final double KM_PER_DEGREE = Math.PI * GeoPoint.EARTH_RADIUS_KM / 180.0;
+    // Ranges are split until they're no bigger than this, aiming for a few ranges per worker
+    private static final int MIN_RANGE = 16 * 1024;
+    private static final int RANGES_PER_WORKER = 4;
+
+    // Relevance of an ordinal, in [0, 1]
+    public interface Relevance {
+        float score(int ordinal);
+    }
+
+    private final RankingWeights weights;
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+
+    public RankingEngine(RankingWeights weights) {
+        this(weights, null, Integer.MAX_VALUE);
+    }
+
+    // Candidate sets of at least parallelThreshold are ranked on the pool; a null pool is always sequential
+    public RankingEngine(RankingWeights weights, ForkJoinPool pool, int parallelThreshold) {
+        this.weights = weights;
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public RankingWeights getWeights() {
+        return weights;
+    }
+
+    // Best k ordinals, best first; ties go to the lower ordinal. candidates == null means every ordinal.
+    public int[] topK(RankingColumns columns, int[] candidates, Relevance relevance, RankingQuery query, int k) {
+        int count = candidates != null ? candidates.length : columns.size();
+        int capacity = Math.max(0, Math.min(k, count));
+        if (capacity == 0) return new int[0];
+
+        Scorer scorer = new Scorer(columns, candidates, relevance, query, weights);
+        TopK top;
+        if (pool != null && count >= parallelThreshold && pool.getActiveThreadCount() < pool.getParallelism()) {
+            int range = Math.max(MIN_RANGE, count / (pool.getParallelism() * RANGES_PER_WORKER));
+            top = pool.invoke(new RangeTask(scorer, 0, count, capacity, range));
+        } else {
+            top = new TopK(capacity);
+            scorer.score(0, count, top);
+        }
+        return top.drain();
+    }
+
+    // Reorders a small list, e.g. restaurants parsed from a model response
+    public List<Restaurant> rank(List<Restaurant> restaurants, RankingQuery query) {
+        if (restaurants.size() <= 1) return restaurants;
+        int[] order = topK(RankingColumns.of(restaurants), null, null, query, restaurants.size());
+        List<Restaurant> ranked = new ArrayList<>(order.length);
+        for (int ordinal : order) {
+            ranked.add(restaurants.get(ordinal));
+        }
+        return ranked;
+    }
+
+    // Per-query state, prepared once and shared read-only by every range
+    private static class Scorer {
+        private final int[] candidates;
+        private final Relevance relevance;
+        private final float[] ratings;
+        private final byte[] priceTiers;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final int[] cuisineIds;
+        private final float ratingWeight;
+        private final int wantedTier;
+        private final float priceWeight;
+        private final float distanceWeight;
+        private final boolean[] cuisineMask;
+        private final float cuisineWeight;
+        private final float relevanceWeight;
+        private final double originLat;
+        private final double originLon;
+        private final double lonScale;
+        private final float scaleKm;
+
+        Scorer(RankingColumns columns, int[] candidates, Relevance relevance, RankingQuery query, RankingWeights weights) {
+            this.candidates = candidates;
+            this.relevance = relevance;
+            this.ratings = columns.ratings();
+            this.priceTiers = columns.priceTiers();
+            this.latitudes = columns.latitudes();
+            this.longitudes = columns.longitudes();
+            this.cuisineIds = columns.cuisineIds();
+
+            this.ratingWeight = weights.getRating() / MAX_RATING;
+            this.wantedTier = query.getPriceTier();
+            this.priceWeight = wantedTier > 0 ? weights.getPrice() : 0f;
+            GeoPoint origin = query.getOrigin();
+            this.distanceWeight = origin != null ? weights.getDistance() : 0f;
+            this.cuisineMask = query.getCuisine() != null && weights.getCuisine() != 0f
+                ? columns.cuisineMask(query.getCuisine()) : null;
+            this.cuisineWeight = weights.getCuisine();
+            this.relevanceWeight = relevance != null ? weights.getRelevance() : 0f;
+
+            // Equirectangular distance: accurate to well under 1% at city scale and no trigonometry per candidate
+            this.originLat = origin != null ? origin.getLatitude() : 0;
+            this.originLon = origin != null ? origin.getLongitude() : 0;
+            this.lonScale = Math.cos(Math.toRadians(originLat));
+            this.scaleKm = weights.getDistanceScaleKm();
+        }
+
+        // Scores candidates[from, to) (or ordinals, without candidates) into top
+        void score(int from, int to, TopK top) {
+            int[] candidates = this.candidates;
+            float[] ratings = this.ratings;
+            for (int i = from; i < to; i++) {
+                int ordinal = candidates != null ? candidates[i] : i;
+                float score = ratingWeight * ratings[ordinal];
+
+                if (priceWeight != 0f) {
+                    int tier = priceTiers[ordinal];
+                    // Unknown price scores halfway
+                    float fit = tier == 0 ? 0.5f : 1f - Math.abs(tier - wantedTier) / PRICE_TIERS;
+                    score += priceWeight * fit;
+                }
+                if (distanceWeight != 0f) {
+                    double lat = latitudes[ordinal];
+                    if (lat == lat) { // not NaN
+                        double dLat = lat - originLat;
+                        double dLon = Math.abs(longitudes[ordinal] - originLon);
+                        if (dLon > 180) dLon = 360 - dLon;
+                        dLon *= lonScale;
+                        float km = (float) (Math.sqrt(dLat * dLat + dLon * dLon) * KM_PER_DEGREE);
+                        score += distanceWeight * scaleKm / (scaleKm + km);
+                    }
+                }
+                if (cuisineMask != null) {
+                    int cuisineId = cuisineIds[ordinal];
+                    if (cuisineId >= 0 && cuisineMask[cuisineId]) score += cuisineWeight;
+                }
+                if (relevanceWeight != 0f) {
+                    score += relevanceWeight * relevance.score(ordinal);
+                }
+                top.offer(ordinal, score);
+            }
+        }
+    }
+
+    // Splits the range in halves down to rangeSize; each leaf fills its own heap and parents merge them
+    private static class RangeTask extends RecursiveTask<TopK> {
+        private final Scorer scorer;
+        private final int from;
+        private final int to;
+        private final int capacity;
+        private final int rangeSize;
+
+        RangeTask(Scorer scorer, int from, int to, int capacity, int rangeSize) {
+            this.scorer = scorer;
+            this.from = from;
+            this.to = to;
+            this.capacity = capacity;
+            this.rangeSize = rangeSize;
+        }
+
+        @Override
+        protected TopK compute() {
+            if (to - from <= rangeSize) {
+                TopK top = new TopK(capacity);
+                scorer.score(from, to, top);
+                return top;
+            }
+            int middle = (from + to) >>> 1;
+            RangeTask left = new RangeTask(scorer, from, middle, capacity, rangeSize);
+            left.fork();
+            TopK top = new RangeTask(scorer, middle, to, capacity, rangeSize).compute();
+            top.merge(left.join());
+            return top;
+        }
+    }
+
+    // Min-heap on (score, -ordinal): the root is the weakest entry kept so far
+    private static class TopK {
+        private final int[] ordinals;
+        private final float[] scores;
+        private int size;
+
+        TopK(int k) {
+            ordinals = new int[k];
+            scores = new float[k];
+        }
+
+        void merge(TopK other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.ordinals[i], other.scores[i]);
+            }
+        }
+
+        void offer(int ordinal, float score) {
+            if (size < ordinals.length) {
+                int index = size++;
+                while (index > 0) {
+                    int parent = (index - 1) >>> 1;
+                    if (!worse(ordinal, score, ordinals[parent], scores[parent])) break;
+                    ordinals[index] = ordinals[parent];
+                    scores[index] = scores[parent];
+                    index = parent;
+                }
+                ordinals[index] = ordinal;
+                scores[index] = score;
+            } else if (worse(ordinals[0], scores[0], ordinal, score)) {
+                siftDown(ordinal, score, size);
+            }
+        }
+
+        // Pops the weakest into the back of the result, leaving it best first
+        int[] drain() {
+            int[] result = new int[size];
+            while (size > 0) {
+                result[size - 1] = ordinals[0];
+                size--;
+                if (size > 0) siftDown(ordinals[size], scores[size], size);
+            }
+            return result;
+        }
+
+        private void siftDown(int ordinal, float score, int heapSize) {
+            int index = 0;
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= heapSize) break;
+                if (child + 1 < heapSize && worse(ordinals[child + 1], scores[child + 1], ordinals[child], scores[child])) {
+                    child++;
+                }
+                if (!worse(ordinals[child], scores[child], ordinal, score)) break;
+                ordinals[index] = ordinals[child];
+                scores[index] = scores[child];
+                index = child;
+            }
+            ordinals[index] = ordinal;
+            scores[index] = score;
+        }
+
+        private static boolean worse(int ordinal, float score, int otherOrdinal, float otherScore) {
+            return score < otherScore || (score == otherScore && ordinal > otherOrdinal);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.restaurant.recommendation.ranking;
+
+import com.restaurant.recommendation.geo.Gazetteer;
+import com.restaurant.recommendation.geo.GeoPoint;
+import com.restaurant.recommendation.model.RecommendationRequest;
+
+// What a ranking is measured against; any part may be absent
+public class RankingQuery {
+    private final int priceTier;
+    private final String cuisine;
+    private final GeoPoint origin;
+
+    // priceTier 1-4, or 0 for no preference
+    public RankingQuery(int priceTier, String cuisine, GeoPoint origin) {
+        this.priceTier = priceTier;
+        this.cuisine = cuisine != null && !cuisine.trim().isEmpty() ? cuisine.trim().toLowerCase() : null;
+        this.origin = origin;
+    }
+
+    // Origin from explicit coordinates, else from the location or message text via the gazetteer
+    public static RankingQuery from(RecommendationRequest request) {
+        GeoPoint origin = null;
+        if (request.getLatitude() != null && request.getLongitude() != null) {
+            origin = new GeoPoint(request.getLatitude(), request.getLongitude());
+        } else {
+            Gazetteer.Place place = Gazetteer.getDefault().resolve(request.getLocation());
+            if (place == null) place = Gazetteer.getDefault().resolve(request.getUserPreference());
+            if (place != null) origin = place.getPoint();
+        }
+        return new RankingQuery(priceTier(request.getPriceRange()), request.getCuisine(), origin);
+    }
+
+    public int getPriceTier() { return priceTier; }
+    public String getCuisine() { return cuisine; }
+    public GeoPoint getOrigin() { return origin; }
+
+    // "$$", "medium", "moderate" -> 2; 0 if unrecognized
+    public static int priceTier(String price) {
+        if (price == null) return 0;
+        String value = price.trim().toLowerCase();
+        int dollars = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '$') dollars++;
+        }
+        if (dollars > 0) return Math.min(dollars, 4);
+
+        switch (value) {
+            case "cheap": case "low": case "budget": case "inexpensive": return 1;
+            case "medium": case "moderate": case "mid": case "mid-range": return 2;
+            case "high": case "expensive": case "upscale": return 3;
+            case "luxury": case "very expensive": return 4;
+            default: return 0;
+        }
+    }
+}
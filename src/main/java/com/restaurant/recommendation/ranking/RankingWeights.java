@@ -0,0 +1,33 @@
+package com.restaurant.recommendation.ranking;
+
+// Weights of the linear scoring model; every feature is scaled to [0, 1] before weighting.
+// A zero weight drops the feature from the inner loop entirely.
+public class RankingWeights {
+    public static final RankingWeights DEFAULTS = new RankingWeights(1.0, 0.5, 0.75, 1.0, 1.0, 3.0);
+
+    private final float rating;
+    private final float price;
+    private final float distance;
+    private final float cuisine;
+    private final float relevance;
+    private final float distanceScaleKm;
+
+    // distanceScaleKm is where the distance feature falls to 0.5
+    public RankingWeights(double rating, double price, double distance, double cuisine, double relevance,
+                          double distanceScaleKm) {
+        if (distanceScaleKm <= 0) throw new IllegalArgumentException("Distance scale must be positive");
+        this.rating = (float) rating;
+        this.price = (float) price;
+        this.distance = (float) distance;
+        this.cuisine = (float) cuisine;
+        this.relevance = (float) relevance;
+        this.distanceScaleKm = (float) distanceScaleKm;
+    }
+
+    public float getRating() { return rating; }
+    public float getPrice() { return price; }
+    public float getDistance() { return distance; }
+    public float getCuisine() { return cuisine; }
+    public float getRelevance() { return relevance; }
+    public float getDistanceScaleKm() { return distanceScaleKm; }
+}
@@ -0,0 +1,509 @@
+package com.restaurant.recommendation.service;
+
+import com.restaurant.recommendation.model.Restaurant;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Single pass over the model's text, one line at a time, without regular expressions.
+// Understands the "1. Name | Cuisine | Location | Rating | Price | Description" format
+// as well as the markdown the model tends to produce instead:
+//   1. **Name** (Italian, $$) - description      numbered with ".", ")" or bold markers
+//      - Cuisine: Italian                          indented "Key: value" detail lines
+//   - **Name**: description                       bullet lists when nothing is numbered
+// An item only becomes a restaurant with some evidence that it is one: a bold name, a pipe row,
+// a restaurant detail line (cuisine, address, rating, price...) or a price or rating next to the name.
+// Lists of tips or dishes are left as plain text.
+public class AIOutputParser {
+
+    public static class ParseResult {
+        private final List<Restaurant> restaurants;
+        private final String listText;
+        private final double confidence;
+        // Parallel to restaurants: each item's own lines, then whatever followed the last item
+        private final List<String> itemTexts;
+        private final String closingText;
+        private final boolean numbered;
+        private final boolean spaced;
+
+        ParseResult(List<Restaurant> restaurants, String listText, double confidence) {
+            this(restaurants, listText, confidence, Collections.emptyList(), "", false, false);
+        }
+
+        ParseResult(List<Restaurant> restaurants, String listText, double confidence, List<String> itemTexts,
+                    String closingText, boolean numbered, boolean spaced) {
+            this.restaurants = restaurants;
+            this.listText = listText;
+            this.confidence = confidence;
+            this.itemTexts = itemTexts;
+            this.closingText = closingText;
+            this.numbered = numbered;
+            this.spaced = spaced;
+        }
+
+        // Fields the model didn't give are null; see fillDefaults
+        public List<Restaurant> getRestaurants() { return restaurants; }
+        // The text from the first list item onwards, with any preamble removed
+        public String getListText() { return listText; }
+
+        // The list text with the items in the given order (restaurants from this result) and renumbered,
+        // followed by the closing remark. Headings between items are dropped once the order changes.
+        public String getListText(List<Restaurant> order) {
+            if (sameOrder(order)) return listText;
+            Map<Restaurant, Integer> positions = new IdentityHashMap<>();
+            for (int i = 0; i < restaurants.size(); i++) {
+                positions.put(restaurants.get(i), i);
+            }
+            StringBuilder builder = new StringBuilder(listText.length());
+            String separator = spaced ? "\n\n" : "\n";
+            for (int i = 0; i < order.size(); i++) {
+                Integer position = positions.get(order.get(i));
+                if (position == null) return listText;
+                if (i > 0) builder.append(separator);
+                String itemText = itemTexts.get(position);
+                builder.append(numbered ? renumber(itemText, i + 1) : itemText);
+            }
+            if (!closingText.isEmpty()) builder.append("\n\n").append(closingText);
+            return builder.toString();
+        }
+
+        private boolean sameOrder(List<Restaurant> order) {
+            if (order.size() != restaurants.size()) return false;
+            for (int i = 0; i < order.size(); i++) {
+                if (order.get(i) != restaurants.get(i)) return false;
+            }
+            return true;
+        }
+        // Average share of the six restaurant fields found per item, 0 when nothing parsed
+        public double getConfidence() { return confidence; }
+    }
+
+    private static final int FIELD_COUNT = 6;
+
+    // Per-item state while scanning; converted to a Restaurant once the item ends
+    private static class Item {
+        String name;
+        String cuisine;
+        String location;
+        Double rating;
+        String priceRange;
+        String description;
+        String address;
+        String phone;
+        String openingHours;
+        // Set by anything restaurant-shaped; see the class comment
+        boolean evidence;
+        // Offsets of the item's first character and the end of its last line
+        int start;
+        int end;
+
+        int fieldsFound() {
+            int found = 0;
+            if (name != null) found++;
+            if (cuisine != null) found++;
+            if (location != null) found++;
+            if (rating != null) found++;
+            if (priceRange != null) found++;
+            if (description != null) found++;
+            return found;
+        }
+    }
+
+    public ParseResult parse(String text) {
+        if (text == null || text.isEmpty()) {
+            return new ParseResult(Collections.emptyList(), "", 0);
+        }
+
+        List<Item> numbered = new ArrayList<>();
+        List<Item> bullets = new ArrayList<>();
+        int numberedStart = -1;
+        int bulletStart = -1;
+        Item current = null;
+        boolean afterBlank = false;
+
+        int length = text.length();
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd == -1) lineEnd = length;
+
+            int start = skipSpaces(text, lineStart, lineEnd);
+            int end = trimEnd(text, start, lineEnd);
+            boolean indented = start > lineStart;
+
+            if (start < end) {
+                int afterNumber = numberedMarkerEnd(text, start, end);
+                int afterBullet = afterNumber == -1 ? bulletMarkerEnd(text, start, end) : -1;
+                int content = afterBullet != -1 ? afterBullet : start;
+
+                if (afterNumber != -1) {
+                    if (numberedStart == -1) numberedStart = lineStart;
+                    current = new Item();
+                    current.start = start;
+                    current.end = end;
+                    numbered.add(current);
+                    parseHeadline(text, afterNumber, end, current);
+                } else if (afterBullet != -1 && numbered.isEmpty() && !(current != null && indented)
+                    && !(current != null && isDetail(text, afterBullet, end))) {
+                    if (bulletStart == -1) bulletStart = lineStart;
+                    current = new Item();
+                    current.start = start;
+                    current.end = end;
+                    bullets.add(current);
+                    parseHeadline(text, afterBullet, end, current);
+                } else if (current != null && text.charAt(start) != '#') {
+                    // Details belong to the current item, but unindented prose after a blank line
+                    // is the model's closing remark rather than part of the list
+                    if (afterBullet == -1 && !indented && afterBlank && !isDetail(text, start, end)) {
+                        current = null;
+                    } else {
+                        parseDetail(text, content, end, current);
+                        current.end = end;
+                    }
+                }
+                afterBlank = false;
+            } else {
+                afterBlank = true;
+            }
+
+            lineStart = lineEnd + 1;
+        }
+
+        List<Item> items = !numbered.isEmpty() ? numbered : bullets;
+        int listStart = !numbered.isEmpty() ? numberedStart : bulletStart;
+        if (items.isEmpty()) {
+            return new ParseResult(Collections.emptyList(), text.trim(), 0);
+        }
+
+        List<Restaurant> restaurants = new ArrayList<>(items.size());
+        List<String> itemTexts = new ArrayList<>(items.size());
+        boolean spaced = false;
+        int totalFound = 0;
+        long id = 1;
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            if (i > 0 && indexOf(text, '\n', items.get(i - 1).end + 1, item.start) != -1) spaced = true;
+            if (item.name == null || !item.evidence) continue;
+            totalFound += item.fieldsFound();
+            restaurants.add(toRestaurant(item, id++));
+            itemTexts.add(text.substring(item.start, item.end));
+        }
+        if (restaurants.isEmpty()) {
+            return new ParseResult(Collections.emptyList(), text.trim(), 0);
+        }
+        double confidence = (double) totalFound / (restaurants.size() * FIELD_COUNT);
+        String closingText = text.substring(items.get(items.size() - 1).end).trim();
+        return new ParseResult(restaurants, text.substring(listStart).trim(), confidence, itemTexts, closingText,
+            !numbered.isEmpty(), spaced);
+    }
+
+    // Display defaults for the fields ranking treats as unknown, applied once the list has been ranked
+    public static void fillDefaults(List<Restaurant> restaurants) {
+        for (Restaurant restaurant : restaurants) {
+            if (restaurant.getCuisine() == null) restaurant.setCuisine("Various");
+            if (restaurant.getLocation() == null) restaurant.setLocation("Unknown");
+            if (restaurant.getRating() == null) restaurant.setRating(4.0);
+            if (restaurant.getPriceRange() == null) restaurant.setPriceRange("$$");
+            if (restaurant.getDescription() == null) restaurant.setDescription("Recommended by AI.");
+        }
+    }
+
+    // Replaces the number of an item's "12." marker, keeping any emphasis around it
+    private static String renumber(String itemText, int number) {
+        int digitsStart = skipEmphasis(itemText, 0, itemText.length());
+        int digitsEnd = digitsStart;
+        while (digitsEnd < itemText.length() && isDigit(itemText.charAt(digitsEnd))) digitsEnd++;
+        return itemText.substring(0, digitsStart) + number + itemText.substring(digitsEnd);
+    }
+
+    // "12." or "12)" optionally wrapped in bold ("**1.**"), followed by whitespace; returns the content start
+    private static int numberedMarkerEnd(String text, int start, int end) {
+        int i = skipEmphasis(text, start, end);
+        int digitsStart = i;
+        while (i < end && i - digitsStart < 3 && isDigit(text.charAt(i))) i++;
+        if (i == digitsStart || i >= end) return -1;
+        char c = text.charAt(i);
+        if (c != '.' && c != ')') return -1;
+        i = skipEmphasis(text, i + 1, end);
+        if (i < end && !Character.isWhitespace(text.charAt(i))) return -1;
+        return skipSpaces(text, i, end);
+    }
+
+    // "-", "*", "+" or "•" followed by whitespace
+    private static int bulletMarkerEnd(String text, int start, int end) {
+        char c = text.charAt(start);
+        if (c != '-' && c != '*' && c != '+' && c != '•') return -1;
+        if (start + 1 >= end || !Character.isWhitespace(text.charAt(start + 1))) return -1;
+        return skipSpaces(text, start + 1, end);
+    }
+
+    // The first line of an item: pipe-delimited fields, or a name followed by details
+    private static void parseHeadline(String text, int start, int end, Item item) {
+        if (indexOf(text, '|', start, end) != -1) {
+            parsePipeFields(text, start, end, item);
+            return;
+        }
+
+        int nameStart;
+        int nameEnd;
+        int rest;
+        int boldEnd = boldSpanEnd(text, start, end);
+        if (boldEnd != -1) {
+            item.evidence = true;
+            nameStart = start + 2;
+            nameEnd = boldEnd;
+            rest = boldEnd + 2;
+        } else {
+            nameStart = start;
+            nameEnd = nameSeparator(text, start, end);
+            rest = nameEnd;
+        }
+
+        String name = cleanField(text, nameStart, nameEnd);
+        if (name.endsWith(":")) name = name.substring(0, name.length() - 1).trim();
+        if (name.isEmpty()) return;
+        item.name = name;
+
+        rest = skipSpaces(text, rest, end);
+        if (rest < end && text.charAt(rest) == '(') {
+            int close = indexOf(text, ')', rest, end);
+            if (close != -1) {
+                parseParenthetical(text, rest + 1, close, item);
+                rest = skipSpaces(text, close + 1, end);
+            }
+        }
+        rest = skipSeparator(text, rest, end);
+        if (rest < end) {
+            String description = cleanField(text, rest, end);
+            if (!description.isEmpty()) item.description = description;
+        }
+    }
+
+    private static void parsePipeFields(String text, int start, int end, Item item) {
+        int field = 0;
+        int fieldStart = start;
+        while (fieldStart <= end) {
+            int bar = indexOf(text, '|', fieldStart, end);
+            int fieldEnd = bar == -1 ? end : bar;
+            String value = cleanField(text, fieldStart, fieldEnd);
+            if (!value.isEmpty()) {
+                switch (field) {
+                    case 0: item.name = value; break;
+                    case 1: item.cuisine = value; break;
+                    case 2: item.location = value; break;
+                    case 3: item.rating = parseRating(value); break;
+                    case 4: item.priceRange = value; break;
+                    case 5: item.description = value; break;
+                    default: item.description = item.description == null ? value : item.description + " | " + value; break;
+                }
+            }
+            field++;
+            fieldStart = fieldEnd + 1;
+        }
+        // "Name | Cuisine | Location" at the least; a lone bar is just punctuation
+        if (field >= 3) item.evidence = true;
+    }
+
+    // "(Italian, $$, 4.5/5)" right after the name
+    private static void parseParenthetical(String text, int start, int end, Item item) {
+        int partStart = start;
+        while (partStart < end) {
+            int comma = indexOf(text, ',', partStart, end);
+            int partEnd = comma == -1 ? end : comma;
+            String part = cleanField(text, partStart, partEnd);
+            if (!part.isEmpty()) {
+                if (isPrice(part)) {
+                    item.priceRange = part;
+                    item.evidence = true;
+                } else if (item.rating == null && parseRating(part) != null && isDigit(part.charAt(0))) {
+                    item.rating = parseRating(part);
+                    item.evidence = true;
+                } else if (item.cuisine == null) {
+                    item.cuisine = part;
+                } else if (item.location == null) {
+                    item.location = part;
+                }
+            }
+            partStart = partEnd + 1;
+        }
+    }
+
+    private static boolean isDetail(String text, int start, int end) {
+        return detailKeyEnd(text, start, end) != -1;
+    }
+
+    // "Key: value" lines fill the matching field; other text extends the description
+    private static void parseDetail(String text, int start, int end, Item item) {
+        int colon = detailKeyEnd(text, start, end);
+        if (colon == -1) {
+            if (item.description == null) {
+                String description = cleanField(text, start, end);
+                if (!description.isEmpty()) item.description = description;
+            }
+            return;
+        }
+
+        String key = cleanField(text, start, colon).toLowerCase();
+        String value = cleanField(text, colon + 1, end);
+        if (value.isEmpty()) return;
+
+        boolean known = true;
+        if (key.startsWith("cuisine") || key.equals("type") || key.equals("food")) {
+            item.cuisine = value;
+        } else if (key.startsWith("location") || key.equals("area") || key.equals("neighborhood")
+            || key.equals("neighbourhood")) {
+            item.location = value;
+        } else if (key.startsWith("address")) {
+            item.address = value;
+            if (item.location == null) item.location = value;
+        } else if (key.startsWith("rating")) {
+            Double rating = parseRating(value);
+            if (rating != null) item.rating = rating;
+        } else if (key.startsWith("price") || key.equals("cost") || key.equals("budget")) {
+            item.priceRange = value;
+        } else if (key.startsWith("phone")) {
+            item.phone = value;
+        } else if (key.contains("hours")) {
+            item.openingHours = value;
+        } else {
+            known = false;
+            if (item.description == null) item.description = value;
+        }
+        if (known) item.evidence = true;
+    }
+
+    // Index of the colon ending a short "Key:" prefix (optionally bold), or -1
+    private static int detailKeyEnd(String text, int start, int end) {
+        int limit = Math.min(end, start + 32);
+        for (int i = start; i < limit; i++) {
+            char c = text.charAt(i);
+            if (c == ':') return i > start ? i : -1;
+            if (!Character.isLetter(c) && c != ' ' && c != '*' && c != '_') return -1;
+        }
+        return -1;
+    }
+
+    // First number in the value, accepted if it looks like a 0-5 rating ("4.5", "4.5/5", "4.5 stars")
+    static Double parseRating(String value) {
+        int i = 0;
+        int n = value.length();
+        while (i < n && !isDigit(value.charAt(i))) i++;
+        if (i == n) return null;
+        double whole = 0;
+        while (i < n && isDigit(value.charAt(i))) {
+            whole = whole * 10 + (value.charAt(i++) - '0');
+        }
+        if (i + 1 < n && value.charAt(i) == '.' && isDigit(value.charAt(i + 1))) {
+            i++;
+            double scale = 0.1;
+            while (i < n && isDigit(value.charAt(i))) {
+                whole += (value.charAt(i++) - '0') * scale;
+                scale /= 10;
+            }
+        }
+        return whole >= 0 && whole <= 5 ? whole : null;
+    }
+
+    private static boolean isPrice(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '$' && c != '€' && c != '£' && c != '¥') return false;
+        }
+        return true;
+    }
+
+    // End of a "**bold**" span starting at start, or -1
+    private static int boldSpanEnd(String text, int start, int end) {
+        if (start + 2 > end || !text.startsWith("**", start)) return -1;
+        for (int i = start + 2; i + 1 < end; i++) {
+            if (text.charAt(i) == '*' && text.charAt(i + 1) == '*') return i;
+        }
+        return -1;
+    }
+
+    // Name ends at " - ", " – ", " — " or ": ", whichever comes first
+    private static int nameSeparator(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == ':' && (i + 1 == end || text.charAt(i + 1) == ' ')) return i;
+            if ((c == '-' || c == '–' || c == '—') && i > start && text.charAt(i - 1) == ' '
+                && (i + 1 == end || text.charAt(i + 1) == ' ')) {
+                return i - 1;
+            }
+        }
+        return end;
+    }
+
+    private static int skipSeparator(String text, int start, int end) {
+        int i = skipSpaces(text, start, end);
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c == '-' || c == '–' || c == '—' || c == ':' || c == ',') {
+                i = skipSpaces(text, i + 1, end);
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    // Trims whitespace and markdown emphasis markers from both ends of the range
+    private static String cleanField(String text, int start, int end) {
+        while (start < end) {
+            char c = text.charAt(start);
+            if (Character.isWhitespace(c) || c == '*' || c == '_' || c == '`') start++;
+            else break;
+        }
+        while (end > start) {
+            char c = text.charAt(end - 1);
+            if (Character.isWhitespace(c) || c == '*' || c == '_' || c == '`') end--;
+            else break;
+        }
+        return text.substring(start, end);
+    }
+
+    // Bounded indexOf so a line scan never looks past the end of the line
+    private static int indexOf(String text, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) == c) return i;
+        }
+        return -1;
+    }
+
+    private static int skipEmphasis(String text, int start, int end) {
+        while (start < end && (text.charAt(start) == '*' || text.charAt(start) == '_')) start++;
+        return start;
+    }
+
+    private static int skipSpaces(String text, int start, int end) {
+        while (start < end && Character.isWhitespace(text.charAt(start))) start++;
+        return start;
+    }
+
+    private static int trimEnd(String text, int start, int end) {
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+        return end;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static Restaurant toRestaurant(Item item, long id) {
+        Restaurant r = new Restaurant();
+        r.setId(id);
+        r.setName(item.name);
+        r.setCuisine(item.cuisine);
+        r.setLocation(item.location);
+        r.setRating(item.rating);
+        r.setPriceRange(item.priceRange);
+        r.setDescription(item.description);
+        r.setAddress(item.address);
+        r.setPhone(item.phone);
+        r.setOpeningHours(item.openingHours);
+        return r;
+    }
+}
@@ -1,20 +1,47 @@
 package com.restaurant.recommendation.service;
 
+import com.restaurant.recommendation.logging.LogManager;
+import com.restaurant.recommendation.logging.Logger;
+
 public abstract class BaseService {
 
+  // Named after the concrete service; written asynchronously, see AsyncLogWriter
+  private final Logger logger = LogManager.getLogger(getClass());
+
   protected void logInfo(String message) {
-    System.out.println("[" + this.getClass().getSimpleName() + "] " + message);
+    logger.info(message);
+  }
+
+  protected void logInfo(String message, String key, Object value) {
+    logger.info(message, key, value);
+  }
+
+  protected void logInfo(String message, String key1, Object value1, String key2, Object value2) {
+    logger.info(message, key1, value1, key2, value2);
+  }
+
+  protected void logError(String message, Throwable e) {
+    logger.error(message, e);
   }
 
-  protected void logError(String message, Exception e) {
-    System.err.println("[" + this.getClass().getSimpleName() + "] ERROR: " + message);
-    if (e != null) {
-      e.printStackTrace();
-    }
+  protected void logError(String message, Throwable e, String key, Object value) {
+    logger.error(message, e, key, value);
   }
 
   protected void logDebug(String message) {
-    System.out.println("[" + this.getClass().getSimpleName() + "] DEBUG: " + message);
+    logger.debug(message);
+  }
+
+  protected void logDebug(String message, String key, Object value) {
+    logger.debug(message, key, value);
+  }
+
+  protected void logDebug(String message, String key1, Object value1, String key2, Object value2) {
+    logger.debug(message, key1, value1, key2, value2);
+  }
+
+  protected boolean isDebugEnabled() {
+    return logger.isDebugEnabled();
   }
 
   public abstract boolean isServiceHealthy();
@@ -0,0 +1,276 @@
+package com.restaurant.recommendation.service;
+
+import com.restaurant.recommendation.metrics.Metrics;
+import com.restaurant.recommendation.model.RecommendationRequest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+// Caches AI responses by normalized request fields and coalesces identical in-flight requests.
+// Only a session's first turn is cached or served from the cache, since later answers depend on the
+// conversation so far. An answer served from the cache, or shared with an identical request, is
+// still added to the caller's own history.
+public class CachingAIService extends BaseService implements IAIService {
+    private static final char KEY_SEPARATOR = '\u0001';
+
+    private final IAIService delegate;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    // Access-ordered for LRU eviction; guarded by itself
+    private final LinkedHashMap<String, CacheEntry> entries;
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private static class CacheEntry {
+        final String response;
+        final long expiresAtMillis;
+
+        CacheEntry(String response, long expiresAtMillis) {
+            this.response = response;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    public CachingAIService(IAIService delegate, int maxEntries, long ttlMillis) {
+        this(delegate, maxEntries, ttlMillis, System::currentTimeMillis);
+    }
+
+    CachingAIService(IAIService delegate, int maxEntries, long ttlMillis, LongSupplier clock) {
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                if (size() > CachingAIService.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        logInfo("Response cache initialized (maxEntries=" + maxEntries + ", ttl=" + ttlMillis + "ms)");
+    }
+
+    @Override
+    public CompletableFuture<String> getRecommendationAsync(RecommendationRequest request) {
+        String key = cacheKey(request);
+        if (key == null || delegate.hasHistory(request.getSessionId())) {
+            return delegate.getRecommendationAsync(request);
+        }
+
+        String cached = lookup(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            logDebug("Cache hit");
+            delegate.recordTurn(request, cached);
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        // Only one caller per key goes upstream; the rest share its result
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> leader = inFlight.putIfAbsent(key, pending);
+        if (leader != null) {
+            coalesced.incrementAndGet();
+            logDebug("Coalesced with in-flight request");
+            return leader.thenApply(response -> {
+                delegate.recordTurn(request, response);
+                return response;
+            });
+        }
+
+        // A previous leader may have filled the cache between our lookup and putIfAbsent
+        String response = lookup(key);
+        if (response != null) {
+            hits.incrementAndGet();
+            inFlight.remove(key, pending);
+            pending.complete(response);
+            delegate.recordTurn(request, response);
+            return pending;
+        }
+
+        misses.incrementAndGet();
+        CompletableFuture<String> upstream;
+        try {
+            upstream = delegate.getRecommendationAsync(request);
+        } catch (RuntimeException e) {
+            upstream = CompletableFuture.failedFuture(e);
+        }
+        upstream.whenComplete((result, error) -> {
+            if (error == null && isCacheable(result)) {
+                store(key, result);
+            }
+            inFlight.remove(key, pending);
+            if (error != null) {
+                pending.completeExceptionally(error);
+            } else {
+                pending.complete(result);
+            }
+        });
+        return pending.copy();
+    }
+
+    // Streams are not coalesced since every caller needs its own deltas,
+    // but a cached answer is replayed as a single delta
+    @Override
+    public CompletableFuture<String> streamRecommendation(RecommendationRequest request, Consumer<String> onDelta) {
+        String key = delegate.hasHistory(request.getSessionId()) ? null : cacheKey(request);
+        String cached = key != null ? lookup(key) : null;
+        if (cached != null) {
+            hits.incrementAndGet();
+            delegate.recordTurn(request, cached);
+            onDelta.accept(cached);
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        if (key != null) {
+            misses.incrementAndGet();
+        }
+        return delegate.streamRecommendation(request, onDelta).whenComplete((result, error) -> {
+            if (key != null && error == null && isCacheable(result)) {
+                store(key, result);
+            }
+        });
+    }
+
+    @Override
+    public String getCachedRecommendation(RecommendationRequest request) {
+        String key = cacheKey(request);
+        return key != null && !delegate.hasHistory(request.getSessionId()) ? lookup(key) : null;
+    }
+
+    @Override
+    public boolean hasHistory(String sessionId) {
+        return delegate.hasHistory(sessionId);
+    }
+
+    @Override
+    public void recordTurn(RecommendationRequest request, String response) {
+        delegate.recordTurn(request, response);
+    }
+
+    @Override
+    public void resetConversation(String sessionId) {
+        delegate.resetConversation(sessionId);
+    }
+
+    @Override
+    public String getCurrentLocation(String sessionId) {
+        return delegate.getCurrentLocation(sessionId);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return delegate.isAvailable();
+    }
+
+    @Override
+    public boolean isServiceHealthy() {
+        return delegate.isAvailable();
+    }
+
+    @Override
+    public String getServiceName() {
+        return "Cached AI Service";
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getCoalesced() { return coalesced.get(); }
+    public long getEvictions() { return evictions.get(); }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void registerMetrics() {
+        Metrics.REGISTRY.registerCounter("recommendation_ai_cache_hits_total", "AI responses served from the cache", this::getHits);
+        Metrics.REGISTRY.registerCounter("recommendation_ai_cache_misses_total", "AI requests that missed the cache", this::getMisses);
+        Metrics.REGISTRY.registerCounter("recommendation_ai_cache_coalesced_total", "AI requests joined to an identical in-flight request", this::getCoalesced);
+        Metrics.REGISTRY.registerCounter("recommendation_ai_cache_evictions_total", "Cache entries evicted to stay within capacity", this::getEvictions);
+        Metrics.REGISTRY.registerGauge("recommendation_ai_cache_entries", "Cached AI responses", this::size);
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    // Key is built from the fields that shape the prompt, lowercased with whitespace collapsed
+    static String cacheKey(RecommendationRequest request) {
+        if (request.getUserPreference() == null || request.getUserPreference().trim().isEmpty()) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(128);
+        appendNormalized(key, request.getUserPreference());
+        key.append(KEY_SEPARATOR);
+        appendNormalized(key, request.getLocation());
+        key.append(KEY_SEPARATOR);
+        appendNormalized(key, request.getCuisine());
+        key.append(KEY_SEPARATOR);
+        appendNormalized(key, request.getPriceRange());
+        key.append(KEY_SEPARATOR);
+        appendNormalized(key, request.getOccasion());
+        key.append(KEY_SEPARATOR);
+        appendNormalized(key, request.getCatalogContext());
+        return key.toString();
+    }
+
+    private static void appendNormalized(StringBuilder key, String value) {
+        if (value == null) return;
+        boolean pendingSpace = false;
+        int start = key.length();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = key.length() > start;
+                continue;
+            }
+            if (pendingSpace) {
+                key.append(' ');
+                pendingSpace = false;
+            }
+            key.append(Character.toLowerCase(c));
+        }
+    }
+
+    // Failures complete exceptionally and are never stored; empty answers are not worth replaying
+    private static boolean isCacheable(String response) {
+        return response != null && !response.isEmpty()
+            && !response.startsWith("No AI recommendation received.");
+    }
+
+    private String lookup(String key) {
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry == null) return null;
+            if (entry.expiresAtMillis < clock.getAsLong()) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.response;
+        }
+    }
+
+    private void store(String key, String response) {
+        CacheEntry entry = new CacheEntry(response, clock.getAsLong() + ttlMillis);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.restaurant.recommendation.service;
+
+import com.restaurant.recommendation.metrics.Metrics;
+
+import java.util.function.LongSupplier;
+
+// Count-based circuit breaker over the last windowSize calls.
+//  CLOSED     calls pass; opens once at least minimumCalls are recorded and either the failure
+//             rate or the slow-call rate reaches its threshold
+//  OPEN       calls are refused until openMillis has passed
+//  HALF_OPEN  up to halfOpenCalls trial calls pass; all succeeding closes the breaker,
+//             any failure or slow call opens it again
+public class CircuitBreaker extends BaseService {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final byte OK = 0;
+    private static final byte SLOW = 1;
+    private static final byte FAILED = 2;
+
+    private final String name;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallMillis;
+    private final double slowRateThreshold;
+    private final long openMillis;
+    private final int halfOpenCalls;
+    private final LongSupplier clock;
+
+    // Guarded by this
+    private final byte[] window;
+    private int windowCount;
+    private int windowNext;
+    private int failures;
+    private int slowCalls;
+    private State state = State.CLOSED;
+    private long openedAtMillis;
+    private int halfOpenStarted;
+    private int halfOpenSucceeded;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                          long slowCallMillis, double slowRateThreshold, long openMillis, int halfOpenCalls) {
+        this(name, windowSize, minimumCalls, failureRateThreshold, slowCallMillis, slowRateThreshold, openMillis,
+            halfOpenCalls, System::currentTimeMillis);
+    }
+
+    // clock returns the current time in milliseconds; tests pass their own to step through the open period
+    CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold, long slowCallMillis,
+                   double slowRateThreshold, long openMillis, int halfOpenCalls, LongSupplier clock) {
+        this.name = name;
+        this.clock = clock;
+        this.window = new byte[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallMillis = slowCallMillis;
+        this.slowRateThreshold = slowRateThreshold;
+        this.openMillis = openMillis;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        logInfo("Circuit breaker '" + name + "' initialized (window=" + windowSize + ", minCalls=" + minimumCalls
+            + ", failureRate=" + failureRateThreshold + ", slowCall=" + slowCallMillis + "ms, slowRate="
+            + slowRateThreshold + ", open=" + openMillis + "ms)");
+    }
+
+    // Returns false if the call should fail fast; a true result must be followed by onSuccess or onFailure
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAtMillis < openMillis) return false;
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenStarted >= halfOpenCalls) return false;
+            halfOpenStarted++;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess(long durationMillis) {
+        record(durationMillis > slowCallMillis ? SLOW : OK);
+    }
+
+    public synchronized void onFailure(long durationMillis) {
+        record(FAILED);
+    }
+
+    public synchronized State getState() {
+        // Report an expired OPEN as HALF_OPEN so health checks recover without waiting for traffic
+        if (state == State.OPEN && clock.getAsLong() - openedAtMillis >= openMillis) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public synchronized double getFailureRate() {
+        return windowCount == 0 ? 0.0 : (double) failures / windowCount;
+    }
+
+    public void registerMetrics() {
+        Metrics.REGISTRY.registerGauge("recommendation_breaker_state", "Circuit breaker state: 0 closed, 1 open, 2 half-open",
+            () -> getState().ordinal(), "breaker", name);
+        Metrics.REGISTRY.registerGauge("recommendation_breaker_failure_rate", "Failure rate over the breaker window",
+            this::getFailureRate, "breaker", name);
+    }
+
+    public synchronized double getSlowCallRate() {
+        return windowCount == 0 ? 0.0 : (double) slowCalls / windowCount;
+    }
+
+    private void record(byte outcome) {
+        if (state == State.HALF_OPEN) {
+            if (outcome != OK) {
+                transitionTo(State.OPEN);
+            } else if (++halfOpenSucceeded >= halfOpenCalls) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // A call admitted before the breaker opened; it says nothing about the recovery
+            return;
+        }
+
+        if (windowCount == window.length) {
+            byte evicted = window[windowNext];
+            if (evicted == FAILED) failures--;
+            if (evicted == SLOW) slowCalls--;
+        } else {
+            windowCount++;
+        }
+        window[windowNext] = outcome;
+        windowNext = (windowNext + 1) % window.length;
+        if (outcome == FAILED) failures++;
+        if (outcome == SLOW) slowCalls++;
+
+        if (windowCount >= minimumCalls
+            && ((double) failures / windowCount >= failureRateThreshold
+                || (double) slowCalls / windowCount >= slowRateThreshold)) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private void transitionTo(State next) {
+        logInfo("Circuit breaker '" + name + "' " + state + " -> " + next,
+            "failureRate", getFailureRate(), "slowRate", getSlowCallRate());
+        state = next;
+        halfOpenStarted = 0;
+        halfOpenSucceeded = 0;
+        if (next == State.OPEN) {
+            openedAtMillis = clock.getAsLong();
+        }
+        if (next == State.CLOSED) {
+            windowCount = 0;
+            windowNext = 0;
+            failures = 0;
+            slowCalls = 0;
+        }
+    }
+
+    @Override
+    public boolean isServiceHealthy() {
+        return getState() != State.OPEN;
+    }
+
+    @Override
+    public String getServiceName() {
+        return "Circuit Breaker (" + name + ")";
+    }
+}
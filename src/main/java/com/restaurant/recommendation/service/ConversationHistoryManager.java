@@ -0,0 +1,100 @@
+package com.restaurant.recommendation.service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Keeps each session's history within a prompt token budget. Turns that no longer fit are
+// evicted oldest first and folded into a rolling summary in the background, so a turn never
+// waits on summarization; the summary is sent right after the system prompt on later turns.
+public class ConversationHistoryManager extends BaseService {
+
+    public interface Summarizer {
+        // Returns previousSummary (may be null) extended with the given turns
+        CompletableFuture<String> summarize(String previousSummary, List<ConversationTurn> turns, int maxTokens);
+    }
+
+    private final int tokenBudget;
+    private final int minRecentTurns;
+    private final int summaryMaxTokens;
+    private final Summarizer summarizer;
+
+    public ConversationHistoryManager(int tokenBudget, int minRecentTurns, int summaryMaxTokens, Summarizer summarizer) {
+        this.tokenBudget = tokenBudget;
+        this.minRecentTurns = minRecentTurns;
+        this.summaryMaxTokens = summaryMaxTokens;
+        this.summarizer = summarizer;
+        logInfo("History manager initialized (tokenBudget=" + tokenBudget + ", minRecentTurns=" + minRecentTurns
+            + ", summaryMaxTokens=" + summaryMaxTokens + ")");
+    }
+
+    // Caller holds the session lock
+    public void compact(ConversationSession session) {
+        List<ConversationTurn> evicted = session.evictOldest(tokenBudget, minRecentTurns);
+        if (evicted.isEmpty()) return;
+
+        if (isDebugEnabled()) {
+            logDebug("Evicted turns", "session", session.getId(), "turns", evicted.size());
+        }
+        List<ConversationTurn> batch = session.queueForSummary(evicted);
+        if (batch != null) {
+            summarize(session, batch);
+        }
+    }
+
+    // Each finished summary picks up whatever was evicted meanwhile, so at most one runs per session
+    private void summarize(ConversationSession session, List<ConversationTurn> batch) {
+        String previous = session.getSummary();
+        CompletableFuture<String> summary;
+        try {
+            summary = summarizer.summarize(previous, batch, summaryMaxTokens);
+        } catch (RuntimeException e) {
+            summary = CompletableFuture.failedFuture(e);
+        }
+
+        summary.whenComplete((text, error) -> {
+            String next = text;
+            if (error != null || text == null || text.trim().isEmpty()) {
+                logDebug("Summarizer failed, using extractive summary", "session", session.getId());
+                next = extractiveSummary(previous, batch, summaryMaxTokens);
+            }
+            List<ConversationTurn> more = session.completeSummary(next.trim());
+            if (more != null) {
+                summarize(session, more);
+            }
+        });
+    }
+
+    // Local fallback: keeps the opening of each evicted user message, newest last, within maxTokens
+    static String extractiveSummary(String previous, List<ConversationTurn> turns, int maxTokens) {
+        StringBuilder summary = new StringBuilder();
+        if (previous != null && !previous.isEmpty()) {
+            summary.append(previous);
+        }
+        for (ConversationTurn turn : turns) {
+            if (turn.getRole() != ConversationTurn.Role.USER) continue;
+            String content = turn.getContent().trim();
+            int end = content.indexOf('\n');
+            if (end < 0) end = content.length();
+            if (end > 160) end = 160;
+            if (summary.length() > 0) summary.append(' ');
+            summary.append("User said: ").append(content, 0, end).append('.');
+        }
+
+        // Drop the oldest sentences until it fits; ~4 characters per token
+        int maxChars = maxTokens * 4;
+        if (summary.length() <= maxChars) return summary.toString();
+        int cut = summary.length() - maxChars;
+        int sentence = summary.indexOf("User said: ", cut);
+        return summary.substring(sentence >= 0 ? sentence : cut);
+    }
+
+    @Override
+    public boolean isServiceHealthy() {
+        return true;
+    }
+
+    @Override
+    public String getServiceName() {
+        return "Conversation History Manager";
+    }
+}
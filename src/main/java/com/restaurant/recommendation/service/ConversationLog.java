@@ -0,0 +1,668 @@
+package com.restaurant.recommendation.service;
+
+import com.restaurant.recommendation.metrics.Counter;
+import com.restaurant.recommendation.metrics.LatencyHistogram;
+import com.restaurant.recommendation.metrics.Metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Write-behind persistence for conversation sessions, so a restart doesn't lose them. Each session has
+// a directory, named by a hash of its id, holding an optional snapshot and numbered append-only logs:
+//
+//   <dir>/<ab>/<abcd...>/snapshot    state up to the start of log N, with N in its header
+//   <dir>/<ab>/<abcd...>/N.log       records since; older logs are leftovers from compaction
+//
+// Request threads only encode a record and queue it. One writer thread appends records as they
+// arrive and forces the logs it touched at most every flushMillis, so many turns share one fsync and
+// a request never waits on the disk. Once a log passes compactBytes the writer folds the snapshot and
+// logs into a new snapshot and moves on to log N+1; the snapshot is swapped in atomically, so a crash
+// leaves either the old snapshot with its logs or the new one.
+//
+// Sessions are read back on first access after a restart or eviction. The writer does the read, in
+// queue order, so it sees every record queued before it; sessions with nothing on disk skip the queue.
+public class ConversationLog extends BaseService {
+    private static final int SNAPSHOT_MAGIC = 0x52434e56; // "RCNV"
+    private static final int VERSION = 1;
+    private static final String SNAPSHOT = "snapshot";
+    private static final String LOG_SUFFIX = ".log";
+
+    private static final byte TYPE_TURN = 1;
+    private static final byte TYPE_EVICT = 2;
+    private static final byte TYPE_SUMMARY = 3;
+    private static final byte TYPE_LOCATION = 4;
+
+    // Record: int payload length, int crc32 of the payload, payload
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MAX_OPEN_LOGS = 256;
+    private static final int MAX_BATCH = 1024;
+    private static final long SWEEP_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long IDLE_POLL_MILLIS = 1000;
+
+    private final Path directory;
+    private final long flushMillis;
+    private final long compactBytes;
+    private final long retentionMillis;
+    private final LinkedBlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+    // Keys of sessions with anything on disk or queued for it
+    private final Set<String> known = ConcurrentHashMap.newKeySet();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Writer thread only
+    private final Map<String, SessionFiles> open = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SessionFiles> eldest) {
+            if (size() <= MAX_OPEN_LOGS) return false;
+            closeQuietly(eldest.getValue());
+            return true;
+        }
+    };
+    private final List<SessionFiles> unforced = new ArrayList<>();
+    private final CRC32 crc = new CRC32();
+
+    private final Counter recordsWritten = Metrics.REGISTRY.counter("recommendation_conversation_log_records_total",
+        "Conversation records appended to session logs");
+    private final Counter writeErrors = Metrics.REGISTRY.counter("recommendation_conversation_log_errors_total",
+        "Conversation log reads and writes that failed");
+    private final Counter rehydrated = Metrics.REGISTRY.counter("recommendation_conversation_rehydrated_total",
+        "Conversation sessions read back from disk");
+    private final Counter compactions = Metrics.REGISTRY.counter("recommendation_conversation_log_compactions_total",
+        "Session logs folded into snapshots");
+    private final LatencyHistogram fsyncLatency = Metrics.REGISTRY.histogram("recommendation_conversation_log_fsync_seconds",
+        "Time to force one batch of session logs to disk");
+
+    public ConversationLog(Path directory, long flushMillis, long compactBytes, long retentionMillis) throws IOException {
+        this.directory = directory;
+        this.flushMillis = flushMillis;
+        this.compactBytes = compactBytes;
+        this.retentionMillis = retentionMillis;
+
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> fans = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path fan : fans) {
+                try (DirectoryStream<Path> sessions = Files.newDirectoryStream(fan, Files::isDirectory)) {
+                    for (Path session : sessions) {
+                        known.add(session.getFileName().toString());
+                    }
+                }
+            }
+        }
+
+        writer = new Thread(this::runWriter, "conversation-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        logInfo("ConversationLog initialized (dir=" + directory + ", sessions=" + known.size() + ", flush=" + flushMillis
+            + "ms, compactBytes=" + compactBytes + ")");
+    }
+
+    // Persisted state of one session
+    static class State {
+        String location;
+        String summary;
+        final List<ConversationTurn> turns = new ArrayList<>();
+        // Evicted turns not yet covered by the summary
+        final List<ConversationTurn> unsummarized = new ArrayList<>();
+    }
+
+    // Stable file name for a session id; ids are arbitrary strings
+    static String key(String sessionId) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(sessionId.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    void appendTurn(String key, ConversationTurn.Role role, String content) {
+        Record record = new Record(TYPE_TURN);
+        record.putByte(role.ordinal());
+        record.putString(content);
+        append(key, record);
+    }
+
+    void appendEvict(String key, int turns) {
+        Record record = new Record(TYPE_EVICT);
+        record.putInt(turns);
+        append(key, record);
+    }
+
+    // coveredTurns evicted turns are now part of the summary
+    void appendSummary(String key, int coveredTurns, String summary) {
+        Record record = new Record(TYPE_SUMMARY);
+        record.putInt(coveredTurns);
+        record.putString(summary);
+        append(key, record);
+    }
+
+    void appendLocation(String key, String location) {
+        Record record = new Record(TYPE_LOCATION);
+        record.putString(location);
+        append(key, record);
+    }
+
+    // Returns null if the session has nothing on disk or can't be read. Blocks until the writer gets to it.
+    State load(String key) {
+        if (!known.contains(key) || !running) return null;
+        Task task = new Task(Task.LOAD, key, null);
+        queue.add(task);
+        State state = task.loaded.join();
+        if (state != null) rehydrated.increment();
+        return state;
+    }
+
+    // True if the session has anything on disk or queued for it
+    boolean contains(String key) {
+        return known.contains(key);
+    }
+
+    void delete(String key) {
+        if (known.remove(key)) {
+            queue.add(new Task(Task.DELETE, key, null));
+        }
+    }
+
+    private void append(String key, Record record) {
+        if (!running) return;
+        known.add(key);
+        queue.add(new Task(Task.APPEND, key, record.toBytes()));
+    }
+
+    // Stops the writer once everything queued so far is on disk. The writer is woken with a task rather
+    // than interrupted, since an interrupt closes any FileChannel it's in the middle of using.
+    public void close(long timeoutMillis) {
+        running = false;
+        queue.add(new Task(Task.WAKE, null, null));
+        try {
+            writer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void registerMetrics() {
+        Metrics.REGISTRY.registerGauge("recommendation_conversation_log_queued",
+            "Conversation records waiting for the log writer", queue::size);
+    }
+
+    private void runWriter() {
+        long lastForce = System.nanoTime();
+        // The first sweep runs at startup, for sessions that expired while the server was down
+        long nextSweep = System.currentTimeMillis();
+        while (running || !queue.isEmpty()) {
+            long wait = unforced.isEmpty() ? IDLE_POLL_MILLIS
+                : Math.max(0, flushMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastForce));
+            Task task = null;
+            try {
+                task = queue.poll(wait, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            for (int batch = 0; task != null && batch < MAX_BATCH; batch++) {
+                process(task);
+                task = queue.poll();
+            }
+            if (task != null) process(task);
+
+            if (!unforced.isEmpty()
+                && (!running || System.nanoTime() - lastForce >= TimeUnit.MILLISECONDS.toNanos(flushMillis))) {
+                forceAll();
+                lastForce = System.nanoTime();
+            }
+            if (System.currentTimeMillis() >= nextSweep) {
+                sweepExpired();
+                nextSweep = System.currentTimeMillis() + SWEEP_INTERVAL_MILLIS;
+            }
+        }
+        forceAll();
+        for (SessionFiles files : open.values()) {
+            closeQuietly(files);
+        }
+        open.clear();
+    }
+
+    private void process(Task task) {
+        try {
+            switch (task.kind) {
+                case Task.APPEND:
+                    writeRecord(files(task.key), task.record);
+                    break;
+                case Task.LOAD:
+                    task.loaded.complete(read(files(task.key)));
+                    break;
+                case Task.DELETE:
+                    SessionFiles files = open.remove(task.key);
+                    if (files != null) {
+                        closeQuietly(files);
+                        unforced.remove(files);
+                    }
+                    deleteRecursively(sessionDirectory(task.key));
+                    break;
+                default:
+                    break;
+            }
+        } catch (IOException | RuntimeException e) {
+            writeErrors.increment();
+            logError("Conversation log " + (task.kind == Task.LOAD ? "read" : "write") + " failed", e, "session", task.key);
+            SessionFiles files = open.remove(task.key);
+            if (files != null) {
+                closeQuietly(files);
+                unforced.remove(files);
+            }
+            if (task.kind == Task.LOAD) task.loaded.complete(null);
+        }
+    }
+
+    private SessionFiles files(String key) throws IOException {
+        SessionFiles files = open.get(key);
+        if (files == null) {
+            files = new SessionFiles(sessionDirectory(key));
+            open.put(key, files);
+        }
+        return files;
+    }
+
+    private Path sessionDirectory(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private void writeRecord(SessionFiles files, byte[] record) throws IOException {
+        if (files.channel == null) {
+            openLog(files);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            files.channel.write(buffer);
+        }
+        files.logBytes += record.length;
+        recordsWritten.increment();
+        if (!files.unforced) {
+            files.unforced = true;
+            unforced.add(files);
+        }
+        if (files.logBytes >= compactBytes) {
+            compact(files);
+        }
+    }
+
+    // Appends continue the newest log, cut back to its last whole record if the last run died mid-write
+    private void openLog(SessionFiles files) throws IOException {
+        Files.createDirectories(files.directory);
+        Path log = files.directory.resolve(files.generation + LOG_SUFFIX);
+        FileChannel channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long valid = 0;
+        if (channel.size() > 0) {
+            valid = replay(ByteBuffer.wrap(Files.readAllBytes(log)), null);
+            if (valid < channel.size()) {
+                channel.truncate(valid);
+            }
+        }
+        channel.position(valid);
+        files.channel = channel;
+        files.logBytes = valid;
+    }
+
+    // Folds the snapshot and logs into a new snapshot; the next append starts a new log
+    private void compact(SessionFiles files) throws IOException {
+        forceAll();
+        State state = read(files);
+        closeQuietly(files);
+        long next = files.generation + 1;
+        writeSnapshot(files.directory, state, next);
+        for (long generation : files.logs) {
+            Files.deleteIfExists(files.directory.resolve(generation + LOG_SUFFIX));
+        }
+        files.logs.clear();
+        files.logs.add(next);
+        files.generation = next;
+        files.logBytes = 0;
+        compactions.increment();
+    }
+
+    private State read(SessionFiles files) throws IOException {
+        if (!Files.isDirectory(files.directory)) return null;
+        State state = new State();
+        Path snapshot = files.directory.resolve(SNAPSHOT);
+        if (Files.exists(snapshot)) {
+            readSnapshot(ByteBuffer.wrap(Files.readAllBytes(snapshot)), state);
+        }
+        for (long generation : files.logs) {
+            Path log = files.directory.resolve(generation + LOG_SUFFIX);
+            if (Files.exists(log)) {
+                replay(ByteBuffer.wrap(Files.readAllBytes(log)), state);
+            }
+        }
+        return state;
+    }
+
+    // Applies whole, intact records to state (if given) and returns where they end
+    private int replay(ByteBuffer buffer, State state) {
+        while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                buffer.position(start);
+                break;
+            }
+            int end = buffer.position() + length;
+            if (state != null) apply(buffer, state);
+            buffer.position(end);
+        }
+        return buffer.position();
+    }
+
+    private static void apply(ByteBuffer buffer, State state) {
+        byte type = buffer.get();
+        switch (type) {
+            case TYPE_TURN:
+                state.turns.add(readTurn(buffer));
+                break;
+            case TYPE_EVICT:
+                List<ConversationTurn> evicted = state.turns.subList(0, Math.min(buffer.getInt(), state.turns.size()));
+                state.unsummarized.addAll(evicted);
+                evicted.clear();
+                break;
+            case TYPE_SUMMARY:
+                int covered = Math.min(buffer.getInt(), state.unsummarized.size());
+                state.unsummarized.subList(0, covered).clear();
+                state.summary = readString(buffer);
+                break;
+            case TYPE_LOCATION:
+                state.location = readString(buffer);
+                break;
+            default:
+                throw new IllegalStateException("Unknown conversation record type " + type);
+        }
+    }
+
+    // Snapshot: int magic, int version, long first log generation, int payload length, int crc32, payload
+    private void writeSnapshot(Path sessionDirectory, State state, long nextGeneration) throws IOException {
+        Record payload = new Record();
+        payload.putString(state.location);
+        payload.putString(state.summary);
+        payload.putInt(state.turns.size());
+        for (ConversationTurn turn : state.turns) payload.putTurn(turn);
+        payload.putInt(state.unsummarized.size());
+        for (ConversationTurn turn : state.unsummarized) payload.putTurn(turn);
+        byte[] body = payload.toBytes();
+
+        ByteBuffer header = ByteBuffer.allocate(16);
+        header.putInt(SNAPSHOT_MAGIC).putInt(VERSION).putLong(nextGeneration).flip();
+        Path temp = sessionDirectory.resolve(SNAPSHOT + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] buffers = {header, ByteBuffer.wrap(body)};
+            while (buffers[1].hasRemaining()) {
+                channel.write(buffers);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, sessionDirectory.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void readSnapshot(ByteBuffer buffer, State state) throws IOException {
+        if (buffer.remaining() < 16 || buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a conversation snapshot (version " + VERSION + ")");
+        }
+        buffer.getLong();
+        if (replay(buffer.slice(), null) != buffer.remaining()) {
+            throw new IOException("Corrupt conversation snapshot");
+        }
+        buffer.position(buffer.position() + RECORD_HEADER_BYTES);
+        state.location = readString(buffer);
+        state.summary = readString(buffer);
+        for (int count = buffer.getInt(); count > 0; count--) state.turns.add(readTurn(buffer));
+        for (int count = buffer.getInt(); count > 0; count--) state.unsummarized.add(readTurn(buffer));
+    }
+
+    private static ConversationTurn readTurn(ByteBuffer buffer) {
+        ConversationTurn.Role role = ConversationTurn.Role.values()[buffer.get()];
+        return new ConversationTurn(role, readString(buffer));
+    }
+
+    // -1 length is null
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    // One fsync per log touched since the last one, however many records it got
+    private void forceAll() {
+        if (unforced.isEmpty()) return;
+        long start = System.nanoTime();
+        for (SessionFiles files : unforced) {
+            files.unforced = false;
+            if (files.channel == null) continue;
+            try {
+                files.channel.force(false);
+            } catch (IOException e) {
+                writeErrors.increment();
+                logError("Conversation log fsync failed", e, "dir", files.directory);
+            }
+        }
+        unforced.clear();
+        fsyncLatency.recordSince(start);
+    }
+
+    // Deletes sessions untouched for longer than the retention period
+    private void sweepExpired() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        int deleted = 0;
+        try (DirectoryStream<Path> fans = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path fan : fans) {
+                try (DirectoryStream<Path> sessions = Files.newDirectoryStream(fan, Files::isDirectory)) {
+                    for (Path session : sessions) {
+                        String key = session.getFileName().toString();
+                        if (open.containsKey(key) || lastModified(session) >= cutoff) continue;
+                        known.remove(key);
+                        deleteRecursively(session);
+                        deleted++;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            writeErrors.increment();
+            logError("Conversation log sweep failed", e);
+        }
+        if (deleted > 0) {
+            logInfo("Deleted expired conversation logs", "sessions", deleted);
+        }
+    }
+
+    private static long lastModified(Path sessionDirectory) throws IOException {
+        long newest = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(sessionDirectory)) {
+            for (Path file : files) {
+                newest = Math.max(newest, Files.getLastModifiedTime(file).toMillis());
+            }
+        }
+        return newest;
+    }
+
+    private static void deleteRecursively(Path sessionDirectory) throws IOException {
+        if (!Files.isDirectory(sessionDirectory)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(sessionDirectory)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(sessionDirectory);
+    }
+
+    private void closeQuietly(SessionFiles files) {
+        if (files.channel == null) return;
+        try {
+            if (files.unforced) files.channel.force(false);
+            files.channel.close();
+        } catch (IOException e) {
+            writeErrors.increment();
+            logError("Conversation log close failed", e, "dir", files.directory);
+        }
+        files.channel = null;
+    }
+
+    @Override
+    public boolean isServiceHealthy() {
+        return writer.isAlive();
+    }
+
+    @Override
+    public String getServiceName() {
+        return "Conversation Log";
+    }
+
+    // Open state of one session's directory; writer thread only
+    private static class SessionFiles {
+        final Path directory;
+        // Logs to replay after the snapshot, oldest first; appends go to the last
+        final List<Long> logs = new ArrayList<>();
+        long generation;
+        FileChannel channel;
+        long logBytes;
+        boolean unforced;
+
+        SessionFiles(Path directory) throws IOException {
+            this.directory = directory;
+            if (!Files.isDirectory(directory)) {
+                logs.add(0L);
+                return;
+            }
+            long first = 0;
+            Path snapshot = directory.resolve(SNAPSHOT);
+            if (Files.exists(snapshot)) {
+                try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+                    ByteBuffer header = ByteBuffer.allocate(16);
+                    while (header.hasRemaining() && channel.read(header) >= 0) {
+                    }
+                    header.flip();
+                    if (header.remaining() == 16) first = header.getLong(8);
+                }
+            }
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + LOG_SUFFIX)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    long generation = Long.parseLong(name.substring(0, name.length() - LOG_SUFFIX.length()));
+                    // Leftovers from a compaction cut short
+                    if (generation < first) {
+                        Files.deleteIfExists(file);
+                    } else {
+                        logs.add(generation);
+                    }
+                }
+            }
+            Collections.sort(logs);
+            if (logs.isEmpty()) logs.add(first);
+            generation = logs.get(logs.size() - 1);
+        }
+    }
+
+    private static class Task {
+        static final int APPEND = 0;
+        static final int LOAD = 1;
+        static final int DELETE = 2;
+        static final int WAKE = 3;
+
+        final int kind;
+        final String key;
+        final byte[] record;
+        final CompletableFuture<State> loaded;
+
+        Task(int kind, String key, byte[] record) {
+            this.kind = kind;
+            this.key = key;
+            this.record = record;
+            this.loaded = kind == LOAD ? new CompletableFuture<>() : null;
+        }
+    }
+
+    // Encodes a record (or a snapshot body) with its length and checksum in front
+    private static class Record {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        Record() {
+        }
+
+        Record(byte type) {
+            putByte(type);
+        }
+
+        void putByte(int value) {
+            try {
+                out.writeByte(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void putInt(int value) {
+            try {
+                out.writeInt(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void putString(String value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            putInt(utf8.length);
+            bytes.write(utf8, 0, utf8.length);
+        }
+
+        void putTurn(ConversationTurn turn) {
+            putByte(turn.getRole().ordinal());
+            putString(turn.getContent());
+        }
+
+        byte[] toBytes() {
+            byte[] payload = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.length)
+                .putInt(payload.length).putInt((int) crc.getValue()).put(payload).array();
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.restaurant.recommendation.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+public class ConversationSession {
+    private final String id;
+    // One turn at a time per session. Waiting turns queue as futures instead of parked threads, and a
+    // turn can be released from whichever thread its completion arrives on. Guarded by lockWaiters.
+    private boolean locked;
+    private final ArrayDeque<CompletableFuture<Void>> lockWaiters = new ArrayDeque<>();
+    // Requests using the session; the store never evicts a pinned session
+    private final AtomicInteger pins = new AtomicInteger();
+    private final AtomicLong storeChars;
+    // Where changes are persisted, if anywhere; cleared on release so a discarded session writes nothing more
+    private volatile ConversationLog log;
+    private final String logKey;
+
+    // Guarded by the turn lock
+    private final List<ConversationTurn> turns = new ArrayList<>();
+    private long chars;
+    private long tokens;
+
+    // Rolling summary of evicted turns; written by the background summarizer, so not under the turn lock
+    private volatile String summary;
+    private volatile int summaryTokens;
+    // Guarded by summaryLock: evicted turns not yet folded into the summary
+    private final Object summaryLock = new Object();
+    private final List<ConversationTurn> pendingSummary = new ArrayList<>();
+    private boolean summarizing;
+    private int summarizingTurns;
+    // Set by reset while a summary is being written; that summary covers turns that are gone
+    private boolean discardSummary;
+
+    private volatile String location;
+    // Set by the first turn, so emptiness can be read without the turn lock
+    private volatile boolean started;
+    private volatile long lastAccessMillis;
+    private final LongSupplier clock;
+
+    ConversationSession(String id, AtomicLong storeChars) {
+        this(id, storeChars, null, System::currentTimeMillis);
+    }
+
+    ConversationSession(String id, AtomicLong storeChars, ConversationLog log, LongSupplier clock) {
+        this.id = id;
+        this.storeChars = storeChars;
+        this.log = log;
+        this.logKey = log != null ? ConversationLog.key(id) : null;
+        this.clock = clock;
+        this.lastAccessMillis = clock.getAsLong();
+    }
+
+    public String getId() { return id; }
+    public String getLocation() { return location; }
+    public void setLocation(String location) {
+        if (Objects.equals(this.location, location)) return;
+        this.location = location;
+        ConversationLog log = this.log;
+        if (log != null) log.appendLocation(logKey, location);
+    }
+
+    public long getLastAccessMillis() { return lastAccessMillis; }
+
+    // Completes once the caller holds the turn lock: immediately if the session is idle, otherwise on
+    // the thread that releases it to this caller
+    public CompletableFuture<Void> lockAsync() {
+        CompletableFuture<Void> waiter;
+        synchronized (lockWaiters) {
+            if (locked) {
+                waiter = new CompletableFuture<>();
+                lockWaiters.add(waiter);
+                return waiter;
+            }
+            locked = true;
+        }
+        touch();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // Hands the lock straight to the next waiter, if any
+    public void unlock() {
+        touch();
+        CompletableFuture<Void> next;
+        synchronized (lockWaiters) {
+            next = lockWaiters.poll();
+            if (next == null) {
+                locked = false;
+                return;
+            }
+        }
+        next.complete(null);
+    }
+
+    boolean tryLock() {
+        synchronized (lockWaiters) {
+            if (locked) return false;
+            locked = true;
+            return true;
+        }
+    }
+
+    void pin() {
+        pins.incrementAndGet();
+    }
+
+    // Every acquire from the store must be matched by one unpin once the request is done with the session
+    public void unpin() {
+        pins.decrementAndGet();
+    }
+
+    boolean isPinned() {
+        return pins.get() > 0;
+    }
+
+    void touch() {
+        lastAccessMillis = clock.getAsLong();
+    }
+
+    // Callers must hold the session lock for the methods below
+    public List<ConversationTurn> getTurns() {
+        return Collections.unmodifiableList(turns);
+    }
+
+    public void addTurn(ConversationTurn.Role role, String content) {
+        ConversationTurn turn = new ConversationTurn(role, content);
+        turns.add(turn);
+        started = true;
+        tokens += turn.getTokens();
+        adjustChars(turn.getContent().length());
+        ConversationLog log = this.log;
+        if (log != null) log.appendTurn(logKey, role, turn.getContent());
+    }
+
+    // Removes the oldest turns until the turns plus summary fit tokenBudget, always keeping at least
+    // minTurns; where possible the kept history starts on a user turn. Returns the removed turns, oldest first.
+    public List<ConversationTurn> evictOldest(long tokenBudget, int minTurns) {
+        int keepFrom = 0;
+        long remaining = tokens + summaryTokens;
+        while (remaining > tokenBudget && turns.size() - keepFrom > minTurns) {
+            remaining -= turns.get(keepFrom++).getTokens();
+        }
+        while (keepFrom > 0 && turns.size() - keepFrom > minTurns
+            && turns.get(keepFrom).getRole() != ConversationTurn.Role.USER) {
+            keepFrom++;
+        }
+        if (keepFrom == 0) return Collections.emptyList();
+
+        List<ConversationTurn> removed = turns.subList(0, keepFrom);
+        List<ConversationTurn> evicted = new ArrayList<>(removed);
+        long removedChars = 0;
+        for (ConversationTurn turn : evicted) {
+            removedChars += turn.getContent().length();
+            tokens -= turn.getTokens();
+        }
+        removed.clear();
+        adjustChars(-removedChars);
+        ConversationLog log = this.log;
+        if (log != null) log.appendEvict(logKey, evicted.size());
+        return evicted;
+    }
+
+    boolean isEmpty() {
+        return !started && location == null;
+    }
+
+    public long getChars() {
+        return chars;
+    }
+
+    public long getTokens() {
+        return tokens;
+    }
+
+    public String getSummary() {
+        return summary;
+    }
+
+    public int getSummaryTokens() {
+        return summaryTokens;
+    }
+
+    // Queues evicted turns for summarization. Returns the batch the caller should summarize now,
+    // or null if a summary is already being produced (the turns join the next batch).
+    List<ConversationTurn> queueForSummary(List<ConversationTurn> evicted) {
+        synchronized (summaryLock) {
+            pendingSummary.addAll(evicted);
+            if (summarizing) return null;
+            return drainPendingSummary();
+        }
+    }
+
+    // Installs a finished summary and returns the next batch to summarize, or null if none is waiting
+    List<ConversationTurn> completeSummary(String newSummary) {
+        synchronized (summaryLock) {
+            if (newSummary != null && !discardSummary) {
+                summary = newSummary;
+                summaryTokens = TokenEstimator.estimateMessage(newSummary);
+                ConversationLog log = this.log;
+                if (log != null) log.appendSummary(logKey, summarizingTurns, newSummary);
+            }
+            summarizing = false;
+            discardSummary = false;
+            return pendingSummary.isEmpty() ? null : drainPendingSummary();
+        }
+    }
+
+    private List<ConversationTurn> drainPendingSummary() {
+        List<ConversationTurn> batch = new ArrayList<>(pendingSummary);
+        pendingSummary.clear();
+        summarizing = true;
+        summarizingTurns = batch.size();
+        return batch;
+    }
+
+    // Loads persisted state into a new session before it's shared; nothing is logged again
+    void restore(ConversationLog.State state) {
+        location = state.location;
+        started = !state.turns.isEmpty() || state.summary != null || !state.unsummarized.isEmpty();
+        for (ConversationTurn turn : state.turns) {
+            turns.add(turn);
+            tokens += turn.getTokens();
+            adjustChars(turn.getContent().length());
+        }
+        synchronized (summaryLock) {
+            summary = state.summary;
+            summaryTokens = state.summary != null ? TokenEstimator.estimateMessage(state.summary) : 0;
+            // Summarized along with the next evicted turns
+            pendingSummary.addAll(state.unsummarized);
+        }
+    }
+
+    // Starts the conversation over and deletes what was persisted. Unlike release the session stays
+    // usable, since other requests may hold it pinned. Caller holds the turn lock.
+    void reset() {
+        location = null;
+        started = false;
+        adjustChars(-chars);
+        tokens = 0;
+        turns.clear();
+        synchronized (summaryLock) {
+            pendingSummary.clear();
+            summary = null;
+            summaryTokens = 0;
+            discardSummary = summarizing;
+        }
+        ConversationLog log = this.log;
+        if (log != null) log.delete(logKey);
+    }
+
+    void release() {
+        log = null;
+        storeChars.addAndGet(-chars);
+        chars = 0;
+        tokens = 0;
+        turns.clear();
+        synchronized (summaryLock) {
+            pendingSummary.clear();
+            summary = null;
+            summaryTokens = 0;
+        }
+    }
+
+    private void adjustChars(long delta) {
+        chars += delta;
+        storeChars.addAndGet(delta);
+    }
+}
@@ -0,0 +1,215 @@
+package com.restaurant.recommendation.service;
+
+import com.restaurant.recommendation.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+public class ConversationStore extends BaseService {
+    public static final String DEFAULT_SESSION_ID = "default";
+    private static final int MAX_SESSION_ID_LENGTH = 128;
+
+    private final ConcurrentHashMap<String, ConversationSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong totalChars = new AtomicLong();
+    private final long idleTtlMillis;
+    private final int maxSessions;
+    private final long maxTotalChars;
+    private final ScheduledExecutorService sweeper;
+    // Null when sessions live in memory only
+    private final ConversationLog log;
+    private final LongSupplier clock;
+
+    public ConversationStore() {
+        this(TimeUnit.MINUTES.toMillis(30), 10_000, 50_000_000L);
+    }
+
+    public ConversationStore(long idleTtlMillis, int maxSessions, long maxTotalChars) {
+        this(idleTtlMillis, maxSessions, maxTotalChars, null);
+    }
+
+    // With a log, sessions evicted from memory or lost to a restart are read back on next use
+    public ConversationStore(long idleTtlMillis, int maxSessions, long maxTotalChars, ConversationLog log) {
+        this(idleTtlMillis, maxSessions, maxTotalChars, log, System::currentTimeMillis);
+    }
+
+    // clock returns the current time in milliseconds; tests pass their own to age sessions
+    ConversationStore(long idleTtlMillis, int maxSessions, long maxTotalChars, ConversationLog log, LongSupplier clock) {
+        this.clock = clock;
+        this.idleTtlMillis = idleTtlMillis;
+        this.log = log;
+        this.maxSessions = maxSessions;
+        this.maxTotalChars = maxTotalChars;
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "conversation-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTtlMillis / 2, TimeUnit.MINUTES.toMillis(1)));
+        sweeper.scheduleAtFixedRate(this::sweepExpired, period, period, TimeUnit.MILLISECONDS);
+
+        logInfo("ConversationStore initialized (ttl=" + idleTtlMillis + "ms, maxSessions=" + maxSessions +
+            ", maxChars=" + maxTotalChars + ", persistent=" + (log != null) + ")");
+    }
+
+    // Returns the session for the id, creating it on first use. The session comes back pinned, so it
+    // can't be evicted while the caller uses it; the caller must unpin it when done.
+    public ConversationSession acquire(String sessionId) {
+        String id = normalizeId(sessionId);
+        ConversationSession session = pinIfPresent(id);
+        if (session == null) {
+            // Loaded outside the map so a slow read doesn't hold up other sessions; if two requests race,
+            // the loser's copy is dropped
+            ConversationSession created = newSession(id);
+            session = sessions.compute(id, (key, existing) -> {
+                ConversationSession winner = existing != null ? existing : created;
+                winner.pin();
+                return winner;
+            });
+            if (session != created) {
+                created.release();
+            }
+        }
+        session.touch();
+
+        if (sessions.size() > maxSessions || totalChars.get() > maxTotalChars) {
+            enforceCapacity();
+        }
+        return session;
+    }
+
+    // Pinning inside the map operation is what keeps it atomic with evict's conditional removal
+    private ConversationSession pinIfPresent(String id) {
+        return sessions.computeIfPresent(id, (key, existing) -> {
+            existing.pin();
+            return existing;
+        });
+    }
+
+    private ConversationSession newSession(String id) {
+        ConversationSession session = new ConversationSession(id, totalChars, log, clock);
+        if (log != null) {
+            ConversationLog.State state = log.load(ConversationLog.key(id));
+            if (state != null) session.restore(state);
+        }
+        return session;
+    }
+
+    // Returns the session if it's in memory, without creating or loading one
+    public ConversationSession peek(String sessionId) {
+        return sessions.get(normalizeId(sessionId));
+    }
+
+    // True if the session has turns, a summary or a location, in memory or on disk
+    public boolean hasHistory(String sessionId) {
+        String id = normalizeId(sessionId);
+        ConversationSession session = sessions.get(id);
+        if (session != null) return !session.isEmpty();
+        return log != null && log.contains(ConversationLog.key(id));
+    }
+
+    // Cleared in place rather than dropped, since other requests may hold the session pinned; a turn
+    // in flight finishes first, and turns queued behind this one start from an empty history
+    public void remove(String sessionId) {
+        String id = normalizeId(sessionId);
+        ConversationSession session = pinIfPresent(id);
+        if (session == null) {
+            if (log != null) log.delete(ConversationLog.key(id));
+            return;
+        }
+        session.lockAsync().thenRun(() -> {
+            try {
+                session.reset();
+            } finally {
+                session.unlock();
+                session.unpin();
+            }
+        });
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public long getTotalChars() {
+        return totalChars.get();
+    }
+
+    // Exposes this store's gauges; called once for the server's store, so other instances can't replace them
+    public void registerMetrics() {
+        Metrics.REGISTRY.registerGauge("recommendation_conversation_sessions", "Live conversation sessions", this::size);
+        Metrics.REGISTRY.registerGauge("recommendation_conversation_chars", "Characters held across all conversation histories", this::getTotalChars);
+    }
+
+    public static String normalizeId(String sessionId) {
+        if (sessionId == null || sessionId.trim().isEmpty()) {
+            return DEFAULT_SESSION_ID;
+        }
+        String id = sessionId.trim();
+        return id.length() > MAX_SESSION_ID_LENGTH ? id.substring(0, MAX_SESSION_ID_LENGTH) : id;
+    }
+
+    void sweepExpired() {
+        long cutoff = clock.getAsLong() - idleTtlMillis;
+        int evicted = 0;
+        for (ConversationSession session : sessions.values()) {
+            if (session.getLastAccessMillis() < cutoff && evict(session)) {
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            logDebug("Evicted idle sessions", "evicted", evicted, "remaining", sessions.size());
+        }
+    }
+
+    // Evicts least recently used sessions until both the session and character caps are met.
+    // Only runs when a cap is exceeded, so the sort is off the common path.
+    private synchronized void enforceCapacity() {
+        if (sessions.size() <= maxSessions && totalChars.get() <= maxTotalChars) return;
+
+        List<ConversationSession> candidates = new ArrayList<>(sessions.values());
+        candidates.sort(Comparator.comparingLong(ConversationSession::getLastAccessMillis));
+
+        int evicted = 0;
+        for (ConversationSession session : candidates) {
+            if (sessions.size() <= maxSessions && totalChars.get() <= maxTotalChars) break;
+            if (evict(session)) evicted++;
+        }
+        logInfo("Capacity reached, evicted sessions", "evicted", evicted);
+    }
+
+    // Sessions in use are skipped; a persisted session stays on disk
+    private boolean evict(ConversationSession session) {
+        if (session.isPinned() || !session.tryLock()) return false;
+        try {
+            boolean[] removed = new boolean[1];
+            sessions.computeIfPresent(session.getId(), (key, existing) -> {
+                if (existing != session || existing.isPinned()) return existing;
+                removed[0] = true;
+                return null;
+            });
+            if (!removed[0]) return false;
+            session.release();
+            return true;
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @Override
+    public boolean isServiceHealthy() {
+        return !sweeper.isShutdown();
+    }
+
+    @Override
+    public String getServiceName() {
+        return "Conversation Store";
+    }
+}
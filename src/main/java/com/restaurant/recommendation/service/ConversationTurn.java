@@ -0,0 +1,20 @@
+package com.restaurant.recommendation.service;
+
+public class ConversationTurn {
+    public enum Role { USER, ASSISTANT }
+
+    private final Role role;
+    private final String content;
+    // Estimated once here so budgeting the history never rescans old messages
+    private final int tokens;
+
+    public ConversationTurn(Role role, String content) {
+        this.role = role;
+        this.content = content != null ? content : "";
+        this.tokens = TokenEstimator.estimateMessage(this.content);
+    }
+
+    public Role getRole() { return role; }
+    public String getContent() { return content; }
+    public int getTokens() { return tokens; }
+}
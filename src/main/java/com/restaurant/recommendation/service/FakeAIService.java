@@ -0,0 +1,181 @@
+package com.restaurant.recommendation.service;
+
+import com.restaurant.recommendation.geo.LocationExtractor;
+import com.restaurant.recommendation.model.RecommendationRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// In-process stand-in for Azure OpenAI (ai.provider=fake) for offline load and capacity testing.
+// Answers after a sampled delay without holding a thread, streams word-sized tokens at a fixed
+// pace, and fails a configurable fraction of calls.
+public class FakeAIService extends BaseService implements IAIService {
+    private final ConversationStore conversationStore;
+    private final LatencyDistribution latency;
+    private final long tokenDelayMillis;
+    private final double errorRate;
+    private final ScheduledExecutorService scheduler;
+
+    public FakeAIService(ConversationStore conversationStore, LatencyDistribution latency,
+                         long tokenDelayMillis, double errorRate) {
+        this.conversationStore = conversationStore;
+        this.latency = latency;
+        this.tokenDelayMillis = tokenDelayMillis;
+        this.errorRate = errorRate;
+
+        // Stream deltas are written to the client on these threads, so keep more than one
+        AtomicInteger threadCount = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread thread = new Thread(r, "fake-ai-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logInfo("Fake AI Service initialized (latency=" + latency + ", tokenDelay=" + tokenDelayMillis
+            + "ms, errorRate=" + errorRate + ")");
+    }
+
+    @Override
+    public CompletableFuture<String> getRecommendationAsync(RecommendationRequest request) {
+        String location = rememberLocation(request);
+        CompletableFuture<String> result = new CompletableFuture<>();
+        scheduler.schedule(() -> {
+            if (shouldFail()) {
+                result.completeExceptionally(new IllegalStateException("Simulated upstream failure"));
+            } else {
+                result.complete(cannedResponse(location, request.getCuisine()));
+            }
+        }, latency.sampleMillis(), TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    // The sampled latency is the time to first token; tokens then follow every tokenDelayMillis
+    @Override
+    public CompletableFuture<String> streamRecommendation(RecommendationRequest request, Consumer<String> onDelta) {
+        String response = cannedResponse(rememberLocation(request), request.getCuisine());
+        List<String> tokens = tokenize(response);
+        CompletableFuture<String> result = new CompletableFuture<>();
+        scheduler.schedule(() -> emitToken(tokens, 0, onDelta, response, result),
+            latency.sampleMillis(), TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    private void emitToken(List<String> tokens, int index, Consumer<String> onDelta,
+                           String response, CompletableFuture<String> result) {
+        if (index == 0 && shouldFail()) {
+            result.completeExceptionally(new IllegalStateException("Simulated upstream failure"));
+            return;
+        }
+        if (index == tokens.size()) {
+            result.complete(response);
+            return;
+        }
+        try {
+            onDelta.accept(tokens.get(index));
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        scheduler.schedule(() -> emitToken(tokens, index + 1, onDelta, response, result),
+            tokenDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private boolean shouldFail() {
+        return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+
+    // Only the location is kept per session; the canned answer doesn't depend on history
+    private String rememberLocation(RecommendationRequest request) {
+        ConversationSession session = conversationStore.acquire(request.getSessionId());
+        try {
+            String extracted = LocationExtractor.extract(request.getUserPreference());
+            if (extracted != null) {
+                session.setLocation(extracted);
+            }
+            if (request.getLocation() != null && !request.getLocation().trim().isEmpty()) {
+                session.setLocation(request.getLocation());
+            }
+            return session.getLocation();
+        } finally {
+            session.unpin();
+        }
+    }
+
+    @Override
+    public boolean hasHistory(String sessionId) {
+        return conversationStore.hasHistory(sessionId);
+    }
+
+    @Override
+    public void recordTurn(RecommendationRequest request, String response) {
+        rememberLocation(request);
+    }
+
+    @Override
+    public void resetConversation(String sessionId) {
+        conversationStore.remove(sessionId);
+    }
+
+    @Override
+    public String getCurrentLocation(String sessionId) {
+        ConversationSession session = conversationStore.peek(sessionId);
+        return session != null ? session.getLocation() : null;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return !scheduler.isShutdown();
+    }
+
+    @Override
+    public boolean isServiceHealthy() {
+        return isAvailable();
+    }
+
+    @Override
+    public String getServiceName() {
+        return "Fake AI Service";
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // A numbered list in the same shape the real model tends to produce, so parsing costs are realistic
+    public static String cannedResponse(String location, String cuisine) {
+        String where = location != null && !location.trim().isEmpty() ? location.trim() : "your area";
+        String food = cuisine != null && !cuisine.trim().isEmpty() ? cuisine.trim() : "Fusion";
+        return "Here are a few places in " + where + " you might enjoy:\n\n"
+            + "1. **Golden Lantern** (" + food + ", $$, 4.5/5)\n"
+            + "   - Location: 120 Market Street, " + where + "\n"
+            + "   - Known for hand-pulled noodles and a lively dining room.\n\n"
+            + "2. **Blue Fig Kitchen** (" + food + ", $$$, 4.7/5)\n"
+            + "   - Location: 48 Orchard Avenue, " + where + "\n"
+            + "   - Seasonal tasting menu; book ahead on weekends.\n\n"
+            + "3. **Corner Ember** (" + food + ", $, 4.2/5)\n"
+            + "   - Location: 7 Station Road, " + where + "\n"
+            + "   - Casual spot with generous portions and quick service.\n\n"
+            + "Let me know if you'd like more options or a different price range!";
+    }
+
+    // Splits text into word-sized tokens, each keeping its leading whitespace, like model deltas
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>(text.length() / 4 + 1);
+        int start = 0;
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            while (i < length && Character.isWhitespace(text.charAt(i))) i++;
+            while (i < length && !Character.isWhitespace(text.charAt(i))) i++;
+            tokens.add(text.substring(start, i));
+            start = i;
+        }
+        return tokens;
+    }
+}
@@ -2,9 +2,41 @@ package com.restaurant.recommendation.service;
 
 import com.restaurant.recommendation.model.RecommendationRequest;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
 public interface IAIService {
-  String getRecommendation(RecommendationRequest request);
-  void resetConversation();
-  String getCurrentLocation();
+  // Completes exceptionally if the upstream call fails
+  CompletableFuture<String> getRecommendationAsync(RecommendationRequest request);
+  // Pushes text deltas to onDelta as they arrive and completes with the full response
+  CompletableFuture<String> streamRecommendation(RecommendationRequest request, Consumer<String> onDelta);
+  void resetConversation(String sessionId);
+  String getCurrentLocation(String sessionId);
   boolean isAvailable();
+
+  // A previously served answer for an equivalent request, or null; never calls upstream
+  default String getCachedRecommendation(RecommendationRequest request) {
+    return null;
+  }
+
+  // Whether anything in the session (turns, summary or location) shapes the next answer; only
+  // answers to a session's first turn are shared between sessions
+  default boolean hasHistory(String sessionId) {
+    return true;
+  }
+
+  // Adds a turn answered without calling upstream (from a cache) to the session's history
+  default void recordTurn(RecommendationRequest request, String response) {
+  }
+
+  // Blocking variant that reports failures as an "AI error:" message
+  default String getRecommendation(RecommendationRequest request) {
+    try {
+      return getRecommendationAsync(request).join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause() != null ? e.getCause() : e;
+      return "AI error: " + cause.getMessage();
+    }
+  }
 }
@@ -3,7 +3,14 @@ package com.restaurant.recommendation.service;
 import com.restaurant.recommendation.model.RecommendationRequest;
 import com.restaurant.recommendation.model.RecommendationResponse;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
 public interface IRecommendationService {
   RecommendationResponse getRecommendations(RecommendationRequest request);
-  void resetService();
+  CompletableFuture<RecommendationResponse> getRecommendationsAsync(RecommendationRequest request);
+  // Pushes the answer's text to onDelta as it's produced; a fallback answer arrives as a single delta
+  CompletableFuture<RecommendationResponse> streamRecommendations(RecommendationRequest request, Consumer<String> onDelta);
+  void resetService(String sessionId);
+  boolean isServiceHealthy();
 }
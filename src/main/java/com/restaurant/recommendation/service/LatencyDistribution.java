@@ -0,0 +1,77 @@
+package com.restaurant.recommendation.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Samples simulated upstream latencies. Specs look like
+//   fixed:200            always 200ms
+//   uniform:100-400      evenly spread between 100 and 400ms
+//   lognormal:800,3000   median 800ms, p99 3000ms (long right tail, like real LLM calls)
+public class LatencyDistribution {
+    // z-score of the 99th percentile of a standard normal
+    private static final double Z_99 = 2.3263;
+
+    private enum Kind { FIXED, UNIFORM, LOGNORMAL }
+
+    private final Kind kind;
+    private final double a;
+    private final double b;
+    private final String spec;
+
+    private LatencyDistribution(Kind kind, double a, double b, String spec) {
+        this.kind = kind;
+        this.a = a;
+        this.b = b;
+        this.spec = spec;
+    }
+
+    public static LatencyDistribution parse(String spec) {
+        String trimmed = spec.trim().toLowerCase();
+        int colon = trimmed.indexOf(':');
+        if (colon < 0) {
+            return new LatencyDistribution(Kind.FIXED, Double.parseDouble(trimmed), 0, spec);
+        }
+
+        String name = trimmed.substring(0, colon);
+        String args = trimmed.substring(colon + 1);
+        switch (name) {
+            case "fixed":
+                return new LatencyDistribution(Kind.FIXED, Double.parseDouble(args), 0, spec);
+            case "uniform": {
+                int dash = args.indexOf('-');
+                if (dash < 0) throw new IllegalArgumentException("uniform latency needs min-max: " + spec);
+                double min = Double.parseDouble(args.substring(0, dash));
+                double max = Double.parseDouble(args.substring(dash + 1));
+                if (max < min) throw new IllegalArgumentException("uniform max below min: " + spec);
+                return new LatencyDistribution(Kind.UNIFORM, min, max, spec);
+            }
+            case "lognormal": {
+                int comma = args.indexOf(',');
+                if (comma < 0) throw new IllegalArgumentException("lognormal latency needs median,p99: " + spec);
+                double median = Double.parseDouble(args.substring(0, comma));
+                double p99 = Double.parseDouble(args.substring(comma + 1));
+                if (median <= 0 || p99 < median) throw new IllegalArgumentException("lognormal needs 0 < median <= p99: " + spec);
+                // mu and sigma of the underlying normal
+                return new LatencyDistribution(Kind.LOGNORMAL, Math.log(median), Math.log(p99 / median) / Z_99, spec);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+        }
+    }
+
+    public long sampleMillis() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (kind) {
+            case UNIFORM:
+                return Math.round(a + random.nextDouble() * (b - a));
+            case LOGNORMAL:
+                return Math.round(Math.exp(a + b * random.nextGaussian()));
+            default:
+                return Math.round(a);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -1,97 +1,244 @@
 package com.restaurant.recommendation.service;
 
 import com.restaurant.recommendation.model.RecommendationRequest;
-import com.azure.ai.openai.OpenAIClient;
+import com.azure.ai.openai.OpenAIAsyncClient;
 import com.azure.ai.openai.OpenAIClientBuilder;
 import com.azure.ai.openai.models.*;
 import com.azure.core.credential.AzureKeyCredential;
+import com.azure.core.http.policy.ExponentialBackoffOptions;
+import com.azure.core.http.policy.RetryOptions;
+import com.restaurant.recommendation.core.AppConfig;
+import com.restaurant.recommendation.geo.LocationExtractor;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 public class OpenAIService extends BaseService implements IAIService {
+    private static final String SYSTEM_PROMPT = "You are a friendly and helpful AI assistant who can help with restaurant recommendations and general conversation. " +
+        "When helping with restaurants:\n" +
+        "- Remember location information the user provides (don't ask repeatedly)\n" +
+        "- Only recommend restaurants in their specified location\n" +
+        "- Match their taste preferences and dietary needs\n" +
+        "- Provide helpful details about restaurants\n" +
+        "\nConversation style:\n" +
+        "- Be conversational and natural\n" +
+        "- Answer follow-up questions about restaurants or other topics\n" +
+        "- If they ask non-restaurant questions, feel free to help with those too\n" +
+        "- Ask clarifying questions when helpful\n" +
+        "- Be concise but informative\n" +
+        "\nRemember: You're having a conversation with a person, not just generating restaurant lists!";
+    private static final int SYSTEM_PROMPT_TOKENS = TokenEstimator.estimateMessage(SYSTEM_PROMPT);
+
+    private static final String SUMMARY_PROMPT = "You maintain a running summary of a conversation between a user and a " +
+        "restaurant recommendation assistant. Merge the previous summary with the new messages into one short paragraph. " +
+        "Keep the user's location, cuisine and dietary preferences, budget, occasions, and restaurants already suggested " +
+        "or rejected. Leave out greetings and filler.";
+
     private String azureApiKey;
     private String azureEndpoint;
     private String azureDeployment;
-    private OpenAIClient client;
+    private OpenAIAsyncClient client;
 
-    // Add conversation history storage
-    private List<ChatRequestMessage> conversationHistory = new ArrayList<>();
-    private String currentUserLocation = null; // Store user location
+    // Conversation history and location are kept per session
+    private final ConversationStore conversationStore;
+    private final ConversationHistoryManager historyManager;
+    // Every Azure call goes through here so bursts queue instead of tripping the rate limit
+    private final UpstreamDispatcher dispatcher;
 
     public OpenAIService() {
-        loadProperties();
+        this(new ConversationStore());
+    }
+
+    public OpenAIService(ConversationStore conversationStore) {
+        this.conversationStore = conversationStore;
+        AppConfig config = AppConfig.load();
+        loadProperties(config);
         initializeClient();
-        initializeConversation();
+        this.dispatcher = new UpstreamDispatcher(
+            config.getInt("upstream.initial.limit", 8),
+            config.getInt("upstream.min.limit", 1),
+            config.getInt("upstream.max.inflight", 32),
+            config.getInt("upstream.queue.size", 500),
+            config.getLong("upstream.queue.timeout.ms", 15_000),
+            config.getInt("upstream.max.retries", 3),
+            config.getLong("upstream.retry.base.ms", 250),
+            config.getLong("upstream.retry.max.ms", 8_000),
+            config.getDouble("upstream.latency.tolerance", 2.0));
+        this.historyManager = new ConversationHistoryManager(
+            config.getInt("conversation.history.token.budget", 1500),
+            config.getInt("conversation.history.min.turns", 4),
+            config.getInt("conversation.summary.max.tokens", 200),
+            this::summarize);
         logInfo("OpenAI Service initialized");
     }
 
+    // Exposes the upstream dispatcher's gauges and counters
+    public void registerMetrics() {
+        dispatcher.registerMetrics();
+    }
+
     @Override
-    public String getRecommendation(RecommendationRequest request) {
-        logInfo("Getting AI recommendation");
+    public CompletableFuture<String> getRecommendationAsync(RecommendationRequest request) {
+        logDebug("Getting AI recommendation", "session", request.getSessionId());
+
+        if (client == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException(
+                "Azure OpenAI client not initialized. Please check API key and endpoint."));
+        }
 
-        try {
-            if (client == null) {
-                return "Error: Azure OpenAI client not initialized. Please check API key and endpoint.";
+        // The session stays locked until the completion arrives so turns in one chat stay ordered; a turn
+        // behind another in the same session waits as a queued future, not a blocked thread
+        ConversationSession session = conversationStore.acquire(request.getSessionId());
+        CompletableFuture<String> result = session.lockAsync().thenCompose(locked -> {
+            ChatCompletionsOptions options = prepareTurn(session, request);
+            return dispatcher.submit(() -> client.getChatCompletions(azureDeployment, options).toFuture())
+                .thenApply(chatCompletions -> completeTurn(session, chatCompletions));
+        });
+
+        return result.whenComplete((response, error) -> {
+            session.unlock();
+            session.unpin();
+            if (error != null) {
+                logError("Error getting AI recommendation", error, "session", session.getId());
             }
+        });
+    }
+
+    @Override
+    public CompletableFuture<String> streamRecommendation(RecommendationRequest request, Consumer<String> onDelta) {
+        logDebug("Streaming AI recommendation", "session", request.getSessionId());
 
-            String userInput = request.getUserPreference();
-            extractAndSaveLocation(userInput);
+        if (client == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException(
+                "Azure OpenAI client not initialized. Please check API key and endpoint."));
+        }
 
-            if (request.getLocation() != null && !request.getLocation().trim().isEmpty()) {
-                currentUserLocation = request.getLocation();
+        ConversationSession session = conversationStore.acquire(request.getSessionId());
+        CompletableFuture<String> result = session.lockAsync().thenCompose(locked -> {
+            ChatCompletionsOptions options = prepareTurn(session, request);
+            // A stream is only retried if it failed before any text reached the client
+            AtomicBoolean emitted = new AtomicBoolean();
+            return dispatcher.submitStream(firstToken -> {
+                CompletableFuture<String> attempt = new CompletableFuture<>();
+                StringBuilder text = new StringBuilder();
+                client.getChatCompletionsStream(azureDeployment, options).subscribe(
+                    chunk -> {
+                        String delta = extractDelta(chunk);
+                        if (delta != null && !delta.isEmpty()) {
+                            if (!emitted.getAndSet(true)) firstToken.run();
+                            text.append(delta);
+                            onDelta.accept(delta);
+                        }
+                    },
+                    attempt::completeExceptionally,
+                    () -> attempt.complete(text.toString()));
+                return attempt;
+            }, () -> !emitted.get())
+                .thenApply(text -> text.isEmpty() ? "No AI recommendation received." : recordResponse(session, text));
+        });
+
+        return result.whenComplete((response, error) -> {
+            session.unlock();
+            session.unpin();
+            if (error != null) {
+                logError("Error streaming AI recommendation", error, "session", session.getId());
             }
+        });
+    }
 
-            String contextualMessage = createContextualPrompt(request);
-            conversationHistory.add(new ChatRequestUserMessage(contextualMessage));
+    // Streaming chunks carry the new text in the delta; the first chunk may have no choices at all
+    private static String extractDelta(ChatCompletions chunk) {
+        if (chunk.getChoices() == null || chunk.getChoices().isEmpty()) return null;
+        ChatResponseMessage delta = chunk.getChoices().get(0).getDelta();
+        return delta != null ? delta.getContent() : null;
+    }
 
-            logDebug("Current saved location: " + currentUserLocation);
-            logDebug("User input: " + userInput);
-            logDebug("Conversation history length: " + conversationHistory.size());
+    // Records the user's turn and builds the completion options; caller holds the session lock
+    private ChatCompletionsOptions prepareTurn(ConversationSession session, RecommendationRequest request) {
+        addUserTurn(session, request);
 
-            ChatCompletionsOptions options = new ChatCompletionsOptions(conversationHistory);
-            options.setTemperature(0.7);
-            options.setTopP(0.9);
-            options.setMaxTokens(500);
+        if (isDebugEnabled()) {
+            logDebug("Prepared turn", "session", session.getId(), "location", session.getLocation());
+            logDebug("Conversation history", "messages", session.getTurns().size() + 1,
+                "promptTokens", SYSTEM_PROMPT_TOKENS + session.getSummaryTokens() + session.getTokens());
+        }
 
-            ChatCompletions chatCompletions = client.getChatCompletions(azureDeployment, options);
-            if (chatCompletions.getChoices() != null && !chatCompletions.getChoices().isEmpty()) {
-                String response = chatCompletions.getChoices().get(0).getMessage().getContent();
+        ChatCompletionsOptions options = new ChatCompletionsOptions(buildMessages(session, request.getCatalogContext()));
+        options.setTemperature(0.7);
+        options.setTopP(0.9);
+        options.setMaxTokens(500);
+        return options;
+    }
 
-                conversationHistory.add(new ChatRequestAssistantMessage(response));
+    private void addUserTurn(ConversationSession session, RecommendationRequest request) {
+        String userInput = request.getUserPreference();
+        String extractedLocation = LocationExtractor.extract(userInput);
+        if (extractedLocation != null) {
+            session.setLocation(extractedLocation);
+            logDebug("Detected user location", "location", extractedLocation);
+        }
 
-                // Limit conversation history length to avoid token limit
-                if (conversationHistory.size() > 20) {
-                    List<ChatRequestMessage> trimmedHistory = new ArrayList<>();
-                    trimmedHistory.add(conversationHistory.get(0)); // System message
-                    trimmedHistory.addAll(conversationHistory.subList(conversationHistory.size() - 15, conversationHistory.size()));
-                    conversationHistory = trimmedHistory;
-                }
+        if (request.getLocation() != null && !request.getLocation().trim().isEmpty()) {
+            session.setLocation(request.getLocation());
+        }
 
-                logInfo("AI response received successfully");
-                return response;
-            }
+        String contextualMessage = createContextualPrompt(request, session.getLocation());
+        session.addTurn(ConversationTurn.Role.USER, contextualMessage);
+        historyManager.compact(session);
+    }
+
+    // Records the assistant's turn; runs on the SDK callback thread while the session is still locked
+    private String completeTurn(ConversationSession session, ChatCompletions chatCompletions) {
+        if (chatCompletions.getChoices() == null || chatCompletions.getChoices().isEmpty()) {
             return "No AI recommendation received.";
-        } catch (Exception e) {
-            logError("Error getting AI recommendation", e);
-            return "AI error: " + e.getMessage();
         }
+        return recordResponse(session, chatCompletions.getChoices().get(0).getMessage().getContent());
+    }
+
+    private String recordResponse(ConversationSession session, String response) {
+        session.addTurn(ConversationTurn.Role.ASSISTANT, response);
+
+        // Keep the history within the prompt token budget; older turns move into the summary
+        historyManager.compact(session);
+
+        logInfo("AI response received", "session", session.getId());
+        return response;
+    }
+
+    @Override
+    public boolean hasHistory(String sessionId) {
+        return conversationStore.hasHistory(sessionId);
     }
 
+    // Adds an answer served without a completion to the history, in turn order like any other
     @Override
-    public void resetConversation() {
-        conversationHistory.clear();
-        currentUserLocation = null;
-        initializeConversation();
-        logInfo("Conversation history has been reset");
+    public void recordTurn(RecommendationRequest request, String response) {
+        ConversationSession session = conversationStore.acquire(request.getSessionId());
+        session.lockAsync().thenRun(() -> {
+            try {
+                addUserTurn(session, request);
+                session.addTurn(ConversationTurn.Role.ASSISTANT, response);
+                historyManager.compact(session);
+            } finally {
+                session.unlock();
+                session.unpin();
+            }
+        });
+    }
+
+    @Override
+    public void resetConversation(String sessionId) {
+        conversationStore.remove(sessionId);
+        logInfo("Conversation history has been reset", "session", ConversationStore.normalizeId(sessionId));
     }
 
     @Override
-    public String getCurrentLocation() {
-        return currentUserLocation;
+    public String getCurrentLocation(String sessionId) {
+        ConversationSession session = conversationStore.peek(sessionId);
+        return session != null ? session.getLocation() : null;
     }
 
     @Override
@@ -109,61 +256,57 @@ public class OpenAIService extends BaseService implements IAIService {
         return "Azure OpenAI Service";
     }
 
-    // Initialize conversation with system message
-    private void initializeConversation() {
-        String systemMessage = "You are a friendly and helpful AI assistant who can help with restaurant recommendations and general conversation. " +
-            "When helping with restaurants:\n" +
-            "- Remember location information the user provides (don't ask repeatedly)\n" +
-            "- Only recommend restaurants in their specified location\n" +
-            "- Match their taste preferences and dietary needs\n" +
-            "- Provide helpful details about restaurants\n" +
-            "\nConversation style:\n" +
-            "- Be conversational and natural\n" +
-            "- Answer follow-up questions about restaurants or other topics\n" +
-            "- If they ask non-restaurant questions, feel free to help with those too\n" +
-            "- Ask clarifying questions when helpful\n" +
-            "- Be concise but informative\n" +
-            "\nRemember: You're having a conversation with a person, not just generating restaurant lists!";
-
-        conversationHistory.add(new ChatRequestSystemMessage(systemMessage));
-    }
-
-    private void extractAndSaveLocation(String userInput) {
-        if (userInput == null) return;
-
-        String lowerInput = userInput.toLowerCase();
-
-        boolean isFoodRelated = lowerInput.contains("food") || lowerInput.contains("restaurant") ||
-            lowerInput.contains("eat") || lowerInput.contains("dining") ||
-            lowerInput.contains("spicy") || lowerInput.contains("cuisine");
-
-        if (!isFoodRelated) return;
-
-        if (lowerInput.contains("san jose")) {
-            currentUserLocation = "San Jose, CA";
-            logDebug("Detected user location: " + currentUserLocation);
-        } else if (lowerInput.contains(" in ") || lowerInput.contains(" at ")) {
-            int inIndex = lowerInput.indexOf(" in ");
-            int atIndex = lowerInput.indexOf(" at ");
-            int index = -1;
-
-            if (inIndex > 0 && (atIndex == -1 || inIndex < atIndex)) {
-                index = inIndex + 4;
-            } else if (atIndex > 0) {
-                index = atIndex + 4;
-            }
-
-            if (index > 0) {
-                String extractedLocation = userInput.substring(index).trim();
-                if (extractedLocation.length() > 2 && !extractedLocation.contains("?")) {
-                    currentUserLocation = extractedLocation;
-                    logDebug("Extracted user location: " + currentUserLocation);
+    // Build the request messages: system prompt, summary of evicted turns, then the session's turns.
+    // Per-turn context (catalog matches) goes just before the newest user turn and is not kept.
+    private List<ChatRequestMessage> buildMessages(ConversationSession session, String context) {
+        List<ConversationTurn> turns = session.getTurns();
+        List<ChatRequestMessage> messages = new ArrayList<>(turns.size() + 3);
+        messages.add(new ChatRequestSystemMessage(SYSTEM_PROMPT));
+        String summary = session.getSummary();
+        if (summary != null && !summary.isEmpty()) {
+            messages.add(new ChatRequestSystemMessage("Summary of the earlier conversation: " + summary));
+        }
+        for (int i = 0; i < turns.size(); i++) {
+            ConversationTurn turn = turns.get(i);
+            if (turn.getRole() == ConversationTurn.Role.USER) {
+                if (i == turns.size() - 1 && context != null) {
+                    messages.add(new ChatRequestSystemMessage(context));
                 }
+                messages.add(new ChatRequestUserMessage(turn.getContent()));
+            } else {
+                messages.add(new ChatRequestAssistantMessage(turn.getContent()));
             }
         }
+        return messages;
     }
 
-    private String createContextualPrompt(RecommendationRequest request) {
+    // Asks the model to fold evicted turns into the running summary; runs off the request path
+    private CompletableFuture<String> summarize(String previousSummary, List<ConversationTurn> turns, int maxTokens) {
+        if (client == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Azure OpenAI client not initialized"));
+        }
+
+        StringBuilder transcript = new StringBuilder();
+        transcript.append("Previous summary: ").append(previousSummary != null ? previousSummary : "(none)");
+        transcript.append("\n\nNew messages:");
+        for (ConversationTurn turn : turns) {
+            transcript.append('\n').append(turn.getRole() == ConversationTurn.Role.USER ? "User: " : "Assistant: ")
+                .append(turn.getContent());
+        }
+
+        List<ChatRequestMessage> messages = new ArrayList<>(2);
+        messages.add(new ChatRequestSystemMessage(SUMMARY_PROMPT));
+        messages.add(new ChatRequestUserMessage(transcript.toString()));
+        ChatCompletionsOptions options = new ChatCompletionsOptions(messages);
+        options.setTemperature(0.2);
+        options.setMaxTokens(maxTokens);
+
+        return dispatcher.submit(() -> client.getChatCompletions(azureDeployment, options).toFuture())
+            .thenApply(completions -> completions.getChoices() == null || completions.getChoices().isEmpty()
+                ? null : completions.getChoices().get(0).getMessage().getContent());
+    }
+
+    static String createContextualPrompt(RecommendationRequest request, String location) {
         StringBuilder prompt = new StringBuilder();
 
         String userInput = request.getUserPreference();
@@ -171,35 +314,28 @@ public class OpenAIService extends BaseService implements IAIService {
             prompt.append(userInput);
 
             String lowerInput = userInput.toLowerCase();
-            if (currentUserLocation != null && !currentUserLocation.trim().isEmpty() &&
+            if (location != null && !location.trim().isEmpty() &&
                 (lowerInput.contains("restaurant") || lowerInput.contains("food") ||
                     lowerInput.contains("eat") || lowerInput.contains("recommend"))) {
-                prompt.append("\n\n[Context: User location is ").append(currentUserLocation).append("]");
+                prompt.append("\n\n[Context: User location is ").append(location).append("]");
             }
         }
 
         return prompt.toString();
     }
 
-    private void loadProperties() {
-        Properties props = new Properties();
-        try (InputStream input = getClass().getClassLoader().getResourceAsStream("application.properties")) {
-            if (input != null) {
-                props.load(input);
-                azureApiKey = props.getProperty("azure.openai.api.key");
-                azureEndpoint = props.getProperty("azure.openai.endpoint");
-                azureDeployment = props.getProperty("azure.openai.deployment");
+    // -Dazure.openai.endpoint=http://localhost:8089/ points the client at FakeAzureOpenAIServer
+    private void loadProperties(AppConfig config) {
+        azureApiKey = config.getString("azure.openai.api.key", null);
+        azureEndpoint = config.getString("azure.openai.endpoint", null);
+        azureDeployment = config.getString("azure.openai.deployment", null);
 
-                logInfo("Configuration loaded successfully");
-                logDebug("API Key loaded: " + (azureApiKey != null ? "Success (***" + azureApiKey.substring(azureApiKey.length() - 4) + ")" : "Failed"));
-                logDebug("Endpoint: " + azureEndpoint);
-                logDebug("Deployment: " + azureDeployment);
-            } else {
-                logError("application.properties file not found!", null);
-            }
-        } catch (IOException e) {
-            logError("Error loading configuration file", e);
+        if (azureApiKey == null || azureEndpoint == null) {
+            logError("Azure OpenAI key or endpoint not configured!", null);
+            return;
         }
+        logInfo("Configuration loaded successfully");
+        logDebug("Azure OpenAI configured", "endpoint", azureEndpoint, "deployment", azureDeployment);
     }
 
     private void initializeClient() {
@@ -207,7 +343,9 @@ public class OpenAIService extends BaseService implements IAIService {
             client = new OpenAIClientBuilder()
                 .credential(new AzureKeyCredential(azureApiKey))
                 .endpoint(azureEndpoint)
-                .buildClient();
+                // Retries are handled by UpstreamDispatcher, which also adapts concurrency to 429s
+                .retryOptions(new RetryOptions(new ExponentialBackoffOptions().setMaxRetries(0)))
+                .buildAsyncClient();
         }
     }
 }
\ No newline at end of file
@@ -1,68 +1,191 @@
 package com.restaurant.recommendation.service;
 
+import com.restaurant.recommendation.catalog.CatalogQuery;
+import com.restaurant.recommendation.catalog.RestaurantCatalog;
+import com.restaurant.recommendation.geo.LocationExtractor;
+import com.restaurant.recommendation.metrics.Metrics;
 import com.restaurant.recommendation.model.Restaurant;
 import com.restaurant.recommendation.model.RecommendationRequest;
 import com.restaurant.recommendation.model.RecommendationResponse;
+import com.restaurant.recommendation.ranking.RankingEngine;
+import com.restaurant.recommendation.ranking.RankingQuery;
+import com.restaurant.recommendation.ranking.RankingWeights;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class RestaurantService extends BaseService implements IRecommendationService {
 
     private final IAIService aiService;
+    private final AIOutputParser outputParser = new AIOutputParser();
+    private final CircuitBreaker breaker;
+    private final long callTimeoutMillis;
+    // Optional; when a request matches it, results come from the catalog and the AI only explains them
+    private final RestaurantCatalog catalog;
+    private final int catalogResults;
+    // Orders restaurants parsed from free-form AI output; catalog matches come out of the catalog ranked
+    private final RankingEngine ranker;
 
     public RestaurantService(IAIService aiService) {
+        this(aiService, new CircuitBreaker("ai", 50, 20, 0.5, 10_000, 0.8, 30_000, 3), 30_000, null, 5,
+            new RankingEngine(RankingWeights.DEFAULTS));
+    }
+
+    // AI calls are cut off after callTimeoutMillis, and skipped entirely while the breaker is open
+    public RestaurantService(IAIService aiService, CircuitBreaker breaker, long callTimeoutMillis,
+                             RestaurantCatalog catalog, int catalogResults, RankingEngine ranker) {
         this.aiService = aiService;
-        logInfo("RestaurantService initialized");
+        this.breaker = breaker;
+        this.callTimeoutMillis = callTimeoutMillis;
+        this.catalog = catalog;
+        this.catalogResults = catalogResults;
+        this.ranker = ranker;
+        logInfo("RestaurantService initialized" + (catalog != null ? " with " + catalog.size() + " catalog restaurants" : ""));
     }
 
     @Override
     public RecommendationResponse getRecommendations(RecommendationRequest request) {
-        logInfo("Processing recommendation request");
-        RecommendationResponse response = new RecommendationResponse();
+        return getRecommendationsAsync(request).join();
+    }
 
+    @Override
+    public CompletableFuture<RecommendationResponse> getRecommendationsAsync(RecommendationRequest request) {
+        List<Restaurant> matches = catalogMatches(request);
+        RecommendationRequest aiRequest = matches.isEmpty() ? request : withCatalogMatches(request, matches);
+
+        if (!breaker.tryAcquire()) {
+            Metrics.FALLBACK_BREAKER_OPEN.increment();
+            return CompletableFuture.completedFuture(degradedResponse(aiRequest, matches));
+        }
+
+        long startNanos = System.nanoTime();
+        CompletableFuture<String> aiOutput;
         try {
             if (!aiService.isAvailable()) {
                 throw new RuntimeException("AI Service is not available");
             }
+            aiOutput = aiService.getRecommendationAsync(aiRequest)
+                .orTimeout(callTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            aiOutput = CompletableFuture.failedFuture(e);
+        }
 
-            String aiOutput = aiService.getRecommendation(request);
+        return recordOutcome(aiOutput, startNanos, null)
+            .thenApply(output -> matches.isEmpty() ? buildResponse(request, output) : buildCatalogResponse(matches, output))
+            .exceptionally(e -> {
+                logError("Error in getRecommendations", e);
+                return fallbackResponse(request, matches);
+            });
+    }
 
-            // Strip any filler text before the first numbered line
-            aiOutput = aiOutput.replaceAll("(?s)^.*?(?=1\\.)", "").trim();
-            response.setAiExplanation(aiOutput);
+    // Same grounding, breaker and timeout as getRecommendationsAsync. Once text has reached the client a
+    // failure ends the stream with an error, since a fallback answer would contradict what it already shows.
+    @Override
+    public CompletableFuture<RecommendationResponse> streamRecommendations(RecommendationRequest request, Consumer<String> onDelta) {
+        List<Restaurant> matches = catalogMatches(request);
+        RecommendationRequest aiRequest = matches.isEmpty() ? request : withCatalogMatches(request, matches);
 
-            List<Restaurant> restaurants = parseRestaurants(aiOutput);
+        if (!breaker.tryAcquire()) {
+            Metrics.FALLBACK_BREAKER_OPEN.increment();
+            RecommendationResponse response = degradedResponse(aiRequest, matches);
+            onDelta.accept(describe(response));
+            return CompletableFuture.completedFuture(response);
+        }
 
-            if (restaurants.isEmpty()) {
-                logInfo("AI parsing failed, using fallback restaurants");
-                restaurants = getMockRestaurants(request);
-                response.setReasoning("AI output could not be parsed. Returning fallback restaurants.");
-            } else {
-                logInfo("Successfully parsed " + restaurants.size() + " restaurants");
-                response.setReasoning("AI successfully generated recommendations based on your preferences.");
+        // Deltas that arrive after a timeout has already ended the stream are dropped
+        StreamState state = new StreamState();
+        Consumer<String> forward = delta -> {
+            synchronized (state) {
+                if (state.finished) return;
+                if (state.firstDeltaNanos == 0) state.firstDeltaNanos = System.nanoTime();
+                onDelta.accept(delta);
             }
+        };
 
-            response.setRecommendations(restaurants);
-            return response;
-
+        long startNanos = System.nanoTime();
+        CompletableFuture<String> aiOutput;
+        try {
+            if (!aiService.isAvailable()) {
+                throw new RuntimeException("AI Service is not available");
+            }
+            aiOutput = aiService.streamRecommendation(aiRequest, forward)
+                .orTimeout(callTimeoutMillis, TimeUnit.MILLISECONDS);
         } catch (Exception e) {
-            logError("Error in getRecommendations", e);
-            response.setRecommendations(getMockRestaurants(request));
-            response.setReasoning("Service error occurred. Returning fallback restaurants.");
-            return response;
+            aiOutput = CompletableFuture.failedFuture(e);
+        }
+
+        return recordOutcome(aiOutput, startNanos, state)
+            .thenApply(output -> matches.isEmpty() ? buildResponse(request, output) : buildCatalogResponse(matches, output))
+            .exceptionally(e -> {
+                logError("Error in streamRecommendations", e);
+                synchronized (state) {
+                    state.finished = true;
+                    if (state.firstDeltaNanos != 0) {
+                        throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+                    }
+                }
+                RecommendationResponse response = fallbackResponse(request, matches);
+                onDelta.accept(describe(response));
+                return response;
+            });
+    }
+
+    // Guarded by itself
+    private static class StreamState {
+        long firstDeltaNanos;
+        boolean finished;
+    }
+
+    // Times the call for the metrics and the breaker. The breaker times a stream (non-null state) to its
+    // first delta, since the rest is just the answer's length; a stream that never produced text counts in full.
+    private CompletableFuture<String> recordOutcome(CompletableFuture<String> aiOutput, long startNanos, StreamState stream) {
+        return aiOutput.whenComplete((output, error) -> {
+            long endNanos = System.nanoTime();
+            Metrics.AI_CALL.recordNanos(endNanos - startNanos);
+            if (stream != null) {
+                synchronized (stream) {
+                    if (stream.firstDeltaNanos != 0) endNanos = stream.firstDeltaNanos;
+                }
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos);
+            if (error != null) {
+                Metrics.AI_CALL_FAILURES.increment();
+                breaker.onFailure(elapsedMillis);
+            } else {
+                breaker.onSuccess(elapsedMillis);
+            }
+        });
+    }
+
+    private RecommendationResponse fallbackResponse(RecommendationRequest request, List<Restaurant> matches) {
+        Metrics.FALLBACK_AI_ERROR.increment();
+        if (!matches.isEmpty()) {
+            return buildCatalogResponse(matches, null);
         }
+        RecommendationResponse response = new RecommendationResponse();
+        response.setRecommendations(getMockRestaurants(request));
+        response.setReasoning("Service error occurred. Returning fallback restaurants.");
+        return response;
     }
 
     @Override
-    public void resetService() {
+    public void resetService(String sessionId) {
         logInfo("Resetting restaurant service");
-        aiService.resetConversation();
+        aiService.resetConversation(sessionId);
     }
 
     @Override
     public boolean isServiceHealthy() {
-        return aiService != null && aiService.isAvailable();
+        return aiService != null && aiService.isAvailable() && breaker.isServiceHealthy();
+    }
+
+    public CircuitBreaker.State getBreakerState() {
+        return breaker.getState();
     }
 
     @Override
@@ -70,35 +193,146 @@ public class RestaurantService extends BaseService implements IRecommendationSer
         return "Restaurant Recommendation Service";
     }
 
-    private List<Restaurant> parseRestaurants(String aiOutput) {
-        List<Restaurant> restaurants = new ArrayList<>();
-        if (aiOutput == null || aiOutput.isEmpty()) return restaurants;
-
-        String[] lines = aiOutput.split("\n");
-        int idCounter = 1;
-
-        for (String line : lines) {
-            if (!line.matches("^\\d+\\..*")) continue;  // must start with number + dot
-
-            String cleaned = line.replaceFirst("^\\d+\\.\\s*", "");
-            String[] parts = cleaned.split("\\|");
-
-            Restaurant r = new Restaurant();
-            r.setId((long) idCounter++);
-            r.setName(parts.length > 0 ? parts[0].trim() : "Unknown");
-            r.setCuisine(parts.length > 1 ? parts[1].trim() : "Various");
-            r.setLocation(parts.length > 2 ? parts[2].trim() : "Unknown");
-            try {
-                r.setRating(parts.length > 3 ? Double.parseDouble(parts[3].trim()) : 4.0);
-            } catch (NumberFormatException e) {
-                r.setRating(4.0);
+    // Text for a stream client when the answer didn't come from the AI: the reasoning, then the cached
+    // explanation or a short line per restaurant
+    private static String describe(RecommendationResponse response) {
+        StringBuilder text = new StringBuilder(response.getReasoning());
+        if (response.getAiExplanation() != null) {
+            text.append("\n\n").append(response.getAiExplanation());
+            return text.toString();
+        }
+        List<Restaurant> restaurants = response.getRecommendations();
+        for (int i = 0; i < restaurants.size(); i++) {
+            Restaurant restaurant = restaurants.get(i);
+            text.append(i == 0 ? "\n\n" : "\n").append(i + 1).append(". ").append(restaurant.getName());
+            if (restaurant.getLocation() != null) {
+                text.append(" - ").append(restaurant.getLocation());
             }
-            r.setPriceRange(parts.length > 4 ? parts[4].trim() : "$$");
-            r.setDescription(parts.length > 5 ? parts[5].trim() : "Recommended by AI.");
+        }
+        return text.toString();
+    }
 
-            restaurants.add(r);
+    // The catalog is only searched with somewhere to look: the request's point or location, a place named
+    // in the message, or the location the session remembers. Without one the AI answers on its own.
+    private List<Restaurant> catalogMatches(RecommendationRequest request) {
+        if (catalog == null) return Collections.emptyList();
+        CatalogQuery query = CatalogQuery.from(request);
+        if (query.getPoint() == null && query.getLocation() == null) {
+            String location = LocationExtractor.extract(request.getUserPreference());
+            if (location == null) {
+                location = aiService.getCurrentLocation(request.getSessionId());
+            }
+            if (location == null) return Collections.emptyList();
+            query = new CatalogQuery(query.getCuisine(), location, query.getPriceRange(), query.getText());
         }
-        return restaurants;
+
+        List<Restaurant> matches = catalog.search(query, catalogResults);
+        if (!matches.isEmpty()) {
+            logDebug("Catalog matched", "restaurants", matches.size(), "location", query.getLocation());
+        }
+        return matches;
+    }
+
+    // Served without waiting on the AI while the breaker is open: catalog matches or a cached answer if there is
+    // one. A cached answer still becomes part of the conversation.
+    private RecommendationResponse degradedResponse(RecommendationRequest request, List<Restaurant> matches) {
+        String cached = aiService.getCachedRecommendation(request);
+        if (cached != null) {
+            aiService.recordTurn(request, cached);
+        }
+        if (!matches.isEmpty()) {
+            return buildCatalogResponse(matches, cached);
+        }
+
+        if (cached != null) {
+            RecommendationResponse response = buildResponse(request, cached);
+            response.setReasoning("AI service is temporarily unavailable. Returning a recent answer to the same request.");
+            return response;
+        }
+
+        RecommendationResponse response = new RecommendationResponse();
+        response.setRecommendations(getMockRestaurants(request));
+        response.setReasoning("AI service is temporarily unavailable. Returning fallback restaurants.");
+        return response;
+    }
+
+    // The AI is asked to explain and order the catalog's picks rather than invent its own, which also
+    // keeps the completion short. The listing travels as context so only the user's words enter the history.
+    private static RecommendationRequest withCatalogMatches(RecommendationRequest request, List<Restaurant> matches) {
+        StringBuilder context = new StringBuilder();
+        context.append("Recommend only from these restaurants in our catalog, best fit first, with one sentence on why each fits:");
+        for (int i = 0; i < matches.size(); i++) {
+            Restaurant restaurant = matches.get(i);
+            context.append('\n').append(i + 1).append(". ").append(restaurant.getName())
+                .append(" (").append(restaurant.getCuisine()).append(", ").append(restaurant.getPriceRange())
+                .append(", ").append(restaurant.getRating()).append(") - ").append(restaurant.getLocation());
+            if (restaurant.getDescription() != null) {
+                context.append(": ").append(restaurant.getDescription());
+            }
+        }
+
+        RecommendationRequest aiRequest = new RecommendationRequest();
+        aiRequest.setUserPreference(request.getUserPreference());
+        aiRequest.setLocation(request.getLocation());
+        aiRequest.setCuisine(request.getCuisine());
+        aiRequest.setPriceRange(request.getPriceRange());
+        aiRequest.setNumberOfPeople(request.getNumberOfPeople());
+        aiRequest.setOccasion(request.getOccasion());
+        aiRequest.setSessionId(request.getSessionId());
+        aiRequest.setLatitude(request.getLatitude());
+        aiRequest.setLongitude(request.getLongitude());
+        aiRequest.setRadiusKm(request.getRadiusKm());
+        aiRequest.setCatalogContext(context.toString());
+        return aiRequest;
+    }
+
+    // Catalog results are authoritative; the AI output (null if unavailable) only becomes the explanation
+    private RecommendationResponse buildCatalogResponse(List<Restaurant> matches, String aiOutput) {
+        RecommendationResponse response = new RecommendationResponse();
+        response.setRecommendations(matches);
+        if (aiOutput != null) {
+            String listText = parse(aiOutput).getListText();
+            response.setAiExplanation(listText.isEmpty() ? aiOutput : listText);
+            response.setReasoning("Matched " + matches.size() + " restaurants from the local catalog.");
+        } else {
+            response.setReasoning("Matched " + matches.size() + " restaurants from the local catalog. AI explanation unavailable.");
+        }
+        return response;
+    }
+
+    private RecommendationResponse buildResponse(RecommendationRequest request, String aiOutput) {
+        RecommendationResponse response = new RecommendationResponse();
+
+        // The explanation starts at the first list item, dropping any filler before it
+        AIOutputParser.ParseResult parsed = parse(aiOutput);
+        response.setAiExplanation(parsed.getListText());
+
+        List<Restaurant> restaurants = parsed.getRestaurants();
+
+        if (restaurants.isEmpty()) {
+            logInfo("AI parsing failed, using fallback restaurants");
+            Metrics.FALLBACK_UNPARSEABLE.increment();
+            restaurants = getMockRestaurants(request);
+            response.setReasoning("AI output could not be parsed. Returning fallback restaurants.");
+        } else {
+            logDebug("Parsed AI restaurants", "restaurants", restaurants.size(), "confidence", parsed.getConfidence());
+            // Rank before filling in display defaults so a made-up cuisine, location, rating or price
+            // can't move an item, and keep the explanation in the same order as the list
+            restaurants = ranker.rank(restaurants, RankingQuery.from(request));
+            response.setAiExplanation(parsed.getListText(restaurants));
+            AIOutputParser.fillDefaults(restaurants);
+            response.setReasoning("AI successfully generated recommendations based on your preferences.");
+        }
+
+        response.setRecommendations(restaurants);
+        return response;
+    }
+
+    private AIOutputParser.ParseResult parse(String aiOutput) {
+        long startNanos = System.nanoTime();
+        AIOutputParser.ParseResult parsed = outputParser.parse(aiOutput);
+        Metrics.OUTPUT_PARSE.recordSince(startNanos);
+        return parsed;
     }
 
     private List<Restaurant> getMockRestaurants(RecommendationRequest request) {
@@ -0,0 +1,38 @@
+package com.restaurant.recommendation.service;
+
+// Cheap approximation of BPE token counts for chat messages, good to within ~10-15% on English
+// prose, which is plenty for budgeting prompt size. Word pieces cost about one token per 4
+// characters, punctuation one token each, and non-ASCII text roughly one token per character.
+public final class TokenEstimator {
+    // Per-message framing overhead of the chat format (role markers and separators)
+    public static final int MESSAGE_OVERHEAD = 4;
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) return 0;
+
+        int tokens = 0;
+        int wordLength = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80 && Character.isLetterOrDigit(c)) {
+                wordLength++;
+                continue;
+            }
+            tokens += (wordLength + 3) / 4;
+            wordLength = 0;
+            if (c >= 0x80) {
+                if (!Character.isLowSurrogate(c)) tokens++;
+            } else if (!Character.isWhitespace(c)) {
+                tokens++;
+            }
+        }
+        return tokens + (wordLength + 3) / 4;
+    }
+
+    public static int estimateMessage(String content) {
+        return estimate(content) + MESSAGE_OVERHEAD;
+    }
+}
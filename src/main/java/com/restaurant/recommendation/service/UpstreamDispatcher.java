@@ -0,0 +1,351 @@
+package com.restaurant.recommendation.service;
+
+import com.azure.core.exception.HttpResponseException;
+import com.azure.core.http.HttpResponse;
+
+import com.restaurant.recommendation.metrics.Metrics;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+// Gates calls to Azure OpenAI so a burst of requests queues here instead of turning into 429s.
+//  - At most `limit` calls are in flight; the limit adapts between minLimit and maxLimit, growing
+//    slowly while latency stays near the observed baseline and shrinking on slow calls and 429s
+//    (AIMD), each of those at most once per baseline RTT.
+//  - Waiting calls are served strictly in arrival order and fail once their deadline passes.
+//  - Throttled and transient failures are retried with full-jitter backoff, or after the
+//    server's Retry-After when it sends one; a retry goes to the front of the queue.
+//  - A stream's latency is its time to first token, so long answers don't read as congestion.
+public class UpstreamDispatcher extends BaseService {
+    private final double minLimit;
+    private final double maxLimit;
+    private final int maxQueued;
+    private final long queueTimeoutMillis;
+    private final int maxRetries;
+    private final long retryBaseMillis;
+    private final long retryMaxMillis;
+    private final double latencyTolerance;
+    private final LongSupplier clock;
+
+    // Guarded by this
+    private final ArrayDeque<Call<?>> queue = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private long baselineRttMillis;
+    private long windowMinRttMillis = Long.MAX_VALUE;
+    private int windowSamples;
+    private long lastDecreaseMillis;
+    private long lastSlowDecreaseMillis;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    // Samples per baseline window; the baseline is the fastest call in the previous window
+    private static final int RTT_WINDOW = 100;
+
+    public static class UpstreamBusyException extends RuntimeException {
+        public UpstreamBusyException(String message) {
+            super(message);
+        }
+    }
+
+    private class Call<T> {
+        final Function<Runnable, CompletableFuture<T>> action;
+        final BooleanSupplier retryAllowed;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final long deadlineMillis;
+        final long submittedNanos = System.nanoTime();
+        int attempts;
+
+        Call(Function<Runnable, CompletableFuture<T>> action, BooleanSupplier retryAllowed, long deadlineMillis) {
+            this.action = action;
+            this.retryAllowed = retryAllowed;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        void start() {
+            attempts++;
+            long startedNanos = System.nanoTime();
+            if (attempts == 1) {
+                Metrics.UPSTREAM_QUEUE.recordNanos(startedNanos - submittedNanos);
+            }
+            long startedAt = clock.getAsLong();
+            AtomicLong firstTokenAt = new AtomicLong();
+            CompletableFuture<T> attempt;
+            try {
+                attempt = action.apply(() -> firstTokenAt.compareAndSet(0, clock.getAsLong()));
+            } catch (RuntimeException e) {
+                attempt = CompletableFuture.failedFuture(e);
+            }
+            attempt.whenComplete((value, error) -> {
+                // A stream that never produced a token counts in full
+                long firstToken = firstTokenAt.get();
+                long rttMillis = (firstToken != 0 ? firstToken : clock.getAsLong()) - startedAt;
+                Metrics.UPSTREAM_ATTEMPT.recordSince(startedNanos);
+                if (error == null) {
+                    onSuccess(rttMillis);
+                    result.complete(value);
+                } else {
+                    onFailure(this, unwrap(error));
+                }
+            });
+        }
+    }
+
+    public UpstreamDispatcher(int initialLimit, int minLimit, int maxLimit, int maxQueued, long queueTimeoutMillis,
+                              int maxRetries, long retryBaseMillis, long retryMaxMillis, double latencyTolerance) {
+        this(initialLimit, minLimit, maxLimit, maxQueued, queueTimeoutMillis, maxRetries, retryBaseMillis,
+            retryMaxMillis, latencyTolerance, System::currentTimeMillis);
+    }
+
+    // clock returns the current time in milliseconds; tests pass their own to control RTTs.
+    // Queue deadlines and retry delays still run on the real scheduler.
+    UpstreamDispatcher(int initialLimit, int minLimit, int maxLimit, int maxQueued, long queueTimeoutMillis,
+                       int maxRetries, long retryBaseMillis, long retryMaxMillis, double latencyTolerance,
+                       LongSupplier clock) {
+        this.clock = clock;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.maxQueued = maxQueued;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.maxRetries = maxRetries;
+        this.retryBaseMillis = retryBaseMillis;
+        this.retryMaxMillis = retryMaxMillis;
+        this.latencyTolerance = latencyTolerance;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "upstream-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logInfo("Upstream dispatcher initialized (limit=" + this.limit + ", range=" + this.minLimit + "-" + this.maxLimit
+            + ", queue=" + maxQueued + ", queueTimeout=" + queueTimeoutMillis + "ms, retries=" + maxRetries + ")");
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> action) {
+        return submit(action, () -> true);
+    }
+
+    // retryAllowed is checked before each retry, e.g. so a stream that already emitted text isn't replayed
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> action, BooleanSupplier retryAllowed) {
+        return submitStream(firstToken -> action.get(), retryAllowed);
+    }
+
+    // The action is handed a callback to run when its first token arrives; the slot is still held until
+    // the stream completes, but only the time to that token feeds the latency baseline
+    public <T> CompletableFuture<T> submitStream(Function<Runnable, CompletableFuture<T>> action,
+                                                 BooleanSupplier retryAllowed) {
+        Call<T> call = new Call<>(action, retryAllowed, clock.getAsLong() + queueTimeoutMillis);
+        boolean startNow;
+        synchronized (this) {
+            startNow = queue.isEmpty() && inFlight < (int) limit;
+            if (startNow) {
+                inFlight++;
+            } else if (queue.size() >= maxQueued) {
+                rejected.incrementAndGet();
+                return CompletableFuture.failedFuture(new UpstreamBusyException(
+                    "Upstream queue full (" + maxQueued + " waiting)"));
+            } else {
+                queue.addLast(call);
+            }
+        }
+
+        if (startNow) {
+            call.start();
+        } else {
+            scheduleExpiry(call);
+        }
+        return call.result;
+    }
+
+    private void scheduleExpiry(Call<?> call) {
+        long delay = call.deadlineMillis - clock.getAsLong();
+        scheduler.schedule(() -> {
+            boolean expired;
+            synchronized (this) {
+                expired = queue.remove(call);
+            }
+            if (expired) {
+                timedOut.incrementAndGet();
+                call.result.completeExceptionally(new UpstreamBusyException(
+                    "Timed out waiting for an upstream slot after " + queueTimeoutMillis + "ms"));
+            }
+        }, Math.max(0, delay), TimeUnit.MILLISECONDS);
+    }
+
+    private void onSuccess(long rttMillis) {
+        long now = clock.getAsLong();
+        synchronized (this) {
+            windowMinRttMillis = Math.min(windowMinRttMillis, rttMillis);
+            if (++windowSamples >= RTT_WINDOW || baselineRttMillis == 0) {
+                baselineRttMillis = windowMinRttMillis;
+                windowMinRttMillis = Long.MAX_VALUE;
+                windowSamples = 0;
+            }
+
+            if (rttMillis <= baselineRttMillis * latencyTolerance) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            } else if (oncePerRtt(now, lastSlowDecreaseMillis)) {
+                // A burst of slow completions is one congestion signal, not one per call
+                limit = Math.max(minLimit, limit * 0.95);
+                lastSlowDecreaseMillis = now;
+            }
+            inFlight--;
+        }
+        dispatch();
+    }
+
+    private void onFailure(Call<?> call, Throwable error) {
+        int status = statusCode(error);
+        long now = clock.getAsLong();
+        synchronized (this) {
+            inFlight--;
+            // Halve at most once per baseline RTT so one burst of 429s doesn't collapse the limit to the floor
+            if (status == 429 && oncePerRtt(now, lastDecreaseMillis)) {
+                limit = Math.max(minLimit, limit / 2);
+                lastDecreaseMillis = now;
+                logDebug("Throttled upstream", "limit", limit);
+            }
+        }
+        if (status == 429) {
+            throttled.incrementAndGet();
+        }
+
+        long delay = retryDelayMillis(error, call.attempts);
+        boolean retry = isRetryable(status, error) && call.attempts <= maxRetries
+            && now + delay < call.deadlineMillis && call.retryAllowed.getAsBoolean();
+        if (!retry) {
+            call.result.completeExceptionally(error);
+        }
+        // The freed slot goes to a waiting call before the retry can be requeued, even with no delay
+        dispatch();
+        if (retry) {
+            retried.incrementAndGet();
+            scheduler.schedule(() -> requeue(call), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Guarded by this
+    private boolean oncePerRtt(long now, long lastMillis) {
+        return now - lastMillis > Math.max(baselineRttMillis, 100);
+    }
+
+    private void requeue(Call<?> call) {
+        synchronized (this) {
+            queue.addFirst(call);
+        }
+        scheduleExpiry(call);
+        dispatch();
+    }
+
+    private void dispatch() {
+        while (true) {
+            Call<?> next;
+            synchronized (this) {
+                if (queue.isEmpty() || inFlight >= (int) limit) return;
+                next = queue.pollFirst();
+                inFlight++;
+            }
+            next.start();
+        }
+    }
+
+    private static boolean isRetryable(int status, Throwable error) {
+        if (status == 429 || status == 408 || status >= 500) return true;
+        return status == -1 && (error instanceof IOException || error instanceof TimeoutException
+            || error.getCause() instanceof IOException);
+    }
+
+    // Honors Retry-After / retry-after-ms when present, otherwise full jitter over an exponential cap
+    long retryDelayMillis(Throwable error, int attempts) {
+        Long retryAfter = parseRetryAfter(headerValue(error, "retry-after-ms"), 1);
+        if (retryAfter == null) {
+            retryAfter = parseRetryAfter(headerValue(error, "Retry-After"), 1000);
+        }
+        if (retryAfter != null) {
+            return Math.min(retryAfter, retryMaxMillis);
+        }
+        long cap = Math.min(retryMaxMillis, retryBaseMillis << Math.min(attempts - 1, 20));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private static Long parseRetryAfter(String value, long unitMillis) {
+        if (value == null) return null;
+        try {
+            return (long) (Double.parseDouble(value.trim()) * unitMillis);
+        } catch (NumberFormatException e) {
+            // HTTP-date form; fall back to computed backoff
+            return null;
+        }
+    }
+
+    // HTTP status of a failed call, or -1; overridden in tests to classify stub errors
+    int statusCode(Throwable error) {
+        if (error instanceof HttpResponseException) {
+            HttpResponse response = ((HttpResponseException) error).getResponse();
+            if (response != null) return response.getStatusCode();
+        }
+        return -1;
+    }
+
+    // A response header of a failed call, or null
+    String headerValue(Throwable error, String name) {
+        if (error instanceof HttpResponseException) {
+            HttpResponse response = ((HttpResponseException) error).getResponse();
+            if (response != null) return response.getHeaderValue(name);
+        }
+        return null;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    public void registerMetrics() {
+        Metrics.REGISTRY.registerGauge("recommendation_upstream_limit", "Current adaptive upstream concurrency limit", this::getLimit);
+        Metrics.REGISTRY.registerGauge("recommendation_upstream_in_flight", "Upstream calls in flight", this::getInFlight);
+        Metrics.REGISTRY.registerGauge("recommendation_upstream_queued", "Calls waiting for an upstream slot", this::getQueued);
+        Metrics.REGISTRY.registerCounter("recommendation_upstream_throttled_total", "Upstream 429 responses", this::getThrottled);
+        Metrics.REGISTRY.registerCounter("recommendation_upstream_retries_total", "Upstream attempts retried", this::getRetried);
+        Metrics.REGISTRY.registerCounter("recommendation_upstream_rejected_total", "Calls rejected with the upstream queue full", this::getRejected);
+        Metrics.REGISTRY.registerCounter("recommendation_upstream_queue_timeouts_total", "Calls that timed out waiting for an upstream slot", this::getTimedOut);
+    }
+
+    public synchronized double getLimit() { return limit; }
+    public synchronized int getInFlight() { return inFlight; }
+    public synchronized int getQueued() { return queue.size(); }
+    public long getThrottled() { return throttled.get(); }
+    public long getRetried() { return retried.get(); }
+    public long getRejected() { return rejected.get(); }
+    public long getTimedOut() { return timedOut.get(); }
+
+    @Override
+    public boolean isServiceHealthy() {
+        return !scheduler.isShutdown();
+    }
+
+    @Override
+    public String getServiceName() {
+        return "Upstream Dispatcher";
+    }
+}
@@ -0,0 +1,255 @@
+package com.restaurant.recommendation.test;
+
+import com.restaurant.recommendation.core.AppConfig;
+import com.restaurant.recommendation.core.JsonReader;
+import com.restaurant.recommendation.core.JsonWriter;
+import com.restaurant.recommendation.service.FakeAIService;
+import com.restaurant.recommendation.service.LatencyDistribution;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Speaks enough of the Azure OpenAI chat completions API for the SDK to talk to it, so the server
+// can be load tested without the real (rate-limited) endpoint. Start it, then run the server with
+//   -Dazure.openai.endpoint=http://localhost:8089/ -Dazure.openai.api.key=fake
+//
+// Settings (-D or application.properties):
+//   fake.azure.port                 port to listen on (8089)
+//   fake.azure.latency              time to first token, see LatencyDistribution (lognormal:800,3000)
+//   fake.azure.token.delay.ms       gap between streamed tokens (20)
+//   fake.azure.error.rate           fraction of calls answered with 500 (0.0)
+//   fake.azure.throttle.rate        fraction of calls answered with 429 (0.0)
+//   fake.azure.max.concurrent       calls beyond this many in flight get 429; 0 means unlimited (0)
+//   fake.azure.retry.after.seconds  Retry-After sent with every 429 (2)
+public class FakeAzureOpenAIServer {
+    private static final String[] REQUEST_FIELDS = {"stream", "max_tokens"};
+    private static final int FIELD_STREAM = 0;
+    private static final int FIELD_MAX_TOKENS = 1;
+
+    private final LatencyDistribution latency;
+    private final long tokenDelayMillis;
+    private final double errorRate;
+    private final double throttleRate;
+    private final int maxConcurrent;
+    private final int retryAfterSeconds;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong requestIds = new AtomicLong();
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public FakeAzureOpenAIServer(AppConfig config) {
+        this.latency = LatencyDistribution.parse(config.getString("fake.azure.latency", "lognormal:800,3000"));
+        this.tokenDelayMillis = config.getLong("fake.azure.token.delay.ms", 20);
+        this.errorRate = config.getDouble("fake.azure.error.rate", 0.0);
+        this.throttleRate = config.getDouble("fake.azure.throttle.rate", 0.0);
+        this.maxConcurrent = config.getInt("fake.azure.max.concurrent", 0);
+        this.retryAfterSeconds = config.getInt("fake.azure.retry.after.seconds", 2);
+    }
+
+    public static void main(String[] args) throws IOException {
+        AppConfig config = AppConfig.load();
+        int port = config.getInt("fake.azure.port", 8089);
+        FakeAzureOpenAIServer fake = new FakeAzureOpenAIServer(config);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/openai/deployments/", fake::handle);
+        // Each call sleeps for its simulated latency, which is cheap on virtual threads
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        System.out.println("Fake Azure OpenAI listening on http://localhost:" + port + "/");
+        System.out.println("latency=" + fake.latency + ", tokenDelay=" + fake.tokenDelayMillis + "ms, errorRate="
+            + fake.errorRate + ", throttleRate=" + fake.throttleRate + ", maxConcurrent=" + fake.maxConcurrent);
+
+        Thread reporter = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                System.out.println("served=" + fake.served.get() + " throttled=" + fake.throttled.get()
+                    + " failed=" + fake.failed.get() + " inFlight=" + fake.inFlight.get());
+            }
+        }, "fake-azure-reporter");
+        reporter.setDaemon(true);
+        reporter.start();
+    }
+
+    void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())
+                || !exchange.getRequestURI().getPath().endsWith("/chat/completions")) {
+                sendError(exchange, 404, "NotFound", "Only chat completions are simulated");
+                return;
+            }
+
+            boolean stream = false;
+            int maxTokens = 0;
+            try (InputStream in = exchange.getRequestBody()) {
+                JsonReader reader = new JsonReader(in, 1 << 20);
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextNameIndex(REQUEST_FIELDS)) {
+                        case FIELD_STREAM: stream = reader.nextBoolean(); break;
+                        case FIELD_MAX_TOKENS: maxTokens = reader.nextInt(); break;
+                        default: reader.skipValue();
+                    }
+                }
+            } catch (IOException e) {
+                sendError(exchange, 400, "BadRequest", "Invalid request body: " + e.getMessage());
+                return;
+            }
+
+            int current = inFlight.incrementAndGet();
+            try {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                if ((maxConcurrent > 0 && current > maxConcurrent)
+                    || (throttleRate > 0 && random.nextDouble() < throttleRate)) {
+                    throttled.incrementAndGet();
+                    exchange.getResponseHeaders().add("Retry-After", Integer.toString(retryAfterSeconds));
+                    sendError(exchange, 429, "429", "Requests to the ChatCompletions operation have exceeded the "
+                        + "simulated rate limit. Please retry after " + retryAfterSeconds + " seconds.");
+                    return;
+                }
+
+                Thread.sleep(latency.sampleMillis());
+                if (errorRate > 0 && random.nextDouble() < errorRate) {
+                    failed.incrementAndGet();
+                    sendError(exchange, 500, "InternalServerError", "Simulated upstream failure");
+                    return;
+                }
+
+                List<String> tokens = FakeAIService.tokenize(FakeAIService.cannedResponse(null, null));
+                if (maxTokens > 0 && tokens.size() > maxTokens) {
+                    tokens = tokens.subList(0, maxTokens);
+                }
+                String id = "chatcmpl-fake-" + requestIds.incrementAndGet();
+                if (stream) {
+                    sendStream(exchange, id, tokens);
+                } else {
+                    sendCompletion(exchange, id, tokens);
+                }
+                served.incrementAndGet();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void sendCompletion(HttpExchange exchange, String id, List<String> tokens) throws IOException {
+        JsonWriter json = JsonWriter.acquire();
+        try {
+            json.beginObject();
+            writeHeader(json, id, "chat.completion");
+            json.name("choices").beginArray().beginObject();
+            json.name("index").value(0);
+            json.name("message").beginObject()
+                .name("role").value("assistant")
+                .name("content").value(String.join("", tokens))
+                .endObject();
+            json.name("finish_reason").value("stop");
+            json.endObject().endArray();
+            json.name("usage").beginObject()
+                .name("prompt_tokens").value(100)
+                .name("completion_tokens").value(tokens.size())
+                .name("total_tokens").value(100 + tokens.size())
+                .endObject();
+            json.endObject();
+
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, json.size());
+            try (OutputStream os = exchange.getResponseBody()) {
+                json.writeTo(os);
+            }
+        } finally {
+            json.release();
+        }
+    }
+
+    // A role frame, one "data:" frame per token (the last carrying finish_reason), then the [DONE] sentinel
+    private void sendStream(HttpExchange exchange, String id, List<String> tokens) throws IOException, InterruptedException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream os = exchange.getResponseBody()) {
+            for (int i = 0; i <= tokens.size(); i++) {
+                if (i > 0) Thread.sleep(tokenDelayMillis);
+                writeChunk(os, id, i == 0 ? null : tokens.get(i - 1), i == tokens.size());
+            }
+            os.write("data: [DONE]\n\n".getBytes(StandardCharsets.US_ASCII));
+            os.flush();
+        }
+    }
+
+    private void writeChunk(OutputStream os, String id, String content, boolean last) throws IOException {
+        JsonWriter json = JsonWriter.acquire();
+        try {
+            json.beginObject();
+            writeHeader(json, id, "chat.completion.chunk");
+            json.name("choices").beginArray().beginObject();
+            json.name("index").value(0);
+            json.name("delta").beginObject();
+            if (content == null) {
+                json.name("role").value("assistant");
+            } else {
+                json.name("content").value(content);
+            }
+            json.endObject();
+            json.name("finish_reason");
+            if (last) {
+                json.value("stop");
+            } else {
+                json.nullValue();
+            }
+            json.endObject().endArray();
+            json.endObject();
+
+            os.write("data: ".getBytes(StandardCharsets.US_ASCII));
+            json.writeTo(os);
+            os.write("\n\n".getBytes(StandardCharsets.US_ASCII));
+            os.flush();
+        } finally {
+            json.release();
+        }
+    }
+
+    private static void writeHeader(JsonWriter json, String id, String object) throws IOException {
+        json.name("id").value(id);
+        json.name("object").value(object);
+        json.name("created").value(System.currentTimeMillis() / 1000);
+        json.name("model").value("gpt-fake");
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String code, String message) throws IOException {
+        JsonWriter json = JsonWriter.acquire();
+        try {
+            json.beginObject().name("error").beginObject()
+                .name("code").value(code)
+                .name("message").value(message)
+                .endObject().endObject();
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, json.size());
+            try (OutputStream os = exchange.getResponseBody()) {
+                json.writeTo(os);
+            }
+        } finally {
+            json.release();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.restaurant.recommendation.test;
+
+import com.restaurant.recommendation.core.AppConfig;
+import com.restaurant.recommendation.core.JsonWriter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Open-loop load generator for /api/recommendations: requests go out on a fixed schedule at the
+// target rate whether or not earlier ones have finished, and latency is measured from the
+// scheduled send time so a stalled server can't hide its queueing delay.
+//
+// Settings (-D or application.properties):
+//   load.url               target (http://localhost:8080/api/recommendations)
+//   load.rps               requests per second (20)
+//   load.duration.seconds  measured run length (30)
+//   load.warmup.seconds    unmeasured lead-in at the same rate (5)
+//   load.sessions          distinct X-Session-Id values to rotate through (100)
+//   load.prompts           distinct preferences to rotate through; fewer means more cache hits (50)
+//   load.timeout.seconds   per-request timeout (60)
+public class LoadGenerator {
+    private static final String[] CUISINES = {"Italian", "Sichuan", "Mexican", "Japanese", "Indian", "Thai", "French"};
+    private static final String[] CITIES = {"San Jose, CA", "Seattle, WA", "Austin, TX", "Boston, MA", "Chicago, IL"};
+
+    private final URI target;
+    private final int rps;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final int sessions;
+    private final int prompts;
+    private final Duration timeout;
+    private final HttpClient client;
+
+    // Latencies of measured requests in microseconds, indexed by send order
+    private long[] latencies;
+    private final AtomicInteger recorded = new AtomicInteger();
+    private final AtomicLong ok = new AtomicLong();
+    private final AtomicLong clientErrors = new AtomicLong();
+    private final AtomicLong serverErrors = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public LoadGenerator(AppConfig config) {
+        this.target = URI.create(config.getString("load.url", "http://localhost:8080/api/recommendations"));
+        this.rps = Math.max(1, config.getInt("load.rps", 20));
+        this.durationSeconds = Math.max(1, config.getInt("load.duration.seconds", 30));
+        this.warmupSeconds = Math.max(0, config.getInt("load.warmup.seconds", 5));
+        this.sessions = Math.max(1, config.getInt("load.sessions", 100));
+        this.prompts = Math.max(1, config.getInt("load.prompts", 50));
+        this.timeout = Duration.ofSeconds(config.getLong("load.timeout.seconds", 60));
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadGenerator(AppConfig.load()).run();
+    }
+
+    public void run() throws InterruptedException {
+        int warmupRequests = rps * warmupSeconds;
+        int measuredRequests = rps * durationSeconds;
+        latencies = new long[measuredRequests];
+        CompletableFuture<?>[] pending = new CompletableFuture<?>[measuredRequests];
+
+        System.out.println("Driving " + target + " at " + rps + " req/s for " + durationSeconds + "s (+"
+            + warmupSeconds + "s warmup), " + sessions + " sessions, " + prompts + " distinct prompts");
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+        long start = System.nanoTime();
+        long measuredStart = start + warmupRequests * intervalNanos;
+        int behindSchedule = 0;
+
+        for (int i = 0; i < warmupRequests + measuredRequests; i++) {
+            long scheduled = start + i * intervalNanos;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else if (wait < -intervalNanos) {
+                behindSchedule++;
+            }
+
+            boolean measured = i >= warmupRequests;
+            CompletableFuture<?> response = send(i, scheduled, measured);
+            if (measured) {
+                pending[i - warmupRequests] = response;
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(pending).get(timeout.toMillis() + 5_000, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            System.out.println("Some requests did not finish: " + e);
+        }
+        long elapsedNanos = System.nanoTime() - measuredStart;
+
+        report(measuredRequests, elapsedNanos, behindSchedule);
+    }
+
+    private CompletableFuture<?> send(int sequence, long scheduledNanos, boolean measured) {
+        HttpRequest request = HttpRequest.newBuilder(target)
+            .timeout(timeout)
+            .header("Content-Type", "application/json")
+            .header("X-Session-Id", "load-" + (sequence % sessions))
+            .POST(HttpRequest.BodyPublishers.ofByteArray(requestBody(sequence % prompts)))
+            .build();
+
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+            .whenComplete((response, error) -> {
+                if (!measured) return;
+                long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduledNanos);
+                if (error != null) {
+                    failures.incrementAndGet();
+                    return;
+                }
+                int status = response.statusCode();
+                if (status >= 500) {
+                    serverErrors.incrementAndGet();
+                } else if (status >= 400) {
+                    clientErrors.incrementAndGet();
+                } else {
+                    ok.incrementAndGet();
+                }
+                latencies[recorded.getAndIncrement()] = micros;
+            });
+    }
+
+    private static byte[] requestBody(int prompt) {
+        String cuisine = CUISINES[prompt % CUISINES.length];
+        String city = CITIES[(prompt / CUISINES.length) % CITIES.length];
+        JsonWriter json = JsonWriter.acquire();
+        try {
+            json.beginObject()
+                .name("userPreference").value("Recommend " + cuisine.toLowerCase() + " restaurants for dinner #" + prompt)
+                .name("location").value(city)
+                .name("cuisine").value(cuisine)
+                .name("priceRange").value("$$")
+                .endObject();
+            return json.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            json.release();
+        }
+    }
+
+    private void report(int sent, long elapsedNanos, int behindSchedule) {
+        int count = recorded.get();
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        double seconds = elapsedNanos / 1e9;
+
+        System.out.println();
+        System.out.println("Requests sent:      " + sent);
+        System.out.println("Responses:          " + count + " (2xx/3xx=" + ok.get() + ", 4xx=" + clientErrors.get()
+            + ", 5xx=" + serverErrors.get() + ")");
+        System.out.println("Transport failures: " + failures.get());
+        System.out.printf("Throughput:         %.1f req/s (target %d)%n", count / seconds, rps);
+        if (count > 0) {
+            System.out.printf("Latency ms:         p50=%.1f  p90=%.1f  p99=%.1f  p99.9=%.1f  max=%.1f%n",
+                percentile(sorted, 50) / 1000.0, percentile(sorted, 90) / 1000.0, percentile(sorted, 99) / 1000.0,
+                percentile(sorted, 99.9) / 1000.0, sorted[count - 1] / 1000.0);
+        }
+        if (behindSchedule > 0) {
+            System.out.println("Warning: generator fell behind schedule " + behindSchedule
+                + " times; results understate the offered load");
+        }
+    }
+
+    // Nearest-rank percentile over a sorted array
+    private static long percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+}
@@ -0,0 +1,134 @@
+package com.restaurant.recommendation.view;
+
+import com.restaurant.recommendation.core.AppConfig;
+
+import javax.swing.AbstractListModel;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Sidebar model over the ChatJournal. Rows are session numbers, oldest first, and a JList only asks
+// for the rows it shows, so the sidebar costs the same with ten chats or ten thousand. A session's
+// messages are read from the journal when it's opened and kept on the heap for the most recently
+// opened few; the rest stay on disk.
+//
+// Writes go to the journal first. If that fails the message is still shown, just not kept. EDT only.
+class ChatHistory extends AbstractListModel<Integer> {
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("MMM dd, HH:mm")
+        .withZone(ZoneId.systemDefault());
+
+    private final ChatJournal journal;
+    private final Map<Integer, List<ChatMessage>> loaded;
+
+    ChatHistory(ChatJournal journal, int maxLoadedSessions) {
+        this.journal = journal;
+        this.loaded = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<ChatMessage>> eldest) {
+                return size() > maxLoadedSessions;
+            }
+        };
+    }
+
+    // Falls back to a throwaway journal when the configured directory can't be used
+    static ChatHistory open(AppConfig config) {
+        Path directory = Paths.get(config.getString("ui.history.dir",
+            Paths.get(System.getProperty("user.home"), ".restaurant-chat").toString()));
+        int maxLoaded = Math.max(1, config.getInt("ui.history.loaded.sessions", 16));
+        ChatJournal journal;
+        try {
+            journal = ChatJournal.open(directory);
+        } catch (IOException e) {
+            System.err.println("Chat history unavailable in " + directory + ", keeping this session only: " + e.getMessage());
+            try {
+                Path temp = Files.createTempDirectory("restaurant-chat");
+                temp.toFile().deleteOnExit();
+                journal = ChatJournal.open(temp);
+            } catch (IOException fallback) {
+                throw new IllegalStateException("Failed to create a chat journal", fallback);
+            }
+        }
+        ChatJournal opened = journal;
+        Runtime.getRuntime().addShutdownHook(new Thread(opened::close, "chat-journal-close"));
+        return new ChatHistory(opened, maxLoaded);
+    }
+
+    @Override
+    public int getSize() {
+        return journal.size();
+    }
+
+    @Override
+    public Integer getElementAt(int index) {
+        return index;
+    }
+
+    int create(String title) {
+        int session;
+        try {
+            session = journal.create("chat_" + java.util.UUID.randomUUID(), title, System.currentTimeMillis());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to save new chat", e);
+        }
+        loaded.put(session, new ArrayList<>());
+        fireIntervalAdded(this, session, session);
+        return session;
+    }
+
+    String getId(int session) {
+        return journal.getId(session);
+    }
+
+    String getTitle(int session) {
+        return journal.getTitle(session);
+    }
+
+    String getTimestamp(int session) {
+        return TIMESTAMP_FORMAT.format(Instant.ofEpochMilli(journal.getCreatedMillis(session)));
+    }
+
+    int getMessageCount(int session) {
+        return journal.getMessageCount(session);
+    }
+
+    // Pages the session in if it isn't on the heap
+    List<ChatMessage> getMessages(int session) {
+        return loaded.computeIfAbsent(session, journal::readMessages);
+    }
+
+    void addMessage(int session, ChatMessage message) {
+        try {
+            journal.appendMessage(session, message);
+        } catch (IOException e) {
+            System.err.println("Failed to save chat message: " + e.getMessage());
+        }
+        List<ChatMessage> messages = loaded.get(session);
+        if (messages != null) messages.add(message);
+    }
+
+    void setTitle(int session, String title) {
+        try {
+            journal.setTitle(session, title, System.currentTimeMillis());
+        } catch (IOException e) {
+            System.err.println("Failed to save chat title: " + e.getMessage());
+        }
+        fireContentsChanged(this, session, session);
+    }
+
+    void clear(int session) {
+        try {
+            journal.clear(session, System.currentTimeMillis());
+        } catch (IOException e) {
+            System.err.println("Failed to save cleared chat: " + e.getMessage());
+        }
+        loaded.put(session, new ArrayList<>());
+    }
+}
@@ -0,0 +1,284 @@
+package com.restaurant.recommendation.view;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Append-only store for desktop chat sessions, as two memory-mapped files:
+//
+//   chats.journal   every change as a checksummed record, never rewritten. Message records link to
+//                   the previous message record of the same session, so one session's messages are
+//                   read by walking its chain backwards without scanning anyone else's.
+//   chats.index     a fixed-size slot per session with its creation record, latest title record,
+//                   chain head and counts, so the sidebar can show any session without reading it.
+//
+// The index header holds the journal length it covers. A record is written before the index points
+// at it and the length is moved past it last, so a clean journal is all zeros beyond that length;
+// anything else there means the index can't be trusted and recovery rebuilds it.
+//
+// Record: int length, int crc32 (of everything after it), byte type, int session, long timeMillis,
+//         long previous (message chain link, -1 for none), UTF-8 payload. Little-endian throughout.
+class ChatJournal {
+    static final int INDEX_MAGIC = 0x49484352; // "RCHI"
+    static final int VERSION = 1;
+
+    private static final byte TYPE_CREATE = 1;
+    private static final byte TYPE_TITLE = 2;
+    private static final byte TYPE_USER_MESSAGE = 3;
+    private static final byte TYPE_AI_MESSAGE = 4;
+    // Ends a chain walk, so messages before it are no longer part of the session
+    private static final byte TYPE_CLEAR = 5;
+
+    private static final int RECORD_HEADER_BYTES = 29;
+    private static final int INDEX_HEADER_BYTES = 32;
+    private static final int SLOT_BYTES = 48;
+    private static final int SLOT_CREATE = 0;
+    private static final int SLOT_TITLE = 8;
+    private static final int SLOT_HEAD = 16;
+    private static final int SLOT_CREATED_MILLIS = 24;
+    private static final int SLOT_UPDATED_MILLIS = 32;
+    private static final int SLOT_MESSAGES = 40;
+
+    private static final long MIN_JOURNAL_MAP = 1L << 20;
+    private static final long MIN_INDEX_MAP = 64L * 1024;
+
+    private final FileChannel journalChannel;
+    private final FileChannel indexChannel;
+    private MappedByteBuffer journal;
+    private MappedByteBuffer index;
+    private long journalLength;
+    private int sessions;
+    private final CRC32 crc = new CRC32();
+
+    private ChatJournal(FileChannel journalChannel, FileChannel indexChannel) {
+        this.journalChannel = journalChannel;
+        this.indexChannel = indexChannel;
+    }
+
+    static ChatJournal open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel journalChannel = FileChannel.open(directory.resolve("chats.journal"),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel indexChannel = FileChannel.open(directory.resolve("chats.index"),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ChatJournal store = new ChatJournal(journalChannel, indexChannel);
+        try {
+            store.load();
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    private void load() throws IOException {
+        journal = map(journalChannel, Math.max(MIN_JOURNAL_MAP, journalChannel.size()));
+        index = map(indexChannel, Math.max(MIN_INDEX_MAP, indexChannel.size()));
+
+        int magic = index.getInt(0);
+        if (magic == 0) {
+            index.putInt(0, INDEX_MAGIC);
+            index.putInt(4, VERSION);
+            writeIndexHeader();
+        } else if (magic != INDEX_MAGIC || index.getInt(4) != VERSION) {
+            throw new IOException("Not a chat index (version " + VERSION + ")");
+        } else {
+            sessions = index.getInt(8);
+            journalLength = index.getLong(16);
+        }
+        recover();
+    }
+
+    // Anything past the committed length means the last run stopped mid-append, possibly after the
+    // index was already pointed at the new record. The index is rebuilt from the whole journal, up to
+    // the first incomplete or corrupt record, and whatever follows that is zeroed.
+    private void recover() throws IOException {
+        if (journalLength + 4 > journal.capacity() || journal.getInt((int) journalLength) == 0) return;
+
+        sessions = 0;
+        journalLength = 0;
+        int replayed = 0;
+        while (journalLength + RECORD_HEADER_BYTES <= journal.capacity()) {
+            int at = (int) journalLength;
+            int length = journal.getInt(at);
+            if (length < RECORD_HEADER_BYTES || journalLength + length > journal.capacity()
+                || journal.getInt(at + 4) != checksum(at, length)) {
+                break;
+            }
+            apply(journalLength);
+            replayed++;
+        }
+        for (int at = (int) journalLength; at < journal.capacity(); at++) {
+            journal.put(at, (byte) 0);
+        }
+        writeIndexHeader();
+        journal.force();
+        index.force();
+        System.out.println("Recovered chat history from " + replayed + " journal records");
+    }
+
+    synchronized int size() {
+        return sessions;
+    }
+
+    synchronized int create(String id, String title, long timeMillis) throws IOException {
+        long created = append(TYPE_CREATE, sessions, timeMillis, -1, id);
+        int session = apply(created);
+        setTitle(session, title, timeMillis);
+        return session;
+    }
+
+    synchronized void setTitle(int session, String title, long timeMillis) throws IOException {
+        apply(append(TYPE_TITLE, session, timeMillis, -1, title));
+    }
+
+    synchronized void appendMessage(int session, ChatMessage message) throws IOException {
+        byte type = message.isUser ? TYPE_USER_MESSAGE : TYPE_AI_MESSAGE;
+        apply(append(type, session, message.timeMillis, slotLong(session, SLOT_HEAD), message.content));
+    }
+
+    synchronized void clear(int session, long timeMillis) throws IOException {
+        apply(append(TYPE_CLEAR, session, timeMillis, slotLong(session, SLOT_HEAD), ""));
+    }
+
+    synchronized String getId(int session) {
+        return payload(slotLong(session, SLOT_CREATE));
+    }
+
+    synchronized String getTitle(int session) {
+        return payload(slotLong(session, SLOT_TITLE));
+    }
+
+    synchronized long getCreatedMillis(int session) {
+        return slotLong(session, SLOT_CREATED_MILLIS);
+    }
+
+    synchronized int getMessageCount(int session) {
+        return index.getInt(slot(session) + SLOT_MESSAGES);
+    }
+
+    // Oldest first
+    synchronized List<ChatMessage> readMessages(int session) {
+        List<ChatMessage> messages = new ArrayList<>(getMessageCount(session));
+        long position = slotLong(session, SLOT_HEAD);
+        while (position >= 0) {
+            int at = (int) position;
+            byte type = journal.get(at + 8);
+            if (type == TYPE_CLEAR) break;
+            messages.add(new ChatMessage(payload(position), type == TYPE_USER_MESSAGE, journal.getLong(at + 13)));
+            position = journal.getLong(at + 21);
+        }
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    synchronized void close() {
+        try {
+            if (journal != null) journal.force();
+            if (index != null) index.force();
+            journalChannel.close();
+            indexChannel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing chat journal: " + e.getMessage());
+        }
+    }
+
+    private long append(byte type, int session, long timeMillis, long previous, String payload) throws IOException {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        int length = RECORD_HEADER_BYTES + bytes.length;
+        journal = ensureCapacity(journalChannel, journal, journalLength + length);
+        int at = (int) journalLength;
+        journal.putInt(at, length);
+        journal.put(at + 8, type);
+        journal.putInt(at + 9, session);
+        journal.putLong(at + 13, timeMillis);
+        journal.putLong(at + 21, previous);
+        journal.put(at + RECORD_HEADER_BYTES, bytes);
+        journal.putInt(at + 4, checksum(at, length));
+        return journalLength;
+    }
+
+    // Points the index at a record already in the journal; returns its session
+    private int apply(long position) throws IOException {
+        int at = (int) position;
+        byte type = journal.get(at + 8);
+        int session = journal.getInt(at + 9);
+        long timeMillis = journal.getLong(at + 13);
+        if (type == TYPE_CREATE) {
+            if (session != sessions) throw new IOException("Chat journal out of order at " + position);
+            index = ensureCapacity(indexChannel, index, INDEX_HEADER_BYTES + (long) (sessions + 1) * SLOT_BYTES);
+            int slot = slot(session);
+            index.putLong(slot + SLOT_CREATE, position);
+            index.putLong(slot + SLOT_TITLE, -1);
+            index.putLong(slot + SLOT_HEAD, -1);
+            index.putLong(slot + SLOT_CREATED_MILLIS, timeMillis);
+            index.putInt(slot + SLOT_MESSAGES, 0);
+            sessions++;
+        } else if (session < 0 || session >= sessions) {
+            throw new IOException("Chat journal record for unknown session " + session + " at " + position);
+        } else if (type == TYPE_TITLE) {
+            index.putLong(slot(session) + SLOT_TITLE, position);
+        } else {
+            int slot = slot(session);
+            index.putLong(slot + SLOT_HEAD, position);
+            index.putInt(slot + SLOT_MESSAGES, type == TYPE_CLEAR ? 0 : index.getInt(slot + SLOT_MESSAGES) + 1);
+        }
+        index.putLong(slot(session) + SLOT_UPDATED_MILLIS, timeMillis);
+
+        long end = position + journal.getInt(at);
+        if (end > journalLength) journalLength = end;
+        writeIndexHeader();
+        return session;
+    }
+
+    private void writeIndexHeader() {
+        index.putInt(8, sessions);
+        index.putLong(16, journalLength);
+    }
+
+    private String payload(long position) {
+        if (position < 0) return "";
+        int at = (int) position;
+        byte[] bytes = new byte[journal.getInt(at) - RECORD_HEADER_BYTES];
+        journal.get(at + RECORD_HEADER_BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int checksum(int at, int length) {
+        crc.reset();
+        crc.update(journal.slice(at + 8, length - 8));
+        return (int) crc.getValue();
+    }
+
+    private int slot(int session) {
+        return INDEX_HEADER_BYTES + session * SLOT_BYTES;
+    }
+
+    private long slotLong(int session, int field) {
+        return index.getLong(slot(session) + field);
+    }
+
+    // Mappings grow by doubling; a single mapping is limited to 2GB
+    private static MappedByteBuffer ensureCapacity(FileChannel channel, MappedByteBuffer map, long needed) throws IOException {
+        if (needed <= map.capacity()) return map;
+        long capacity = map.capacity();
+        while (capacity < needed) capacity *= 2;
+        if (needed > Integer.MAX_VALUE) throw new IOException("Chat journal full");
+        return map(channel, Math.min(capacity, Integer.MAX_VALUE));
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long size) throws IOException {
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        return map;
+    }
+}
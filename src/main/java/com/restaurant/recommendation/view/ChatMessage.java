@@ -0,0 +1,14 @@
+package com.restaurant.recommendation.view;
+
+// One chat message as shown and as stored in the ChatJournal
+final class ChatMessage {
+    final String content;
+    final boolean isUser;
+    final long timeMillis;
+
+    ChatMessage(String content, boolean isUser, long timeMillis) {
+        this.content = content;
+        this.isUser = isUser;
+        this.timeMillis = timeMillis;
+    }
+}
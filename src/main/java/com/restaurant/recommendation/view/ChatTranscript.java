@@ -0,0 +1,119 @@
+package com.restaurant.recommendation.view;
+
+import javax.swing.JTextPane;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.html.HTMLDocument;
+import javax.swing.text.html.HTMLEditorKit;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+
+// Renders chat messages into a JTextPane's HTMLDocument one element at a time. Appending inserts a
+// single message element at the end of the message container and replacing rewrites only that
+// element, so the document never goes back through getText()/setText() and Swing only builds and
+// lays out views for what changed. Each call costs the size of one message, not the conversation.
+//
+// Handles returned by append/replace stay valid until the message is replaced or removed, or the
+// transcript is cleared; stale handles are ignored. EDT only.
+class ChatTranscript {
+    private static final String CONTAINER_ID = "messages";
+    private static final String EMPTY_HTML = "<html><body style='background-color: #ffffff; margin: 0; padding: 10px;'>"
+        + "<div id='" + CONTAINER_ID + "'></div></body></html>";
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final JTextPane pane;
+    private final HTMLEditorKit kit = new HTMLEditorKit();
+    private HTMLDocument document;
+    private Element container;
+
+    ChatTranscript(JTextPane pane) {
+        this.pane = pane;
+        pane.setEditorKit(kit);
+        clear();
+    }
+
+    // Swaps in a fresh document rather than deleting the old content element by element
+    void clear() {
+        HTMLDocument fresh = (HTMLDocument) kit.createDefaultDocument();
+        try {
+            kit.read(new StringReader(EMPTY_HTML), fresh, 0);
+        } catch (IOException | BadLocationException e) {
+            throw new IllegalStateException("Cannot initialize chat document", e);
+        }
+        pane.setDocument(fresh);
+        document = fresh;
+        container = fresh.getElement(CONTAINER_ID);
+    }
+
+    Element append(String message, boolean isUser) {
+        try {
+            document.insertBeforeEnd(container, messageHtml(message, isUser));
+        } catch (IOException | BadLocationException e) {
+            throw new IllegalStateException("Cannot append chat message", e);
+        }
+        scrollToEnd();
+        return container.getElement(container.getElementCount() - 1);
+    }
+
+    // Rewrites one message in place, e.g. a placeholder as streamed text arrives; returns its new handle,
+    // or null if the handle was stale
+    Element replace(Element message, String text, boolean isUser) {
+        int index = indexOf(message);
+        if (index < 0) return null;
+        try {
+            document.setOuterHTML(message, messageHtml(text, isUser));
+        } catch (IOException | BadLocationException e) {
+            throw new IllegalStateException("Cannot replace chat message", e);
+        }
+        scrollToEnd();
+        return container.getElement(index);
+    }
+
+    void remove(Element message) {
+        if (indexOf(message) >= 0) {
+            document.removeElement(message);
+        }
+    }
+
+    private int indexOf(Element message) {
+        if (message == null || message.getDocument() != document) return -1;
+        // Messages are usually removed or replaced right after being added, so search from the end
+        for (int i = container.getElementCount() - 1; i >= 0; i--) {
+            if (container.getElement(i) == message) return i;
+        }
+        return -1;
+    }
+
+    private void scrollToEnd() {
+        pane.setCaretPosition(document.getLength());
+    }
+
+    private static String messageHtml(String message, boolean isUser) {
+        String color = isUser ? "#ffb380" : "#f0f0f0";  // Light orange for user, light gray for AI
+        String textColor = isUser ? "#333333" : "#222222";
+        String alignment = isUser ? "right" : "left";
+        return "<div style='margin: 10px 0; padding: 12px; background-color: " + color + "; color: " + textColor + "; "
+            + "border-radius: 8px; max-width: 70%; margin-" + (isUser ? "left" : "right") + ": auto; text-align: " + alignment
+            + "; border: 1px solid #e0e0e0;'>"
+            + "<div style='font-size: 14px; line-height: 1.4;'>" + escapeHtml(message) + "</div>"
+            + "<div style='font-size: 11px; color: #666666; margin-top: 5px;'>" + LocalTime.now().format(TIME_FORMAT) + "</div>"
+            + "</div>";
+    }
+
+    private static String escapeHtml(String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&': escaped.append("&amp;"); break;
+                case '<': escaped.append("&lt;"); break;
+                case '>': escaped.append("&gt;"); break;
+                case '\n': escaped.append("<br>"); break;
+                default: escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
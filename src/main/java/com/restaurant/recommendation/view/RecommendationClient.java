@@ -0,0 +1,213 @@
+package com.restaurant.recommendation.view;
+
+import com.restaurant.recommendation.core.AppConfig;
+import com.restaurant.recommendation.core.JsonReader;
+import com.restaurant.recommendation.core.JsonWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Talks to the recommendation server over one shared HttpClient, so connections are kept alive
+// between messages. It speaks HTTP/1.1 because the JDK server has no HTTP/2; asking for it would
+// only add an upgrade attempt to every connection.
+// Every call is asynchronous; callbacks run on the client's own daemon threads, not the EDT.
+//
+// Configured from application.properties or -D flags:
+//   ui.server.url                base URL of the server (default http://localhost:8080)
+//   ui.connect.timeout.ms        TCP/TLS connect timeout
+//   ui.request.timeout.ms        time allowed until response headers arrive
+public class RecommendationClient {
+    private static final String SESSION_HEADER = "X-Session-Id";
+    private static final long MAX_RESPONSE_BYTES = 16L * 1024 * 1024;
+    private static final String[] RESPONSE_FIELDS = {"aiExplanation"};
+
+    private final URI baseUri;
+    private final Duration requestTimeout;
+    private final ExecutorService executor;
+    private final HttpClient client;
+
+    public RecommendationClient(String baseUrl, Duration connectTimeout, Duration requestTimeout) {
+        this.baseUri = URI.create(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/");
+        this.requestTimeout = requestTimeout;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "ui-http-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(connectTimeout)
+            .executor(executor)
+            .build();
+    }
+
+    public static RecommendationClient fromConfig(AppConfig config) {
+        return new RecommendationClient(
+            config.getString("ui.server.url", "http://localhost:8080"),
+            Duration.ofMillis(config.getLong("ui.connect.timeout.ms", 5_000)),
+            Duration.ofMillis(config.getLong("ui.request.timeout.ms", 30_000)));
+    }
+
+    // Streams from /api/recommendations/stream, passing each text delta to onDelta as it arrives and
+    // completing with the full text. Falls back to the non-streaming endpoint on a 404.
+    public CompletableFuture<String> streamRecommendation(String userInput, String sessionId, Consumer<String> onDelta) {
+        SseSubscriber events = new SseSubscriber(onDelta);
+        HttpRequest request = post("api/recommendations/stream", sessionId, userInput)
+            .header("Accept", "text/event-stream")
+            .build();
+        return client.sendAsync(request, info -> info.statusCode() == 200
+                ? HttpResponse.BodySubscribers.fromLineSubscriber(events)
+                : HttpResponse.BodySubscribers.discarding())
+            .thenCompose(response -> {
+                if (response.statusCode() == 404) return getRecommendation(userInput, sessionId);
+                if (response.statusCode() != 200) {
+                    return CompletableFuture.failedFuture(new IOException("Server returned code: " + response.statusCode()));
+                }
+                return events.result;
+            });
+    }
+
+    // Completes with the response's aiExplanation, read straight off the body stream
+    public CompletableFuture<String> getRecommendation(String userInput, String sessionId) {
+        HttpRequest request = post("api/recommendations", sessionId, userInput).build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+            .thenApplyAsync(response -> {
+                try (InputStream body = response.body()) {
+                    if (response.statusCode() != 200) {
+                        throw new IOException("Server returned code: " + response.statusCode());
+                    }
+                    return readExplanation(body);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+    }
+
+    public CompletableFuture<Void> resetConversation(String sessionId) {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("api/recommendations/reset"))
+            .timeout(requestTimeout)
+            .header(SESSION_HEADER, sessionId)
+            .POST(HttpRequest.BodyPublishers.noBody())
+            .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).thenApply(response -> null);
+    }
+
+    private HttpRequest.Builder post(String path, String sessionId, String userInput) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+            .timeout(requestTimeout)
+            .header("Content-Type", "application/json")
+            .header(SESSION_HEADER, sessionId)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(requestJson(userInput)));
+    }
+
+    private static byte[] requestJson(String userInput) {
+        JsonWriter json = JsonWriter.acquire();
+        try {
+            json.beginObject()
+                .name("userPreference").value(userInput)
+                .name("location").value("")
+                .name("cuisine").value("")
+                .name("priceRange").value("")
+                .name("numberOfPeople").value(1)
+                .name("occasion").value("")
+                .endObject();
+            return json.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            json.release();
+        }
+    }
+
+    private static String readExplanation(InputStream body) throws IOException {
+        JsonReader reader = new JsonReader(body, MAX_RESPONSE_BYTES);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextNameIndex(RESPONSE_FIELDS) == 0 && reader.peek() == JsonReader.Token.STRING) {
+                return reader.nextString();
+            }
+            reader.skipValue();
+        }
+        return "Unable to parse response.";
+    }
+
+    // Parses Server-Sent Events line by line as the body arrives: "data:" lines accumulate until a
+    // blank line ends the event, then "done" completes the result and "error" fails it
+    private static class SseSubscriber implements Flow.Subscriber<String> {
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        private final Consumer<String> onDelta;
+        private final StringBuilder full = new StringBuilder();
+        private final StringBuilder data = new StringBuilder();
+        private String event;
+        private boolean hasData;
+        private Flow.Subscription subscription;
+
+        SseSubscriber(Consumer<String> onDelta) {
+            this.onDelta = onDelta;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (result.isDone()) return;
+            if (line.isEmpty()) {
+                if ("done".equals(event)) {
+                    finish();
+                    return;
+                } else if ("error".equals(event)) {
+                    result.completeExceptionally(new IOException(data.toString()));
+                    subscription.cancel();
+                    return;
+                } else if (hasData) {
+                    full.append(data);
+                    onDelta.accept(data.toString());
+                }
+                event = null;
+                data.setLength(0);
+                hasData = false;
+            } else if (line.startsWith("event:")) {
+                event = line.substring(6).trim();
+            } else if (line.startsWith("data:")) {
+                String value = line.substring(5);
+                if (value.startsWith(" ")) value = value.substring(1);
+                if (hasData) data.append('\n');
+                data.append(value);
+                hasData = true;
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            result.completeExceptionally(error);
+        }
+
+        // A stream that ends without a "done" event still yields what arrived
+        @Override
+        public void onComplete() {
+            finish();
+        }
+
+        private void finish() {
+            result.complete(full.toString());
+        }
+    }
+}
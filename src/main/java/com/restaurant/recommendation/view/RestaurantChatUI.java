@@ -1,21 +1,18 @@
 package com.restaurant.recommendation.view;
 
+import com.restaurant.recommendation.core.AppConfig;
+
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.text.Element;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
+import java.awt.event.MouseMotionAdapter;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class RestaurantChatUI extends JFrame {
 
@@ -31,6 +28,9 @@ public class RestaurantChatUI extends JFrame {
     private static final Color USER_MESSAGE_COLOR = new Color(255, 120, 55); // Orange for user messages
     private static final Color AI_MESSAGE_COLOR = new Color(240, 240, 240);  // Light gray for AI messages
 
+    // Client property holding the chat history row under the mouse
+    private static final String HOVER_ROW = "chatHistory.hoverRow";
+
     // Components
     private JPanel mainPanel;
     private JPanel sidebarPanel;
@@ -38,41 +38,18 @@ public class RestaurantChatUI extends JFrame {
     private JPanel homePanel;
     private JPanel chatPanel;
     private JTextPane chatArea;
+    private ChatTranscript transcript;
     private JTextField messageInput;
     private JButton sendButton;
-    private JPanel chatHistoryPanel;
-
-    // Chat management
-    private List<ChatSession> chatSessions = new ArrayList<>();
-    private ChatSession currentChat;
-    private boolean isInChatMode = false;
-
-    // Chat session class
-    private static class ChatSession {
-        String id;
-        String title;
-        String timestamp;
-        List<Message> messages;
-
-        ChatSession(String title) {
-            this.id = "chat_" + System.currentTimeMillis();
-            this.title = title;
-            this.timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMM dd, HH:mm"));
-            this.messages = new ArrayList<>();
-        }
-    }
+    private JList<Integer> chatHistoryList;
 
-    private static class Message {
-        String content;
-        boolean isUser;
-        String timestamp;
+    // Shared by every chat, so messages reuse the same connections
+    private final RecommendationClient client = RecommendationClient.fromConfig(AppConfig.load());
 
-        Message(String content, boolean isUser) {
-            this.content = content;
-            this.isUser = isUser;
-            this.timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm"));
-        }
-    }
+    // Chat management; chats are kept on disk and referred to by session number
+    private final ChatHistory chatHistory = ChatHistory.open(AppConfig.load());
+    private int currentChat = -1;
+    private boolean isInChatMode = false;
 
     public RestaurantChatUI() {
         initializeUI();
@@ -141,13 +118,10 @@ public class RestaurantChatUI extends JFrame {
 
         sidebarPanel.add(Box.createVerticalStrut(10));
 
-        // Chat history container
-        chatHistoryPanel = new JPanel();
-        chatHistoryPanel.setLayout(new BoxLayout(chatHistoryPanel, BoxLayout.Y_AXIS));
-        chatHistoryPanel.setBackground(SIDEBAR_COLOR);
-        chatHistoryPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        // Chat history list; rows are only rendered while in view
+        chatHistoryList = createChatHistoryList();
 
-        JScrollPane historyScroll = new JScrollPane(chatHistoryPanel);
+        JScrollPane historyScroll = new JScrollPane(chatHistoryList);
         historyScroll.setBackground(SIDEBAR_COLOR);
         historyScroll.setBorder(null);
         historyScroll.setAlignmentX(Component.LEFT_ALIGNMENT);
@@ -250,6 +224,7 @@ public class RestaurantChatUI extends JFrame {
         chatArea.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         chatArea.setEditable(false);
         chatArea.setBorder(new EmptyBorder(10, 10, 10, 10));
+        transcript = new ChatTranscript(chatArea);
 
         JScrollPane chatScroll = new JScrollPane(chatArea);
         chatScroll.setBorder(null);
@@ -410,13 +385,13 @@ public class RestaurantChatUI extends JFrame {
 
     private void startNewChat() {
         String title = "New Restaurant Chat";
-        currentChat = new ChatSession(title);
-        chatSessions.add(currentChat);
+        currentChat = chatHistory.create(title);
 
         isInChatMode = true;
         clearChatDisplay();
         addWelcomeMessage();
-        updateChatHistory();
+        chatHistoryList.setSelectedIndex(currentChat);
+        chatHistoryList.ensureIndexIsVisible(currentChat);
         showChatPanel();
         messageInput.requestFocus();
     }
@@ -431,8 +406,8 @@ public class RestaurantChatUI extends JFrame {
     }
 
     private void clearCurrentChat() {
-        if (currentChat != null) {
-            currentChat.messages.clear();
+        if (currentChat >= 0) {
+            chatHistory.clear(currentChat);
             clearChatDisplay();
             addWelcomeMessage();
             resetConversationOnServer();
@@ -440,68 +415,87 @@ public class RestaurantChatUI extends JFrame {
     }
 
     private void clearChatDisplay() {
-        chatArea.setText("");
+        transcript.clear();
     }
 
-    private void updateChatHistory() {
-        chatHistoryPanel.removeAll();
-
-        for (ChatSession session : chatSessions) {
-            JButton chatBtn = createChatHistoryButton(session);
-            chatHistoryPanel.add(chatBtn);
-            chatHistoryPanel.add(Box.createVerticalStrut(5));
-        }
-
-        chatHistoryPanel.revalidate();
-        chatHistoryPanel.repaint();
-    }
-
-    private JButton createChatHistoryButton(ChatSession session) {
-        JButton button = new JButton();
-        button.setLayout(new BoxLayout(button, BoxLayout.Y_AXIS));
-        button.setBackground(SIDEBAR_COLOR);
-        button.setBorder(new EmptyBorder(8, 12, 8, 12));
-        button.setFocusPainted(false);
-        button.setAlignmentX(Component.LEFT_ALIGNMENT);
-        button.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
-        button.setMaximumSize(new Dimension(240, 50));
-
-        JLabel titleLabel = new JLabel(session.title);
-        titleLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
-        titleLabel.setForeground(TEXT_PRIMARY);
-        titleLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
-
-        JLabel timeLabel = new JLabel(session.timestamp);
-        timeLabel.setFont(new Font("Segoe UI", Font.PLAIN, 10));
-        timeLabel.setForeground(TEXT_SECONDARY);
-        timeLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
-
-        button.add(titleLabel);
-        button.add(timeLabel);
-
-        button.addActionListener(e -> loadChatSession(session));
-
-        button.addMouseListener(new MouseAdapter() {
+    private JList<Integer> createChatHistoryList() {
+        JList<Integer> list = new JList<>(chatHistory);
+        list.setBackground(SIDEBAR_COLOR);
+        list.setAlignmentX(Component.LEFT_ALIGNMENT);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        // Fixed row size, so the list never measures rows that aren't shown
+        list.setFixedCellWidth(240);
+        list.setFixedCellHeight(50);
+        list.setCellRenderer(new ChatHistoryRenderer());
+
+        list.addMouseListener(new MouseAdapter() {
             @Override
-            public void mouseEntered(MouseEvent e) {
-                button.setBackground(CARD_COLOR);
+            public void mouseClicked(MouseEvent e) {
+                int row = list.locationToIndex(e.getPoint());
+                if (row >= 0 && list.getCellBounds(row, row).contains(e.getPoint())) {
+                    loadChatSession(row);
+                }
             }
 
             @Override
             public void mouseExited(MouseEvent e) {
-                button.setBackground(SIDEBAR_COLOR);
+                list.putClientProperty(HOVER_ROW, -1);
+                list.repaint();
             }
         });
+        list.addMouseMotionListener(new MouseMotionAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                int row = list.locationToIndex(e.getPoint());
+                if (!Integer.valueOf(row).equals(list.getClientProperty(HOVER_ROW))) {
+                    list.putClientProperty(HOVER_ROW, row);
+                    list.repaint();
+                }
+            }
+        });
+        return list;
+    }
 
-        return button;
+    // One reused component paints every visible row, styled like the sidebar buttons
+    private class ChatHistoryRenderer extends JPanel implements ListCellRenderer<Integer> {
+        private final JLabel titleLabel = new JLabel();
+        private final JLabel timeLabel = new JLabel();
+
+        ChatHistoryRenderer() {
+            setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+            setBorder(new EmptyBorder(8, 12, 8, 12));
+
+            titleLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+            titleLabel.setForeground(TEXT_PRIMARY);
+            titleLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+            timeLabel.setFont(new Font("Segoe UI", Font.PLAIN, 10));
+            timeLabel.setForeground(TEXT_SECONDARY);
+            timeLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+            add(titleLabel);
+            add(timeLabel);
+        }
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends Integer> list, Integer session, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            titleLabel.setText(chatHistory.getTitle(session));
+            timeLabel.setText(chatHistory.getTimestamp(session));
+            boolean hovered = Integer.valueOf(index).equals(list.getClientProperty(HOVER_ROW));
+            setBackground(isSelected || hovered ? CARD_COLOR : SIDEBAR_COLOR);
+            return this;
+        }
     }
 
-    private void loadChatSession(ChatSession session) {
+    private void loadChatSession(int session) {
         currentChat = session;
         isInChatMode = true;
         clearChatDisplay();
+        chatHistoryList.setSelectedIndex(session);
 
-        for (Message msg : session.messages) {
+        for (ChatMessage msg : chatHistory.getMessages(session)) {
             appendToChatArea(msg.content, msg.isUser);
         }
 
@@ -518,176 +512,68 @@ public class RestaurantChatUI extends JFrame {
         sendButton.setEnabled(false);
 
         // Add user message
-        Message userMsg = new Message(message, true);
-        currentChat.messages.add(userMsg);
+        chatHistory.addMessage(currentChat, new ChatMessage(message, true, System.currentTimeMillis()));
         appendToChatArea(message, true);
 
-        // Show thinking indicator
-        appendToChatArea("Thinking...", false);
+        // Show thinking indicator; streamed text replaces it in place
+        Element[] placeholder = {appendToChatArea("Thinking...", false)};
 
-        new Thread(() -> {
-            try {
-                String response = callAI(message);
+        // The reply belongs to this chat even if the user switches to another one meanwhile
+        int chat = currentChat;
+        String sessionId = chatHistory.getId(chat);
 
+        // Render streamed text as it arrives, coalescing bursts of tokens into one repaint
+        StringBuilder streamed = new StringBuilder();
+        AtomicBoolean renderPending = new AtomicBoolean();
+        client.streamRecommendation(message, sessionId, delta -> {
+            synchronized (streamed) {
+                streamed.append(delta);
+            }
+            if (renderPending.compareAndSet(false, true)) {
                 SwingUtilities.invokeLater(() -> {
-                    // Remove thinking indicator
-                    removeLastMessage();
-
-                    // Add AI response
-                    Message aiMsg = new Message(response, false);
-                    currentChat.messages.add(aiMsg);
-                    appendToChatArea(response, false);
-
-                    // Update chat title if this is the first user message
-                    if (currentChat.messages.size() == 2) { // Welcome + User + AI
-                        String shortTitle = message.length() > 30 ? message.substring(0, 30) + "..." : message;
-                        currentChat.title = shortTitle;
-                        updateChatHistory();
+                    renderPending.set(false);
+                    String text;
+                    synchronized (streamed) {
+                        text = streamed.toString();
                     }
-                });
-
-            } catch (Exception e) {
-                SwingUtilities.invokeLater(() -> {
-                    removeLastMessage();
-                    appendToChatArea("Sorry, I encountered an error: " + e.getMessage(), false);
-                });
-            } finally {
-                SwingUtilities.invokeLater(() -> {
-                    messageInput.setEnabled(true);
-                    sendButton.setEnabled(true);
-                    messageInput.requestFocus();
+                    placeholder[0] = transcript.replace(placeholder[0], text, false);
                 });
             }
-        }).start();
-    }
-
-    private void appendToChatArea(String message, boolean isUser) {
-        try {
-            String color = isUser ? "#ffb380" : "#f0f0f0";  // Light orange for user, light gray for AI
-            String textColor = isUser ? "#333333" : "#222222";  // Dark text for both for better readability
-            String alignment = isUser ? "right" : "left";
-            String time = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm"));
-
-            String html = String.format(
-                "<div style='margin: 10px 0; padding: 12px; background-color: %s; color: %s; " +
-                    "border-radius: 8px; max-width: 70%%; margin-%s: auto; text-align: %s; " +
-                    "border: 1px solid #e0e0e0;'>" +
-                    "<div style='font-size: 14px; line-height: 1.4;'>%s</div>" +
-                    "<div style='font-size: 11px; color: %s; margin-top: 5px;'>%s</div>" +
-                    "</div>",
-                color, textColor, isUser ? "left" : "right", alignment,
-                message.replace("\n", "<br>"),
-                isUser ? "#666666" : "#666666",  // Same gray for time stamps
-                time
-            );
-
-            chatArea.setContentType("text/html");
-            String currentContent = chatArea.getText();
-            if (currentContent.contains("<body>")) {
-                currentContent = currentContent.replace("</body>", html + "</body>");
+        }).whenComplete((response, error) -> SwingUtilities.invokeLater(() -> {
+            // Remove thinking indicator (or the partial streamed text); a no-op if the chat was switched
+            transcript.remove(placeholder[0]);
+            boolean visible = currentChat == chat;
+
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (visible) appendToChatArea("Sorry, I encountered an error: " + cause.getMessage(), false);
             } else {
-                currentContent = "<html><body style='background-color: #ffffff; margin: 0; padding: 10px;'>" + html + "</body></html>";
-            }
-            chatArea.setText(currentContent);
-
-            // Auto scroll to bottom
-            chatArea.setCaretPosition(chatArea.getDocument().getLength());
-
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
-
-    private void removeLastMessage() {
-        try {
-            String content = chatArea.getText();
-            int lastDivStart = content.lastIndexOf("<div style='margin: 10px 0;");
-            if (lastDivStart > 0) {
-                int divEnd = content.indexOf("</div>", lastDivStart);
-                if (divEnd > 0) {
-                    divEnd = content.indexOf("</div>", divEnd + 1) + 6; // Include the closing tag
-                    content = content.substring(0, lastDivStart) + content.substring(divEnd);
-                    chatArea.setText(content);
+                // Add AI response
+                chatHistory.addMessage(chat, new ChatMessage(response, false, System.currentTimeMillis()));
+                if (visible) appendToChatArea(response, false);
+
+                // Update chat title if this is the first user message
+                if (chatHistory.getMessageCount(chat) == 2) { // User + AI
+                    String shortTitle = message.length() > 30 ? message.substring(0, 30) + "..." : message;
+                    chatHistory.setTitle(chat, shortTitle);
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
-
-    private String callAI(String userInput) throws Exception {
-        String json = "{" +
-            "\"userPreference\":\"" + escapeJson(userInput) + "\"," +
-            "\"location\":\"\"," +
-            "\"cuisine\":\"\"," +
-            "\"priceRange\":\"\"," +
-            "\"numberOfPeople\":1," +
-            "\"occasion\":\"\"" +
-            "}";
-
-        URL url = new URL("http://localhost:8080/api/recommendations");
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setDoOutput(true);
-        conn.setConnectTimeout(30000);
-        conn.setReadTimeout(30000);
-
-        try (OutputStream os = conn.getOutputStream()) {
-            os.write(json.getBytes("UTF-8"));
-            os.flush();
-        }
-
-        int responseCode = conn.getResponseCode();
-        if (responseCode != 200) {
-            throw new Exception("Server returned code: " + responseCode);
-        }
 
-        StringBuilder response = new StringBuilder();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(conn.getInputStream(), "UTF-8"))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                response.append(line);
-            }
-        }
-
-        String resp = response.toString();
-        int idx = resp.indexOf("\"aiExplanation\"");
-        if (idx != -1) {
-            int start = resp.indexOf(":", idx) + 1;
-            int end = resp.indexOf(",\"reasoning\"", start);
-            if (end == -1) end = resp.indexOf("}", start);
-            if (start > 0 && end > start) {
-                String value = resp.substring(start, end).trim();
-                if (value.startsWith("\"") && value.endsWith("\"")) {
-                    value = value.substring(1, value.length() - 1);
-                }
-                return value.replace("\\n", "\n").replace("\\\"", "\"").replace("\\\\", "\\");
-            }
-        }
+            messageInput.setEnabled(true);
+            sendButton.setEnabled(true);
+            messageInput.requestFocus();
+        }));
+    }
 
-        return "Unable to parse response.";
+    private Element appendToChatArea(String message, boolean isUser) {
+        return transcript.append(message, isUser);
     }
 
     private void resetConversationOnServer() {
-        try {
-            URL url = new URL("http://localhost:8080/api/recommendations/reset");
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setConnectTimeout(5000);
-            conn.getResponseCode(); // Just trigger the reset
-        } catch (Exception e) {
+        client.resetConversation(chatHistory.getId(currentChat)).exceptionally(e -> {
             System.err.println("Failed to reset server conversation: " + e.getMessage());
-        }
-    }
-
-    private String escapeJson(String str) {
-        if (str == null) return "";
-        return str.replace("\\", "\\\\")
-            .replace("\"", "\\\"")
-            .replace("\n", "\\n")
-            .replace("\r", "\\r")
-            .replace("\t", "\\t");
+            return null;
+        });
     }
 
     public static void main(String[] args) {
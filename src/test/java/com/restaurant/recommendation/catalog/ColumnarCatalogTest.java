@@ -0,0 +1,137 @@
+package com.restaurant.recommendation.catalog;
+
+import com.restaurant.recommendation.geo.GeoPoint;
+import com.restaurant.recommendation.model.Restaurant;
+import com.restaurant.recommendation.ranking.RankingEngine;
+import com.restaurant.recommendation.ranking.RankingWeights;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarCatalogTest {
+    private static final List<CatalogQuery> QUERIES = List.of(
+        new CatalogQuery("Italian", null, null, null),
+        new CatalogQuery(null, "San Jose, CA", "$$", null),
+        new CatalogQuery("Thai", "San Francisco", null, "spicy curry"),
+        new CatalogQuery(null, null, null, "tonkotsu ramen"),
+        new CatalogQuery(null, null, null, "plant-based bowls"),
+        new CatalogQuery("Mexican", null, null, null, new GeoPoint(37.33, -121.89), 10.0),
+        new CatalogQuery(null, null, null, "cheap sushi in san francisco"));
+
+    @TempDir
+    Path dir;
+
+    private ListCatalogStore source;
+    private Path file;
+
+    @BeforeEach
+    void writeCatalog() throws IOException {
+        source = new ListCatalogStore(CatalogLoader.load("restaurants.csv"));
+        file = dir.resolve("restaurants.rcat");
+        long bytes = ColumnarCatalogWriter.write(source, file);
+        assertEquals(Files.size(file), bytes);
+    }
+
+    private static RankingEngine ranker() {
+        return new RankingEngine(RankingWeights.DEFAULTS);
+    }
+
+    private static List<Long> ids(List<Restaurant> restaurants) {
+        List<Long> ids = new ArrayList<>();
+        for (Restaurant restaurant : restaurants) {
+            ids.add(restaurant.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    void savedIndexesMatchBuiltOnes() throws IOException {
+        MappedCatalogStore mapped = MappedCatalogStore.open(file);
+        CatalogIndexes saved = mapped.readIndexes();
+        assertNotNull(saved);
+        CatalogIndexes built = CatalogIndexes.build(source, true);
+
+        assertEquals(built.index.terms(), saved.index.terms());
+        for (String term : built.index.terms()) {
+            assertArrayEquals(built.index.postings(term), saved.index.postings(term), term);
+        }
+        assertArrayEquals(built.geoIndex.getKeys(), saved.geoIndex.getKeys());
+        assertArrayEquals(built.unlocated, saved.unlocated);
+        assertArrayEquals(built.rankingColumns.ratings(), saved.rankingColumns.ratings());
+        assertArrayEquals(built.rankingColumns.priceTiers(), saved.rankingColumns.priceTiers());
+        assertArrayEquals(built.rankingColumns.cuisineIds(), saved.rankingColumns.cuisineIds());
+        assertEquals(built.rankingColumns.cuisineNames(), saved.rankingColumns.cuisineNames());
+
+        assertNotNull(saved.vectorIndex);
+        assertEquals(built.vectorIndex.getLists(), saved.vectorIndex.getLists());
+        assertArrayEquals(built.vectorIndex.getRowOrdinals(), saved.vectorIndex.getRowOrdinals());
+        float[] query = built.vectorizer.vectorize("spicy noodle soup");
+        assertArrayEquals(query, saved.vectorizer.vectorize("spicy noodle soup"));
+        for (int ordinal = 0; ordinal < source.size(); ordinal++) {
+            assertEquals(built.vectorIndex.similarity(query, ordinal), saved.vectorIndex.similarity(query, ordinal));
+        }
+    }
+
+    @Test
+    void mappedCatalogSearchesLikeTheHeapOne() throws IOException {
+        RestaurantCatalog heap = new RestaurantCatalog(CatalogLoader.load("restaurants.csv"));
+        RestaurantCatalog mapped = RestaurantCatalog.load(file.toString(), ranker());
+        assertEquals(heap.size(), mapped.size());
+        for (int ordinal = 0; ordinal < heap.size(); ordinal++) {
+            assertEquals(heap.get(ordinal).getId(), mapped.get(ordinal).getId());
+            assertEquals(heap.get(ordinal).getName(), mapped.get(ordinal).getName());
+        }
+        for (CatalogQuery query : QUERIES) {
+            List<Long> expected = ids(heap.search(query, 5));
+            assertFalse(expected.isEmpty(), query.getText());
+            assertEquals(expected, ids(mapped.search(query, 5)), query.getText());
+        }
+    }
+
+    @Test
+    void versionOneFilesAreIndexedOnOpen() throws IOException {
+        // A version 1 file is the same records without the index section
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        int rows = bytes.getInt(8);
+        int strings = bytes.getInt(12);
+        long heapEnd = MappedCatalogStore.HEADER_BYTES + 32L * rows + 4L * MappedCatalogStore.STRING_COLUMNS * rows
+            + 4L * (strings + 1) + bytes.getLong(24);
+        bytes.putInt(4, 1);
+        Path old = dir.resolve("old.rcat");
+        Files.write(old, Arrays.copyOf(bytes.array(), (int) heapEnd));
+
+        assertNull(MappedCatalogStore.open(old).readIndexes());
+        RestaurantCatalog catalog = RestaurantCatalog.load(old.toString(), ranker());
+        RestaurantCatalog current = RestaurantCatalog.load(file.toString(), ranker());
+        for (CatalogQuery query : QUERIES) {
+            assertEquals(ids(current.search(query, 5)), ids(catalog.search(query, 5)), query.getText());
+        }
+    }
+
+    @Test
+    void truncatedIndexesAreRejected() throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        Path truncated = dir.resolve("truncated.rcat");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 4));
+        MappedCatalogStore store = MappedCatalogStore.open(truncated);
+        IOException error = assertThrows(IOException.class, store::readIndexes);
+        assertTrue(error.getMessage().contains("truncated or corrupt"), error.getMessage());
+    }
+}
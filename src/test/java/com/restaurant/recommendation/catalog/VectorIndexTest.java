@@ -0,0 +1,156 @@
+package com.restaurant.recommendation.catalog;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VectorIndexTest {
+    private static final int DIMENSIONS = 32;
+
+    // Unit vectors scattered around a few random directions, like documents on a handful of topics
+    private static float[] clusteredVectors(Random random, int size, int clusters) {
+        float[] centers = new float[clusters * DIMENSIONS];
+        for (int i = 0; i < centers.length; i++) {
+            centers[i] = (float) random.nextGaussian();
+        }
+        float[] vectors = new float[size * DIMENSIONS];
+        for (int i = 0; i < size; i++) {
+            int cluster = random.nextInt(clusters);
+            for (int d = 0; d < DIMENSIONS; d++) {
+                vectors[i * DIMENSIONS + d] = centers[cluster * DIMENSIONS + d] + (float) random.nextGaussian() * 0.5f;
+            }
+            normalize(vectors, i * DIMENSIONS);
+        }
+        return vectors;
+    }
+
+    private static void normalize(float[] vectors, int offset) {
+        double norm = 0;
+        for (int d = 0; d < DIMENSIONS; d++) {
+            norm += vectors[offset + d] * vectors[offset + d];
+        }
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vectors[offset + d] /= (float) Math.sqrt(norm);
+        }
+    }
+
+    private static float[] vector(float[] vectors, int ordinal) {
+        return Arrays.copyOfRange(vectors, ordinal * DIMENSIONS, (ordinal + 1) * DIMENSIONS);
+    }
+
+    // Every similarity, sorted best first
+    private static float[] bruteForceScores(float[] vectors, float[] query) {
+        int size = vectors.length / DIMENSIONS;
+        float[] scores = new float[size];
+        for (int i = 0; i < size; i++) {
+            scores[i] = VectorIndex.dot(query, 0, vectors, i * DIMENSIONS, DIMENSIONS);
+        }
+        Arrays.sort(scores);
+        for (int i = 0; i < size / 2; i++) {
+            float swap = scores[i];
+            scores[i] = scores[size - 1 - i];
+            scores[size - 1 - i] = swap;
+        }
+        return scores;
+    }
+
+    @Test
+    void probingEveryListIsExact() {
+        Random random = new Random(17);
+        float[] vectors = clusteredVectors(random, 3000, 12);
+        VectorIndex index = new VectorIndex(vectors, DIMENSIONS, 0, 1);
+        assertEquals(3000, index.size());
+        assertEquals(55, index.getLists(), "about sqrt(n) lists");
+
+        for (int q = 0; q < 20; q++) {
+            float[] query = q % 2 == 0 ? vector(vectors, random.nextInt(3000)) : clusteredVectors(random, 1, 12);
+            float[] expected = bruteForceScores(vectors, query);
+            for (int k : new int[] {1, 10, 3000, 5000}) {
+                VectorIndex.Neighbors neighbors = index.search(query, k, index.getLists());
+                assertArrayEquals(Arrays.copyOf(expected, Math.min(k, 3000)), neighbors.getScores(), "k " + k);
+                for (int i = 0; i < neighbors.size(); i++) {
+                    int ordinal = neighbors.getOrdinals()[i];
+                    assertEquals(neighbors.getScores()[i], index.similarity(query, ordinal));
+                    assertEquals(VectorIndex.dot(query, 0, vectors, ordinal * DIMENSIONS, DIMENSIONS),
+                        neighbors.getScores()[i], "scores belong to their ordinals");
+                }
+                assertEquals(neighbors.size(), Arrays.stream(neighbors.getOrdinals()).distinct().count());
+            }
+        }
+    }
+
+    @Test
+    void probingAFewListsKeepsHighRecall() {
+        Random random = new Random(23);
+        int size = 5000;
+        float[] vectors = clusteredVectors(random, size, 20);
+        VectorIndex index = new VectorIndex(vectors, DIMENSIONS, 0, 1);
+        int queries = 100;
+        int found = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = vector(vectors, random.nextInt(size));
+            Set<Integer> exact = new HashSet<>();
+            for (int ordinal : index.search(query, 10, index.getLists()).getOrdinals()) {
+                exact.add(ordinal);
+            }
+            VectorIndex.Neighbors approximate = index.search(query, 10, index.getLists() / 8);
+            for (int ordinal : approximate.getOrdinals()) {
+                if (exact.contains(ordinal)) found++;
+            }
+            // The query's own vector is its best match
+            assertTrue(approximate.getScores()[0] > 0.999f);
+        }
+        double recall = (double) found / (queries * 10);
+        assertTrue(recall >= 0.9, "recall@10 " + recall);
+    }
+
+    @Test
+    void smallAndDegenerateInputs() {
+        Random random = new Random(29);
+        float[] vectors = clusteredVectors(random, 3, 2);
+        VectorIndex index = new VectorIndex(vectors, DIMENSIONS, 50, 1);
+        assertEquals(3, index.getLists(), "no more lists than vectors");
+        assertEquals(0, index.search(vector(vectors, 0), 10, 1).getOrdinals()[0]);
+        assertEquals(3, index.search(vector(vectors, 0), 10, 3).size());
+
+        VectorIndex single = new VectorIndex(vectors, DIMENSIONS, 1, 1);
+        assertEquals(1, single.getLists());
+        assertEquals(0, single.search(vector(vectors, 1), 0, 1).size());
+        assertEquals(1, single.search(vector(vectors, 1), 1, 1).getOrdinals()[0]);
+
+        VectorIndex empty = new VectorIndex(new float[0], DIMENSIONS, 0, 1);
+        assertEquals(0, empty.search(new float[DIMENSIONS], 5, 5).size());
+    }
+
+    @Test
+    void vectorizerPlacesRelatedTextsCloser() {
+        List<String> documents = List.of(
+            "Hand-pulled noodles and spicy Sichuan dishes",
+            "Wood-fired pizza and fresh pasta",
+            "Sushi, sashimi and omakase counter",
+            "Tacos al pastor and fresh tortillas");
+        HashingVectorizer vectorizer = HashingVectorizer.fit(documents, 256);
+        float[] flat = new float[documents.size() * 256];
+        for (int i = 0; i < documents.size(); i++) {
+            vectorizer.vectorize(documents.get(i), flat, i * 256);
+        }
+        VectorIndex index = new VectorIndex(flat, 256, 1, 1);
+
+        assertEquals(0, index.search(vectorizer.vectorize("spicy noodle soup"), 1, 1).getOrdinals()[0]);
+        assertEquals(1, index.search(vectorizer.vectorize("a pizza place"), 1, 1).getOrdinals()[0]);
+        assertEquals(3, index.search(vectorizer.vectorize("taco truck"), 1, 1).getOrdinals()[0]);
+
+        float[] none = vectorizer.vectorize("?!");
+        for (float value : none) {
+            assertEquals(0f, value);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.restaurant.recommendation.controller;
+
+import com.restaurant.recommendation.core.JsonReader;
+import com.restaurant.recommendation.model.RecommendationRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RecommendationControllerTest {
+    private static final long MAX_BODY_BYTES = 1024;
+
+    private static RecommendationRequest parse(String json) throws IOException {
+        return RecommendationController.parseRecommendationRequest(
+            new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), MAX_BODY_BYTES);
+    }
+
+    @Test
+    void parsesRequestFields() throws IOException {
+        RecommendationRequest request = parse("{\"userPreference\": \"spicy \\\"dan dan\\\" noodles\", "
+            + "\"location\": \"Zürich\", \"cuisine\": \"Sichuan\", \"priceRange\": \"$$\", \"numberOfPeople\": \"4\", "
+            + "\"occasion\": null, \"latitude\": 47.37, \"longitude\": \"8.54\", \"radiusKm\": null, "
+            + "\"unknown\": {\"nested\": [1, 2]}}");
+
+        assertEquals("spicy \"dan dan\" noodles", request.getUserPreference());
+        assertEquals("Zürich", request.getLocation());
+        assertEquals("Sichuan", request.getCuisine());
+        assertEquals("$$", request.getPriceRange());
+        assertEquals(4, request.getNumberOfPeople());
+        assertNull(request.getOccasion());
+        assertEquals(47.37, request.getLatitude());
+        assertEquals(8.54, request.getLongitude());
+        assertNull(request.getRadiusKm());
+    }
+
+    @Test
+    void emptyBodyIsAnEmptyRequest() throws IOException {
+        assertNull(parse("  ").getUserPreference());
+    }
+
+    @Test
+    void badNumbersAreIgnored() throws IOException {
+        RecommendationRequest request = parse("{\"numberOfPeople\": \"lots\", \"latitude\": \"north\", \"cuisine\": \"Thai\"}");
+        assertNull(request.getNumberOfPeople());
+        assertNull(request.getLatitude());
+        assertEquals("Thai", request.getCuisine());
+    }
+
+    @Test
+    void rejectsTrailingData() {
+        assertThrows(JsonReader.MalformedJsonException.class, () -> parse("{\"cuisine\": \"Thai\"} {\"cuisine\": \"Greek\"}"));
+        assertThrows(JsonReader.MalformedJsonException.class, () -> parse("{\"cuisine\": \"Thai\"}garbage"));
+    }
+
+    @Test
+    void rejectsMalformedBody() {
+        assertThrows(JsonReader.MalformedJsonException.class, () -> parse("{\"cuisine\": \"Thai\""));
+        assertThrows(JsonReader.MalformedJsonException.class, () -> parse("[\"Thai\"]"));
+        assertThrows(JsonReader.MalformedJsonException.class, () -> parse("{\"cuisine\": Thai}"));
+    }
+
+    @Test
+    void rejectsOversizedBody() {
+        String body = "{\"userPreference\": \"" + "x".repeat((int) MAX_BODY_BYTES) + "\"}";
+        assertThrows(JsonReader.PayloadTooLargeException.class, () -> parse(body));
+    }
+}
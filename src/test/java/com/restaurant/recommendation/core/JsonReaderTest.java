@@ -0,0 +1,172 @@
+package com.restaurant.recommendation.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonReaderTest {
+
+    private static JsonReader reader(String json) {
+        return reader(json, 1 << 20, 4096);
+    }
+
+    private static JsonReader reader(String json, long maxBytes, int bufferSize) {
+        InputStream in = new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+        return new JsonReader(in, maxBytes, bufferSize);
+    }
+
+    @Test
+    void readsNestedDocument() throws IOException {
+        JsonReader reader = reader(" {\"name\": \"Roma\", \"tags\": [1, -2.5e3, true, null], \"open\": false, \"extra\": {\"a\": [{}]}}\n");
+        reader.beginObject();
+        assertEquals(0, reader.nextNameIndex(new String[] {"name", "tags"}));
+        assertEquals("Roma", reader.nextString());
+        assertEquals("tags", reader.nextName());
+        reader.beginArray();
+        assertEquals(1, reader.nextInt());
+        assertEquals(-2500.0, reader.nextDouble());
+        assertEquals(JsonReader.Token.BOOLEAN, reader.peek());
+        assertTrue(reader.nextBoolean());
+        reader.nextNull();
+        assertFalse(reader.hasNext());
+        reader.endArray();
+        assertEquals(-1, reader.nextNameIndex(new String[] {"name", "tags"}));
+        assertFalse(reader.nextBoolean());
+        assertEquals("extra", reader.nextName());
+        reader.skipValue();
+        assertFalse(reader.hasNext());
+        reader.endObject();
+        assertEquals(JsonReader.Token.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    void emptyInputIsEndOfDocument() throws IOException {
+        assertEquals(JsonReader.Token.END_DOCUMENT, reader(" \r\n\t").peek());
+    }
+
+    @Test
+    void rejectsTrailingDataAfterTopLevelValue() throws IOException {
+        for (String json : List.of("{\"a\": 1} x", "{}{}", "{\"a\": 1}}", "{} ,")) {
+            JsonReader reader = reader(json);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                reader.nextName();
+                reader.skipValue();
+            }
+            assertThrows(JsonReader.MalformedJsonException.class, reader::endObject, json);
+        }
+
+        JsonReader array = reader("[1] [2]");
+        array.beginArray();
+        array.nextInt();
+        assertThrows(JsonReader.MalformedJsonException.class, array::endArray);
+
+        assertThrows(JsonReader.MalformedJsonException.class, () -> reader("{\"a\": [1]} 2").skipValue());
+    }
+
+    @Test
+    void acceptsTrailingWhitespace() throws IOException {
+        JsonReader reader = reader("{\"a\": 1} \n\r\t ");
+        reader.beginObject();
+        reader.nextName();
+        assertEquals(1, reader.nextInt());
+        reader.endObject();
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        List<String> inputs = List.of(
+            "{\"a\" 1}",             // missing colon
+            "{\"a\": 1 \"b\": 2}",   // missing comma
+            "{\"a\": 1,}",           // trailing comma
+            "{a: 1}",                // unquoted name
+            "[1, 2",                 // unexpected end
+            "[1 2]",
+            "{\"a\": tru}",          // invalid literal
+            "{\"a\": nul}",
+            "{\"a\": 'x'}",
+            "{\"a\": \"unterminated",
+            "{\"a\": \"tab\tinside\"}", // control character
+            "{\"a\": \"\\x\"}",      // invalid escape
+            "{\"a\": \"\\u12g4\"}",  // invalid unicode escape
+            "]",
+            "[1]]");
+        for (String json : inputs) {
+            assertThrows(JsonReader.MalformedJsonException.class, () -> reader(json).skipValue(), json);
+        }
+    }
+
+    @Test
+    void rejectsInvalidUtf8() {
+        byte[] truncated = {'"', (byte) 0xC3, '"'};
+        byte[] stray = {'"', (byte) 0x80, '"'};
+        for (byte[] bytes : List.of(truncated, stray)) {
+            JsonReader reader = new JsonReader(new ByteArrayInputStream(bytes), 1 << 20);
+            assertThrows(JsonReader.MalformedJsonException.class, reader::nextString);
+        }
+    }
+
+    @Test
+    void rejectsDeepNesting() {
+        String json = "[".repeat(100) + "]".repeat(100);
+        JsonReader.MalformedJsonException e = assertThrows(JsonReader.MalformedJsonException.class,
+            () -> reader(json).skipValue());
+        assertTrue(e.getMessage().startsWith("Nesting too deep"), e.getMessage());
+    }
+
+    @Test
+    void rejectsOversizedInput() throws IOException {
+        String json = "{\"userPreference\": \"" + "x".repeat(200) + "\"}";
+        assertThrows(JsonReader.PayloadTooLargeException.class, () -> reader(json, 64, 16).skipValue());
+
+        // The cap counts bytes, not characters
+        String wide = "\"" + "é".repeat(40) + "\"";
+        assertThrows(JsonReader.PayloadTooLargeException.class, () -> reader(wide, 64, 16).nextString());
+        assertEquals("é".repeat(40), reader(wide, 82, 16).nextString());
+    }
+
+    @Test
+    void decodesEscapesAndUtf8AcrossBufferBoundaries() throws IOException {
+        String json = "[\"quote \\\" backslash \\\\ slash \\/ \\b\\f\\n\\r\\t\", \"\\u00e9\\u4E2D\\ud83d\\ude00\", "
+            + "\"héllo 中文 😀\"]";
+        for (int bufferSize : new int[] {1, 2, 3, 5, 4096}) {
+            JsonReader reader = reader(json, 1 << 20, bufferSize);
+            reader.beginArray();
+            assertEquals("quote \" backslash \\ slash / \b\f\n\r\t", reader.nextString());
+            assertEquals("é中😀", reader.nextString());
+            assertEquals("héllo 中文 😀", reader.nextString());
+            reader.endArray();
+        }
+    }
+
+    @Test
+    void matchesEscapedNames() throws IOException {
+        JsonReader reader = reader("{\"user\\u0050reference\": null}");
+        reader.beginObject();
+        assertEquals(0, reader.nextNameIndex(new String[] {"userPreference"}));
+        assertNull(reader.nextString());
+        reader.endObject();
+    }
+
+    @Test
+    void nextIntRejectsNonIntegers() throws IOException {
+        JsonReader reader = reader("[\" 12 \", 3.5, 99999999999, \"x\", true]");
+        reader.beginArray();
+        assertEquals(12, reader.nextInt());
+        assertThrows(NumberFormatException.class, reader::nextInt);
+        assertThrows(NumberFormatException.class, reader::nextInt);
+        assertThrows(NumberFormatException.class, reader::nextInt);
+        assertThrows(JsonReader.MalformedJsonException.class, reader::nextInt);
+    }
+}
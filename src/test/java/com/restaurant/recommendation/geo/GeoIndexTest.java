@@ -0,0 +1,136 @@
+package com.restaurant.recommendation.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GeoIndexTest {
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final GeoIndex index;
+
+    // A dense city, a sparse spread over the globe, points on the antimeridian and near the poles,
+    // and some without coordinates
+    GeoIndexTest() {
+        Random random = new Random(11);
+        int size = 20_000;
+        latitudes = new double[size];
+        longitudes = new double[size];
+        for (int i = 0; i < size; i++) {
+            switch (i % 5) {
+                case 0:
+                case 1:
+                    latitudes[i] = 47.6 + random.nextGaussian() * 0.05;
+                    longitudes[i] = -122.33 + random.nextGaussian() * 0.05;
+                    break;
+                case 2:
+                    latitudes[i] = random.nextDouble() * 180 - 90;
+                    longitudes[i] = random.nextDouble() * 360 - 180;
+                    break;
+                case 3:
+                    latitudes[i] = -16 + random.nextGaussian();
+                    longitudes[i] = random.nextBoolean() ? 179.9 - random.nextDouble() : -179.9 + random.nextDouble();
+                    break;
+                default:
+                    if (random.nextBoolean()) {
+                        latitudes[i] = 89 + random.nextDouble();
+                        longitudes[i] = random.nextDouble() * 360 - 180;
+                    } else {
+                        latitudes[i] = Double.NaN;
+                        longitudes[i] = Double.NaN;
+                    }
+            }
+        }
+        index = new GeoIndex(latitudes, longitudes);
+    }
+
+    private int[] bruteForceWithin(double latitude, double longitude, double radiusKm) {
+        List<Integer> hits = new ArrayList<>();
+        for (int i = 0; i < latitudes.length; i++) {
+            if (Double.isNaN(latitudes[i])) continue;
+            if (GeoPoint.distanceKm(latitude, longitude, latitudes[i], longitudes[i]) <= radiusKm) hits.add(i);
+        }
+        return hits.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private double[] bruteForceNearestDistances(double latitude, double longitude, int k, double maxKm) {
+        double[] distances = new double[latitudes.length];
+        int count = 0;
+        for (int i = 0; i < latitudes.length; i++) {
+            if (Double.isNaN(latitudes[i])) continue;
+            double distance = GeoPoint.distanceKm(latitude, longitude, latitudes[i], longitudes[i]);
+            if (distance <= maxKm) distances[count++] = distance;
+        }
+        double[] sorted = Arrays.copyOf(distances, count);
+        Arrays.sort(sorted);
+        return Arrays.copyOf(sorted, Math.min(k, count));
+    }
+
+    private double[] distances(int[] ordinals, double latitude, double longitude) {
+        double[] distances = new double[ordinals.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            distances[i] = GeoPoint.distanceKm(latitude, longitude, latitudes[ordinals[i]], longitudes[ordinals[i]]);
+        }
+        return distances;
+    }
+
+    private static final double[][] CENTERS = {
+        {47.6062, -122.3321}, // inside the dense cluster
+        {47.7, -122.2},       // at its edge
+        {-16, 180},           // on the antimeridian
+        {-16, -179.95},
+        {90, 0},              // at the pole
+        {89.5, 45},
+        {0, 0},               // open ocean
+    };
+
+    @Test
+    void radiusQueriesMatchABruteForceScan() {
+        for (double[] center : CENTERS) {
+            for (double radiusKm : new double[] {0.1, 1, 5, 40, 300, 2500, 25_000}) {
+                assertArrayEquals(bruteForceWithin(center[0], center[1], radiusKm),
+                    index.withinRadius(center[0], center[1], radiusKm),
+                    Arrays.toString(center) + " within " + radiusKm + "km");
+            }
+        }
+    }
+
+    @Test
+    void nearestQueriesMatchABruteForceScan() {
+        for (double[] center : CENTERS) {
+            for (int k : new int[] {1, 5, 100, 2000}) {
+                for (double maxKm : new double[] {2, 500, Double.MAX_VALUE}) {
+                    int[] nearest = index.nearest(center[0], center[1], k, maxKm);
+                    // Compared by distance, since equidistant points may come back in either order
+                    assertArrayEquals(bruteForceNearestDistances(center[0], center[1], k, maxKm),
+                        distances(nearest, center[0], center[1]), 1e-9,
+                        Arrays.toString(center) + " k " + k + " within " + maxKm + "km");
+                    assertEquals(nearest.length, Arrays.stream(nearest).distinct().count(), "no duplicates");
+                }
+            }
+        }
+    }
+
+    @Test
+    void skipsPointsWithoutCoordinates() {
+        long located = Arrays.stream(latitudes).filter(lat -> !Double.isNaN(lat)).count();
+        assertEquals(located, index.size());
+
+        GeoIndex empty = new GeoIndex(new double[] {Double.NaN}, new double[] {Double.NaN});
+        assertEquals(0, empty.size());
+        assertEquals(0, empty.withinRadius(0, 0, 20_000).length);
+        assertEquals(0, empty.nearest(0, 0, 5, Double.MAX_VALUE).length);
+    }
+
+    @Test
+    void rejectsMismatchedArrays() {
+        assertThrows(IllegalArgumentException.class, () -> new GeoIndex(new double[2], new double[3]));
+    }
+}
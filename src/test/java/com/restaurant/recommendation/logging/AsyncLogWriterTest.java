@@ -0,0 +1,195 @@
+package com.restaurant.recommendation.logging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncLogWriterTest {
+    private static final Pattern MESSAGE = Pattern.compile(" msg=(\\S+)");
+
+    private final List<AsyncLogWriter> writers = new ArrayList<>();
+
+    // Collects everything written; the first write can be held until the test releases it
+    private static class CapturingSink implements LogSink {
+        final CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        final CountDownLatch release;
+        private final StringBuilder written = new StringBuilder();
+        volatile boolean closed;
+
+        CapturingSink(boolean holdFirstWrite) {
+            release = new CountDownLatch(holdFirstWrite ? 1 : 0);
+        }
+
+        @Override
+        public void write(CharSequence lines) {
+            firstWriteStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (written) {
+                written.append(lines);
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        String text() {
+            synchronized (written) {
+                return written.toString();
+            }
+        }
+
+        List<String> messages() {
+            List<String> messages = new ArrayList<>();
+            Matcher matcher = MESSAGE.matcher(text());
+            while (matcher.find()) {
+                messages.add(matcher.group(1));
+            }
+            return messages;
+        }
+    }
+
+    @AfterEach
+    void shutdownWriters() {
+        for (AsyncLogWriter writer : writers) {
+            writer.shutdown(5000);
+        }
+    }
+
+    private AsyncLogWriter writer(int capacity, LogSink sink) {
+        AsyncLogWriter writer = new AsyncLogWriter(capacity, List.of(sink));
+        writers.add(writer);
+        return writer;
+    }
+
+    private static void log(AsyncLogWriter writer, LogLevel level, String message) {
+        writer.append(level, "Test", message, null, 0, null, null, null, null, null, null);
+    }
+
+    @Test
+    void fullRingDropsEventsWithoutBlocking() throws Exception {
+        CapturingSink sink = new CapturingSink(true);
+        AsyncLogWriter writer = writer(4, sink);
+
+        // The writer takes the first event and stalls in the sink, then four more fill the ring
+        log(writer, LogLevel.INFO, "e0");
+        assertTrue(sink.firstWriteStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 4; i++) {
+            log(writer, LogLevel.INFO, "e" + i);
+        }
+        assertEquals(0, writer.getDropped());
+
+        long start = System.nanoTime();
+        log(writer, LogLevel.INFO, "lost");
+        log(writer, LogLevel.WARN, "lost");
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(40), "INFO and WARN don't wait for room");
+        assertEquals(2, writer.getDropped());
+
+        sink.release.countDown();
+        writer.shutdown(5000);
+        // The drop count is reported after the events that made it, even when shutting down
+        assertEquals(List.of("e0", "e1", "e2", "e3", "e4"), sink.messages().subList(0, 5));
+        assertTrue(sink.text().endsWith("msg=\"Log buffer full, events dropped\" dropped=2\n"), sink.text());
+        assertTrue(sink.closed);
+    }
+
+    @Test
+    void errorsWaitBrieflyForRoom() throws Exception {
+        CapturingSink sink = new CapturingSink(true);
+        AsyncLogWriter writer = writer(4, sink);
+        log(writer, LogLevel.INFO, "e0");
+        assertTrue(sink.firstWriteStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 4; i++) {
+            log(writer, LogLevel.INFO, "e" + i);
+        }
+
+        // Nobody makes room: the error is dropped, but only after about 50ms
+        long start = System.nanoTime();
+        log(writer, LogLevel.ERROR, "lost");
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(waitedMillis >= 50, "waited " + waitedMillis + "ms");
+        assertEquals(1, writer.getDropped());
+
+        // Room appears while the error waits
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sink.release.countDown();
+        });
+        releaser.start();
+        log(writer, LogLevel.ERROR, "kept");
+        releaser.join();
+        assertEquals(1, writer.getDropped());
+
+        writer.shutdown(5000);
+        List<String> messages = sink.messages();
+        assertEquals(List.of("e0", "e1", "e2", "e3", "e4", "kept"), messages.subList(0, 6));
+    }
+
+    @Test
+    void eachProducersEventsArriveInOrder() throws Exception {
+        CapturingSink sink = new CapturingSink(false);
+        AsyncLogWriter writer = writer(1 << 16, sink);
+        int producers = 4;
+        int perProducer = 5000;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            String prefix = "p" + p + "-";
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    log(writer, LogLevel.INFO, prefix + i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        writer.shutdown(5000);
+
+        assertEquals(0, writer.getDropped());
+        List<String> messages = sink.messages();
+        assertEquals(producers * perProducer, messages.size());
+        int[] next = new int[producers];
+        for (String message : messages) {
+            int producer = message.charAt(1) - '0';
+            assertEquals(next[producer]++, Integer.parseInt(message.substring(3)), message);
+        }
+    }
+
+    @Test
+    void formatsLogfmtLines() throws Exception {
+        CapturingSink sink = new CapturingSink(false);
+        AsyncLogWriter writer = writer(16, sink);
+        writer.append(LogLevel.WARN, "RestaurantService", "Slow call", null, 2,
+            "route", "/api/chat", "note", "a \"quoted\"\nvalue", null, null);
+        writer.shutdown(5000);
+
+        String line = sink.text();
+        assertTrue(line.matches("time=\\d{4}-\\d\\d-\\d\\dT[^ ]+Z level=WARN logger=RestaurantService thread=\\S+ "
+            + "msg=\"Slow call\" route=/api/chat note=\"a \\\\\"quoted\\\\\"\\\\nvalue\"\n"), line);
+    }
+}
@@ -0,0 +1,116 @@
+package com.restaurant.recommendation.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsAreContiguousAndCoverTheRange() {
+        assertEquals(0, LatencyHistogram.lowerBoundMicros(0));
+        for (int bucket = 0; bucket < LatencyHistogram.BUCKETS; bucket++) {
+            long lower = LatencyHistogram.lowerBoundMicros(bucket);
+            long upper = lower + LatencyHistogram.bucketWidthMicros(bucket) - 1;
+            assertEquals(bucket, LatencyHistogram.bucket(lower), "lower bound of " + bucket);
+            assertEquals(bucket, LatencyHistogram.bucket(upper), "upper bound of " + bucket);
+            if (bucket + 1 < LatencyHistogram.BUCKETS) {
+                assertEquals(upper + 1, LatencyHistogram.lowerBoundMicros(bucket + 1), "gap after " + bucket);
+            } else {
+                assertEquals((1L << 32) - 1, upper, "the last bucket ends at the cap");
+            }
+        }
+    }
+
+    @Test
+    void bucketBoundaries() {
+        // One microsecond per bucket below 64µs, then 32 sub-buckets per power of two
+        assertEquals(31, LatencyHistogram.bucket(31));
+        assertEquals(32, LatencyHistogram.bucket(32));
+        assertEquals(63, LatencyHistogram.bucket(63));
+        assertEquals(64, LatencyHistogram.bucket(64));
+        assertEquals(64, LatencyHistogram.bucket(65));
+        assertEquals(65, LatencyHistogram.bucket(66));
+        assertEquals(95, LatencyHistogram.bucket(127));
+        assertEquals(96, LatencyHistogram.bucket(128));
+        assertEquals(96, LatencyHistogram.bucket(131));
+        assertEquals(97, LatencyHistogram.bucket(132));
+
+        // Anything past the cap lands in the last bucket
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(1L << 32));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    void bucketsAreWithinAThirtySecondOfTheirValues() {
+        for (long micros = 1; micros < (1L << 32); micros = micros * 3 / 2 + 1) {
+            int bucket = LatencyHistogram.bucket(micros);
+            long width = LatencyHistogram.bucketWidthMicros(bucket);
+            assertTrue(width <= Math.max(1, micros / 32), micros + "µs in a bucket " + width + "µs wide");
+        }
+    }
+
+    @Test
+    void quantilesReportBucketMidpoints() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.quantile(0.5));
+
+        for (int i = 0; i < 10; i++) {
+            histogram.recordNanos(10_000);
+        }
+        histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(11, histogram.count());
+
+        int slow = LatencyHistogram.bucket(200_000);
+        double slowMidpoint = (LatencyHistogram.lowerBoundMicros(slow) + LatencyHistogram.bucketWidthMicros(slow) / 2.0) / 1e6;
+        assertEquals(10.5e-6, histogram.quantile(0), 1e-12, "q=0 is the first value");
+        assertEquals(10.5e-6, histogram.quantile(0.5), 1e-12);
+        assertEquals(10.5e-6, histogram.quantile(10 / 11.0), 1e-12, "the rank rounds up");
+        assertEquals(slowMidpoint, histogram.quantile(0.95), 1e-12);
+        assertEquals(slowMidpoint, histogram.quantile(1), 1e-12);
+    }
+
+    @Test
+    void quantilesOfAUniformSpreadAreWithinTheBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+        for (double q : new double[] {0.01, 0.5, 0.9, 0.99, 0.999}) {
+            double expected = Math.ceil(q * 1000) / 1000.0;
+            double actual = histogram.quantile(q);
+            assertTrue(Math.abs(actual - expected) <= expected / 32, "q " + q + ": " + actual + " vs " + expected);
+        }
+    }
+
+    @Test
+    void negativeDurationsCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(-5);
+        assertEquals(1, histogram.count());
+        assertEquals(0.5e-6, histogram.quantile(1), 1e-12);
+    }
+
+    @Test
+    void exportsCumulativePrometheusBuckets() {
+        MetricsRegistry registry = new MetricsRegistry();
+        LatencyHistogram histogram = registry.histogram("test_latency_seconds", "Test latency", "route", "/x");
+        histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(300));
+        histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(2000));
+        histogram.recordNanos(TimeUnit.SECONDS.toNanos(100));
+
+        String scrape = registry.scrape();
+        assertTrue(scrape.contains("# TYPE test_latency_seconds histogram\n"), scrape);
+        assertTrue(scrape.contains("test_latency_seconds_bucket{route=\"/x\",le=\"0.00025\"} 0\n"), scrape);
+        assertTrue(scrape.contains("test_latency_seconds_bucket{route=\"/x\",le=\"0.0005\"} 1\n"), scrape);
+        assertTrue(scrape.contains("test_latency_seconds_bucket{route=\"/x\",le=\"1\"} 1\n"), scrape);
+        assertTrue(scrape.contains("test_latency_seconds_bucket{route=\"/x\",le=\"2.5\"} 2\n"), scrape);
+        assertTrue(scrape.contains("test_latency_seconds_bucket{route=\"/x\",le=\"60\"} 2\n"), scrape);
+        assertTrue(scrape.contains("test_latency_seconds_bucket{route=\"/x\",le=\"+Inf\"} 3\n"), scrape);
+        assertTrue(scrape.contains("test_latency_seconds_sum{route=\"/x\"} 102.0003\n"), scrape);
+        assertTrue(scrape.contains("test_latency_seconds_count{route=\"/x\"} 3\n"), scrape);
+    }
+}
@@ -0,0 +1,253 @@
+package com.restaurant.recommendation.ranking;
+
+import com.restaurant.recommendation.geo.GeoPoint;
+import com.restaurant.recommendation.model.Restaurant;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RankingEngineTest {
+    // Rating and relevance only, so the expected score is easy to recompute
+    private static final RankingWeights RATING_AND_RELEVANCE = new RankingWeights(1.0, 0, 0, 0, 1.0, 3.0);
+    private static final RankingQuery NO_PREFERENCE = new RankingQuery(0, null, null);
+
+    private static RankingColumns randomColumns(Random random, int size) {
+        RankingColumns columns = new RankingColumns(size);
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            // Half-star ratings so plenty of candidates tie
+            columns.set(ordinal, random.nextInt(11) / 2.0, null, null);
+        }
+        return columns;
+    }
+
+    // Sorts every candidate by score, best first, ties to the lower ordinal, and keeps k
+    private static int[] bruteForce(RankingColumns columns, int[] candidates, RankingEngine.Relevance relevance, int k) {
+        int count = candidates != null ? candidates.length : columns.size();
+        List<int[]> all = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            all.add(new int[] {candidates != null ? candidates[i] : i});
+        }
+        Comparator<int[]> byScore = Comparator.comparingDouble(entry -> -score(columns, relevance, entry[0]));
+        all.sort(byScore.thenComparingInt(entry -> entry[0]));
+        int[] expected = new int[Math.min(k, count)];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = all.get(i)[0];
+        }
+        return expected;
+    }
+
+    private static float score(RankingColumns columns, RankingEngine.Relevance relevance, int ordinal) {
+        float score = 1f / 5f * columns.ratings()[ordinal];
+        if (relevance != null) score += relevance.score(ordinal);
+        return score;
+    }
+
+    private static Restaurant restaurant(String name, Double rating, String price, String cuisine,
+                                         Double latitude, Double longitude) {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setName(name);
+        restaurant.setRating(rating);
+        restaurant.setPriceRange(price);
+        restaurant.setCuisine(cuisine);
+        restaurant.setLatitude(latitude);
+        restaurant.setLongitude(longitude);
+        return restaurant;
+    }
+
+    private static List<String> names(List<Restaurant> restaurants) {
+        List<String> names = new ArrayList<>();
+        for (Restaurant restaurant : restaurants) {
+            names.add(restaurant.getName());
+        }
+        return names;
+    }
+
+    @Test
+    void topKMatchesAFullSort() {
+        Random random = new Random(42);
+        RankingEngine engine = new RankingEngine(RATING_AND_RELEVANCE);
+        for (int size : new int[] {1, 2, 7, 100, 1000}) {
+            RankingColumns columns = randomColumns(random, size);
+            float[] relevance = new float[size];
+            for (int i = 0; i < size; i++) {
+                relevance[i] = random.nextInt(4) / 4f;
+            }
+            for (int k : new int[] {1, 3, 10, size, size + 5}) {
+                assertArrayEquals(bruteForce(columns, null, null, k),
+                    engine.topK(columns, null, null, NO_PREFERENCE, k), "size " + size + ", k " + k);
+                assertArrayEquals(bruteForce(columns, null, ordinal -> relevance[ordinal], k),
+                    engine.topK(columns, null, ordinal -> relevance[ordinal], NO_PREFERENCE, k),
+                    "with relevance, size " + size + ", k " + k);
+            }
+        }
+    }
+
+    @Test
+    void topKScoresOnlyTheCandidates() {
+        RankingColumns columns = randomColumns(new Random(7), 500);
+        int[] candidates = new int[100];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = 499 - 5 * i;
+        }
+        RankingEngine engine = new RankingEngine(RATING_AND_RELEVANCE);
+        assertArrayEquals(bruteForce(columns, candidates, null, 20),
+            engine.topK(columns, candidates, null, NO_PREFERENCE, 20));
+    }
+
+    @Test
+    void tiesGoToTheLowerOrdinal() {
+        RankingColumns columns = new RankingColumns(6);
+        for (int ordinal = 0; ordinal < 6; ordinal++) {
+            columns.set(ordinal, ordinal % 2 == 0 ? 4.0 : 3.0, null, null);
+        }
+        RankingEngine engine = new RankingEngine(RATING_AND_RELEVANCE);
+        assertArrayEquals(new int[] {0, 2, 4, 1}, engine.topK(columns, null, null, NO_PREFERENCE, 4));
+        assertArrayEquals(new int[] {2, 4}, engine.topK(columns, new int[] {5, 4, 2}, null, NO_PREFERENCE, 2));
+    }
+
+    @Test
+    void emptyInputsGiveNoResults() {
+        RankingEngine engine = new RankingEngine(RankingWeights.DEFAULTS);
+        RankingColumns columns = randomColumns(new Random(1), 10);
+        assertEquals(0, engine.topK(columns, null, null, NO_PREFERENCE, 0).length);
+        assertEquals(0, engine.topK(columns, new int[0], null, NO_PREFERENCE, 5).length);
+        assertEquals(0, engine.topK(new RankingColumns(0), null, null, NO_PREFERENCE, 5).length);
+    }
+
+    @Test
+    void ranksByEachFeature() {
+        RankingEngine engine = new RankingEngine(RankingWeights.DEFAULTS);
+        List<Restaurant> restaurants = List.of(
+            restaurant("far", 4.0, "$$", "Thai", 47.70, -122.30),
+            restaurant("near", 4.0, "$$", "Thai", 47.61, -122.33),
+            restaurant("no location", 4.0, "$$", "Thai", null, null));
+        GeoPoint seattle = new GeoPoint(47.6062, -122.3321);
+        assertEquals(List.of("near", "far", "no location"),
+            names(engine.rank(restaurants, new RankingQuery(0, null, seattle))));
+
+        restaurants = List.of(
+            restaurant("italian", 4.5, "$$", "Italian", null, null),
+            restaurant("sichuan", 4.0, "$$", "Chinese (Sichuan)", null, null));
+        assertEquals(List.of("sichuan", "italian"),
+            names(engine.rank(restaurants, new RankingQuery(0, "chinese", null))), "a cuisine match outweighs half a star");
+
+        restaurants = List.of(
+            restaurant("luxury", 4.0, "$$$$", null, null, null),
+            restaurant("unknown price", 4.0, null, null, null, null),
+            restaurant("budget", 4.0, "$", null, null, null));
+        assertEquals(List.of("budget", "unknown price", "luxury"),
+            names(engine.rank(restaurants, new RankingQuery(1, null, null))));
+    }
+
+    @Test
+    void missingRatingsRankAsTheMean() {
+        RankingEngine engine = new RankingEngine(RankingWeights.DEFAULTS);
+        List<Restaurant> restaurants = List.of(
+            restaurant("low", 3.0, null, null, null, null),
+            restaurant("unrated", null, null, null, null, null),
+            restaurant("high", 5.0, null, null, null, null));
+        assertEquals(List.of("high", "unrated", "low"), names(engine.rank(restaurants, NO_PREFERENCE)));
+    }
+
+    // Every feature in play, with coordinates around Seattle and a few missing
+    private static RankingColumns randomCatalog(Random random, int size) {
+        RankingColumns columns = new RankingColumns(size);
+        String[] cuisines = {"Thai", "Italian", "Chinese (Sichuan)", "Mexican", null};
+        String[] prices = {"$", "$$", "$$$", "$$$$", null};
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            columns.set(ordinal, random.nextInt(11) / 2.0, prices[random.nextInt(prices.length)],
+                cuisines[random.nextInt(cuisines.length)]);
+            if (random.nextInt(10) > 0) {
+                columns.latitudes()[ordinal] = 47.4 + random.nextInt(400) / 1000.0;
+                columns.longitudes()[ordinal] = -122.5 + random.nextInt(400) / 1000.0;
+            }
+        }
+        return columns;
+    }
+
+    @Test
+    void parallelRankingMatchesSequential() {
+        Random random = new Random(3);
+        int size = 200_000;
+        RankingColumns columns = randomCatalog(random, size);
+        float[] relevance = new float[size];
+        for (int i = 0; i < size; i++) {
+            relevance[i] = random.nextInt(8) / 8f;
+        }
+        int[] candidates = new int[size / 2];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = size - 1 - 2 * i;
+        }
+        RankingQuery query = new RankingQuery(2, "chinese", new GeoPoint(47.6062, -122.3321));
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            RankingEngine sequential = new RankingEngine(RankingWeights.DEFAULTS);
+            RankingEngine parallel = new RankingEngine(RankingWeights.DEFAULTS, pool, 1000);
+            for (int k : new int[] {1, 10, 1000}) {
+                assertArrayEquals(sequential.topK(columns, null, null, query, k),
+                    parallel.topK(columns, null, null, query, k), "k " + k);
+                assertArrayEquals(sequential.topK(columns, candidates, ordinal -> relevance[ordinal], query, k),
+                    parallel.topK(columns, candidates, ordinal -> relevance[ordinal], query, k), "candidates, k " + k);
+                assertArrayEquals(sequential.topK(columns, null, null, NO_PREFERENCE, k),
+                    parallel.topK(columns, null, null, NO_PREFERENCE, k), "ties only, k " + k);
+            }
+            assertTrue(pool.getStealCount() > 0, "the ranges ran on the pool");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void busyPoolRanksOnTheCallingThread() throws Exception {
+        RankingColumns columns = randomCatalog(new Random(5), 100_000);
+        RankingQuery query = new RankingQuery(1, "thai", new GeoPoint(47.6062, -122.3321));
+        ForkJoinPool pool = new ForkJoinPool(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            pool.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (pool.getActiveThreadCount() < 1) {
+                assertTrue(System.nanoTime() < deadline, "pool worker never started");
+                Thread.sleep(1);
+            }
+
+            // Queueing behind the blocked worker would never finish
+            RankingEngine parallel = new RankingEngine(RankingWeights.DEFAULTS, pool, 1000);
+            int[] ranked = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> parallel.topK(columns, null, null, query, 50));
+            assertArrayEquals(new RankingEngine(RankingWeights.DEFAULTS).topK(columns, null, null, query, 50), ranked);
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void parsesPriceTiers() {
+        assertEquals(2, RankingQuery.priceTier(" $$ "));
+        assertEquals(4, RankingQuery.priceTier("$$$$$"));
+        assertEquals(1, RankingQuery.priceTier("Budget"));
+        assertEquals(3, RankingQuery.priceTier("upscale"));
+        assertEquals(0, RankingQuery.priceTier("whatever"));
+        assertEquals(0, RankingQuery.priceTier(null));
+    }
+}
@@ -0,0 +1,168 @@
+package com.restaurant.recommendation.service;
+
+import com.restaurant.recommendation.model.Restaurant;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AIOutputParserTest {
+    private final AIOutputParser parser = new AIOutputParser();
+
+    private static List<String> names(List<Restaurant> restaurants) {
+        List<String> names = new ArrayList<>();
+        for (Restaurant restaurant : restaurants) {
+            names.add(restaurant.getName());
+        }
+        return names;
+    }
+
+    @Test
+    void parsesPipeFormat() {
+        AIOutputParser.ParseResult result = parser.parse(
+            "1. Trattoria Roma | Italian | Downtown | 4.6 | $$ | Fresh pasta\n"
+                + "2. Sakura | Japanese | Midtown | 4.2 | $$$ | Omakase counter");
+
+        List<Restaurant> restaurants = result.getRestaurants();
+        assertEquals(List.of("Trattoria Roma", "Sakura"), names(restaurants));
+        Restaurant first = restaurants.get(0);
+        assertEquals("Italian", first.getCuisine());
+        assertEquals("Downtown", first.getLocation());
+        assertEquals(4.6, first.getRating(), 1e-9);
+        assertEquals("$$", first.getPriceRange());
+        assertEquals("Fresh pasta", first.getDescription());
+        assertEquals(1.0, result.getConfidence(), 1e-9);
+    }
+
+    @Test
+    void extraPipeFieldsExtendTheDescription() {
+        List<Restaurant> restaurants = parser.parse("1. Roma | Italian | Downtown | 4.5 | $$ | | extra\n"
+            + "2. Sakura | Japanese | Midtown | 4.2 | $$$ | Omakase | cash only").getRestaurants();
+
+        assertEquals("extra", restaurants.get(0).getDescription());
+        assertEquals("Omakase | cash only", restaurants.get(1).getDescription());
+    }
+
+    @Test
+    void parsesMarkdownAndDropsPreamble() {
+        AIOutputParser.ParseResult result = parser.parse("Sure! Here are a few places:\n\n"
+            + "1. **Golden Lantern** (Chinese, $$, 4.5/5)\n"
+            + "   - Location: 120 Market Street\n"
+            + "   - Known for hand-pulled noodles.\n\n"
+            + "2. **Corner Ember** (Grill, $)\n"
+            + "   - Address: 7 Station Road\n"
+            + "   - Phone: 555-0100\n\n"
+            + "Enjoy!");
+
+        List<Restaurant> restaurants = result.getRestaurants();
+        assertEquals(List.of("Golden Lantern", "Corner Ember"), names(restaurants));
+        assertEquals("120 Market Street", restaurants.get(0).getLocation());
+        assertEquals("Known for hand-pulled noodles.", restaurants.get(0).getDescription());
+        assertEquals("7 Station Road", restaurants.get(1).getAddress());
+        assertEquals("555-0100", restaurants.get(1).getPhone());
+        assertTrue(result.getListText().startsWith("1. **Golden Lantern**"));
+        assertTrue(result.getListText().endsWith("Enjoy!"));
+    }
+
+    @Test
+    void ignoresNumberedTips() {
+        String text = "A few tips for your evening:\n\n"
+            + "1. Book ahead on weekends\n"
+            + "2. Arrive before 7 to skip the queue\n"
+            + "3. Ask about the daily specials";
+        AIOutputParser.ParseResult result = parser.parse(text);
+
+        assertTrue(result.getRestaurants().isEmpty());
+        assertEquals(text, result.getListText());
+        assertEquals(0, result.getConfidence());
+    }
+
+    @Test
+    void ignoresBulletedDishes() {
+        AIOutputParser.ParseResult result = parser.parse("Dishes worth trying:\n"
+            + "- Pad thai - sweet and sour rice noodles\n"
+            + "- Green curry: coconut and basil\n"
+            + "- Mango sticky rice");
+
+        assertTrue(result.getRestaurants().isEmpty());
+    }
+
+    @Test
+    void ignoresListsWithUnrelatedKeyValueLines() {
+        AIOutputParser.ParseResult result = parser.parse("1. Step one\n"
+            + "   - Note: preheat the oven\n"
+            + "2. Step two | stir");
+
+        assertTrue(result.getRestaurants().isEmpty());
+    }
+
+    @Test
+    void keepsOnlyRestaurantShapedItems() {
+        AIOutputParser.ParseResult result = parser.parse("1. Luigi's - wood-fired pizza\n"
+            + "   - Address: 9 Elm Street\n"
+            + "2. Bring cash, cards aren't accepted\n"
+            + "3. Noodle Bar | Thai | Riverside\n"
+            + "4. Pho House - $ - quick lunches\n"
+            + "   - Price: $");
+
+        assertEquals(List.of("Luigi's", "Noodle Bar", "Pho House"), names(result.getRestaurants()));
+    }
+
+    @Test
+    void leavesMissingFieldsForRanking() {
+        List<Restaurant> restaurants = parser.parse("- **Blue Fig**").getRestaurants();
+
+        assertEquals(1, restaurants.size());
+        Restaurant restaurant = restaurants.get(0);
+        assertNull(restaurant.getCuisine());
+        assertNull(restaurant.getLocation());
+        assertNull(restaurant.getRating());
+        assertNull(restaurant.getPriceRange());
+        assertNull(restaurant.getDescription());
+
+        AIOutputParser.fillDefaults(restaurants);
+        assertEquals("Various", restaurant.getCuisine());
+        assertEquals("Unknown", restaurant.getLocation());
+        assertEquals(4.0, restaurant.getRating(), 1e-9);
+        assertEquals("$$", restaurant.getPriceRange());
+        assertEquals("Recommended by AI.", restaurant.getDescription());
+    }
+
+    @Test
+    void listTextFollowsTheGivenOrder() {
+        AIOutputParser.ParseResult result = parser.parse("Try these:\n\n"
+            + "1. **Alpha** (Italian, $$)\n"
+            + "   - Rating: 3.9\n\n"
+            + "### Late night\n\n"
+            + "2. **Beta** - sushi\n"
+            + "   - Address: 1 Main St\n\n"
+            + "**3.** **Gamma** (Thai, 4.8)\n\n"
+            + "Enjoy your meal!");
+
+        List<Restaurant> order = new ArrayList<>(result.getRestaurants());
+        assertEquals(result.getListText(), result.getListText(order));
+
+        Collections.reverse(order);
+        assertEquals("**1.** **Gamma** (Thai, 4.8)\n\n"
+            + "2. **Beta** - sushi\n"
+            + "   - Address: 1 Main St\n\n"
+            + "3. **Alpha** (Italian, $$)\n"
+            + "   - Rating: 3.9\n\n"
+            + "Enjoy your meal!", result.getListText(order));
+    }
+
+    @Test
+    void handlesEmptyAndUnstructuredText() {
+        assertTrue(parser.parse(null).getRestaurants().isEmpty());
+        assertTrue(parser.parse("").getRestaurants().isEmpty());
+
+        AIOutputParser.ParseResult prose = parser.parse("  I couldn't find anything nearby.  ");
+        assertTrue(prose.getRestaurants().isEmpty());
+        assertEquals("I couldn't find anything nearby.", prose.getListText());
+    }
+}
@@ -0,0 +1,218 @@
+package com.restaurant.recommendation.service;
+
+import com.restaurant.recommendation.model.RecommendationRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CachingAIServiceTest {
+    private static final long TTL_MILLIS = 60_000;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    // Answers only when the test completes the call; a session has history once it has a recorded turn
+    private static class StubAI implements IAIService {
+        final List<String> calls = new CopyOnWriteArrayList<>();
+        final List<String> recorded = new CopyOnWriteArrayList<>();
+        final List<CompletableFuture<String>> pending = new CopyOnWriteArrayList<>();
+        final Set<String> withHistory = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public CompletableFuture<String> getRecommendationAsync(RecommendationRequest request) {
+            calls.add(request.getSessionId());
+            CompletableFuture<String> call = new CompletableFuture<>();
+            pending.add(call);
+            return call.whenComplete((response, error) -> {
+                if (error == null) withHistory.add(request.getSessionId());
+            });
+        }
+
+        @Override
+        public CompletableFuture<String> streamRecommendation(RecommendationRequest request, Consumer<String> onDelta) {
+            return getRecommendationAsync(request).thenApply(response -> {
+                onDelta.accept(response);
+                return response;
+            });
+        }
+
+        @Override
+        public boolean hasHistory(String sessionId) {
+            return withHistory.contains(sessionId);
+        }
+
+        @Override
+        public void recordTurn(RecommendationRequest request, String response) {
+            recorded.add(request.getSessionId());
+            withHistory.add(request.getSessionId());
+        }
+
+        @Override
+        public void resetConversation(String sessionId) {
+            withHistory.remove(sessionId);
+        }
+
+        @Override
+        public String getCurrentLocation(String sessionId) {
+            return null;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        void answer(int call, String response) {
+            pending.get(call).complete(response);
+        }
+    }
+
+    private static RecommendationRequest request(String sessionId, String preference) {
+        RecommendationRequest request = new RecommendationRequest();
+        request.setSessionId(sessionId);
+        request.setUserPreference(preference);
+        request.setLocation("Seattle");
+        return request;
+    }
+
+    private CachingAIService cache(StubAI stub, int maxEntries) {
+        return new CachingAIService(stub, maxEntries, TTL_MILLIS, now::get);
+    }
+
+    @Test
+    void coalescedFollowersRecordTheSharedAnswer() {
+        StubAI stub = new StubAI();
+        CachingAIService cache = cache(stub, 10);
+
+        CompletableFuture<String> leader = cache.getRecommendationAsync(request("a", "spicy food"));
+        CompletableFuture<String> follower = cache.getRecommendationAsync(request("b", "  Spicy   FOOD "));
+        assertEquals(List.of("a"), stub.calls, "identical requests go upstream once");
+        assertEquals(1, cache.getCoalesced());
+
+        stub.answer(0, "Try Thai");
+        assertEquals("Try Thai", leader.join());
+        assertEquals("Try Thai", follower.join());
+        assertEquals(List.of("b"), stub.recorded, "the follower's session gets the turn too");
+        assertTrue(stub.hasHistory("b"));
+    }
+
+    @Test
+    void failedLeaderFailsFollowersAndIsNotCached() {
+        StubAI stub = new StubAI();
+        CachingAIService cache = cache(stub, 10);
+
+        CompletableFuture<String> leader = cache.getRecommendationAsync(request("a", "sushi"));
+        CompletableFuture<String> follower = cache.getRecommendationAsync(request("b", "sushi"));
+        stub.pending.get(0).completeExceptionally(new IllegalStateException("upstream down"));
+
+        assertTrue(leader.isCompletedExceptionally());
+        assertTrue(follower.isCompletedExceptionally());
+        assertTrue(stub.recorded.isEmpty());
+        assertEquals(0, cache.size());
+
+        cache.getRecommendationAsync(request("c", "sushi"));
+        assertEquals(List.of("a", "c"), stub.calls, "the next request goes upstream again");
+    }
+
+    @Test
+    void onlyFirstTurnsAreCached() {
+        StubAI stub = new StubAI();
+        CachingAIService cache = cache(stub, 10);
+
+        cache.getRecommendationAsync(request("a", "tacos"));
+        stub.answer(0, "Try Mexican");
+        assertEquals(1, cache.size());
+
+        // Session a has history now, so its next turn bypasses the cache in both directions
+        CompletableFuture<String> followUp = cache.getRecommendationAsync(request("a", "tacos"));
+        assertEquals(List.of("a", "a"), stub.calls);
+        assertNull(cache.getCachedRecommendation(request("a", "tacos")));
+        stub.answer(1, "Something else");
+        assertEquals("Something else", followUp.join());
+        assertEquals(1, cache.size());
+
+        // A fresh session gets the first answer without calling upstream
+        assertEquals("Try Mexican", cache.getRecommendationAsync(request("b", "tacos")).join());
+        assertEquals(List.of("a", "a"), stub.calls);
+        assertEquals(List.of("b"), stub.recorded);
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void streamsReplayCachedAnswersAsOneDelta() {
+        StubAI stub = new StubAI();
+        CachingAIService cache = cache(stub, 10);
+        cache.getRecommendationAsync(request("a", "ramen"));
+        stub.answer(0, "Try Japanese");
+
+        List<String> deltas = new ArrayList<>();
+        assertEquals("Try Japanese", cache.streamRecommendation(request("b", "ramen"), deltas::add).join());
+        assertEquals(List.of("Try Japanese"), deltas);
+        assertEquals(List.of("a"), stub.calls);
+        assertEquals(List.of("b"), stub.recorded);
+    }
+
+    @Test
+    void entriesExpireAfterTheTtl() {
+        StubAI stub = new StubAI();
+        CachingAIService cache = cache(stub, 10);
+        cache.getRecommendationAsync(request("a", "pizza"));
+        stub.answer(0, "Try Italian");
+
+        now.addAndGet(TTL_MILLIS);
+        assertEquals("Try Italian", cache.getCachedRecommendation(request("b", "pizza")));
+
+        now.addAndGet(1);
+        assertNull(cache.getCachedRecommendation(request("b", "pizza")));
+        assertEquals(0, cache.size(), "an expired entry is dropped on lookup");
+        cache.getRecommendationAsync(request("b", "pizza"));
+        assertEquals(List.of("a", "b"), stub.calls);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() {
+        StubAI stub = new StubAI();
+        CachingAIService cache = cache(stub, 2);
+        for (String preference : List.of("one", "two")) {
+            cache.getRecommendationAsync(request("s-" + preference, preference));
+            stub.answer(stub.pending.size() - 1, "answer " + preference);
+        }
+        assertEquals("answer one", cache.getCachedRecommendation(request("x", "one")));
+
+        cache.getRecommendationAsync(request("s-three", "three"));
+        stub.answer(2, "answer three");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.getCachedRecommendation(request("x", "two")));
+        assertEquals("answer one", cache.getCachedRecommendation(request("x", "one")));
+    }
+
+    @Test
+    void doesNotCacheEmptyAnswers() {
+        StubAI stub = new StubAI();
+        CachingAIService cache = cache(stub, 10);
+        cache.getRecommendationAsync(request("a", "vegan"));
+        stub.answer(0, "No AI recommendation received.");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void keyIgnoresCaseAndWhitespace() {
+        assertEquals(CachingAIService.cacheKey(request("a", "Spicy  food\n")),
+            CachingAIService.cacheKey(request("b", " spicy food")));
+        assertNotEquals(CachingAIService.cacheKey(request("a", "spicy food")),
+            CachingAIService.cacheKey(request("a", "spicyfood")));
+        assertNull(CachingAIService.cacheKey(request("a", "  ")));
+    }
+}
@@ -0,0 +1,144 @@
+package com.restaurant.recommendation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+    private static final long OPEN_MILLIS = 30_000;
+    private static final long SLOW_MILLIS = 1_000;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    // Window of 10, opens from 4 calls at a 50% failure or slow-call rate, 2 trial calls
+    private CircuitBreaker breaker() {
+        return new CircuitBreaker("test", 10, 4, 0.5, SLOW_MILLIS, 0.5, OPEN_MILLIS, 2, now::get);
+    }
+
+    private static void succeed(CircuitBreaker breaker, int calls) {
+        for (int i = 0; i < calls; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onSuccess(10);
+        }
+    }
+
+    private static void fail(CircuitBreaker breaker, int calls) {
+        for (int i = 0; i < calls; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure(10);
+        }
+    }
+
+    @Test
+    void goesThroughOpenAndHalfOpenBackToClosed() {
+        CircuitBreaker breaker = breaker();
+        succeed(breaker, 2);
+        fail(breaker, 2);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertFalse(breaker.isServiceHealthy());
+
+        now.addAndGet(OPEN_MILLIS);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire(), "only the trial calls pass while half-open");
+
+        breaker.onSuccess(10);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onSuccess(10);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0.0, breaker.getFailureRate());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void staysClosedBelowMinimumCalls() {
+        CircuitBreaker breaker = breaker();
+        fail(breaker, 3);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        fail(breaker, 1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void staysClosedBelowFailureRate() {
+        CircuitBreaker breaker = breaker();
+        succeed(breaker, 6);
+        fail(breaker, 4);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0.4, breaker.getFailureRate(), 1e-9);
+    }
+
+    @Test
+    void oldCallsLeaveTheWindow() {
+        CircuitBreaker breaker = breaker();
+        fail(breaker, 4);
+        now.addAndGet(OPEN_MILLIS);
+        succeed(breaker, 2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        // 4 failures out of 10 after the window fills with successes first
+        succeed(breaker, 10);
+        fail(breaker, 4);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        fail(breaker, 1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void opensOnSlowCalls() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onSuccess(i % 2 == 0 ? SLOW_MILLIS + 1 : SLOW_MILLIS);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(0.5, breaker.getSlowCallRate(), 1e-9);
+    }
+
+    @Test
+    void failedTrialCallReopens() {
+        CircuitBreaker breaker = breaker();
+        fail(breaker, 4);
+        now.addAndGet(OPEN_MILLIS);
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure(10);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+
+        // The open period starts over from the failed trial
+        now.addAndGet(OPEN_MILLIS - 1);
+        assertFalse(breaker.tryAcquire());
+        now.addAndGet(1);
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void slowTrialCallReopens() {
+        CircuitBreaker breaker = breaker();
+        fail(breaker, 4);
+        now.addAndGet(OPEN_MILLIS);
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess(SLOW_MILLIS + 1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void callsAdmittedBeforeOpeningAreIgnored() {
+        CircuitBreaker breaker = breaker();
+        assertTrue(breaker.tryAcquire());
+        fail(breaker, 4);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // The straggler finishes while open and neither closes nor extends the open period
+        breaker.onSuccess(10);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        now.addAndGet(OPEN_MILLIS);
+        assertTrue(breaker.tryAcquire());
+    }
+}
@@ -0,0 +1,225 @@
+package com.restaurant.recommendation.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversationLogTest {
+    private static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    @TempDir
+    Path directory;
+
+    private final List<ConversationLog> logs = new ArrayList<>();
+
+    @AfterEach
+    void closeLogs() {
+        for (ConversationLog log : logs) {
+            log.close(5000);
+        }
+    }
+
+    private ConversationLog open(long compactBytes) throws IOException {
+        ConversationLog log = new ConversationLog(directory, 5, compactBytes, RETENTION_MILLIS);
+        logs.add(log);
+        return log;
+    }
+
+    private static ConversationStore store(ConversationLog log) {
+        return new ConversationStore(TimeUnit.MINUTES.toMillis(1), 1000, 1_000_000_000L, log);
+    }
+
+    private static void addTurns(ConversationStore store, String id, int count, String prefix) {
+        ConversationSession session = store.acquire(id);
+        session.lockAsync().join();
+        try {
+            for (int i = 0; i < count; i++) {
+                session.addTurn(i % 2 == 0 ? ConversationTurn.Role.USER : ConversationTurn.Role.ASSISTANT, prefix + i);
+            }
+        } finally {
+            session.unlock();
+            session.unpin();
+        }
+    }
+
+    private static List<String> contents(ConversationStore store, String id) {
+        ConversationSession session = store.acquire(id);
+        session.lockAsync().join();
+        try {
+            List<String> contents = new ArrayList<>();
+            for (ConversationTurn turn : session.getTurns()) {
+                contents.add(turn.getContent());
+            }
+            return contents;
+        } finally {
+            session.unlock();
+            session.unpin();
+        }
+    }
+
+    private Path sessionDirectory(String id) {
+        String key = ConversationLog.key(id);
+        return directory.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private Path newestLog(String id) throws IOException {
+        try (Stream<Path> files = Files.list(sessionDirectory(id))) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log"))
+                .max((a, b) -> Long.compare(generation(a), generation(b)))
+                .orElseThrow();
+        }
+    }
+
+    private static long generation(Path log) {
+        String name = log.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - ".log".length()));
+    }
+
+    @Test
+    void restoresTurnsSummaryAndLocationAfterRestart() throws IOException {
+        ConversationLog log = open(1 << 20);
+        ConversationStore store = store(log);
+        ConversationSession session = store.acquire("alice");
+        session.lockAsync().join();
+        session.setLocation("Seattle");
+        for (int i = 0; i < 8; i++) {
+            session.addTurn(i % 2 == 0 ? ConversationTurn.Role.USER : ConversationTurn.Role.ASSISTANT, "turn " + i + " é");
+        }
+        List<ConversationTurn> batch = session.queueForSummary(session.evictOldest(0, 4));
+        assertEquals(4, batch.size());
+        session.completeSummary("likes noodles");
+        // Evicted but not yet summarized
+        session.evictOldest(0, 2);
+        session.unlock();
+        session.unpin();
+        log.close(5000);
+
+        ConversationStore restored = store(open(1 << 20));
+        ConversationSession reloaded = restored.acquire("alice");
+        reloaded.lockAsync().join();
+        assertEquals("Seattle", reloaded.getLocation());
+        assertEquals("likes noodles", reloaded.getSummary());
+        assertEquals(List.of("turn 6 é", "turn 7 é"), List.of(reloaded.getTurns().get(0).getContent(),
+            reloaded.getTurns().get(1).getContent()));
+        List<ConversationTurn> pending = reloaded.queueForSummary(List.of());
+        assertNotNull(pending);
+        assertEquals("turn 4 é", pending.get(0).getContent());
+        assertEquals(2, pending.size());
+        reloaded.unlock();
+        reloaded.unpin();
+        assertEquals(reloaded.getChars(), restored.getTotalChars());
+    }
+
+    @Test
+    void dropsTornTailAndKeepsAppending() throws IOException {
+        ConversationLog log = open(1 << 20);
+        addTurns(store(log), "bob", 5, "turn ");
+        log.close(5000);
+
+        // A record header promising more bytes than the crash left behind
+        Files.write(newestLog("bob"), new byte[] {0, 0, 0, 50, 1, 2, 3}, StandardOpenOption.APPEND);
+        log = open(1 << 20);
+        ConversationStore store = store(log);
+        assertEquals(List.of("turn 0", "turn 1", "turn 2", "turn 3", "turn 4"), contents(store, "bob"));
+        addTurns(store, "bob", 1, "after crash ");
+        log.close(5000);
+
+        assertEquals(List.of("turn 0", "turn 1", "turn 2", "turn 3", "turn 4", "after crash 0"),
+            contents(store(open(1 << 20)), "bob"));
+    }
+
+    @Test
+    void dropsRecordWithBadChecksum() throws IOException {
+        ConversationLog log = open(1 << 20);
+        addTurns(store(log), "carol", 3, "turn ");
+        log.close(5000);
+
+        // Flip the last payload byte of the last record
+        Path file = newestLog("carol");
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x7f;
+        Files.write(file, bytes);
+
+        assertEquals(List.of("turn 0", "turn 1"), contents(store(open(1 << 20)), "carol"));
+    }
+
+    @Test
+    void compactsIntoSnapshotAndRestoresFromIt() throws IOException {
+        ConversationLog log = open(4096);
+        ConversationStore store = store(log);
+        addTurns(store, "dave", 200, "message " + "x".repeat(40) + " ");
+        ConversationSession session = store.acquire("dave");
+        session.lockAsync().join();
+        session.evictOldest(0, 10);
+        session.unlock();
+        session.unpin();
+        log.close(5000);
+
+        Path sessionDirectory = sessionDirectory("dave");
+        assertTrue(Files.exists(sessionDirectory.resolve("snapshot")));
+        try (Stream<Path> files = Files.list(sessionDirectory)) {
+            assertEquals(1, files.filter(file -> file.getFileName().toString().endsWith(".log")).count(),
+                "logs folded into the snapshot are deleted");
+        }
+        assertTrue(Files.size(newestLog("dave")) < 4096);
+
+        List<String> restored = contents(store(open(4096)), "dave");
+        assertEquals(10, restored.size());
+        assertEquals("message " + "x".repeat(40) + " 190", restored.get(0));
+        assertEquals("message " + "x".repeat(40) + " 199", restored.get(9));
+    }
+
+    @Test
+    void deletesSessionsPastRetention() throws IOException {
+        ConversationLog log = open(1 << 20);
+        ConversationStore store = store(log);
+        addTurns(store, "stale", 2, "old ");
+        addTurns(store, "fresh", 2, "new ");
+        log.close(5000);
+
+        assertTrue(Files.exists(sessionDirectory("stale")));
+        FileTime expired = FileTime.fromMillis(System.currentTimeMillis() - RETENTION_MILLIS - TimeUnit.HOURS.toMillis(1));
+        try (Stream<Path> files = Files.list(sessionDirectory("stale"))) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.setLastModifiedTime(file, expired);
+            }
+        }
+
+        // The writer sweeps once at startup; closing waits for it
+        open(1 << 20).close(5000);
+        assertFalse(Files.exists(sessionDirectory("stale")));
+        assertTrue(Files.exists(sessionDirectory("fresh")));
+
+        ConversationLog reopened = open(1 << 20);
+        assertNull(reopened.load(ConversationLog.key("stale")));
+        assertEquals(List.of("new 0", "new 1"), contents(store(reopened), "fresh"));
+    }
+
+    @Test
+    void resetDeletesPersistedSession() throws IOException {
+        ConversationLog log = open(1 << 20);
+        ConversationStore store = store(log);
+        addTurns(store, "erin", 2, "turn ");
+        store.remove("erin");
+        addTurns(store, "erin", 1, "again ");
+        log.close(5000);
+
+        assertEquals(List.of("again 0"), contents(store(open(1 << 20)), "erin"));
+    }
+}
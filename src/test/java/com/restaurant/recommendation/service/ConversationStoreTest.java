@@ -0,0 +1,213 @@
+package com.restaurant.recommendation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversationStoreTest {
+    private static final long TTL_MILLIS = 60_000;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private ConversationStore store(int maxSessions) {
+        return new ConversationStore(TTL_MILLIS, maxSessions, 1_000_000_000L, null, now::get);
+    }
+
+    private static void addTurn(ConversationStore store, String id, String content) {
+        ConversationSession session = store.acquire(id);
+        session.lockAsync().join();
+        try {
+            session.addTurn(ConversationTurn.Role.USER, content);
+        } finally {
+            session.unlock();
+            session.unpin();
+        }
+    }
+
+    @Test
+    void sweepSkipsPinnedSessions() {
+        ConversationStore store = store(100);
+        ConversationSession session = store.acquire("alice");
+
+        now.addAndGet(TTL_MILLIS + 1);
+        store.sweepExpired();
+        assertSame(session, store.peek("alice"), "a pinned session is in use");
+
+        session.unpin();
+        store.sweepExpired();
+        assertNull(store.peek("alice"));
+    }
+
+    @Test
+    void sweepSkipsLockedSessions() {
+        ConversationStore store = store(100);
+        ConversationSession session = store.acquire("bob");
+        session.unpin();
+        session.lockAsync().join();
+
+        now.addAndGet(TTL_MILLIS + 1);
+        store.sweepExpired();
+        assertSame(session, store.peek("bob"));
+
+        session.unlock();
+        now.addAndGet(TTL_MILLIS + 1);
+        store.sweepExpired();
+        assertNull(store.peek("bob"));
+    }
+
+    @Test
+    void sweepKeepsRecentlyUsedSessions() {
+        ConversationStore store = store(100);
+        addTurn(store, "old", "hello");
+        now.addAndGet(TTL_MILLIS / 2);
+        addTurn(store, "recent", "hi");
+        now.addAndGet(TTL_MILLIS / 2 + 1);
+
+        store.sweepExpired();
+        assertNull(store.peek("old"));
+        assertTrue(store.peek("recent") != null);
+        assertEquals("hi".length(), store.getTotalChars(), "evicted history is no longer counted");
+    }
+
+    @Test
+    void evictedSessionComesBackEmpty() {
+        ConversationStore store = store(100);
+        addTurn(store, "carol", "first");
+        ConversationSession evicted = store.peek("carol");
+        now.addAndGet(TTL_MILLIS + 1);
+        store.sweepExpired();
+
+        ConversationSession fresh = store.acquire("carol");
+        assertNotSame(evicted, fresh);
+        assertFalse(store.hasHistory("carol"));
+        fresh.unpin();
+    }
+
+    @Test
+    void capacityEvictionSkipsPinnedSessions() {
+        ConversationStore store = store(2);
+        ConversationSession oldest = store.acquire("a");
+        now.addAndGet(10);
+        addTurn(store, "b", "b");
+        now.addAndGet(10);
+        addTurn(store, "c", "c");
+
+        assertSame(oldest, store.peek("a"), "least recently used, but pinned");
+        assertNull(store.peek("b"));
+        assertTrue(store.peek("c") != null);
+        assertEquals(2, store.size());
+        oldest.unpin();
+    }
+
+    @Test
+    void removeWaitsForTheTurnInFlight() {
+        ConversationStore store = store(100);
+        ConversationSession session = store.acquire("dave");
+        session.lockAsync().join();
+        session.setLocation("Seattle");
+        session.addTurn(ConversationTurn.Role.USER, "in flight");
+
+        store.remove("dave");
+        ConversationSession next = store.acquire("dave");
+        CompletableFuture<Void> nextTurn = next.lockAsync();
+        assertSame(session, next, "cleared in place, not replaced");
+        assertEquals(1, session.getTurns().size(), "the reset waits for the lock");
+        assertFalse(nextTurn.isDone());
+
+        session.unlock();
+        session.unpin();
+        assertTrue(nextTurn.isDone());
+        assertTrue(next.getTurns().isEmpty(), "the turn queued behind the reset starts over");
+        assertNull(next.getLocation());
+        assertEquals(0, store.getTotalChars());
+        next.unlock();
+        next.unpin();
+        assertFalse(next.isPinned());
+    }
+
+    @Test
+    void removeOfUnknownSessionIsANoOp() {
+        ConversationStore store = store(100);
+        store.remove("nobody");
+        assertEquals(0, store.size());
+    }
+
+    // Turns, resets and sweeps racing each other: a session handed out by acquire must stay the one in the
+    // map until it is unpinned, and the character count must match what the sessions hold
+    @Test
+    void pinnedSessionsStayInTheStoreUnderContention() throws Exception {
+        ConversationStore store = store(8);
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        try {
+            Future<?> sweeper = pool.submit(() -> {
+                while (running.get()) {
+                    now.addAndGet(TTL_MILLIS + 1);
+                    store.sweepExpired();
+                    store.remove("s" + (now.get() % 16));
+                    Thread.yield();
+                }
+            });
+
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int worker = t;
+                workers.add(pool.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        String id = "s" + ((worker * 7 + i) % 16);
+                        ConversationSession session = store.acquire(id);
+                        try {
+                            session.lockAsync().join();
+                            try {
+                                assertSame(session, store.peek(id));
+                                session.addTurn(ConversationTurn.Role.USER, "turn " + i);
+                            } finally {
+                                session.unlock();
+                            }
+                            assertSame(session, store.peek(id));
+                        } finally {
+                            session.unpin();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+            running.set(false);
+            sweeper.get(10, TimeUnit.SECONDS);
+        } finally {
+            running.set(false);
+            pool.shutdownNow();
+        }
+
+        long held = 0;
+        for (int i = 0; i < 16; i++) {
+            ConversationSession session = store.peek("s" + i);
+            if (session != null) {
+                assertFalse(session.isPinned());
+                assertTrue(session.tryLock(), "no lock left behind");
+                held += session.getChars();
+                session.unlock();
+            }
+        }
+        assertEquals(held, store.getTotalChars());
+    }
+}
@@ -0,0 +1,242 @@
+package com.restaurant.recommendation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamDispatcherTest {
+    private static final long RETRY_BASE_MILLIS = 10;
+    private static final long RETRY_MAX_MILLIS = 1000;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    // An upstream failure with an HTTP status and response headers
+    static class StubError extends RuntimeException {
+        final int status;
+        final Map<String, String> headers;
+
+        StubError(int status, Map<String, String> headers) {
+            super("HTTP " + status);
+            this.status = status;
+            this.headers = headers;
+        }
+    }
+
+    // Records every attempt in start order and leaves it pending until the test completes it
+    private static class StubUpstream {
+        final List<String> started = new CopyOnWriteArrayList<>();
+        final Map<String, CompletableFuture<String>> pending = new ConcurrentHashMap<>();
+
+        CompletableFuture<String> call(UpstreamDispatcher dispatcher, String name) {
+            return dispatcher.submit(() -> attempt(name));
+        }
+
+        CompletableFuture<String> attempt(String name) {
+            CompletableFuture<String> attempt = new CompletableFuture<>();
+            pending.put(name, attempt);
+            started.add(name);
+            return attempt;
+        }
+
+        void succeed(String name) {
+            pending.remove(name).complete(name);
+        }
+
+        void fail(String name, int status, Map<String, String> headers) {
+            pending.remove(name).completeExceptionally(new StubError(status, headers));
+        }
+    }
+
+    private UpstreamDispatcher dispatcher(int initialLimit, int maxLimit, int maxQueued, long queueTimeoutMillis,
+                                          int maxRetries) {
+        return new UpstreamDispatcher(initialLimit, 1, maxLimit, maxQueued, queueTimeoutMillis, maxRetries,
+            RETRY_BASE_MILLIS, RETRY_MAX_MILLIS, 2.0, now::get) {
+            @Override
+            int statusCode(Throwable error) {
+                return error instanceof StubError ? ((StubError) error).status : -1;
+            }
+
+            @Override
+            String headerValue(Throwable error, String name) {
+                return error instanceof StubError ? ((StubError) error).headers.get(name) : null;
+            }
+        };
+    }
+
+    // One call taking 100ms sets the RTT baseline and grows the limit by 1/limit
+    private static void establishBaseline(UpstreamDispatcher dispatcher, StubUpstream upstream, AtomicLong now) {
+        upstream.call(dispatcher, "baseline");
+        now.addAndGet(100);
+        upstream.succeed("baseline");
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out waiting");
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void halvesLimitOn429AtMostOncePerRtt() {
+        UpstreamDispatcher dispatcher = dispatcher(8, 16, 10, 5000, 0);
+        StubUpstream upstream = new StubUpstream();
+        establishBaseline(dispatcher, upstream, now);
+        assertEquals(8.125, dispatcher.getLimit(), 1e-9);
+
+        CompletableFuture<String> first = upstream.call(dispatcher, "a");
+        upstream.call(dispatcher, "b");
+        upstream.fail("a", 429, Map.of());
+        assertEquals(8.125 / 2, dispatcher.getLimit(), 1e-9);
+        upstream.fail("b", 429, Map.of());
+        assertEquals(8.125 / 2, dispatcher.getLimit(), 1e-9, "a second 429 within the RTT is the same signal");
+
+        now.addAndGet(101);
+        upstream.call(dispatcher, "c");
+        upstream.fail("c", 429, Map.of());
+        assertEquals(8.125 / 4, dispatcher.getLimit(), 1e-9);
+        assertEquals(3, dispatcher.getThrottled());
+        assertEquals(0, dispatcher.getInFlight());
+
+        // Without retries the 429 reaches the caller
+        ExecutionException e = assertThrows(ExecutionException.class, first::get);
+        assertInstanceOf(StubError.class, e.getCause());
+    }
+
+    @Test
+    void shrinksLimitOnSlowCallsAtMostOncePerRtt() {
+        UpstreamDispatcher dispatcher = dispatcher(8, 16, 10, 5000, 0);
+        StubUpstream upstream = new StubUpstream();
+        establishBaseline(dispatcher, upstream, now);
+
+        for (int i = 0; i < 5; i++) {
+            upstream.call(dispatcher, "slow" + i);
+        }
+        now.addAndGet(1000);
+        for (int i = 0; i < 5; i++) {
+            upstream.succeed("slow" + i);
+        }
+        assertEquals(8.125 * 0.95, dispatcher.getLimit(), 1e-9);
+
+        now.addAndGet(101);
+        upstream.call(dispatcher, "later");
+        now.addAndGet(1000);
+        upstream.succeed("later");
+        assertEquals(8.125 * 0.95 * 0.95, dispatcher.getLimit(), 1e-9);
+    }
+
+    @Test
+    void streamsCountTimeToFirstToken() {
+        UpstreamDispatcher dispatcher = dispatcher(8, 16, 10, 5000, 0);
+        StubUpstream upstream = new StubUpstream();
+        establishBaseline(dispatcher, upstream, now);
+
+        CompletableFuture<String> stream = new CompletableFuture<>();
+        dispatcher.submitStream(firstToken -> {
+            now.addAndGet(100);
+            firstToken.run();
+            return stream;
+        }, () -> true);
+        now.addAndGet(10_000);
+        stream.complete("long answer");
+
+        assertEquals(8.125 + 1 / 8.125, dispatcher.getLimit(), 1e-9);
+    }
+
+    @Test
+    void honorsRetryAfterHeaders() {
+        UpstreamDispatcher dispatcher = dispatcher(8, 16, 10, 5000, 3);
+        assertEquals(250, dispatcher.retryDelayMillis(new StubError(429, Map.of("retry-after-ms", "250")), 1));
+        assertEquals(500, dispatcher.retryDelayMillis(new StubError(429, Map.of("Retry-After", "0.5")), 1));
+        assertEquals(75, dispatcher.retryDelayMillis(
+            new StubError(429, Map.of("retry-after-ms", "75", "Retry-After", "1")), 1), "milliseconds win");
+        assertEquals(RETRY_MAX_MILLIS, dispatcher.retryDelayMillis(
+            new StubError(503, Map.of("Retry-After", "120")), 1), "capped at the maximum");
+
+        // Without a usable header: full jitter up to base * 2^(attempts - 1)
+        StubError dated = new StubError(503, Map.of("Retry-After", "Wed, 21 Oct 2026 07:28:00 GMT"));
+        for (int i = 0; i < 100; i++) {
+            long first = dispatcher.retryDelayMillis(dated, 1);
+            long third = dispatcher.retryDelayMillis(new StubError(503, Map.of()), 3);
+            assertTrue(first >= 0 && first <= RETRY_BASE_MILLIS, "first " + first);
+            assertTrue(third >= 0 && third <= RETRY_BASE_MILLIS * 4, "third " + third);
+        }
+    }
+
+    @Test
+    void retriesGoToTheFrontOfTheQueue() throws Exception {
+        UpstreamDispatcher dispatcher = dispatcher(1, 1, 10, 5000, 2);
+        StubUpstream upstream = new StubUpstream();
+        CompletableFuture<String> a = upstream.call(dispatcher, "a");
+        upstream.call(dispatcher, "b");
+        upstream.call(dispatcher, "c");
+        assertEquals(2, dispatcher.getQueued());
+
+        // The freed slot goes to b at once; a comes back after its Retry-After, ahead of c
+        upstream.fail("a", 503, Map.of("retry-after-ms", "0"));
+        assertEquals(List.of("a", "b"), upstream.started);
+        awaitTrue(() -> dispatcher.getQueued() == 2);
+
+        upstream.succeed("b");
+        assertEquals(List.of("a", "b", "a"), upstream.started);
+        upstream.succeed("a");
+        assertEquals(List.of("a", "b", "a", "c"), upstream.started);
+        assertEquals("a", a.get(5, TimeUnit.SECONDS));
+        assertEquals(1, dispatcher.getRetried());
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        UpstreamDispatcher dispatcher = dispatcher(1, 1, 10, 5000, 2);
+        StubUpstream upstream = new StubUpstream();
+        CompletableFuture<String> call = upstream.call(dispatcher, "a");
+        upstream.fail("a", 400, Map.of());
+
+        assertTrue(call.isCompletedExceptionally());
+        assertEquals(0, dispatcher.getRetried());
+    }
+
+    @Test
+    void failsQueuedCallsAtTheirDeadline() throws Exception {
+        UpstreamDispatcher dispatcher = dispatcher(1, 1, 10, 50, 0);
+        StubUpstream upstream = new StubUpstream();
+        upstream.call(dispatcher, "busy");
+        CompletableFuture<String> waiting = upstream.call(dispatcher, "waiting");
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> waiting.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(UpstreamDispatcher.UpstreamBusyException.class, e.getCause());
+        assertEquals(1, dispatcher.getTimedOut());
+        assertEquals(0, dispatcher.getQueued());
+
+        // The expired call never reaches the upstream
+        upstream.succeed("busy");
+        assertEquals(List.of("busy"), upstream.started);
+    }
+
+    @Test
+    void rejectsCallsWhenTheQueueIsFull() {
+        UpstreamDispatcher dispatcher = dispatcher(1, 1, 1, 5000, 0);
+        StubUpstream upstream = new StubUpstream();
+        upstream.call(dispatcher, "a");
+        upstream.call(dispatcher, "b");
+        CompletableFuture<String> rejected = upstream.call(dispatcher, "c");
+
+        ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(UpstreamDispatcher.UpstreamBusyException.class, e.getCause());
+        assertEquals(1, dispatcher.getRejected());
+    }
+}
@@ -0,0 +1,236 @@
+package com.restaurant.recommendation.view;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatJournalTest {
+    // Index header: int magic, int version, int sessions, int unused, long committed journal length
+    private static final int HEADER_SESSIONS = 8;
+    private static final int HEADER_LENGTH = 16;
+
+    @TempDir
+    Path directory;
+
+    private final List<ChatJournal> journals = new ArrayList<>();
+
+    @AfterEach
+    void closeJournals() {
+        for (ChatJournal journal : journals) {
+            journal.close();
+        }
+    }
+
+    private ChatJournal open() throws IOException {
+        ChatJournal journal = ChatJournal.open(directory);
+        journals.add(journal);
+        return journal;
+    }
+
+    private static List<String> contents(ChatJournal journal, int session) {
+        List<String> contents = new ArrayList<>();
+        for (ChatMessage message : journal.readMessages(session)) {
+            contents.add((message.isUser ? "user: " : "ai: ") + message.content);
+        }
+        return contents;
+    }
+
+    private long committedLength() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.resolve("chats.index"), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, HEADER_LENGTH);
+            return header.getLong(0);
+        }
+    }
+
+    private void writeIndexHeader(int sessions, long length) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0, sessions);
+        header.putLong(8, length);
+        try (FileChannel channel = FileChannel.open(directory.resolve("chats.index"), StandardOpenOption.WRITE)) {
+            channel.write(header, HEADER_SESSIONS);
+        }
+    }
+
+    private void writeJournal(long position, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.resolve("chats.journal"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), position);
+        }
+    }
+
+    @Test
+    void reopenRestoresSessionsTitlesAndMessages() throws IOException {
+        ChatJournal journal = open();
+        int first = journal.create("chat_a", "New chat", 1000);
+        int second = journal.create("chat_b", "New chat", 2000);
+        journal.appendMessage(first, new ChatMessage("noodles near me é", true, 1001));
+        journal.appendMessage(second, new ChatMessage("other", true, 2001));
+        journal.appendMessage(first, new ChatMessage("Try Golden Lantern", false, 1002));
+        journal.setTitle(first, "noodles near me é", 1003);
+        journal.close();
+
+        ChatJournal reopened = open();
+        assertEquals(2, reopened.size());
+        assertEquals("chat_a", reopened.getId(first));
+        assertEquals("noodles near me é", reopened.getTitle(first));
+        assertEquals("New chat", reopened.getTitle(second));
+        assertEquals(1000, reopened.getCreatedMillis(first));
+        assertEquals(2, reopened.getMessageCount(first));
+        assertEquals(List.of("user: noodles near me é", "ai: Try Golden Lantern"), contents(reopened, first));
+        assertEquals(1002, reopened.readMessages(first).get(1).timeMillis);
+        assertEquals(List.of("user: other"), contents(reopened, second));
+    }
+
+    @Test
+    void clearHidesEarlierMessagesAfterReopen() throws IOException {
+        ChatJournal journal = open();
+        int cleared = journal.create("chat_a", "New chat", 1000);
+        int emptied = journal.create("chat_b", "New chat", 1000);
+        journal.appendMessage(cleared, new ChatMessage("before", true, 1001));
+        journal.appendMessage(cleared, new ChatMessage("reply", false, 1002));
+        journal.appendMessage(emptied, new ChatMessage("gone", true, 1003));
+        journal.clear(cleared, 1004);
+        journal.clear(emptied, 1004);
+        journal.appendMessage(cleared, new ChatMessage("after", true, 1005));
+        journal.close();
+
+        ChatJournal reopened = open();
+        assertEquals(List.of("user: after"), contents(reopened, cleared));
+        assertEquals(1, reopened.getMessageCount(cleared));
+        assertEquals(List.of(), contents(reopened, emptied));
+        assertEquals(0, reopened.getMessageCount(emptied));
+        reopened.close();
+
+        // The same holds when the index is rebuilt from the journal
+        writeIndexHeader(0, 0);
+        ChatJournal rebuilt = open();
+        assertEquals(List.of("user: after"), contents(rebuilt, cleared));
+        assertEquals(1, rebuilt.getMessageCount(cleared));
+        assertEquals(0, rebuilt.getMessageCount(emptied));
+    }
+
+    @Test
+    void rebuildsIndexWhenItFallsBehindTheJournal() throws IOException {
+        ChatJournal journal = open();
+        int first = journal.create("chat_a", "New chat", 1000);
+        int second = journal.create("chat_b", "New chat", 2000);
+        String big = "x".repeat(5000);
+        for (int i = 0; i < 300; i++) {
+            journal.appendMessage(i % 3 == 0 ? first : second, new ChatMessage(big + i, i % 2 == 0, 3000 + i));
+        }
+        journal.setTitle(second, "renamed", 4000);
+        journal.close();
+        long length = committedLength();
+        assertTrue(length > 1 << 20, "grew past the initial mapping");
+
+        // As if the process died before the index header was ever written
+        writeIndexHeader(0, 0);
+        ChatJournal rebuilt = open();
+        assertEquals(2, rebuilt.size());
+        assertEquals(length, committedLength());
+        assertEquals(100, rebuilt.getMessageCount(first));
+        assertEquals(200, rebuilt.getMessageCount(second));
+        assertEquals("renamed", rebuilt.getTitle(second));
+        assertEquals(2000, rebuilt.getCreatedMillis(second));
+        List<ChatMessage> messages = rebuilt.readMessages(second);
+        assertEquals(200, messages.size());
+        assertEquals(big + 1, messages.get(0).content);
+        assertEquals(big + 299, messages.get(199).content);
+    }
+
+    @Test
+    void keepsCompleteRecordWrittenBeforeTheCommit() throws IOException {
+        ChatJournal journal = open();
+        int session = journal.create("chat_a", "New chat", 1000);
+        journal.appendMessage(session, new ChatMessage("committed", true, 1001));
+        journal.close();
+        long committed = committedLength();
+
+        journal = open();
+        journal.appendMessage(session, new ChatMessage("written", false, 1002));
+        journal.close();
+
+        // The record made it to the journal but the length was never moved past it
+        writeIndexHeader(1, committed);
+        ChatJournal recovered = open();
+        assertEquals(List.of("user: committed", "ai: written"), contents(recovered, session));
+        assertEquals(2, recovered.getMessageCount(session));
+    }
+
+    @Test
+    void dropsTornTailAndKeepsAppending() throws IOException {
+        ChatJournal journal = open();
+        int session = journal.create("chat_a", "New chat", 1000);
+        journal.appendMessage(session, new ChatMessage("kept", true, 1001));
+        journal.close();
+        long committed = committedLength();
+
+        // A record header promising more bytes than the crash left behind, with no valid checksum
+        writeJournal(committed, new byte[] {60, 0, 0, 0, 1, 2, 3, 4, 3, 0, 0, 0, 0});
+        ChatJournal recovered = open();
+        assertEquals(1, recovered.size());
+        assertEquals(List.of("user: kept"), contents(recovered, session));
+        assertEquals(committed, committedLength());
+
+        recovered.appendMessage(session, new ChatMessage("after crash", false, 1002));
+        recovered.close();
+        ChatJournal reopened = open();
+        assertEquals(List.of("user: kept", "ai: after crash"), contents(reopened, session));
+    }
+
+    @Test
+    void dropsCorruptRecordAndRebuildsCounts() throws IOException {
+        ChatJournal journal = open();
+        int first = journal.create("chat_a", "New chat", 1000);
+        journal.appendMessage(first, new ChatMessage("one", true, 1001));
+        journal.close();
+        long beforeSecond = committedLength();
+
+        journal = open();
+        int second = journal.create("chat_b", "New chat", 2000);
+        journal.appendMessage(second, new ChatMessage("torn", true, 2001));
+        journal.appendMessage(first, new ChatMessage("two", false, 1002));
+        journal.close();
+        long length = committedLength();
+
+        // Corrupt the second session's message (after its create and title records), then rewind the
+        // index so recovery has to replay
+        long tornAt = beforeSecond + 29 + "chat_b".length() + 29 + "New chat".length();
+        writeJournal(tornAt + 29, new byte[] {'X'});
+        writeIndexHeader(1, beforeSecond);
+        ChatJournal recovered = open();
+
+        // Replay stops at the corrupt record, so the intact message after it goes too
+        assertEquals(2, recovered.size());
+        assertEquals("New chat", recovered.getTitle(second));
+        assertEquals(0, recovered.getMessageCount(second));
+        assertEquals(List.of(), contents(recovered, second));
+        assertEquals(List.of("user: one"), contents(recovered, first));
+        assertEquals(1, recovered.getMessageCount(first));
+        assertEquals(tornAt, committedLength());
+        assertTrue(committedLength() < length);
+    }
+
+    @Test
+    void rejectsForeignIndex() throws IOException {
+        open().close();
+        ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, 0x12345678);
+        try (FileChannel channel = FileChannel.open(directory.resolve("chats.index"), StandardOpenOption.WRITE)) {
+            channel.write(magic, 0);
+        }
+        assertThrows(IOException.class, () -> ChatJournal.open(directory));
+    }
+}